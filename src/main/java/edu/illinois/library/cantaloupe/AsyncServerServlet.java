@@ -0,0 +1,370 @@
+package edu.illinois.library.cantaloupe;
+
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.logging.AccessLogService;
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
+import edu.illinois.library.cantaloupe.util.StringUtil;
+import org.restlet.ext.servlet.ServerServlet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>{@link ServerServlet} that can handle IIIF image and information
+ * requests asynchronously using Servlet 3.1 async I/O, when {@link
+ * Key#IIIF_ASYNC_ENABLED} is <code>true</code>.</p>
+ *
+ * <p>In that case, the container thread that received the request is
+ * released immediately, and the request is handled by the Restlet
+ * application in a thread from a separate, bounded pool. Its response is
+ * written to a {@link NonBlockingOutputStream}, which hands it off to the
+ * container to send to the client at the client's own pace. So, a slow
+ * client doesn't tie up any thread, and the size of the container's thread
+ * pool no longer limits the number of concurrent connections.</p>
+ *
+ * <p>A worker is released as soon as it has written the whole response into
+ * the buffer, whose size is set by {@link
+ * Key#IIIF_ASYNC_OUTPUT_BUFFER_SIZE}. A response larger than that keeps its
+ * worker blocked until the client has read all but the last buffer's worth
+ * of it, so the buffer size should cover typical responses.</p>
+ *
+ * <p>When the pool and its queue are full, requests are rejected with a
+ * <code>503 Service Unavailable</code> response. Handling them in the
+ * container thread instead would defeat the purpose of the pool, which is to
+ * bound the number of requests being processed at once.</p>
+ *
+ * <p>IIIF requests are also handled within a {@link RequestTrace} when
+ * {@link Key#SERVER_TIMING_ENABLED} or {@link Key#ACCESS_LOG_TIMING_ENABLED}
+ * is <code>true</code>. The trace spans the whole response, including the
+ * writing of its body, so it is ended here rather than in the
+ * application.</p>
+ *
+ * @since 3.5
+ */
+public class AsyncServerServlet extends ServerServlet {
+
+    /**
+     * Redirects the response body into a {@link NonBlockingOutputStream}.
+     */
+    private static class NonBlockingResponse
+            extends HttpServletResponseWrapper {
+
+        private Throwable abortCause;
+        private final long bufferCapacity;
+        private final Runnable completionCallback;
+        private NonBlockingOutputStream outputStream;
+        private final long writeTimeoutMsec;
+        private PrintWriter writer;
+
+        NonBlockingResponse(HttpServletResponse response,
+                            long bufferCapacity,
+                            long writeTimeoutMsec,
+                            Runnable completionCallback) {
+            super(response);
+            this.bufferCapacity = bufferCapacity;
+            this.writeTimeoutMsec = writeTimeoutMsec;
+            this.completionCallback = completionCallback;
+        }
+
+        /**
+         * Makes the response body fail, so that the thread writing it will
+         * stop as soon as it next writes to it. The response is completed
+         * once that thread has finished.
+         */
+        synchronized void abort(Throwable cause) {
+            abortCause = cause;
+            if (outputStream != null) {
+                outputStream.abort(cause);
+            }
+        }
+
+        /**
+         * Closes the response body, which completes the response once it
+         * has been sent.
+         */
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.close();
+            } else if (outputStream != null) {
+                outputStream.close();
+            } else {
+                completionCallback.run();
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            } else if (outputStream != null) {
+                outputStream.flush();
+            }
+        }
+
+        @Override
+        public synchronized ServletOutputStream getOutputStream()
+                throws IOException {
+            if (outputStream == null) {
+                outputStream = new NonBlockingOutputStream(
+                        super.getOutputStream(), bufferCapacity,
+                        writeTimeoutMsec, completionCallback);
+                if (abortCause != null) {
+                    outputStream.abort(abortCause);
+                }
+            }
+            return outputStream;
+        }
+
+        @Override
+        public synchronized PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(
+                        getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+    }
+
+    private static class AsyncThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable);
+            thread.setName("cl-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(AsyncServerServlet.class);
+
+    private static final int DEFAULT_MAX_THREADS =
+            Runtime.getRuntime().availableProcessors() * 4;
+    private static final long DEFAULT_OUTPUT_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final int DEFAULT_TIMEOUT_SECONDS = 120;
+
+    /**
+     * Value of the <code>Retry-After</code> header of the response to a
+     * request rejected because the pool is saturated.
+     */
+    private static final int SATURATED_RETRY_AFTER_SECONDS = 5;
+
+    private ThreadPoolExecutor executor;
+
+    private static long getOutputBufferSize() {
+        final String value = Configuration.getInstance().
+                getString(Key.IIIF_ASYNC_OUTPUT_BUFFER_SIZE, "");
+        if (value != null && !value.isEmpty()) {
+            try {
+                return StringUtil.parseByteSize(value);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("getOutputBufferSize(): invalid value for {}: {}",
+                        Key.IIIF_ASYNC_OUTPUT_BUFFER_SIZE, value);
+            }
+        }
+        return DEFAULT_OUTPUT_BUFFER_SIZE;
+    }
+
+    private static long getTimeoutMsec() {
+        int seconds = Configuration.getInstance().
+                getInt(Key.IIIF_ASYNC_TIMEOUT, DEFAULT_TIMEOUT_SECONDS);
+        if (seconds < 1) {
+            seconds = DEFAULT_TIMEOUT_SECONDS;
+        }
+        return seconds * 1000L;
+    }
+
+    /**
+     * @return Whether the given request is for a IIIF image or information
+     *         resource and can be handled asynchronously.
+     */
+    static boolean isAsyncEligible(HttpServletRequest request) {
+        final String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+        String path = request.getPathInfo();
+        if (path == null) {
+            path = request.getServletPath();
+        }
+        if (path == null) {
+            return false;
+        }
+        for (String prefix : new String[] { RestletApplication.IIIF_1_PATH,
+                RestletApplication.IIIF_2_PATH }) {
+            if (path.startsWith(prefix + "/") &&
+                    path.length() > prefix.length() + 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        super.destroy();
+    }
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+
+        final Configuration config = Configuration.getInstance();
+        int maxThreads = config.getInt(Key.IIIF_ASYNC_MAX_THREADS,
+                DEFAULT_MAX_THREADS);
+        if (maxThreads < 1) {
+            maxThreads = DEFAULT_MAX_THREADS;
+        }
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxThreads * 16),
+                new AsyncThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return Whether either of the consumers of {@link RequestTrace}s is
+     *         enabled.
+     */
+    private static boolean isTracingEnabled() {
+        final Configuration config = Configuration.getInstance();
+        return config.getBoolean(Key.SERVER_TIMING_ENABLED, false) ||
+                config.getBoolean(Key.ACCESS_LOG_TIMING_ENABLED, false);
+    }
+
+    /**
+     * Handles the request in the Restlet application, within a {@link
+     * RequestTrace} if tracing is enabled.
+     */
+    private void handle(HttpServletRequest request,
+                        HttpServletResponse response)
+            throws ServletException, IOException {
+        if (!isAsyncEligible(request) || !isTracingEnabled()) {
+            super.service(request, response);
+            return;
+        }
+        final RequestTrace trace = RequestTrace.begin();
+        try {
+            super.service(request, response);
+        } finally {
+            trace.end();
+            if (Configuration.getInstance().getBoolean(
+                    Key.ACCESS_LOG_TIMING_ENABLED, false)) {
+                AccessLogService.logTiming(request.getMethod(),
+                        request.getRequestURI(), response.getStatus(), trace);
+            }
+        }
+    }
+
+    @Override
+    public void service(HttpServletRequest request,
+                        HttpServletResponse response)
+            throws ServletException, IOException {
+        if (!request.isAsyncSupported() ||
+                !Configuration.getInstance().getBoolean(
+                        Key.IIIF_ASYNC_ENABLED, false) ||
+                !isAsyncEligible(request)) {
+            handle(request, response);
+            return;
+        }
+
+        final long timeoutMsec = getTimeoutMsec();
+        final AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(timeoutMsec);
+
+        // Invoked when the worker has finished and the response body has
+        // been sent, or has failed. This is the only place in which the
+        // response is completed.
+        final AtomicBoolean isComplete = new AtomicBoolean(false);
+        final Runnable completionCallback = () -> {
+            if (isComplete.compareAndSet(false, true)) {
+                try {
+                    asyncContext.complete();
+                } catch (IllegalStateException e) {
+                    // After a timeout or error, the container completes the
+                    // response itself if no listener does.
+                    LOGGER.debug("service(): {}", e.getMessage());
+                }
+            }
+        };
+        final NonBlockingResponse asyncResponse = new NonBlockingResponse(
+                (HttpServletResponse) asyncContext.getResponse(),
+                getOutputBufferSize(), timeoutMsec, completionCallback);
+
+        // On timeout or error, the worker is made to stop writing, rather
+        // than completing the response out from under it.
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {}
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                LOGGER.warn("service(): timed out after {} msec: {}",
+                        timeoutMsec, request.getRequestURI());
+                asyncResponse.abort(new IOException(
+                        "Timed out after " + timeoutMsec + " msec"));
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                LOGGER.debug("service(): {}",
+                        event.getThrowable().getMessage());
+                asyncResponse.abort(event.getThrowable());
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {}
+        });
+        try {
+            executor.execute(() -> {
+                try {
+                    handle((HttpServletRequest) asyncContext.getRequest(),
+                            asyncResponse);
+                    asyncResponse.finish();
+                } catch (Exception e) {
+                    LOGGER.error("service(): {}", e.getMessage(), e);
+                    completionCallback.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("service(): async pool is saturated ({} threads); " +
+                    "rejecting {}", executor.getMaximumPoolSize(),
+                    request.getRequestURI());
+            final HttpServletResponse asyncContextResponse =
+                    (HttpServletResponse) asyncContext.getResponse();
+            asyncContextResponse.setStatus(
+                    HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            asyncContextResponse.setHeader("Retry-After",
+                    Integer.toString(SATURATED_RETRY_AFTER_SECONDS));
+            completionCallback.run();
+        }
+    }
+
+}
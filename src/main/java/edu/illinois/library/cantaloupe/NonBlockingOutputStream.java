@@ -0,0 +1,331 @@
+package edu.illinois.library.cantaloupe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>Output stream that decouples the thread writing a response from the
+ * client reading it, using Servlet 3.1 non-blocking I/O.</p>
+ *
+ * <p>Data written to an instance is copied into a bounded in-memory buffer,
+ * which is drained into the underlying {@link ServletOutputStream} only as
+ * fast as it reports itself {@link ServletOutputStream#isReady() ready}. The
+ * rest is drained by the container, in its own I/O threads, as the client
+ * catches up. So, as long as a response fits into the buffer, the writing
+ * thread can move on to other work immediately, no matter how slow the
+ * client. If the buffer fills up, writes block until there is room again,
+ * which bounds memory use per response.</p>
+ *
+ * <p>After {@link #close()} has been called and the buffer has been
+ * drained, the completion callback is invoked exactly once. After an error,
+ * or after the stream has been {@link #abort(Throwable) aborted}, writes
+ * fail, nothing more is written to the target, and the callback is invoked
+ * once the stream has been closed, so that a response is never completed
+ * while its writer is still running.</p>
+ *
+ * @since 3.5
+ */
+class NonBlockingOutputStream extends ServletOutputStream
+        implements WriteListener {
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(NonBlockingOutputStream.class);
+
+    /**
+     * Size of the chunks that small writes are gathered into before being
+     * queued.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    private final long bufferCapacity;
+    private final Queue<byte[]> chunks = new ArrayDeque<>();
+    private final Runnable completionCallback;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition spaceAvailable = lock.newCondition();
+    private final ServletOutputStream target;
+    private final long writeTimeoutMsec;
+
+    /** Guarded by {@link #lock}. */
+    private long bufferedBytes;
+    /** Guarded by {@link #lock}. */
+    private boolean isClosed;
+    /** Guarded by {@link #lock}. */
+    private boolean isComplete;
+    /** Guarded by {@link #lock}. */
+    private Throwable error;
+    /** Guarded by {@link #lock}. */
+    private byte[] pendingChunk = new byte[CHUNK_SIZE];
+    /** Guarded by {@link #lock}. */
+    private int pendingChunkLength;
+
+    /**
+     * @param target             Stream to write to. Its write listener will
+     *                           be set to the new instance.
+     * @param bufferCapacity     Maximum number of bytes to buffer.
+     * @param writeTimeoutMsec   Maximum time to block waiting for buffer
+     *                           space before failing with an {@link
+     *                           IOException}.
+     * @param completionCallback Invoked once all of the data written to the
+     *                           instance has been written to the target, or
+     *                           an error has occurred.
+     */
+    NonBlockingOutputStream(ServletOutputStream target,
+                            long bufferCapacity,
+                            long writeTimeoutMsec,
+                            Runnable completionCallback) {
+        this.target = target;
+        this.bufferCapacity = Math.max(CHUNK_SIZE, bufferCapacity);
+        this.writeTimeoutMsec = writeTimeoutMsec;
+        this.completionCallback = completionCallback;
+        target.setWriteListener(this);
+    }
+
+    /**
+     * Fails the stream, e.g. because the response has timed out. Buffered
+     * data is discarded, writes in progress and subsequent writes fail, and
+     * the completion callback is invoked once the stream has been (or as
+     * soon as it is) closed.
+     *
+     * @param cause Reason for aborting.
+     */
+    void abort(Throwable cause) {
+        lock.lock();
+        try {
+            if (error == null) {
+                error = cause;
+            }
+            chunks.clear();
+            bufferedBytes = 0;
+            spaceAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * Marks the end of the response. Returns immediately, without waiting
+     * for the buffer to be drained.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            queuePendingChunk();
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * Writes as much buffered data to the target as it will accept without
+     * blocking, and invokes the completion callback if there is no more to
+     * write, or if there has been an error and the stream has been closed.
+     */
+    private void drain() {
+        boolean complete = false;
+        lock.lock();
+        try {
+            if (isComplete) {
+                return;
+            }
+            if (error != null) {
+                complete = isClosed;
+            } else {
+                try {
+                    while (!chunks.isEmpty() && target.isReady()) {
+                        final byte[] chunk = chunks.poll();
+                        bufferedBytes -= chunk.length;
+                        spaceAvailable.signalAll();
+                        target.write(chunk);
+                    }
+                    if (chunks.isEmpty() && isClosed && target.isReady()) {
+                        complete = true;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    error = e;
+                    chunks.clear();
+                    bufferedBytes = 0;
+                    spaceAvailable.signalAll();
+                    complete = isClosed;
+                }
+            }
+            if (complete) {
+                isComplete = true;
+                chunks.clear();
+                bufferedBytes = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (complete) {
+            completionCallback.run();
+        }
+    }
+
+    /**
+     * Queues any data gathered by small writes. Does not wait for buffer
+     * space, so the buffer may briefly exceed its capacity by up to one
+     * chunk. Does nothing after {@link #close()}.
+     */
+    @Override
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            if (isClosed) {
+                return;
+            }
+            checkWritable();
+            queuePendingChunk();
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * @return Number of bytes buffered but not yet written to the target.
+     */
+    long getBufferedBytes() {
+        lock.lock();
+        try {
+            return bufferedBytes + pendingChunkLength;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This stream is always ready to accept writes, although they may
+     * block if the buffer is full.
+     */
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    /**
+     * Invoked by the container when a write to the target has failed
+     * asynchronously, or the client has gone away.
+     */
+    @Override
+    public void onError(Throwable t) {
+        LOGGER.debug("onError(): {}", t.getMessage());
+        abort(t);
+    }
+
+    /**
+     * Invoked by the container when the target has become writable again
+     * after {@link ServletOutputStream#isReady()} returned
+     * <code>false</code>.
+     */
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    /**
+     * @throws UnsupportedOperationException Always; this stream manages its
+     *         own write listener.
+     */
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        boolean queuedChunk = false;
+        lock.lock();
+        try {
+            checkWritable();
+            while (len > 0) {
+                final int count = Math.min(len,
+                        pendingChunk.length - pendingChunkLength);
+                System.arraycopy(b, off, pendingChunk, pendingChunkLength,
+                        count);
+                pendingChunkLength += count;
+                off += count;
+                len -= count;
+                if (pendingChunkLength == pendingChunk.length) {
+                    awaitSpace();
+                    queuePendingChunk();
+                    queuedChunk = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (queuedChunk) {
+            drain();
+        }
+    }
+
+    /**
+     * Must be called while holding {@link #lock}.
+     */
+    private void awaitSpace() throws IOException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMsec);
+        while (bufferedBytes + pendingChunkLength > bufferCapacity) {
+            checkWritable();
+            if (nanos <= 0) {
+                throw new IOException("Timed out waiting for the client");
+            }
+            try {
+                nanos = spaceAvailable.awaitNanos(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for the client", e);
+            }
+        }
+        checkWritable();
+    }
+
+    /**
+     * Must be called while holding {@link #lock}.
+     */
+    private void checkWritable() throws IOException {
+        if (error != null) {
+            throw new IOException(error.getMessage(), error);
+        }
+        if (isClosed || isComplete) {
+            throw new IOException("Stream is closed");
+        }
+    }
+
+    /**
+     * Must be called while holding {@link #lock}.
+     */
+    private void queuePendingChunk() {
+        if (pendingChunkLength > 0) {
+            final byte[] chunk = (pendingChunkLength == pendingChunk.length) ?
+                    pendingChunk :
+                    Arrays.copyOf(pendingChunk, pendingChunkLength);
+            chunks.add(chunk);
+            bufferedBytes += chunk.length;
+            pendingChunk = new byte[CHUNK_SIZE];
+            pendingChunkLength = 0;
+        }
+    }
+
+}
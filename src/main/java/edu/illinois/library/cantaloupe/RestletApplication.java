@@ -10,6 +10,7 @@ import edu.illinois.library.cantaloupe.resource.AbstractResource;
 import edu.illinois.library.cantaloupe.resource.LandingResource;
 import edu.illinois.library.cantaloupe.resource.TrailingSlashRemovingResource;
 import edu.illinois.library.cantaloupe.resource.admin.AdminResource;
+import edu.illinois.library.cantaloupe.resource.admin.MetricsResource;
 import edu.illinois.library.cantaloupe.resource.admin.StatusResource;
 import edu.illinois.library.cantaloupe.resource.api.CacheResource;
 import edu.illinois.library.cantaloupe.resource.api.TaskResource;
@@ -162,6 +163,7 @@ public class RestletApplication extends Application {
 
     public static final String ADMIN_PATH = "/admin";
     public static final String ADMIN_CONFIG_PATH = "/admin/configuration";
+    public static final String ADMIN_METRICS_PATH = "/metrics";
     public static final String ADMIN_STATUS_PATH = "/status";
     public static final String CACHE_PATH = "/cache";
     public static final String CONFIGURATION_PATH = "/configuration";
@@ -310,6 +312,10 @@ public class RestletApplication extends Application {
         adminAuth.setNext(StatusResource.class);
         router.attach(ADMIN_STATUS_PATH, adminAuth);
 
+        adminAuth = newAdminAuthenticator();
+        adminAuth.setNext(MetricsResource.class);
+        router.attach(ADMIN_METRICS_PATH, adminAuth);
+
         /////////////////////////// API routes ////////////////////////////
 
         Authenticator apiAuth = newAPIAuthenticator();
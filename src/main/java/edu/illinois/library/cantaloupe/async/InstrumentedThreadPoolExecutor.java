@@ -0,0 +1,131 @@
+package edu.illinois.library.cantaloupe.async;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>{@link ThreadPoolExecutor} with a bounded number of threads and a
+ * bounded queue that keeps track of how many tasks it has rejected and how
+ * long tasks have waited in the queue before starting.</p>
+ *
+ * <p>Unlike a stock {@link ThreadPoolExecutor} with a bounded queue, which
+ * only grows beyond its core size once the queue is full, this one starts a
+ * new thread for every task until the maximum is reached, and only then
+ * starts queueing. Idle threads time out.</p>
+ *
+ * @since 3.5
+ */
+class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    /**
+     * {@link FutureTask} that knows when it was submitted.
+     */
+    private static class TimedFutureTask<V> extends FutureTask<V> {
+
+        private final long submitTime = System.nanoTime();
+
+        TimedFutureTask(Callable<V> callable) {
+            super(callable);
+        }
+
+        TimedFutureTask(Runnable runnable, V result) {
+            super(runnable, result);
+        }
+
+    }
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final int queueCapacity;
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final LongAdder startedCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    private static BlockingQueue<Runnable> newQueue(int capacity) {
+        return (capacity > 0) ?
+                new ArrayBlockingQueue<>(capacity) : new SynchronousQueue<>();
+    }
+
+    /**
+     * @param maxThreads       Maximum number of threads.
+     * @param queueCapacity    Maximum number of queued tasks. If zero, tasks
+     *                         are handed off directly to a thread and
+     *                         rejected if none is available.
+     * @param threadFactory    Thread factory.
+     * @param rejectionHandler Invoked with tasks that can neither be started
+     *                         nor queued. Its invocations are counted
+     *                         whether or not it ends up running the task.
+     */
+    InstrumentedThreadPoolExecutor(int maxThreads,
+                                   int queueCapacity,
+                                   ThreadFactory threadFactory,
+                                   RejectedExecutionHandler rejectionHandler) {
+        super(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                newQueue(queueCapacity), threadFactory);
+        this.queueCapacity = Math.max(0, queueCapacity);
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler((task, executor) -> {
+            rejectedCount.incrementAndGet();
+            rejectionHandler.rejectedExecution(task, executor);
+        });
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable task) {
+        super.beforeExecute(thread, task);
+        if (task instanceof TimedFutureTask) {
+            final long waitNanos =
+                    System.nanoTime() - ((TimedFutureTask<?>) task).submitTime;
+            totalWaitNanos.add(waitNanos);
+            startedCount.increment();
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+    }
+
+    /**
+     * @return Longest time that any task has waited to start, in
+     *         milliseconds.
+     */
+    double getMaxWaitTime() {
+        return maxWaitNanos.get() / 1000000.0;
+    }
+
+    /**
+     * @return Mean time that tasks have waited to start, in milliseconds.
+     */
+    double getMeanWaitTime() {
+        final long count = startedCount.sum();
+        return (count > 0) ?
+                totalWaitNanos.sum() / (double) count / 1000000.0 : 0;
+    }
+
+    int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new TimedFutureTask<>(callable);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new TimedFutureTask<>(runnable, value);
+    }
+
+}
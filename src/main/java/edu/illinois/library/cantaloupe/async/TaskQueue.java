@@ -35,7 +35,7 @@ public final class TaskQueue {
 
     private TaskQueue() {
         runner = new TaskRunner();
-        ThreadPool.getInstance().submit(runner);
+        ThreadPool.getInstance().submitLongRunning(runner);
     }
 
     /**
@@ -1,14 +1,48 @@
 package edu.illinois.library.cantaloupe.async;
 
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 
 /**
- * Global application thread pool Singleton.
+ * <p>Global application thread pool Singleton.</p>
+ *
+ * <p>Tasks are submitted at one of three {@link Priority priorities}, each of
+ * which has its own pool with a bounded number of threads and a bounded
+ * queue, sized by the {@link Key#THREAD_POOL_LOW_MAX_THREADS
+ * thread_pool.*} configuration keys. What happens when a pool and its queue
+ * are both full depends on the priority:</p>
+ *
+ * <dl>
+ *     <dt>{@link Priority#LOW}</dt>
+ *     <dd>For best-effort work, like cache writes, whose loss is harmless.
+ *     Tasks are discarded, and their {@link Future}s cancelled.</dd>
+ *     <dt>{@link Priority#NORMAL}</dt>
+ *     <dd>For work that must happen but not necessarily asynchronously.
+ *     Tasks are run in the submitting thread, slowing down the submitter
+ *     rather than letting work pile up.</dd>
+ *     <dt>{@link Priority#HIGH}</dt>
+ *     <dd>For work that must start immediately, like reading the output of a
+ *     child process. Tasks are not queued by default. If no thread is
+ *     available, they are run in an unbounded overflow pool instead, as
+ *     neither discarding them nor running them in the submitting thread
+ *     (which is typically waiting on them) is safe.</dd>
+ * </dl>
+ *
+ * <p>Tasks that run for the life of the application (like file watchers)
+ * would permanently tie up pool threads, so they must be submitted via
+ * {@link #submitLongRunning} instead, which runs them in dedicated
+ * threads.</p>
  */
 public final class ThreadPool {
 
@@ -54,6 +88,14 @@ public final class ThreadPool {
         }
     }
 
+    private static class LongRunningThreadFactory
+            extends AbstractThreadFactory implements ThreadFactory {
+        @Override
+        String getThreadNamePrefix() {
+            return "cl-lr";
+        }
+    }
+
     private static class HighPriorityThreadFactory
             extends AbstractThreadFactory implements ThreadFactory {
         @Override
@@ -62,15 +104,167 @@ public final class ThreadPool {
         }
     }
 
+    private static class OverflowThreadFactory
+            extends AbstractThreadFactory implements ThreadFactory {
+        @Override
+        String getThreadNamePrefix() {
+            return "cl-of";
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of the state of one of the pools.
+     *
+     * @since 3.5
+     */
+    public static final class Statistics {
+
+        private final int activeCount;
+        private final long completedCount;
+        private final int maxThreads;
+        private final double maxWaitTime;
+        private final double meanWaitTime;
+        private final int poolSize;
+        private final int queueCapacity;
+        private final int queuedCount;
+        private final long rejectedCount;
+
+        private Statistics(InstrumentedThreadPoolExecutor executor) {
+            activeCount = executor.getActiveCount();
+            completedCount = executor.getCompletedTaskCount();
+            maxThreads = executor.getMaximumPoolSize();
+            maxWaitTime = executor.getMaxWaitTime();
+            meanWaitTime = executor.getMeanWaitTime();
+            poolSize = executor.getPoolSize();
+            queueCapacity = executor.getQueueCapacity();
+            queuedCount = executor.getQueue().size();
+            rejectedCount = executor.getRejectedCount();
+        }
+
+        /**
+         * @return Number of threads currently running a task.
+         */
+        public int getActiveCount() {
+            return activeCount;
+        }
+
+        /**
+         * @return Number of tasks that have been run to completion by the
+         *         pool. Tasks run in the submitting thread are not included.
+         */
+        public long getCompletedCount() {
+            return completedCount;
+        }
+
+        public int getMaxThreads() {
+            return maxThreads;
+        }
+
+        /**
+         * @return Longest time that a task has waited in the queue, in
+         *         milliseconds.
+         */
+        public double getMaxWaitTime() {
+            return maxWaitTime;
+        }
+
+        /**
+         * @return Mean time that tasks have waited in the queue, in
+         *         milliseconds.
+         */
+        public double getMeanWaitTime() {
+            return meanWaitTime;
+        }
+
+        /**
+         * @return Number of threads currently in the pool, whether active or
+         *         idle.
+         */
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public int getQueuedCount() {
+            return queuedCount;
+        }
+
+        /**
+         * @return Number of tasks that could neither be started nor queued,
+         *         regardless of what was then done with them.
+         */
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(ThreadPool.class);
+
+    private static final int DEFAULT_LOW_MAX_THREADS = 8;
+    private static final int DEFAULT_LOW_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_NORMAL_MAX_THREADS = 32;
+    private static final int DEFAULT_NORMAL_QUEUE_SIZE = 500;
+    private static final int DEFAULT_HIGH_MAX_THREADS = 256;
+    private static final int DEFAULT_HIGH_QUEUE_SIZE = 0;
+
+    /**
+     * Discards a task and cancels its {@link Future}, so that anyone waiting
+     * on it doesn't wait forever.
+     */
+    private static final RejectedExecutionHandler DISCARD_POLICY =
+            (task, executor) -> {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Pool is shut down");
+                }
+                LOGGER.warn("Low-priority pool is saturated; discarding {}",
+                        task);
+                if (task instanceof Future) {
+                    ((Future<?>) task).cancel(false);
+                }
+            };
+
+    /**
+     * Runs a task in the submitting thread.
+     */
+    private static final RejectedExecutionHandler CALLER_RUNS_POLICY =
+            (task, executor) -> {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Pool is shut down");
+                }
+                LOGGER.debug("Normal-priority pool is saturated; " +
+                        "running {} in the calling thread", task);
+                task.run();
+            };
+
     private static ThreadPool instance;
 
     private boolean isShutdown = false;
-    private final ExecutorService lowPriorityPool =
-            Executors.newCachedThreadPool(new LowPriorityThreadFactory());
-    private final ExecutorService normalPriorityPool =
-            Executors.newCachedThreadPool(new NormalPriorityThreadFactory());
-    private final ExecutorService highPriorityPool =
-            Executors.newCachedThreadPool(new HighPriorityThreadFactory());
+    private final InstrumentedThreadPoolExecutor lowPriorityPool;
+    private final InstrumentedThreadPoolExecutor normalPriorityPool;
+    private final InstrumentedThreadPoolExecutor highPriorityPool;
+    private final ExecutorService longRunningPool =
+            Executors.newCachedThreadPool(new LongRunningThreadFactory());
+    private final ExecutorService overflowPool =
+            Executors.newCachedThreadPool(new OverflowThreadFactory());
+
+    /**
+     * Runs a task in {@link #overflowPool}.
+     */
+    private final RejectedExecutionHandler overflowPolicy =
+            (task, executor) -> {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Pool is shut down");
+                }
+                LOGGER.warn("High-priority pool is saturated ({} threads); " +
+                        "running {} in the overflow pool",
+                        executor.getMaximumPoolSize(), task);
+                overflowPool.execute(task);
+            };
 
     /**
      * @return Shared {@link ThreadPool} instance.
@@ -90,7 +284,57 @@ public final class ThreadPool {
         instance = null;
     }
 
+    private static InstrumentedThreadPoolExecutor newPool(
+            Key maxThreadsKey, int defaultMaxThreads,
+            Key queueSizeKey, int defaultQueueSize,
+            ThreadFactory threadFactory,
+            RejectedExecutionHandler rejectionHandler) {
+        final Configuration config = Configuration.getInstance();
+        int maxThreads = config.getInt(maxThreadsKey, defaultMaxThreads);
+        if (maxThreads < 1) {
+            maxThreads = defaultMaxThreads;
+        }
+        int queueSize = config.getInt(queueSizeKey, defaultQueueSize);
+        if (queueSize < 0) {
+            queueSize = defaultQueueSize;
+        }
+        return new InstrumentedThreadPoolExecutor(maxThreads, queueSize,
+                threadFactory, rejectionHandler);
+    }
+
     private ThreadPool() {
+        lowPriorityPool = newPool(
+                Key.THREAD_POOL_LOW_MAX_THREADS, DEFAULT_LOW_MAX_THREADS,
+                Key.THREAD_POOL_LOW_QUEUE_SIZE, DEFAULT_LOW_QUEUE_SIZE,
+                new LowPriorityThreadFactory(), DISCARD_POLICY);
+        normalPriorityPool = newPool(
+                Key.THREAD_POOL_NORMAL_MAX_THREADS, DEFAULT_NORMAL_MAX_THREADS,
+                Key.THREAD_POOL_NORMAL_QUEUE_SIZE, DEFAULT_NORMAL_QUEUE_SIZE,
+                new NormalPriorityThreadFactory(), CALLER_RUNS_POLICY);
+        highPriorityPool = newPool(
+                Key.THREAD_POOL_HIGH_MAX_THREADS, DEFAULT_HIGH_MAX_THREADS,
+                Key.THREAD_POOL_HIGH_QUEUE_SIZE, DEFAULT_HIGH_QUEUE_SIZE,
+                new HighPriorityThreadFactory(), overflowPolicy);
+    }
+
+    private InstrumentedThreadPoolExecutor getPool(Priority priority) {
+        switch (priority) {
+            case LOW:
+                return lowPriorityPool;
+            case HIGH:
+                return highPriorityPool;
+            default:
+                return normalPriorityPool;
+        }
+    }
+
+    /**
+     * @param priority Priority of the pool to get statistics about.
+     * @return         Current state of the pool.
+     * @since 3.5
+     */
+    public Statistics getStatistics(Priority priority) {
+        return new Statistics(getPool(priority));
     }
 
     public boolean isShutdown() {
@@ -101,6 +345,8 @@ public final class ThreadPool {
         lowPriorityPool.shutdownNow();
         normalPriorityPool.shutdownNow();
         highPriorityPool.shutdownNow();
+        longRunningPool.shutdownNow();
+        overflowPool.shutdownNow();
         isShutdown = true;
     }
 
@@ -108,30 +354,37 @@ public final class ThreadPool {
         return submit(task, Priority.NORMAL);
     }
 
+    /**
+     * @throws RejectedExecutionException If the pool is shut down.
+     */
     public Future<?> submit(Callable<?> task, Priority priority) {
-        switch (priority) {
-            case LOW:
-                return lowPriorityPool.submit(task);
-            case HIGH:
-                return highPriorityPool.submit(task);
-            default:
-                return normalPriorityPool.submit(task);
-        }
+        return getPool(priority).submit(task);
     }
 
     public Future<?> submit(Runnable task) {
         return submit(task, Priority.NORMAL);
     }
 
+    /**
+     * @return Future of the task. If the priority is {@link Priority#LOW} and
+     *         the task was discarded, it is already cancelled.
+     * @throws RejectedExecutionException If the pool is shut down.
+     */
     public Future<?> submit(Runnable task, Priority priority) {
-        switch (priority) {
-            case LOW:
-                return lowPriorityPool.submit(task);
-            case HIGH:
-                return highPriorityPool.submit(task);
-            default:
-                return normalPriorityPool.submit(task);
-        }
+        return getPool(priority).submit(task);
+    }
+
+    /**
+     * Runs a task that is expected to run indefinitely, like a loop that
+     * watches for changes, in a dedicated thread that doesn't count against
+     * the limits of any of the pools.
+     *
+     * @param task Task to run.
+     * @return     Future that can be used to cancel the task.
+     * @since 3.5
+     */
+    public Future<?> submitLongRunning(Runnable task) {
+        return longRunningPool.submit(task);
     }
 
 }
@@ -1,5 +1,6 @@
 package edu.illinois.library.cantaloupe.cache;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.GetObjectRequest;
@@ -27,6 +28,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.function.Consumer;
 
 /**
  * <p>Cache using an Amazon S3 bucket.</p>
@@ -43,6 +45,11 @@ import java.time.temporal.ChronoUnit;
  *     <dd><code>{@link Key#AMAZONS3CACHE_OBJECT_KEY_PREFIX}/info/{identifier}.json</code></dd>
  * </dl>
  *
+ * <p>When {@link Key#DERIVATIVE_CACHE_BLOOM_FILTER_ENABLED} is
+ * <code>true</code>, a {@link CacheKeyFilter} of all object keys in the
+ * bucket is maintained so that lookups of objects that are not in it are
+ * only confirmed with a <code>HEAD</code> request.</p>
+ *
  * @see <a href="http://docs.aws.amazon.com/AWSSdkDocsJava/latest/DeveloperGuide/welcome.html">
  *     AWS SDK for Java</a>
  * @since 3.0
@@ -102,7 +109,8 @@ class AmazonS3Cache implements DerivativeCache {
             // connection to close. Uploading in a separate thread will allow
             // this to happen immediately.
             ThreadPool.getInstance().submit(new AmazonS3Upload(
-                    s3, bufferStream, bucketName, objectKey, metadata));
+                    s3, bufferStream, bucketName, objectKey, metadata),
+                    ThreadPool.Priority.LOW);
         }
 
         @Override
@@ -207,17 +215,36 @@ class AmazonS3Cache implements DerivativeCache {
                 minusSeconds(config.getInt(Key.CACHE_SERVER_TTL));
     }
 
+    private final CacheKeyFilter keyFilter =
+            new CacheKeyFilter(AmazonS3Cache.class.getSimpleName());
+
     String getBucketName() {
         return Configuration.getInstance().
                 getString(Key.AMAZONS3CACHE_BUCKET_NAME);
     }
 
+    /**
+     * Repopulates the key filter, if enabled and necessary.
+     */
+    @Override
+    public void cleanUp() {
+        if (CacheKeyFilter.isEnabled()) {
+            keyFilter.populateAsyncIfNecessary(this::listKeys);
+        }
+    }
+
     @Override
     public Info getImageInfo(Identifier identifier) throws IOException {
         final AmazonS3 s3 = getClientInstance();
         final String bucketName = getBucketName();
         final String objectKey = getObjectKey(identifier);
 
+        if (keyFilter.isDefinitelyAbsent(objectKey, this::objectExists)) {
+            LOGGER.debug("getImageInfo(): {} is not in bucket {}",
+                    objectKey, bucketName);
+            return null;
+        }
+
         final Stopwatch watch = new Stopwatch();
         try {
             S3Object object = s3.getObject(bucketName, objectKey);
@@ -241,6 +268,16 @@ class AmazonS3Cache implements DerivativeCache {
         return null;
     }
 
+    /**
+     * Populates the key filter, if enabled.
+     */
+    @Override
+    public void initialize() {
+        if (CacheKeyFilter.isEnabled()) {
+            keyFilter.populateAsync(this::listKeys);
+        }
+    }
+
     private boolean isValid(S3Object object) {
         Instant earliestAllowed = getEarliestValidInstant();
         Instant lastModified =
@@ -261,6 +298,13 @@ class AmazonS3Cache implements DerivativeCache {
         final AmazonS3 s3 = getClientInstance();
         final String bucketName = getBucketName();
         final String objectKey = getObjectKey(opList);
+
+        if (keyFilter.isDefinitelyAbsent(objectKey, this::objectExists)) {
+            LOGGER.debug("newDerivativeImageInputStream(): {} is not in " +
+                    "bucket {}", objectKey, bucketName);
+            return null;
+        }
+
         LOGGER.info("newDerivativeImageInputStream(): bucket: {}; key: {}",
                 bucketName, objectKey);
         try {
@@ -291,6 +335,7 @@ class AmazonS3Cache implements DerivativeCache {
         final ObjectMetadata metadata = new ObjectMetadata();
         metadata.setContentType(
                 opList.getOutputFormat().getPreferredMediaType().toString());
+        keyFilter.add(objectKey);
         return new AmazonS3OutputStream(s3, bucketName, objectKey, metadata);
     }
 
@@ -311,6 +356,38 @@ class AmazonS3Cache implements DerivativeCache {
         return getObjectKeyPrefix() + "image/" + opList.toString();
     }
 
+    /**
+     * @return Whether an object with the given key exists in the bucket.
+     */
+    private boolean objectExists(String objectKey) throws IOException {
+        try {
+            return getClientInstance().doesObjectExist(getBucketName(),
+                    objectKey);
+        } catch (AmazonClientException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Feeds all object keys in the bucket with the {@link
+     * #getObjectKeyPrefix() key prefix} to the given consumer.
+     */
+    private void listKeys(Consumer<String> consumer) {
+        final AmazonS3 s3 = getClientInstance();
+        ObjectListing listing = s3.listObjects(getBucketName(),
+                getObjectKeyPrefix());
+        while (true) {
+            for (S3ObjectSummary summary : listing.getObjectSummaries()) {
+                consumer.accept(summary.getKey());
+            }
+            if (listing.isTruncated()) {
+                listing = s3.listNextBatchOfObjects(listing);
+            } else {
+                break;
+            }
+        }
+    }
+
     /**
      * @return Value of {@link Key#AMAZONS3CACHE_OBJECT_KEY_PREFIX}
      *         with trailing slash.
@@ -346,6 +423,8 @@ class AmazonS3Cache implements DerivativeCache {
             }
         }
 
+        keyFilter.clear();
+
         LOGGER.info("purge(): deleted {} items", count);
     }
 
@@ -447,6 +526,7 @@ class AmazonS3Cache implements DerivativeCache {
         metadata.setContentEncoding("UTF-8");
         metadata.setContentLength(os.size());
 
+        keyFilter.add(objectKey);
         new AmazonS3Upload(s3, os, bucketName, objectKey, metadata).run();
     }
 
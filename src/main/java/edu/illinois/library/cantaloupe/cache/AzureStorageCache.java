@@ -31,8 +31,16 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
 
 /**
+ * <p>Cache using Azure Storage.</p>
+ *
+ * <p>When {@link Key#DERIVATIVE_CACHE_BLOOM_FILTER_ENABLED} is
+ * <code>true</code>, a {@link CacheKeyFilter} of all blob keys in the
+ * container is maintained so that lookups of blobs that are not in it are
+ * only confirmed with an existence check.</p>
+ *
  * @see <a href="https://github.com/azure/azure-storage-java">
  *     Microsoft Azure Storage DSK for Java</a>
  */
@@ -98,6 +106,9 @@ class AzureStorageCache implements DerivativeCache {
     private static final Set<String> uploadingKeys =
             new ConcurrentSkipListSet<>();
 
+    private final CacheKeyFilter keyFilter =
+            new CacheKeyFilter(AzureStorageCache.class.getSimpleName());
+
     static synchronized CloudBlobClient getClientInstance() {
         if (client == null) {
             try {
@@ -140,16 +151,33 @@ class AzureStorageCache implements DerivativeCache {
         return cal.getTime();
     }
 
+    /**
+     * Repopulates the key filter, if enabled and necessary.
+     */
+    @Override
+    public void cleanUp() {
+        if (CacheKeyFilter.isEnabled()) {
+            keyFilter.populateAsyncIfNecessary(this::listKeys);
+        }
+    }
+
     @Override
     public Info getImageInfo(Identifier identifier) throws IOException {
         final String containerName = getContainerName();
+        final String objectKey = getObjectKey(identifier);
+
+        if (keyFilter.isDefinitelyAbsent(objectKey, this::blobExists)) {
+            LOGGER.debug("getImageInfo(): {} is not in container {}",
+                    objectKey, containerName);
+            return null;
+        }
+
         final CloudBlobClient client = getClientInstance();
 
         try {
             final Stopwatch watch = new Stopwatch();
             final CloudBlobContainer container =
                     client.getContainerReference(containerName);
-            final String objectKey = getObjectKey(identifier);
 
             final CloudBlockBlob blob = container.getBlockBlobReference(objectKey);
             if (blob.exists()) {
@@ -173,16 +201,32 @@ class AzureStorageCache implements DerivativeCache {
         return null;
     }
 
+    /**
+     * Populates the key filter, if enabled.
+     */
+    @Override
+    public void initialize() {
+        if (CacheKeyFilter.isEnabled()) {
+            keyFilter.populateAsync(this::listKeys);
+        }
+    }
+
     @Override
     public InputStream newDerivativeImageInputStream(OperationList opList)
             throws IOException {
         final String containerName = getContainerName();
+        final String objectKey = getObjectKey(opList);
+
+        if (keyFilter.isDefinitelyAbsent(objectKey, this::blobExists)) {
+            LOGGER.debug("newDerivativeImageInputStream(): {} is not in " +
+                    "container {}", objectKey, containerName);
+            return null;
+        }
 
         final CloudBlobClient client = getClientInstance();
         try {
             final CloudBlobContainer container =
                     client.getContainerReference(containerName);
-            final String objectKey = getObjectKey(opList);
 
             LOGGER.info("newDerivativeImageInputStream(): bucket: {}; key: {}",
                     containerName, objectKey);
@@ -219,6 +263,7 @@ class AzureStorageCache implements DerivativeCache {
                 blob.getProperties().setContentType(opList.getOutputFormat().
                         getPreferredMediaType().toString());
 
+                keyFilter.add(objectKey);
                 return new AzureStorageOutputStream(
                         objectKey, blob.openOutputStream(), uploadingKeys);
             } catch (URISyntaxException | StorageException e) {
@@ -257,6 +302,33 @@ class AzureStorageCache implements DerivativeCache {
         return null;
     }
 
+    /**
+     * @return Whether a blob with the given key exists in the container.
+     */
+    private boolean blobExists(String objectKey) throws IOException {
+        try {
+            return getClientInstance().
+                    getContainerReference(getContainerName()).
+                    getBlockBlobReference(objectKey).exists();
+        } catch (URISyntaxException | StorageException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Feeds all blob keys in the container with the {@link
+     * #getObjectKeyPrefix() key prefix} to the given consumer.
+     */
+    private void listKeys(Consumer<String> consumer) throws Exception {
+        final CloudBlobContainer container =
+                getClientInstance().getContainerReference(getContainerName());
+        for (ListBlobItem item : container.listBlobs(getObjectKeyPrefix(), true)) {
+            if (item instanceof CloudBlob) {
+                consumer.accept(((CloudBlob) item).getName());
+            }
+        }
+    }
+
     /**
      * @return Value of {@link Key#AZURESTORAGECACHE_OBJECT_KEY_PREFIX}
      *         with trailing slash.
@@ -293,6 +365,7 @@ class AzureStorageCache implements DerivativeCache {
                     }
                 }
             }
+            keyFilter.clear();
             LOGGER.info("purge(): deleted {} items", count);
         } catch (URISyntaxException | StorageException e) {
             throw new IOException(e.getMessage(), e);
@@ -385,6 +458,7 @@ class AzureStorageCache implements DerivativeCache {
                 final CloudBlockBlob blob = container.getBlockBlobReference(objectKey);
                 blob.getProperties().setContentType("application/json");
                 blob.getProperties().setContentEncoding("UTF-8");
+                keyFilter.add(objectKey);
 
                 // writeAsJSON() will close this.
                 OutputStream os = new AzureStorageOutputStream(
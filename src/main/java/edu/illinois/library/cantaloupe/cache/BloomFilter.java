@@ -0,0 +1,122 @@
+package edu.illinois.library.cantaloupe.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Thread-safe Bloom filter of strings.</p>
+ *
+ * <p>Bits are stored in an {@link AtomicLongArray}, so {@link #put} and
+ * {@link #mightContain} can be called concurrently without locking. Bit
+ * positions are derived from two 64-bit hashes of each string using the
+ * "enhanced double hashing" scheme of Dillinger &amp; Manolios.</p>
+ *
+ * @since 3.5
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashFunctions;
+
+    /**
+     * @param expectedInsertions Number of strings expected to be added.
+     * @param falsePositiveProbability Desired false-positive probability when
+     *                                 the filter contains
+     *                                 <code>expectedInsertions</code> strings.
+     */
+    BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException(
+                    "Expected insertions must be positive");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException(
+                    "False-positive probability must be between 0 and 1");
+        }
+        final double ln2 = Math.log(2);
+        long numBits = (long) Math.ceil(-expectedInsertions *
+                Math.log(falsePositiveProbability) / (ln2 * ln2));
+        // Round up to a whole number of longs.
+        numBits = Math.max(64, (numBits + 63) / 64 * 64);
+        if (numBits / 64 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Expected insertions is too large");
+        }
+        this.numBits = numBits;
+        this.numHashFunctions = Math.max(1, (int) Math.round(
+                (double) numBits / expectedInsertions * ln2));
+        this.bits = new AtomicLongArray((int) (numBits / 64));
+    }
+
+    /**
+     * @return Size of the filter in bits.
+     */
+    long bitSize() {
+        return numBits;
+    }
+
+    /**
+     * @return Whether the given string might have been added to the
+     *         filter. <code>false</code> means that it definitely has not.
+     */
+    boolean mightContain(String str) {
+        long h1 = hash(str, 0x9e3779b97f4a7c15L);
+        long h2 = hash(str, 0xc2b2ae3d27d4eb4fL);
+        for (int i = 0; i < numHashFunctions; i++) {
+            final long index = Math.floorMod(h1, numBits);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+            h1 += h2;
+            h2 += i;
+        }
+        return true;
+    }
+
+    int numHashFunctions() {
+        return numHashFunctions;
+    }
+
+    /**
+     * Adds the given string to the filter.
+     */
+    void put(String str) {
+        long h1 = hash(str, 0x9e3779b97f4a7c15L);
+        long h2 = hash(str, 0xc2b2ae3d27d4eb4fL);
+        for (int i = 0; i < numHashFunctions; i++) {
+            final long index = Math.floorMod(h1, numBits);
+            setBit((int) (index >>> 6), 1L << index);
+            h1 += h2;
+            h2 += i;
+        }
+    }
+
+    private void setBit(int word, long mask) {
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+
+    /**
+     * @return 64-bit hash of the given string: FNV-1a over its chars, seeded
+     *         and then passed through the MurmurHash3 finalizer.
+     */
+    private static long hash(String str, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0, len = str.length(); i < len; i++) {
+            h ^= str.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
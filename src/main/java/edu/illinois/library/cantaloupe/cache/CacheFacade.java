@@ -3,7 +3,12 @@ package edu.illinois.library.cantaloupe.cache;
 import edu.illinois.library.cantaloupe.async.TaskQueue;
 import edu.illinois.library.cantaloupe.image.Identifier;
 import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
+import edu.illinois.library.cantaloupe.metrics.Timer;
 import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.processor.ContrastRangeCache;
+import edu.illinois.library.cantaloupe.processor.RenderedOverlayCache;
 import edu.illinois.library.cantaloupe.processor.Processor;
 import edu.illinois.library.cantaloupe.processor.ProcessorException;
 import org.slf4j.Logger;
@@ -52,7 +57,9 @@ public final class CacheFacade {
      * @see #getOrReadInfo(Identifier, Processor)
      */
     public Info getInfo(Identifier identifier) throws IOException {
-        return InfoService.getInstance().getInfo(identifier);
+        try (RequestTrace.Stage ignored = RequestTrace.stage("info")) {
+            return InfoService.getInstance().getInfo(identifier);
+        }
     }
 
     /**
@@ -93,7 +100,22 @@ public final class CacheFacade {
             throws IOException {
         DerivativeCache derivativeCache = getDerivativeCache();
         if (derivativeCache != null) {
-            return derivativeCache.newDerivativeImageInputStream(opList);
+            final String cacheName =
+                    derivativeCache.getClass().getSimpleName();
+            final InputStream inputStream;
+            try (Timer.Context ignored =
+                         Metrics.cacheRead(cacheName, "image").time();
+                 RequestTrace.Stage ignored2 =
+                         RequestTrace.stage("cache_read")) {
+                inputStream =
+                        derivativeCache.newDerivativeImageInputStream(opList);
+            }
+            if (inputStream != null) {
+                Metrics.cacheHits(cacheName, "image").increment();
+            } else {
+                Metrics.cacheMisses(cacheName, "image").increment();
+            }
+            return inputStream;
         }
         return null;
     }
@@ -105,7 +127,12 @@ public final class CacheFacade {
             throws IOException {
         DerivativeCache derivativeCache = getDerivativeCache();
         if (derivativeCache != null) {
-            return derivativeCache.newDerivativeImageOutputStream(opList);
+            final OutputStream outputStream =
+                    derivativeCache.newDerivativeImageOutputStream(opList);
+            if (outputStream != null) {
+                return new TimedOutputStream(outputStream, Metrics.cacheWrite(
+                        derivativeCache.getClass().getSimpleName(), "image"));
+            }
         }
         return null;
     }
@@ -117,6 +144,12 @@ public final class CacheFacade {
         // Purge the info service.
         InfoService.getInstance().purgeObjectCache();
 
+        // Purge the contrast ranges used for normalization.
+        ContrastRangeCache.getInstance().purge();
+
+        // Purge the decoded and rendered overlays.
+        RenderedOverlayCache.getInstance().purge();
+
         // Purge the derivative cache.
         DerivativeCache derivativeCache = getDerivativeCache();
         if (derivativeCache != null) {
@@ -137,6 +170,9 @@ public final class CacheFacade {
         // Purge it from the info service.
         InfoService.getInstance().purgeObjectCache(identifier);
 
+        // Purge its contrast range used for normalization.
+        ContrastRangeCache.getInstance().purge(identifier);
+
         // Purge it from the derivative cache.
         DerivativeCache derivativeCache = getDerivativeCache();
         if (derivativeCache != null) {
@@ -38,7 +38,8 @@ public final class CacheFactory {
                 new FilesystemCache(),
                 new HeapCache(),
                 new JdbcCache(),
-                new RedisCache()));
+                new RedisCache(),
+                new TieredCache()));
     }
 
     /**
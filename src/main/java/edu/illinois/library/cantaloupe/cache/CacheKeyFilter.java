@@ -0,0 +1,245 @@
+package edu.illinois.library.cantaloupe.cache;
+
+import edu.illinois.library.cantaloupe.async.ThreadPool;
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.util.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * <p>{@link BloomFilter} of the keys present in a remote {@link
+ * DerivativeCache}, enabling lookups of keys that are definitely not present
+ * to skip the network round trip.</p>
+ *
+ * <p>The filter is populated by listing all of the keys in the cache in the
+ * background, and is then kept current by {@link #add adding} keys as they
+ * are written. Until the first listing has completed, {@link
+ * #isDefinitelyAbsent} always returns <code>false</code>. Keys that are
+ * written during a listing are added to both the current filter and the one
+ * being built, so none are lost when the latter replaces the former.</p>
+ *
+ * <p>The filter is local to this application instance, so it doesn't know
+ * about keys written by other instances sharing the same cache. Keys that
+ * are not in the filter are therefore confirmed with a direct existence
+ * check, and added to it if they turn out to be present.</p>
+ *
+ * <p>Bloom filters don't support removal, so purged keys remain in the
+ * filter. This is harmless: the only consequence is a lookup that misses,
+ * which is what would happen without a filter. As more keys are added, the
+ * filter becomes less effective, so it is rebuilt from a new listing once
+ * the number of keys added to it exceeds its capacity. Otherwise, it is not
+ * listed again.</p>
+ *
+ * @since 3.5
+ */
+class CacheKeyFilter {
+
+    /**
+     * Lists all of the keys in a cache.
+     */
+    @FunctionalInterface
+    interface KeyLister {
+        void listKeys(Consumer<String> consumer) throws Exception;
+    }
+
+    /**
+     * Checks whether a key is present in a cache.
+     */
+    @FunctionalInterface
+    interface ExistenceChecker {
+        boolean exists(String key) throws IOException;
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(CacheKeyFilter.class);
+
+    private static final long DEFAULT_CAPACITY = 10000000;
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final String cacheName;
+
+    /** Null until the first listing has completed. */
+    private volatile BloomFilter filter;
+
+    /** Expected number of insertions into {@link #filter}. */
+    private volatile long filterCapacity;
+
+    /** Number of keys that have been added to {@link #filter}. */
+    private final AtomicLong filterCount = new AtomicLong();
+
+    private final AtomicBoolean isPopulating = new AtomicBoolean(false);
+
+    /** Guards swapping of {@link #filter} and {@link #pendingFilter}. */
+    private final Object lock = new Object();
+
+    /** Filter being populated by a listing in progress, or null. */
+    private BloomFilter pendingFilter;
+
+    /**
+     * @return Whether {@link Key#DERIVATIVE_CACHE_BLOOM_FILTER_ENABLED} is
+     *         <code>true</code>.
+     */
+    static boolean isEnabled() {
+        return Configuration.getInstance().
+                getBoolean(Key.DERIVATIVE_CACHE_BLOOM_FILTER_ENABLED, false);
+    }
+
+    /**
+     * @param cacheName Used in log messages.
+     */
+    CacheKeyFilter(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    /**
+     * Adds the given key. Should be called whenever the cache writes it.
+     * Does nothing if the filter has never been populated.
+     */
+    void add(String key) {
+        synchronized (lock) {
+            if (filter != null) {
+                filter.put(key);
+                filterCount.incrementAndGet();
+            }
+            if (pendingFilter != null) {
+                pendingFilter.put(key);
+            }
+        }
+    }
+
+    /**
+     * Clears the filter. Should be called after the whole cache has been
+     * purged. Does nothing if the filter has never been populated.
+     */
+    void clear() {
+        synchronized (lock) {
+            if (filter != null) {
+                filterCapacity = getCapacity();
+                filter = new BloomFilter(filterCapacity,
+                        FALSE_POSITIVE_PROBABILITY);
+                filterCount.set(0);
+            }
+        }
+    }
+
+    private static long getCapacity() {
+        long capacity = Configuration.getInstance().getLong(
+                Key.DERIVATIVE_CACHE_BLOOM_FILTER_CAPACITY, DEFAULT_CAPACITY);
+        if (capacity < 1) {
+            capacity = DEFAULT_CAPACITY;
+        }
+        return capacity;
+    }
+
+    /**
+     * @param key     Key to check.
+     * @param checker Used to check the cache directly when the key is not in
+     *                the filter. If it reports that the key is present, the
+     *                key is added to the filter.
+     * @return        Whether the given key is definitely not present in the
+     *                cache.
+     */
+    boolean isDefinitelyAbsent(String key, ExistenceChecker checker)
+            throws IOException {
+        final BloomFilter filter = this.filter;
+        if (filter == null || filter.mightContain(key)) {
+            return false;
+        }
+        if (checker.exists(key)) {
+            LOGGER.debug("isDefinitelyAbsent(): {} is not in the {} filter " +
+                    "but is in the cache", key, cacheName);
+            add(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether the filter has not been populated yet, or has had more
+     *         keys added to it than its capacity.
+     */
+    boolean isPopulationNecessary() {
+        return filter == null || filterCount.get() > filterCapacity;
+    }
+
+    boolean isPopulated() {
+        return filter != null;
+    }
+
+    /**
+     * <p>Builds a new filter from all of the keys listed by the given lister
+     * and then swaps it in place of the current one. If the listing fails,
+     * the current filter remains in use.</p>
+     *
+     * <p>If a listing is already in progress, this method does nothing.</p>
+     *
+     * @return Whether a new filter was swapped in.
+     */
+    boolean populate(KeyLister lister) {
+        if (!isPopulating.compareAndSet(false, true)) {
+            LOGGER.debug("populate(): already populating the {} filter",
+                    cacheName);
+            return false;
+        }
+        try {
+            final Stopwatch watch = new Stopwatch();
+            final long capacity = getCapacity();
+            final BloomFilter newFilter =
+                    new BloomFilter(capacity, FALSE_POSITIVE_PROBABILITY);
+            synchronized (lock) {
+                pendingFilter = newFilter;
+            }
+            final AtomicLong count = new AtomicLong();
+            lister.listKeys(key -> {
+                newFilter.put(key);
+                count.incrementAndGet();
+            });
+            synchronized (lock) {
+                filterCapacity = capacity;
+                filter = newFilter;
+                filterCount.set(count.get());
+            }
+            LOGGER.info("populate(): added {} keys to the {} filter in {} msec",
+                    count.get(), cacheName, watch.timeElapsed());
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("populate(): failed to populate the {} filter: {}",
+                    cacheName, e.getMessage(), e);
+            return false;
+        } finally {
+            synchronized (lock) {
+                pendingFilter = null;
+            }
+            isPopulating.set(false);
+        }
+    }
+
+    /**
+     * Invokes {@link #populate} in a low-priority thread.
+     */
+    void populateAsync(KeyLister lister) {
+        ThreadPool.getInstance().submit(() -> populate(lister),
+                ThreadPool.Priority.LOW);
+    }
+
+    /**
+     * Invokes {@link #populateAsync} if {@link #isPopulationNecessary()
+     * necessary}.
+     */
+    void populateAsyncIfNecessary(KeyLister lister) {
+        if (isPopulationNecessary()) {
+            populateAsync(lister);
+        } else {
+            LOGGER.debug("populateAsyncIfNecessary(): the {} filter is " +
+                    "current", cacheName);
+        }
+    }
+
+}
@@ -30,6 +30,28 @@ public interface DerivativeCache extends Cache {
      */
     Info getImageInfo(Identifier identifier) throws IOException;
 
+    /**
+     * <p>Checks whether a valid image corresponding to the given operation
+     * list exists in the cache, without side effects other than those of
+     * {@link #newDerivativeImageInputStream}.</p>
+     *
+     * <p>This default implementation opens and closes a stream.
+     * Implementations that record statistics about their lookups should
+     * override it so that it is not recorded as one.</p>
+     *
+     * @param opList Operation list to check.
+     * @return Whether the cache contains a valid image corresponding to the
+     *         given operation list.
+     * @throws IOException
+     * @since 3.5
+     */
+    default boolean isDerivativeImageCached(OperationList opList)
+            throws IOException {
+        try (InputStream inputStream = newDerivativeImageInputStream(opList)) {
+            return (inputStream != null);
+        }
+    }
+
     /**
      * <p>Returns an input stream corresponding to the given operation list,
      * or <code>null</code> if a valid image corresponding to the given
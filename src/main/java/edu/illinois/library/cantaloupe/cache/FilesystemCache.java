@@ -2,6 +2,7 @@ package edu.illinois.library.cantaloupe.cache;
 
 import edu.illinois.library.cantaloupe.async.ThreadPool;
 import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.ConfigurationSnapshot;
 import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.image.Identifier;
 import edu.illinois.library.cantaloupe.image.Info;
@@ -106,8 +107,29 @@ import java.util.stream.Collectors;
  *     <li>All needed subdirectories will be created automatically if they don't
  *     already exist.</li>
  *     <li>Symbolic links are followed.</li>
- *     <li>This implementation is both thread- and process-safe.</li>
+ *     <li>This implementation is both thread- and process-safe, except when
+ *     {@link Key#FILESYSTEMCACHE_INDEX_ENABLED} is <code>true</code>, in which
+ *     case the tree must not be shared by multiple processes.</li>
  * </ul>
+ *
+ * <h1>Index</h1>
+ *
+ * <p>By default, expiry and cleanup require walking the whole tree, and
+ * expiry relies on filesystem last-accessed times. When
+ * {@link Key#FILESYSTEMCACHE_INDEX_ENABLED} is <code>true</code>, a
+ * {@link FilesystemCacheIndex} of the files in the tree is maintained
+ * instead, and those operations become index queries once the index is
+ * {@link FilesystemCacheIndex#isReady() ready}. Until then, which may take a
+ * while after the index is first enabled, they walk the tree as usual.</p>
+ *
+ * <p>Lookups and purges never depend on the index: both find files at the
+ * paths at which they would be written, so that a file that can be served can
+ * always be purged. A file that is served without having been indexed is
+ * added to the index.</p>
+ *
+ * <p>The index also enables a size limit, {@link Key#FILESYSTEMCACHE_MAX_SIZE},
+ * which is enforced continuously by evicting least-recently-accessed files
+ * in the background. Setting it enables the index implicitly.</p>
  */
 class FilesystemCache implements SourceCache, DerivativeCache {
 
@@ -125,6 +147,7 @@ class FilesystemCache implements SourceCache, DerivativeCache {
                 getLogger(ConcurrentFileOutputStream.class);
 
         private final Path destinationFile;
+        private final FilesystemCacheIndex index;
         private boolean isClosed = false;
         private final Object lock;
         private final Path tempFile;
@@ -136,17 +159,23 @@ class FilesystemCache implements SourceCache, DerivativeCache {
          * @param destinationFile Pathname to move tempFile to when it is done
          *                        being written.
          * @param toRemove Object to remove from the set when done.
+         * @param index Index to record the file in. May be <code>null</code>.
          * @param lock Object to perform notification upon closure.
          */
         ConcurrentFileOutputStream(Path tempFile,
                                    Path destinationFile,
                                    T toRemove,
+                                   FilesystemCacheIndex index,
                                    Object lock) throws IOException {
             imagesBeingWritten.add(toRemove);
             this.tempFile = tempFile;
             this.destinationFile = destinationFile;
             this.toRemove = toRemove;
+            this.index = index;
             this.lock = lock;
+            if (index != null) {
+                index.tempFileOpened(tempFile);
+            }
             this.wrappedOutputStream = Files.newOutputStream(tempFile);
         }
 
@@ -182,10 +211,14 @@ class FilesystemCache implements SourceCache, DerivativeCache {
 
                     // If the written file isn't empty, move it into place.
                     // Otherwise, delete it.
-                    if (Files.size(tempFile) > 0) {
+                    final long size = Files.size(tempFile);
+                    if (size > 0) {
                         CFOS_LOGGER.debug("close(): moving {} to {}",
                                 tempFile, destinationFile);
                         Files.move(tempFile, destinationFile);
+                        if (index != null) {
+                            index.add(destinationFile, size);
+                        }
                     } else {
                         CFOS_LOGGER.debug("close(): deleting zero-byte file: {}",
                                 tempFile);
@@ -194,6 +227,9 @@ class FilesystemCache implements SourceCache, DerivativeCache {
                 } catch (IOException e) {
                     CFOS_LOGGER.warn("close(): {}", e.getMessage(), e);
                 } finally {
+                    if (index != null) {
+                        index.tempFileClosed(tempFile);
+                    }
                     imagesBeingWritten.remove(toRemove);
 
                     // Release other threads waiting on this image to be
@@ -238,11 +274,17 @@ class FilesystemCache implements SourceCache, DerivativeCache {
 
         private long deletedFileCount = 0;
         private long deletedFileSize = 0;
+        private final FilesystemCacheIndex index;
         private final PathMatcher matcher;
         private final long minCleanableAge;
 
-        DetritalFileVisitor(long minCleanableAge) {
+        /**
+         * @param index Index to remove deleted files from. May be
+         *              <code>null</code>.
+         */
+        DetritalFileVisitor(long minCleanableAge, FilesystemCacheIndex index) {
             this.minCleanableAge = minCleanableAge;
+            this.index = index;
             matcher = FileSystems.getDefault().
                     getPathMatcher("glob:*" + TEMP_EXTENSION);
         }
@@ -251,6 +293,9 @@ class FilesystemCache implements SourceCache, DerivativeCache {
             try {
                 final long size = Files.size(path);
                 Files.deleteIfExists(path);
+                if (index != null) {
+                    index.fileDeleted(path);
+                }
                 deletedFileCount++;
                 deletedFileSize += size;
             } catch (IOException e) {
@@ -291,7 +336,9 @@ class FilesystemCache implements SourceCache, DerivativeCache {
         @Override
         public FileVisitResult visitFile(Path file,
                                          BasicFileAttributes attrs) {
-            test(file);
+            if (!FilesystemCacheIndex.isStoreFile(file)) {
+                test(file);
+            }
             return FileVisitResult.CONTINUE;
         }
 
@@ -314,6 +361,15 @@ class FilesystemCache implements SourceCache, DerivativeCache {
 
         private long deletedFileCount = 0;
         private long deletedFileSize = 0;
+        private final FilesystemCacheIndex index;
+
+        /**
+         * @param index Index to remove deleted files from. May be
+         *              <code>null</code>.
+         */
+        ExpiredFileVisitor(FilesystemCacheIndex index) {
+            this.index = index;
+        }
 
         long getDeletedFileCount() {
             return deletedFileCount;
@@ -327,9 +383,14 @@ class FilesystemCache implements SourceCache, DerivativeCache {
         public FileVisitResult visitFile(Path path,
                                          BasicFileAttributes attrs) {
             try {
-                if (Files.isRegularFile(path) && isExpired(path)) {
+                if (Files.isRegularFile(path) &&
+                        !FilesystemCacheIndex.isStoreFile(path) &&
+                        isExpired(path)) {
                     final long size = Files.size(path);
                     Files.deleteIfExists(path);
+                    if (index != null) {
+                        index.fileDeleted(path);
+                    }
                     deletedFileCount++;
                     deletedFileSize += size;
                 }
@@ -395,6 +456,9 @@ class FilesystemCache implements SourceCache, DerivativeCache {
     private final Map<Identifier,ReadWriteLock> infoLocks =
             new ConcurrentHashMap<>();
 
+    /** Set in {@link #initialize()} if the index is enabled. */
+    private volatile FilesystemCacheIndex index;
+
     /**
      * Returns the last-accessed time of the given file. On some OS/filesystem
      * combinations, this may be unreliable, in which case the last-modified
@@ -435,7 +499,8 @@ class FilesystemCache implements SourceCache, DerivativeCache {
             digest.update(uniqueString.getBytes(Charset.forName("UTF8")));
             final String sum = Hex.encodeHexString(digest.digest());
 
-            final Configuration config = Configuration.getInstance();
+            final ConfigurationSnapshot config =
+                    Configuration.getInstance().getSnapshot();
             final int depth = config.getInt(Key.FILESYSTEMCACHE_DIRECTORY_DEPTH, 3);
             final int nameLength =
                     config.getInt(Key.FILESYSTEMCACHE_DIRECTORY_NAME_LENGTH, 2);
@@ -458,10 +523,20 @@ class FilesystemCache implements SourceCache, DerivativeCache {
      *         returned.
      */
     private static boolean isExpired(Path file) throws IOException {
-        final long ttlMsec = 1000 * Configuration.getInstance().
+        return isExpired(file, getLastAccessedTime(file));
+    }
+
+    /**
+     * @param file Path to check.
+     * @param lastAccessedTime Last-accessed time of the file.
+     * @return Whether the given file is expired based on
+     *         {@link Key#CACHE_SERVER_TTL} and the given last-accessed time.
+     */
+    private static boolean isExpired(Path file, FileTime lastAccessedTime) {
+        final long ttlMsec = 1000 * Configuration.getInstance().getSnapshot().
                 getLong(Key.CACHE_SERVER_TTL, 0);
         final long age = System.currentTimeMillis()
-                - getLastAccessedTime(file).toMillis();
+                - lastAccessedTime.toMillis();
         LOGGER.debug("Age of {}: {} msec", file.getFileName(), age);
         return (ttlMsec > 0 && age > ttlMsec);
     }
@@ -470,7 +545,7 @@ class FilesystemCache implements SourceCache, DerivativeCache {
      * @return Path of the root cache directory.
      */
     private static Path rootPath() {
-        final String pathname = Configuration.getInstance().
+        final String pathname = Configuration.getInstance().getSnapshot().
                 getString(Key.FILESYSTEMCACHE_PATHNAME, "");
         if (pathname.isEmpty()) {
             LOGGER.error("{} is not set.", Key.FILESYSTEMCACHE_PATHNAME);
@@ -584,14 +659,38 @@ class FilesystemCache implements SourceCache, DerivativeCache {
     }
 
     /**
-     * Cleans up temporary and zero-byte files.
+     * <p>Cleans up temporary and zero-byte files.</p>
+     *
+     * <p>When the index is ready, only temporary files that the index knows
+     * to have been abandoned are cleaned up, and files are evicted if the
+     * cache is larger than {@link Key#FILESYSTEMCACHE_MAX_SIZE}.</p>
      */
     @Override
     public void cleanUp() throws IOException {
+        final FilesystemCacheIndex index = this.index;
+        if (index != null && index.isReady()) {
+            LOGGER.info("cleanUp(): cleaning up abandoned temp files");
+            long count = 0;
+            for (Path tempFile : index.getOrphanedTempFiles()) {
+                try {
+                    if (Files.deleteIfExists(tempFile)) {
+                        count++;
+                    }
+                    index.tempFileClosed(tempFile);
+                } catch (IOException e) {
+                    LOGGER.warn("cleanUp(): {}", e.getMessage());
+                }
+            }
+            count += index.evict();
+            LOGGER.info("cleanUp(): cleaned {} item(s)", count);
+            return;
+        }
+
         final Path path = rootPath();
 
         LOGGER.info("cleanUp(): cleaning directory: {}", path);
-        DetritalFileVisitor visitor = new DetritalFileVisitor(minCleanableAge);
+        DetritalFileVisitor visitor =
+                new DetritalFileVisitor(minCleanableAge, index);
 
         Files.walkFileTree(path,
                 EnumSet.of(FileVisitOption.FOLLOW_LINKS),
@@ -625,8 +724,9 @@ class FilesystemCache implements SourceCache, DerivativeCache {
 
         try {
             final Path cacheFile = infoFile(identifier);
-            if (!isExpired(cacheFile)) {
+            if (!isExpired(cacheFile, lastAccessedTime(cacheFile))) {
                 LOGGER.info("getImageInfo(): hit: {}", cacheFile);
+                touch(cacheFile);
                 return Info.fromJSON(cacheFile.toFile());
             } else {
                 purgeAsync(cacheFile);
@@ -657,9 +757,10 @@ class FilesystemCache implements SourceCache, DerivativeCache {
         final Path cacheFile = sourceImageFile(identifier);
 
         if (Files.exists(cacheFile)) {
-            if (!isExpired(cacheFile)) {
+            if (!isExpired(cacheFile, lastAccessedTime(cacheFile))) {
                 LOGGER.info("getSourceImageFile(): hit: {} ({})",
                         identifier, cacheFile);
+                touch(cacheFile);
                 file = cacheFile;
             } else {
                 purgeAsync(cacheFile);
@@ -668,6 +769,73 @@ class FilesystemCache implements SourceCache, DerivativeCache {
         return file;
     }
 
+    /**
+     * @return Maximum size of the cache based on the application
+     *         configuration, or 0 if there is no maximum.
+     */
+    static long getMaxByteSize() {
+        final String humanSize = Configuration.getInstance().
+                getString(Key.FILESYSTEMCACHE_MAX_SIZE, "");
+        if (!humanSize.isEmpty()) {
+            try {
+                return Math.max(StringUtil.parseByteSize(humanSize), 0);
+            } catch (NumberFormatException e) {
+                LOGGER.error("getMaxByteSize(): invalid {}: {}",
+                        Key.FILESYSTEMCACHE_MAX_SIZE, humanSize);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Loads the index, if {@link Key#FILESYSTEMCACHE_INDEX_ENABLED} is
+     * <code>true</code> or {@link Key#FILESYSTEMCACHE_MAX_SIZE} is set.
+     * Otherwise, deletes any existing index, which would otherwise fall out of
+     * date.
+     */
+    @Override
+    public void initialize() {
+        final Configuration config = Configuration.getInstance();
+        if (config.getString(Key.FILESYSTEMCACHE_PATHNAME, "").isEmpty()) {
+            return;
+        }
+        final Path path = rootPath();
+        final long maxByteSize = getMaxByteSize();
+        if (config.getBoolean(Key.FILESYSTEMCACHE_INDEX_ENABLED, false) ||
+                maxByteSize > 0) {
+            try {
+                index = FilesystemCacheIndex.acquire(path);
+                index.setMaxByteSize(maxByteSize);
+            } catch (IOException e) {
+                LOGGER.error("initialize(): failed to open the index; " +
+                        "continuing without it: {}", e.getMessage());
+            }
+        } else {
+            try {
+                Files.deleteIfExists(
+                        path.resolve(FilesystemCacheIndex.STORE_FILENAME));
+            } catch (IOException e) {
+                LOGGER.warn("initialize(): {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @param file File to check.
+     * @return Last-accessed time of the given file according to the index,
+     *         if it is indexed, or else according to the filesystem.
+     */
+    private FileTime lastAccessedTime(Path file) throws IOException {
+        final FilesystemCacheIndex index = this.index;
+        if (index != null) {
+            final FileTime time = index.getLastAccessedTime(file);
+            if (time != null) {
+                return time;
+            }
+        }
+        return getLastAccessedTime(file);
+    }
+
     @Override
     public InputStream newDerivativeImageInputStream(OperationList ops)
             throws IOException {
@@ -675,11 +843,12 @@ class FilesystemCache implements SourceCache, DerivativeCache {
         final Path cacheFile = derivativeImageFile(ops);
 
         if (Files.exists(cacheFile)) {
-            if (!isExpired(cacheFile)) {
+            if (!isExpired(cacheFile, lastAccessedTime(cacheFile))) {
                 try {
                     LOGGER.info("newDerivativeImageInputStream(): " +
                                     "hit: {} ({})", ops, cacheFile);
                     inputStream = Files.newInputStream(cacheFile);
+                    touch(cacheFile);
                 } catch (NoSuchFileException e) {
                     LOGGER.error(e.getMessage(), e);
                 }
@@ -752,7 +921,7 @@ class FilesystemCache implements SourceCache, DerivativeCache {
             Files.createDirectories(tempFile.getParent());
 
             return new ConcurrentFileOutputStream<>(tempFile, destFile,
-                    imageIdentifier, notifyObj);
+                    imageIdentifier, index, notifyObj);
         } catch (FileAlreadyExistsException e) {
             // The image either already exists in its complete form, or is
             // being written by another thread/process. Either way, there is no
@@ -764,9 +933,24 @@ class FilesystemCache implements SourceCache, DerivativeCache {
         }
     }
 
+    /**
+     * Deletes the given file and removes it from the index, if the index is
+     * in use.
+     *
+     * @param file File to delete.
+     */
+    private void deleteFile(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        final FilesystemCacheIndex index = this.index;
+        if (index != null) {
+            index.remove(file);
+        }
+    }
+
     /**
      * <p>Crawls the cache directory, deleting all files (but not folders)
-     * within it (including temp files).</p>
+     * within it (including temp files), and then clears the index, if it is
+     * in use.</p>
      *
      * <p>Will do nothing and return immediately if a global purge is in
      * progress in another thread.</p>
@@ -793,7 +977,17 @@ class FilesystemCache implements SourceCache, DerivativeCache {
 
             final Path path = rootPath();
 
-            DeletingFileVisitor visitor = new DeletingFileVisitor();
+            DeletingFileVisitor visitor = new DeletingFileVisitor() {
+                @Override
+                public FileVisitResult visitFile(Path file,
+                                                 BasicFileAttributes attrs)
+                        throws IOException {
+                    if (FilesystemCacheIndex.isStoreFile(file)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    return super.visitFile(file, attrs);
+                }
+            };
             visitor.setRootPathToExclude(path);
             visitor.setLogger(LOGGER);
 
@@ -805,6 +999,11 @@ class FilesystemCache implements SourceCache, DerivativeCache {
             LOGGER.info("purge(): purged {} item(s) totaling {} bytes",
                     visitor.getDeletedFileCount(),
                     visitor.getDeletedFileSize());
+
+            final FilesystemCacheIndex index = this.index;
+            if (index != null) {
+                index.clear();
+            }
         } finally {
             isGlobalPurgeInProgress.set(false);
             synchronized (imagePurgeLock) {
@@ -845,7 +1044,7 @@ class FilesystemCache implements SourceCache, DerivativeCache {
             final Path sourceFile = sourceImageFile(identifier);
             try {
                 LOGGER.info("purge(Identifier): deleting {}", sourceFile);
-                Files.deleteIfExists(sourceFile);
+                deleteFile(sourceFile);
             } catch (IOException e) {
                 LOGGER.warn(e.getMessage());
             }
@@ -853,7 +1052,7 @@ class FilesystemCache implements SourceCache, DerivativeCache {
             final Path infoFile = infoFile(identifier);
             try {
                 LOGGER.info("purge(Identifier): deleting {}", infoFile);
-                Files.deleteIfExists(infoFile);
+                deleteFile(infoFile);
             } catch (IOException e) {
                 LOGGER.warn(e.getMessage());
             }
@@ -861,7 +1060,7 @@ class FilesystemCache implements SourceCache, DerivativeCache {
             for (Path imageFile : getDerivativeImageFiles(identifier)) {
                 try {
                     LOGGER.info("purge(Identifier): deleting {}", imageFile);
-                    Files.deleteIfExists(imageFile);
+                    deleteFile(imageFile);
                 } catch (IOException e) {
                     LOGGER.warn(e.getMessage());
                 }
@@ -905,7 +1104,7 @@ class FilesystemCache implements SourceCache, DerivativeCache {
 
             Path file = derivativeImageFile(opList);
             try {
-                Files.deleteIfExists(file);
+                deleteFile(file);
             } catch (IOException e) {
                 LOGGER.warn("purge(OperationList(): unable to delete {}",
                         file);
@@ -922,7 +1121,7 @@ class FilesystemCache implements SourceCache, DerivativeCache {
         ThreadPool.getInstance().submit(() -> {
             LOGGER.debug("purgeAsync(): deleting stale file: {}", path);
             try {
-                Files.deleteIfExists(path);
+                deleteFile(path);
             } catch (IOException e) {
                 LOGGER.warn("purgeAsync(): unable to delete {}", path);
             }
@@ -931,7 +1130,9 @@ class FilesystemCache implements SourceCache, DerivativeCache {
 
     /**
      * <p>Crawls the image directory, deleting all expired files within it
-     * (temporary or not), and then does the same in the info directory.</p>
+     * (temporary or not), and then does the same in the info directory. When
+     * the index is ready, expired files are found by querying it
+     * instead.</p>
      *
      * <p>Will do nothing and return immediately if a global purge is in
      * progress in another thread.</p>
@@ -957,7 +1158,20 @@ class FilesystemCache implements SourceCache, DerivativeCache {
         try {
             isGlobalPurgeInProgress.set(true);
 
-            final ExpiredFileVisitor visitor = new ExpiredFileVisitor();
+            final FilesystemCacheIndex index = this.index;
+            if (index != null && index.isReady()) {
+                final long ttlMsec = 1000 * Configuration.getInstance().
+                        getLong(Key.CACHE_SERVER_TTL, 0);
+                if (ttlMsec > 0) {
+                    LOGGER.info("purgeExpired(): purging...");
+                    final long count = index.deleteFilesAccessedBefore(
+                            System.currentTimeMillis() - ttlMsec);
+                    LOGGER.info("purgeExpired(): purged {} item(s)", count);
+                }
+                return;
+            }
+
+            final ExpiredFileVisitor visitor = new ExpiredFileVisitor(index);
 
             LOGGER.info("purgeExpired(): purging...");
             Files.walkFileTree(rootPath(),
@@ -983,6 +1197,7 @@ class FilesystemCache implements SourceCache, DerivativeCache {
 
         final Path destFile = infoFile(identifier);
         final Path tempFile = infoTempFile(identifier);
+        final FilesystemCacheIndex index = this.index;
 
         try {
             LOGGER.info("put(): writing {} to {}", identifier, tempFile);
@@ -998,12 +1213,18 @@ class FilesystemCache implements SourceCache, DerivativeCache {
                         e.getMessage());
             }
 
+            if (index != null) {
+                index.tempFileOpened(tempFile);
+            }
             try (OutputStream os = Files.newOutputStream(tempFile)) {
                 info.writeAsJSON(os);
             }
 
             LOGGER.debug("put(): moving {} to {}", tempFile, destFile);
             Files.move(tempFile, destFile);
+            if (index != null) {
+                index.add(destFile, Files.size(destFile));
+            }
         } catch (FileAlreadyExistsException e) {
             // When this method runs concurrently with an equal Identifier
             // argument, all of the other invocations of Files.move() will
@@ -1019,6 +1240,9 @@ class FilesystemCache implements SourceCache, DerivativeCache {
             }
             throw e;
         } finally {
+            if (index != null) {
+                index.tempFileClosed(tempFile);
+            }
             lock.writeLock().unlock();
         }
     }
@@ -1034,4 +1258,27 @@ class FilesystemCache implements SourceCache, DerivativeCache {
         minCleanableAge = age;
     }
 
+    /**
+     * Releases the index, if it is in use.
+     */
+    @Override
+    public void shutdown() {
+        final FilesystemCacheIndex index = this.index;
+        if (index != null) {
+            this.index = null;
+            index.release();
+        }
+    }
+
+    /**
+     * Updates the last-accessed time of the given file in the index, if the
+     * index is in use.
+     */
+    private void touch(Path file) {
+        final FilesystemCacheIndex index = this.index;
+        if (index != null) {
+            index.touch(file);
+        }
+    }
+
 }
@@ -0,0 +1,813 @@
+package edu.illinois.library.cantaloupe.cache;
+
+import edu.illinois.library.cantaloupe.async.ThreadPool;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Persistent index of the files in a {@link FilesystemCache} tree,
+ * recording the size and last-accessed time of each one, so that expiry and
+ * eviction can be carried out without walking the tree or relying on
+ * filesystem last-accessed times, which are unavailable on filesystems
+ * mounted with <code>noatime</code>.</p>
+ *
+ * <p>The index is kept in an H2 {@link MVStore} ({@link #STORE_FILENAME}) in
+ * the root of the tree. Only the store's page cache is held in memory, so the
+ * number of files in the tree is limited by disk space rather than heap
+ * space. All changes to the store are made under a lock, and are committed
+ * under that lock by a worker thread every {@link #COMMIT_INTERVAL_MSEC}, so
+ * that every commit is consistent and a crash loses at most the changes made
+ * since the last one.</p>
+ *
+ * <p>Last-accessed times are buffered in memory rather than written to the
+ * store on every read. The worker writes them to the store every {@link
+ * #ACCESS_TIME_FLUSH_INTERVAL_MSEC}, or sooner if {@link
+ * #MAX_PENDING_ACCESS_TIMES} have accumulated.</p>
+ *
+ * <p>If the store is new, or was not closed cleanly, the tree may contain
+ * files that it doesn't know about, so the index is rebuilt by walking the
+ * tree in the background, using last-modified times in place of last-accessed
+ * times for files that are not already indexed. Until that has finished,
+ * {@link #isReady()} returns <code>false</code> and clients must not rely on
+ * the index to find files, although it is kept up to date in the meantime.
+ * Files that are served without having been indexed are indexed when they are
+ * {@link #touch(Path) touched}.</p>
+ *
+ * <p>When a maximum byte size has been set via {@link #setMaxByteSize(long)},
+ * the index also bounds the size of the tree. When the total size of all
+ * indexed files exceeds {@link #HIGH_WATERMARK} of the maximum, approximately
+ * least-recently-accessed files are deleted in the background until it falls
+ * below {@link #LOW_WATERMARK}. Rather than sorting all entries, each
+ * eviction pass samples them to estimate a last-accessed time before which
+ * enough files can be deleted, and then deletes files accessed before that
+ * time.</p>
+ *
+ * <p>There is one instance per tree, shared by all {@link FilesystemCache}
+ * instances using it. Instances are obtained via {@link #acquire(Path)} and
+ * must be returned via {@link #release()}. The store is locked while it is
+ * open, so it cannot be shared across processes.</p>
+ *
+ * @since 3.5
+ */
+class FilesystemCacheIndex {
+
+    /**
+     * Periodically writes buffered last-accessed times to the store and
+     * commits it.
+     */
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    Thread.sleep(COMMIT_INTERVAL_MSEC);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    if (pendingAccessTimes.size() >= MAX_PENDING_ACCESS_TIMES ||
+                            System.currentTimeMillis() - lastFlushTime >=
+                                    ACCESS_TIME_FLUSH_INTERVAL_MSEC) {
+                        flushAccessTimes();
+                    }
+                    commit();
+                } catch (IllegalStateException e) {
+                    LOGGER.error("run(): failed to commit {}: {}",
+                            storeFile, e.getMessage());
+                }
+            }
+        }
+
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(FilesystemCacheIndex.class);
+
+    static final String STORE_FILENAME = "index.mv.db";
+
+    private static final String FILES_MAP_NAME = "files";
+    private static final String META_MAP_NAME = "meta";
+    private static final String TEMP_FILES_MAP_NAME = "temp_files";
+
+    private static final String BYTE_SIZE_KEY = "byte_size";
+    private static final String UP_TO_DATE_KEY = "up_to_date";
+
+    /**
+     * Size of the store's page cache in megabytes.
+     */
+    private static final int CACHE_SIZE_MB = 16;
+
+    /**
+     * Interval at which changes to the store are committed.
+     */
+    static final long COMMIT_INTERVAL_MSEC = 1000;
+
+    /**
+     * Maximum interval at which buffered last-accessed times are written to
+     * the store.
+     */
+    static final long ACCESS_TIME_FLUSH_INTERVAL_MSEC = 60 * 1000;
+
+    /**
+     * Number of buffered last-accessed times beyond which they are written
+     * to the store at the next commit.
+     */
+    static final int MAX_PENDING_ACCESS_TIMES = 10000;
+
+    /**
+     * Fraction of the maximum byte size above which eviction begins.
+     */
+    static final double HIGH_WATERMARK = 0.95;
+
+    /**
+     * Fraction of the maximum byte size below which eviction ends.
+     */
+    static final double LOW_WATERMARK = 0.85;
+
+    /**
+     * Maximum number of entries sampled to estimate an eviction cutoff.
+     */
+    private static final int EVICTION_SAMPLE_SIZE = 10000;
+
+    /**
+     * Maximum number of passes over the index per eviction, in case the
+     * cutoff estimates turn out to be too conservative.
+     */
+    private static final int MAX_EVICTION_PASSES = 5;
+
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static final Map<Path,FilesystemCacheIndex> instances =
+            new HashMap<>();
+
+    private final Path rootPath;
+    private final Path storeFile;
+
+    private MVStore store;
+
+    /** Map of root-relative pathnames to two-element arrays containing the
+     * size and last-accessed time of each file. */
+    private MVMap<String,long[]> files;
+
+    private MVMap<String,Object> meta;
+
+    /** Root-relative pathnames of temp files that have been opened but not
+     * closed. Those that are not also in {@link #openTempFiles} were left
+     * behind by a previous session, e.g. due to a crash. */
+    private MVMap<String,Boolean> tempFiles;
+
+    /** Root-relative pathnames of temp files opened in this session. */
+    private final Set<String> openTempFiles = ConcurrentHashMap.newKeySet();
+
+    /** Last-accessed times that have not yet been written to the store. */
+    private final Map<String,Long> pendingAccessTimes =
+            new ConcurrentHashMap<>();
+
+    private final AtomicLong byteSize = new AtomicLong();
+    private final AtomicBoolean isEvicting = new AtomicBoolean(false);
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
+
+    /** Guards all changes to the store, and commits of it. */
+    private final Object writeLock = new Object();
+
+    private volatile boolean isClosed = false;
+    private volatile boolean isReady = false;
+    private volatile long lastFlushTime = System.currentTimeMillis();
+
+    /** Maximum total size of all indexed files; 0 means no maximum. */
+    private volatile long maxByteSize = 0;
+
+    private Future<?> rebuildFuture;
+    private Future<?> workerFuture;
+
+    private int referenceCount = 0;
+
+    /**
+     * Returns the shared instance for the tree at the given root path,
+     * opening it first if necessary. Every call must be balanced by a call to
+     * {@link #release()}.
+     *
+     * @param rootPath Root path of the cache tree.
+     * @return Shared instance.
+     * @throws IOException If the index could not be opened.
+     */
+    static synchronized FilesystemCacheIndex acquire(Path rootPath)
+            throws IOException {
+        rootPath = rootPath.toAbsolutePath().normalize();
+        FilesystemCacheIndex index = instances.get(rootPath);
+        if (index == null) {
+            index = new FilesystemCacheIndex(rootPath);
+            index.open();
+            instances.put(rootPath, index);
+        }
+        index.referenceCount++;
+        return index;
+    }
+
+    /**
+     * @param file File in the tree.
+     * @return Whether the given file is part of the store, which clients
+     *         walking the tree must leave alone.
+     */
+    static boolean isStoreFile(Path file) {
+        return file.getFileName().toString().startsWith(STORE_FILENAME);
+    }
+
+    private FilesystemCacheIndex(Path rootPath) {
+        this.rootPath = rootPath;
+        this.storeFile = rootPath.resolve(STORE_FILENAME);
+    }
+
+    /**
+     * Adds the given file to the index, replacing any existing entry for it.
+     *
+     * @param file File that has been moved into place.
+     * @param size Size of the file.
+     */
+    void add(Path file, long size) {
+        final String pathname = relativize(file);
+        synchronized (writeLock) {
+            if (isClosed) {
+                return;
+            }
+            pendingAccessTimes.remove(pathname);
+            putEntry(pathname, size, System.currentTimeMillis());
+        }
+        if (isOverHighWatermark()) {
+            evictAsync();
+        }
+    }
+
+    /**
+     * Blocks until the index has been {@link #isReady() built}. For testing.
+     *
+     * @return Whether the index was built before the timeout elapsed.
+     */
+    boolean awaitReady(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return readyLatch.await(timeout, unit);
+    }
+
+    /**
+     * Removes all files from the index. This does not delete them.
+     */
+    void clear() {
+        synchronized (writeLock) {
+            if (isClosed) {
+                return;
+            }
+            files.clear();
+            pendingAccessTimes.clear();
+            byteSize.set(0);
+            meta.put(BYTE_SIZE_KEY, 0L);
+        }
+    }
+
+    /**
+     * Commits all changes made to the store since the last commit. This
+     * happens periodically in the background.
+     */
+    void commit() {
+        synchronized (writeLock) {
+            if (!isClosed && store.hasUnsavedChanges()) {
+                store.commit();
+            }
+        }
+    }
+
+    /**
+     * Deletes all indexed files last accessed before the given time and
+     * removes them from the index.
+     *
+     * @param epochMsec Time in milliseconds since the epoch.
+     * @return Number of files deleted.
+     */
+    long deleteFilesAccessedBefore(long epochMsec) {
+        flushAccessTimes();
+        long count = 0;
+        for (Map.Entry<String,long[]> e : files.entrySet()) {
+            if (e.getValue()[1] < epochMsec &&
+                    !pendingAccessTimes.containsKey(e.getKey()) &&
+                    delete(e.getKey())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Deletes approximately least-recently-accessed files until the total
+     * size of all indexed files is below {@link #LOW_WATERMARK} of the
+     * maximum byte size. Does nothing if there is no maximum.
+     *
+     * @return Number of files deleted.
+     */
+    long evict() {
+        final long maxByteSize = this.maxByteSize;
+        if (maxByteSize <= 0) {
+            return 0;
+        }
+        flushAccessTimes();
+        final long targetByteSize = Math.round(maxByteSize * LOW_WATERMARK);
+        long count = 0;
+        for (int pass = 0; pass < MAX_EVICTION_PASSES &&
+                byteSize.get() > targetByteSize; pass++) {
+            final long cutoff =
+                    estimateEvictionCutoff(byteSize.get() - targetByteSize);
+            for (Map.Entry<String,long[]> e : files.entrySet()) {
+                if (byteSize.get() <= targetByteSize) {
+                    break;
+                }
+                // Files accessed since the flush above are skipped.
+                if (e.getValue()[1] <= cutoff &&
+                        !pendingAccessTimes.containsKey(e.getKey()) &&
+                        delete(e.getKey())) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void evictAsync() {
+        if (isEvicting.compareAndSet(false, true)) {
+            submitGuarded(() -> {
+                LOGGER.debug("evictAsync(): {} exceeds {} bytes; evicting",
+                        rootPath, maxByteSize);
+                final long count = evict();
+                LOGGER.info("evictAsync(): evicted {} files from {}",
+                        count, rootPath);
+            }, isEvicting);
+        }
+    }
+
+    /**
+     * Samples the index to estimate the last-accessed time before which
+     * files would have to be deleted in order to free the given number of
+     * bytes.
+     *
+     * @param excessByteSize Number of bytes to free.
+     * @return Cutoff time in milliseconds since the epoch.
+     */
+    private long estimateEvictionCutoff(long excessByteSize) {
+        final long step = Math.max(1, size() / EVICTION_SAMPLE_SIZE);
+        final List<long[]> sample = new ArrayList<>();
+        long sampleByteSize = 0;
+        long i = 0;
+        for (long[] entry : files.values()) {
+            if (i++ % step == 0) {
+                sample.add(new long[] { entry[1], entry[0] });
+                sampleByteSize += entry[0];
+            }
+        }
+        if (sample.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        sample.sort(Comparator.comparingLong(s -> s[0]));
+
+        final double fraction = excessByteSize / (double) byteSize.get();
+        long accumulatedByteSize = 0;
+        for (long[] s : sample) {
+            accumulatedByteSize += s[1];
+            if (accumulatedByteSize >= fraction * sampleByteSize) {
+                return s[0];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Records that the given file, which may be a temp file, has been deleted
+     * by a client walking the tree.
+     */
+    void fileDeleted(Path file) {
+        if (file.getFileName().toString().endsWith(TEMP_EXTENSION)) {
+            tempFileClosed(file);
+        } else {
+            remove(file);
+        }
+    }
+
+    /**
+     * Writes buffered last-accessed times to the store. This happens
+     * periodically in the background.
+     */
+    void flushAccessTimes() {
+        lastFlushTime = System.currentTimeMillis();
+        for (Map.Entry<String,Long> e : pendingAccessTimes.entrySet()) {
+            final String pathname = e.getKey();
+            final long time = e.getValue();
+            synchronized (writeLock) {
+                if (isClosed) {
+                    return;
+                }
+                if (pendingAccessTimes.remove(pathname, time)) {
+                    final long[] entry = files.get(pathname);
+                    if (entry != null && entry[1] < time) {
+                        files.put(pathname, new long[] { entry[0], time });
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Total size of all indexed files.
+     */
+    long getByteSize() {
+        return byteSize.get();
+    }
+
+    /**
+     * @param file File to check.
+     * @return Last-accessed time of the given file according to the index,
+     *         or <code>null</code> if the file is not indexed.
+     */
+    FileTime getLastAccessedTime(Path file) {
+        if (isClosed) {
+            return null;
+        }
+        final String pathname = relativize(file);
+        final long[] entry = files.get(pathname);
+        if (entry == null) {
+            return null;
+        }
+        final Long pendingTime = pendingAccessTimes.get(pathname);
+        return FileTime.fromMillis((pendingTime != null) ?
+                Math.max(pendingTime, entry[1]) : entry[1]);
+    }
+
+    /**
+     * @return Temp files that were opened but never closed in a previous
+     *         session. Clients should delete them and then call
+     *         {@link #tempFileClosed(Path)}.
+     */
+    Set<Path> getOrphanedTempFiles() {
+        return tempFiles.keySet().stream()
+                .filter(pathname -> !openTempFiles.contains(pathname))
+                .map(rootPath::resolve)
+                .collect(Collectors.toSet());
+    }
+
+    Path getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * @return Whether the index has been built and can be relied on to find
+     *         files. Until then, clients must walk the tree instead.
+     */
+    boolean isReady() {
+        return isReady;
+    }
+
+    /**
+     * Returns the instance obtained from {@link #acquire(Path)}. When all
+     * acquisitions have been released, the store is closed.
+     */
+    void release() {
+        synchronized (FilesystemCacheIndex.class) {
+            if (--referenceCount > 0) {
+                return;
+            }
+            instances.remove(rootPath);
+            close();
+        }
+    }
+
+    private void close() {
+        workerFuture.cancel(true);
+        if (rebuildFuture != null) {
+            rebuildFuture.cancel(true);
+        }
+        flushAccessTimes();
+        synchronized (writeLock) {
+            try {
+                // If the index was not finished being rebuilt, it will be
+                // rebuilt again when it is next opened.
+                meta.put(UP_TO_DATE_KEY, isReady);
+                store.close();
+            } catch (IllegalStateException e) {
+                LOGGER.error("close(): failed to close {}: {}",
+                        storeFile, e.getMessage());
+            } finally {
+                isClosed = true;
+            }
+        }
+    }
+
+    private boolean isOverHighWatermark() {
+        final long maxByteSize = this.maxByteSize;
+        return maxByteSize > 0 &&
+                byteSize.get() > Math.round(maxByteSize * HIGH_WATERMARK);
+    }
+
+    /**
+     * Removes the given file from the index. This does not delete it.
+     *
+     * @param file File to remove.
+     */
+    void remove(Path file) {
+        remove(relativize(file));
+    }
+
+    private void remove(String pathname) {
+        synchronized (writeLock) {
+            if (!isClosed) {
+                removeEntry(pathname);
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum total size of all indexed files, beyond which files
+     * will be evicted in the background.
+     *
+     * @param maxByteSize Maximum byte size, or 0 for no maximum.
+     */
+    void setMaxByteSize(long maxByteSize) {
+        this.maxByteSize = maxByteSize;
+        if (isOverHighWatermark()) {
+            evictAsync();
+        }
+    }
+
+    /**
+     * @return Number of indexed files.
+     */
+    long size() {
+        return files.sizeAsLong();
+    }
+
+    /**
+     * Records that the given temp file has been closed and either moved into
+     * place or deleted.
+     */
+    void tempFileClosed(Path tempFile) {
+        final String pathname = relativize(tempFile);
+        synchronized (writeLock) {
+            if (!isClosed) {
+                tempFiles.remove(pathname);
+            }
+        }
+        openTempFiles.remove(pathname);
+    }
+
+    /**
+     * Records that the given temp file is being written, so that it can be
+     * cleaned up if it is never closed.
+     */
+    void tempFileOpened(Path tempFile) {
+        final String pathname = relativize(tempFile);
+        if (openTempFiles.add(pathname)) {
+            synchronized (writeLock) {
+                if (!isClosed) {
+                    tempFiles.put(pathname, Boolean.TRUE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the last-accessed time of the given file. If the file is not
+     * indexed, e.g. because its addition was lost in a crash, it is added, so
+     * that it becomes subject to expiry and eviction like any other.
+     */
+    void touch(Path file) {
+        if (isClosed) {
+            return;
+        }
+        final String pathname = relativize(file);
+        if (files.containsKey(pathname)) {
+            pendingAccessTimes.put(pathname, System.currentTimeMillis());
+        } else {
+            try {
+                add(file, Files.size(file));
+            } catch (IOException e) {
+                LOGGER.debug("touch(): {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs the given task in the low-priority pool and then resets the given
+     * flag, which the caller has set to prevent the task from being
+     * submitted more than once at a time. The pool discards tasks when it's
+     * saturated, in which case the flag is reset immediately instead, so
+     * that the task can be submitted again later. If the pool rejects the
+     * task outright (because it's shutting down), the task is dropped
+     * likewise, as callers like the {@link java.io.OutputStream#close()}
+     * methods of {@link FilesystemCache} must not fail because of it.
+     */
+    private static void submitGuarded(Runnable task, AtomicBoolean guard) {
+        final Future<?> future;
+        try {
+            future = ThreadPool.getInstance().submit(() -> {
+                try {
+                    task.run();
+                } finally {
+                    guard.set(false);
+                }
+            }, ThreadPool.Priority.LOW);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("submitGuarded(): dropping task: {}", e.getMessage());
+            guard.set(false);
+            return;
+        }
+        if (future.isCancelled()) {
+            guard.set(false);
+        }
+    }
+
+    /**
+     * Opens the store, creating it if necessary, and starts the worker and,
+     * if the store is not known to be up to date, a rebuild.
+     */
+    private void open() throws IOException {
+        Files.createDirectories(rootPath);
+        try {
+            openStore();
+        } catch (IllegalStateException e) {
+            if (DataUtils.getErrorCode(e.getMessage()) ==
+                    DataUtils.ERROR_FILE_LOCKED) {
+                throw new IOException(storeFile + " is in use by another " +
+                        "process", e);
+            }
+            LOGGER.warn("open(): {} is unreadable ({}); recreating it",
+                    storeFile, e.getMessage());
+            Files.deleteIfExists(storeFile);
+            openStore();
+        }
+
+        final Long size = (Long) meta.get(BYTE_SIZE_KEY);
+        byteSize.set((size != null) ? size : 0);
+        final boolean isUpToDate =
+                Boolean.TRUE.equals(meta.get(UP_TO_DATE_KEY));
+        // Until the store is closed cleanly, the tree may contain files that
+        // haven't been committed to it.
+        meta.put(UP_TO_DATE_KEY, false);
+        store.commit();
+
+        final ThreadPool pool = ThreadPool.getInstance();
+        workerFuture = pool.submitLongRunning(new Worker());
+        if (isUpToDate) {
+            setReady();
+            LOGGER.info("open(): {} files totaling {} bytes are indexed in {}",
+                    size(), getByteSize(), rootPath);
+        } else {
+            rebuildFuture = pool.submitLongRunning(this::rebuild);
+        }
+    }
+
+    private void openStore() {
+        store = new MVStore.Builder()
+                .fileName(storeFile.toString())
+                .cacheSize(CACHE_SIZE_MB)
+                .autoCommitDisabled()
+                .open();
+        files = store.openMap(FILES_MAP_NAME);
+        meta = store.openMap(META_MAP_NAME);
+        tempFiles = store.openMap(TEMP_FILES_MAP_NAME);
+    }
+
+    /**
+     * Adds any files in the tree that are not already indexed to the index,
+     * and marks it as ready.
+     */
+    private void rebuild() {
+        LOGGER.info("rebuild(): indexing {} in the background", rootPath);
+        try {
+            Files.walkFileTree(rootPath,
+                    EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+                    Integer.MAX_VALUE,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult visitFile(Path file,
+                                                         BasicFileAttributes attrs) {
+                            if (isClosed ||
+                                    Thread.currentThread().isInterrupted()) {
+                                return FileVisitResult.TERMINATE;
+                            }
+                            if (attrs.isRegularFile() && !isStoreFile(file)) {
+                                rebuild(file, attrs);
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file,
+                                                               IOException e) {
+                            LOGGER.warn("rebuild(): {}", e.getMessage());
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (IOException e) {
+            LOGGER.error("rebuild(): failed to index {}: {}",
+                    rootPath, e.getMessage());
+            return;
+        }
+        if (!isClosed && !Thread.currentThread().isInterrupted()) {
+            setReady();
+            LOGGER.info("rebuild(): {} files totaling {} bytes are indexed " +
+                    "in {}", size(), getByteSize(), rootPath);
+        }
+    }
+
+    private void rebuild(Path file, BasicFileAttributes attrs) {
+        final String pathname = relativize(file);
+        synchronized (writeLock) {
+            if (isClosed) {
+                return;
+            }
+            if (file.getFileName().toString().endsWith(TEMP_EXTENSION)) {
+                if (!openTempFiles.contains(pathname)) {
+                    tempFiles.put(pathname, Boolean.TRUE);
+                }
+            } else if (!files.containsKey(pathname) && Files.exists(file)) {
+                // Entries added since the walk began are more accurate, and
+                // files deleted since they were visited must not be added.
+                putEntry(pathname, attrs.size(),
+                        attrs.lastModifiedTime().toMillis());
+            }
+        }
+    }
+
+    private void setReady() {
+        isReady = true;
+        readyLatch.countDown();
+    }
+
+    /**
+     * Deletes the given file and removes it from the index.
+     *
+     * @return Whether the file was deleted.
+     */
+    private boolean delete(String pathname) {
+        final Path file = rootPath.resolve(pathname);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("delete(): unable to delete {}: {}",
+                    file, e.getMessage());
+            return false;
+        }
+        remove(pathname);
+        return true;
+    }
+
+    /**
+     * Must be called with {@link #writeLock} held.
+     */
+    private void putEntry(String pathname, long size, long lastAccessed) {
+        final long[] previous =
+                files.put(pathname, new long[] { size, lastAccessed });
+        byteSize.addAndGet(size - ((previous != null) ? previous[0] : 0));
+        meta.put(BYTE_SIZE_KEY, byteSize.get());
+    }
+
+    /**
+     * Must be called with {@link #writeLock} held.
+     */
+    private void removeEntry(String pathname) {
+        pendingAccessTimes.remove(pathname);
+        final long[] previous = files.remove(pathname);
+        if (previous != null) {
+            byteSize.addAndGet(-previous[0]);
+            meta.put(BYTE_SIZE_KEY, byteSize.get());
+        }
+    }
+
+    private String relativize(Path file) {
+        return rootPath.relativize(file.toAbsolutePath().normalize())
+                .toString();
+    }
+
+}
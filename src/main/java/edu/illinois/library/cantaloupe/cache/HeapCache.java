@@ -7,6 +7,7 @@ import edu.illinois.library.cantaloupe.config.ConfigurationException;
 import edu.illinois.library.cantaloupe.image.Identifier;
 import edu.illinois.library.cantaloupe.image.Info;
 import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.util.StringUtil;
 import org.apache.commons.io.output.NullOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +55,30 @@ import static edu.illinois.library.cantaloupe.config.Key.*;
  * <a href="https://developers.google.com/protocol-buffers/">Google Protocol
  * Buffers</a>.</p>
  *
+ * <p>Alternatively, item data can be stored outside of the Java heap,
+ * according to
+ * {@link edu.illinois.library.cantaloupe.config.Key#HEAPCACHE_STORAGE}:</p>
+ *
+ * <dl>
+ *     <dt><code>heap</code> (the default)</dt>
+ *     <dd>Items are stored on the heap as described above.</dd>
+ *     <dt><code>direct</code></dt>
+ *     <dd>Items are stored in direct buffers, which don't count toward the
+ *     maximum heap size and aren't subject to garbage collection.</dd>
+ *     <dt><code>mapped</code></dt>
+ *     <dd>Items are stored in a memory-mapped file at
+ *     {@link edu.illinois.library.cantaloupe.config.Key#HEAPCACHE_MAPPED_PATHNAME},
+ *     which serves as the persistent store: its contents are available
+ *     immediately after a restart, even following a crash, and
+ *     {@link edu.illinois.library.cantaloupe.config.Key#HEAPCACHE_PERSIST} does
+ *     not apply.</dd>
+ * </dl>
+ *
+ * <p>In both of the off-heap modes, the target size is a hard limit that is
+ * fixed at initialization, and the least-recently-accessed items are evicted
+ * immediately as needed to make room for new ones. See {@link OffHeapStore}
+ * for details.</p>
+ *
  * @see <a href="https://github.com/google/protobuf">Protocol Buffers</a>
  * @see <a href="https://developers.google.com/protocol-buffers/docs/javatutorial">
  *     Protocol Buffer Basics: Java</a>
@@ -130,7 +155,7 @@ class HeapCache implements DerivativeCache {
             return super.equals(obj);
         }
 
-        private String getIdentifier() {
+        String getIdentifier() {
             return imageId;
         }
 
@@ -138,7 +163,7 @@ class HeapCache implements DerivativeCache {
             return lastAccessedTime;
         }
 
-        private String getOperationList() {
+        String getOperationList() {
             return opList;
         }
 
@@ -183,8 +208,12 @@ class HeapCache implements DerivativeCache {
         public void close() throws IOException {
             LOGGER.debug("Closing stream for {}", opList);
             Key key = itemKey(opList);
-            Item item = new Item(wrappedStream.toByteArray());
-            cache.put(key, item);
+            if (offHeapStore != null) {
+                offHeapStore.put(key, wrappedStream.toByteArray());
+            } else {
+                Item item = new Item(wrappedStream.toByteArray());
+                cache.put(key, item);
+            }
             try {
                 super.close();
             } finally {
@@ -253,6 +282,12 @@ class HeapCache implements DerivativeCache {
     private final AtomicBoolean isDirty = new AtomicBoolean(false);
     private final AtomicBoolean workerShouldWork = new AtomicBoolean(true);
 
+    /**
+     * Set by {@link #initialize()} when an off-heap storage mode is
+     * configured, in which case {@link #cache} is not used.
+     */
+    private volatile OffHeapStore offHeapStore;
+
     /**
      * <p>Dumps the cache contents to the file specified by
      * {@link edu.illinois.library.cantaloupe.config.Key#HEAPCACHE_PATHNAME},
@@ -260,8 +295,15 @@ class HeapCache implements DerivativeCache {
      *
      * <p>{@link edu.illinois.library.cantaloupe.config.Key#HEAPCACHE_PERSIST}
      * is <strong>not</strong> respected.</p>
+     *
+     * <p>This does not apply when using an off-heap storage mode.</p>
      */
     synchronized void dumpToPersistentStore() throws IOException {
+        if (offHeapStore != null) {
+            throw new IOException("dumpToPersistentStore(): not supported " +
+                    "with " + HEAPCACHE_STORAGE + " = " +
+                    Configuration.getInstance().getString(HEAPCACHE_STORAGE));
+        }
         final Configuration config = Configuration.getInstance();
         final String pathname = config.getString(HEAPCACHE_PATHNAME);
         if (pathname != null && pathname.length() > 0) {
@@ -340,17 +382,28 @@ class HeapCache implements DerivativeCache {
      * @return Current size of the contents in bytes.
      */
     long getByteSize() {
+        if (offHeapStore != null) {
+            return offHeapStore.getByteSize();
+        }
         return cache.values().stream().mapToLong(t -> t.getData().length).sum();
     }
 
     @Override
     public Info getImageInfo(Identifier identifier) throws IOException {
         Info info = null;
-        Item item = get(itemKey(identifier));
-        if (item != null) {
+        byte[] data = null;
+        if (offHeapStore != null) {
+            data = offHeapStore.get(itemKey(identifier));
+        } else {
+            Item item = get(itemKey(identifier));
+            if (item != null) {
+                data = item.getData();
+            }
+        }
+        if (data != null) {
             LOGGER.info("getImageInfo(): hit for {}", identifier);
 
-            info = Info.fromJSON(new String(item.getData(), "UTF-8"));
+            info = Info.fromJSON(new String(data, "UTF-8"));
         }
         return info;
     }
@@ -376,23 +429,7 @@ class HeapCache implements DerivativeCache {
         final Configuration config = Configuration.getInstance();
         String humanSize = config.getString(HEAPCACHE_TARGET_SIZE);
         if (humanSize != null && humanSize.length() > 0) {
-            final String numberStr = humanSize.replaceAll("[^\\d.]", "");
-            final double number = Double.parseDouble(numberStr);
-            long size;
-            short exponent;
-
-            if (humanSize.endsWith("M") || humanSize.endsWith("MB")) {
-                exponent = 2;
-            } else if (humanSize.endsWith("G") || humanSize.endsWith("GB")) {
-                exponent = 3;
-            } else if (humanSize.endsWith("T") || humanSize.endsWith("TB")) {
-                exponent = 4;
-            } else if (humanSize.endsWith("P") || humanSize.endsWith("PB")) { // you never know
-                exponent = 5;
-            } else {
-                exponent = 0;
-            }
-            size = Math.round(number * Math.pow(1024, exponent));
+            final long size = StringUtil.parseByteSize(humanSize);
             if (size <= 0) {
                 throw new ConfigurationException(HEAPCACHE_TARGET_SIZE +
                         " must be greater than zero.");
@@ -405,19 +442,66 @@ class HeapCache implements DerivativeCache {
     @Override
     public void initialize() {
         final Configuration config = Configuration.getInstance();
+        final String storage = config.getString(HEAPCACHE_STORAGE, "heap");
+        switch (storage) {
+            case "direct":
+            case "mapped":
+                try {
+                    initializeOffHeapStore(storage);
+                    // The store manages its own size, so there is no need
+                    // for a worker.
+                    return;
+                } catch (ConfigurationException | IOException e) {
+                    LOGGER.error("initialize(): failed to initialize " +
+                            "off-heap storage ({}); falling back to heap " +
+                            "storage", e.getMessage());
+                }
+                break;
+            case "heap":
+                break;
+            default:
+                LOGGER.warn("initialize(): unrecognized value for {}: {}; " +
+                        "using heap storage", HEAPCACHE_STORAGE, storage);
+                break;
+        }
+
         if (config.getBoolean(HEAPCACHE_PERSIST, false)) {
             loadFromPersistentStore();
         }
 
         // Start a worker thread to manage the size.
         try {
-            ThreadPool.getInstance().submit(new Worker(),
-                    ThreadPool.Priority.LOW);
+            ThreadPool.getInstance().submitLongRunning(new Worker());
         } catch (RejectedExecutionException e) {
             LOGGER.error("initialize(): {}", e.getMessage());
         }
     }
 
+    /**
+     * @param storage Value of
+     *                {@link edu.illinois.library.cantaloupe.config.Key#HEAPCACHE_STORAGE}.
+     */
+    private void initializeOffHeapStore(String storage)
+            throws ConfigurationException, IOException {
+        final long capacity = getTargetByteSize();
+        if ("mapped".equals(storage)) {
+            final String pathname = Configuration.getInstance().
+                    getString(HEAPCACHE_MAPPED_PATHNAME);
+            if (pathname == null || pathname.isEmpty()) {
+                throw new ConfigurationException(HEAPCACHE_MAPPED_PATHNAME +
+                        " is not set");
+            }
+            LOGGER.info("initializeOffHeapStore(): mapping {} ({} bytes)",
+                    pathname, capacity);
+            offHeapStore = OffHeapStore.newMappedStore(Paths.get(pathname),
+                    capacity);
+        } else {
+            LOGGER.info("initializeOffHeapStore(): allocating {} bytes",
+                    capacity);
+            offHeapStore = OffHeapStore.newDirectStore(capacity);
+        }
+    }
+
     boolean isDirty() {
         return isDirty.get();
     }
@@ -484,6 +568,9 @@ class HeapCache implements DerivativeCache {
 
     @Override
     public InputStream newDerivativeImageInputStream(OperationList opList) {
+        if (offHeapStore != null) {
+            return offHeapStore.newInputStream(itemKey(opList));
+        }
         Item item = get(itemKey(opList));
         if (item != null) {
             return new ByteArrayInputStream(item.getData());
@@ -494,6 +581,16 @@ class HeapCache implements DerivativeCache {
     @Override
     public OutputStream newDerivativeImageOutputStream(OperationList opList) {
         final Key key = itemKey(opList);
+        if (offHeapStore != null) {
+            if (offHeapStore.contains(key)) {
+                LOGGER.info("newDerivativeImageOutputStream(): hit for {}",
+                        opList);
+                return new NullOutputStream();
+            }
+            LOGGER.info("newDerivativeImageOutputStream(): miss; caching {}",
+                    opList);
+            return new HeapCacheOutputStream(opList);
+        }
         final Item item = cache.get(key);
         if (item != null) {
             LOGGER.info("newDerivativeImageOutputStream(): hit for {}", opList);
@@ -509,7 +606,11 @@ class HeapCache implements DerivativeCache {
 
     @Override
     public void purge() {
-        LOGGER.info("purge(): purging {} items", cache.size());
+        LOGGER.info("purge(): purging {} items", size());
+        if (offHeapStore != null) {
+            offHeapStore.removeAll();
+            return;
+        }
         cache.clear();
     }
 
@@ -517,20 +618,34 @@ class HeapCache implements DerivativeCache {
     public void purge(Identifier identifier) {
         LOGGER.info("purge(Identifier): purging {}...", identifier);
         final String imageId = itemKey(identifier).getIdentifier();
+        if (offHeapStore != null) {
+            offHeapStore.removeIf(k -> k.getIdentifier().equals(imageId));
+            return;
+        }
         cache.keySet().removeIf(k -> k.getIdentifier().equals(imageId));
     }
 
     @Override
     public void purge(OperationList opList) {
         LOGGER.info("purge(OperationList): purging {}...", opList.toString());
+        if (offHeapStore != null) {
+            offHeapStore.remove(itemKey(opList));
+            return;
+        }
         cache.remove(itemKey(opList));
     }
 
     /**
      * Purges as much content as needed to reduce the current size below the
      * target size, starting with the least-recently-used first.
+     *
+     * <p>Off-heap stores evict items as needed, so this does nothing when
+     * using an off-heap storage mode.</p>
      */
     void purgeExcess() throws ConfigurationException {
+        if (offHeapStore != null) {
+            return;
+        }
         synchronized (Worker.class) {
             final long size = getByteSize();
             final long targetSize = getTargetByteSize();
@@ -575,7 +690,12 @@ class HeapCache implements DerivativeCache {
 
         // Rather than storing the info instance itself, we store its JSON
         // serialization, mainly in order to be able to easily get its size.
-        Item item = new Item(imageInfo.toJSON().getBytes("UTF-8"));
+        final byte[] json = imageInfo.toJSON().getBytes("UTF-8");
+        if (offHeapStore != null) {
+            offHeapStore.put(key, json);
+            return;
+        }
+        Item item = new Item(json);
         cache.putIfAbsent(key, item);
     }
 
@@ -583,6 +703,9 @@ class HeapCache implements DerivativeCache {
      * @return Number of cached items.
      */
     long size() {
+        if (offHeapStore != null) {
+            return offHeapStore.size();
+        }
         return cache.size();
     }
 
@@ -590,6 +713,11 @@ class HeapCache implements DerivativeCache {
     public void shutdown() {
         workerShouldWork.set(false);
 
+        if (offHeapStore != null) {
+            offHeapStore.close();
+            return;
+        }
+
         // Dump the cache contents to disk, if the cache is dirty, and if
         // PERSIST_CONFIG_KEY is set to true.
         final Configuration config = Configuration.getInstance();
@@ -5,6 +5,9 @@ import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.image.Identifier;
 import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import edu.illinois.library.cantaloupe.metrics.Timer;
+import edu.illinois.library.cantaloupe.processor.ContrastRangeCache;
 import edu.illinois.library.cantaloupe.processor.Processor;
 import edu.illinois.library.cantaloupe.util.ObjectCache;
 import edu.illinois.library.cantaloupe.util.Stopwatch;
@@ -38,6 +41,11 @@ public class InfoService {
      */
     private static final float MAX_HEAP_PERCENT = 0.1f;
 
+    /**
+     * Name of the object cache in {@link Metrics}.
+     */
+    private static final String OBJECT_CACHE_METRIC_NAME = "InfoCache";
+
     private static InfoService instance;
 
     private final ObjectCache<Identifier, Info> objectCache;
@@ -97,6 +105,14 @@ public class InfoService {
         // Check the local object cache.
         Info info = objectCache.get(identifier);
 
+        if (isObjectCacheEnabled()) {
+            if (info != null) {
+                Metrics.cacheHits(OBJECT_CACHE_METRIC_NAME, "info").increment();
+            } else {
+                Metrics.cacheMisses(OBJECT_CACHE_METRIC_NAME, "info").increment();
+            }
+        }
+
         if (info != null) {
             LOGGER.debug("getInfo(): retrieved info of {} from {}",
                     identifier, objectCache.getClass().getSimpleName());
@@ -104,8 +120,17 @@ public class InfoService {
             // Check the derivative cache.
             final DerivativeCache derivCache = CacheFactory.getDerivativeCache();
             if (derivCache != null) {
+                final String cacheName = derivCache.getClass().getSimpleName();
                 Stopwatch watch = new Stopwatch();
-                info = derivCache.getImageInfo(identifier);
+                try (Timer.Context ignored =
+                             Metrics.cacheRead(cacheName, "info").time()) {
+                    info = derivCache.getImageInfo(identifier);
+                }
+                if (info != null) {
+                    Metrics.cacheHits(cacheName, "info").increment();
+                } else {
+                    Metrics.cacheMisses(cacheName, "info").increment();
+                }
                 if (info != null) {
                     LOGGER.debug("getInfo(): retrieved info of {} from " +
                                     "{} in {} msec",
@@ -179,7 +204,7 @@ public class InfoService {
     }
 
     boolean isObjectCacheEnabled() {
-        return Configuration.getInstance().
+        return Configuration.getInstance().getSnapshot().
                 getBoolean(Key.INFO_CACHE_ENABLED, false);
     }
 
@@ -226,12 +251,19 @@ public class InfoService {
     }
 
     /**
-     * Reads the information of a source image from the given processor.
+     * Reads the information of a source image from the given processor. As
+     * the source image may have changed since its info was last read, its
+     * cached contrast range is also discarded.
      */
     private Info readInfo(final Identifier identifier,
                           final Processor proc) throws IOException {
         final Stopwatch watch = new Stopwatch();
-        final Info info = proc.readImageInfo();
+        final Info info;
+        try (Timer.Context ignored =
+                     Metrics.infoRead(proc.getClass().getSimpleName()).time()) {
+            info = proc.readImageInfo();
+        }
+        ContrastRangeCache.getInstance().purge(identifier);
         LOGGER.debug("readInfo(): read {} from {} in {} msec",
                 identifier,
                 proc.getClass().getSimpleName(),
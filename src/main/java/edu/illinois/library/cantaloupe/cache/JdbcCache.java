@@ -22,6 +22,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.Calendar;
+import java.util.function.Consumer;
 
 /**
  * <p>Cache using a database table, storing images as BLOBs and image infos
@@ -41,6 +42,11 @@ import java.util.Calendar;
  *     info VARCHAR(8192) NOT NULL,
  *     last_accessed DATETIME
  * );</pre>
+ *
+ * <p>When {@link Key#DERIVATIVE_CACHE_BLOOM_FILTER_ENABLED} is
+ * <code>true</code>, a {@link CacheKeyFilter} of the operation lists and
+ * identifiers in both tables is maintained so that lookups of rows that are
+ * not in it are only confirmed with a query that doesn't read the row.</p>
  */
 class JdbcCache implements DerivativeCache {
 
@@ -91,6 +97,7 @@ class JdbcCache implements DerivativeCache {
             try {
                 statement.executeUpdate();
                 connection.commit();
+                keyFilter.add(filterKey(ops));
             } catch (SQLException e) {
                 throw new IOException(e.getMessage(), e);
             } finally {
@@ -143,6 +150,9 @@ class JdbcCache implements DerivativeCache {
 
     private static HikariDataSource dataSource;
 
+    private final CacheKeyFilter keyFilter =
+            new CacheKeyFilter(JdbcCache.class.getSimpleName());
+
     /**
      * @return Connection from the connection pool. Clients must call
      *         {@link Connection#close} when they are done with it.
@@ -216,6 +226,20 @@ class JdbcCache implements DerivativeCache {
         return name;
     }
 
+    /**
+     * @return Key of the given derivative image in the {@link #keyFilter}.
+     */
+    private static String filterKey(OperationList opList) {
+        return "image:" + opList.toString();
+    }
+
+    /**
+     * @return Key of the given info in the {@link #keyFilter}.
+     */
+    private static String filterKey(Identifier identifier) {
+        return "info:" + identifier.toString();
+    }
+
     /**
      * @param connection Will not be closed.
      */
@@ -259,7 +283,7 @@ class JdbcCache implements DerivativeCache {
             } catch (SQLException e) {
                 LOGGER.error("accessDerivativeImageAsync(): {}", e.getMessage());
             }
-        });
+        }, ThreadPool.Priority.LOW);
     }
 
     /**
@@ -294,7 +318,17 @@ class JdbcCache implements DerivativeCache {
             } catch (SQLException e) {
                 LOGGER.error("accessInfoAsync(): {}", e.getMessage());
             }
-        });
+        }, ThreadPool.Priority.LOW);
+    }
+
+    /**
+     * Repopulates the key filter, if enabled and necessary.
+     */
+    @Override
+    public void cleanUp() {
+        if (CacheKeyFilter.isEnabled()) {
+            keyFilter.populateAsyncIfNecessary(this::listKeys);
+        }
     }
 
     Timestamp earliestValidDate() {
@@ -309,6 +343,13 @@ class JdbcCache implements DerivativeCache {
 
     @Override
     public Info getImageInfo(Identifier identifier) throws IOException {
+        if (keyFilter.isDefinitelyAbsent(filterKey(identifier),
+                key -> rowExists(getInfoTableName(),
+                        INFO_TABLE_IDENTIFIER_COLUMN, identifier.toString()))) {
+            LOGGER.debug("getImageInfo(): {} is not cached", identifier);
+            return null;
+        }
+
         final String sql = String.format(
                 "SELECT %s FROM %s WHERE %s = ? AND %s >= ?",
                 INFO_TABLE_INFO_COLUMN,
@@ -341,9 +382,77 @@ class JdbcCache implements DerivativeCache {
         return null;
     }
 
+    /**
+     * Populates the key filter, if enabled.
+     */
+    @Override
+    public void initialize() {
+        if (CacheKeyFilter.isEnabled()) {
+            keyFilter.populateAsync(this::listKeys);
+        }
+    }
+
+    /**
+     * @return Whether the given table contains a row whose given column has
+     *         the given value.
+     */
+    private boolean rowExists(String table, String column, String value)
+            throws IOException {
+        final String sql = String.format("SELECT 1 FROM %s WHERE %s = ?",
+                table, column);
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, value);
+            LOGGER.debug(sql);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Feeds the {@link #filterKey filter keys} of all rows in both tables to
+     * the given consumer.
+     */
+    private void listKeys(Consumer<String> consumer) throws SQLException {
+        final String imageSql = String.format("SELECT %s FROM %s",
+                DERIVATIVE_IMAGE_TABLE_OPERATIONS_COLUMN,
+                getDerivativeImageTableName());
+        final String infoSql = String.format("SELECT %s FROM %s",
+                INFO_TABLE_IDENTIFIER_COLUMN,
+                getInfoTableName());
+        try (Connection conn = getConnection()) {
+            LOGGER.debug(imageSql);
+            try (PreparedStatement statement = conn.prepareStatement(imageSql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept("image:" + resultSet.getString(1));
+                }
+            }
+            LOGGER.debug(infoSql);
+            try (PreparedStatement statement = conn.prepareStatement(infoSql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept("info:" + resultSet.getString(1));
+                }
+            }
+        }
+    }
+
     @Override
     public InputStream newDerivativeImageInputStream(OperationList opList)
             throws IOException {
+        if (keyFilter.isDefinitelyAbsent(filterKey(opList),
+                key -> rowExists(getDerivativeImageTableName(),
+                        DERIVATIVE_IMAGE_TABLE_OPERATIONS_COLUMN,
+                        opList.toString()))) {
+            LOGGER.debug("newDerivativeImageInputStream(): {} is not cached",
+                    opList);
+            return null;
+        }
+
         InputStream inputStream = null;
 
         final String sql = String.format(
@@ -401,6 +510,7 @@ class JdbcCache implements DerivativeCache {
                     purgeDerivativeImages(connection);
             final int numDeletedInfos = purgeInfos(connection);
             connection.commit();
+            keyFilter.clear();
             LOGGER.info("Purged {} derivative images and {} infos",
                     numDeletedDerivativeImages, numDeletedInfos);
         } catch (SQLException e) {
@@ -612,6 +722,7 @@ class JdbcCache implements DerivativeCache {
             LOGGER.debug(sql);
             statement.executeUpdate();
             conn.commit();
+            keyFilter.add(filterKey(identifier));
         } catch (SQLException | JsonProcessingException e) {
             throw new IOException(e.getMessage(), e);
         }
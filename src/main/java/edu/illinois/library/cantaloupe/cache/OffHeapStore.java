@@ -0,0 +1,744 @@
+package edu.illinois.library.cantaloupe.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * <p>Fixed-capacity store of {@link HeapCache} items residing outside of the
+ * Java heap, either in direct buffers or in a memory-mapped file. Only an
+ * index of item locations is kept on the heap.</p>
+ *
+ * <p>The store is divided into one or more segments (so that capacities
+ * larger than 2GB can be mapped), which are carved into chunks by a buddy
+ * allocator. Chunk sizes are powers of two, and every chunk is aligned
+ * (relative to the end of its segment header) to a multiple of its size, so
+ * that each chunk has exactly one "buddy" of the same size with which it
+ * can be merged. Freed chunks are merged with their buddies when those are
+ * also free, and placed into per-size free lists. Larger free chunks are
+ * split in half as needed, and new chunks are otherwise allocated from the
+ * unused end of the store. When none of these works, least-recently-accessed
+ * items of any size are evicted until a large enough chunk has been freed.
+ * </p>
+ *
+ * <p>Every chunk begins with a header containing its size, state, last-
+ * accessed time, and key. This makes it possible to rebuild the index by
+ * scanning a mapped file at startup, so that the file is its own persistent
+ * store&mdash;nothing needs to be serialized at shutdown, and the contents
+ * survive a crash of the JVM.</p>
+ *
+ * <p>Items being read are reference-counted so that their chunks are not
+ * reused until all streams reading from them have been closed.</p>
+ *
+ * @since 3.5
+ */
+class OffHeapStore {
+
+    /**
+     * On-heap index entry describing the location of an item.
+     */
+    private static final class Entry {
+
+        private final long address;
+        private final int chunkSize;
+        private final int dataOffset;
+        private final int dataLength;
+        private volatile long lastAccessedTime;
+
+        /**
+         * One reference is held by the index; others are held by open
+         * streams. When the count reaches zero, the chunk is freed.
+         */
+        private final AtomicInteger refCount = new AtomicInteger(1);
+
+        Entry(long address, int chunkSize, int dataOffset, int dataLength,
+              long lastAccessedTime) {
+            this.address = address;
+            this.chunkSize = chunkSize;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+            this.lastAccessedTime = lastAccessedTime;
+        }
+
+        boolean acquire() {
+            while (true) {
+                final int count = refCount.get();
+                if (count <= 0) {
+                    return false;
+                }
+                if (refCount.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Reads an item's data directly out of its chunk, releasing the chunk
+     * upon closure.
+     */
+    private class EntryInputStream extends InputStream {
+
+        private final Entry entry;
+        private final ByteBuffer buffer;
+        private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+        EntryInputStream(Entry entry, ByteBuffer buffer) {
+            this.entry = entry;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (isClosed.compareAndSet(false, true)) {
+                release(entry);
+            }
+            super.close();
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkClosed();
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkClosed();
+            if (len == 0) {
+                return 0;
+            } else if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            final int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        private void checkClosed() throws IOException {
+            if (isClosed.get()) {
+                throw new IOException("Stream is closed");
+            }
+        }
+
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(OffHeapStore.class);
+
+    private static final long FILE_MAGIC = 0x43414e54414c4f55L; // "CANTALOU"
+    private static final int FILE_VERSION = 2;
+
+    /**
+     * Reserved space at the beginning of every segment. In the first segment
+     * of a mapped file, this contains the file header.
+     */
+    static final int SEGMENT_HEADER_SIZE = 64;
+
+    /**
+     * Chunk header layout: chunk size (int), state (byte + 3 bytes of
+     * padding), last-accessed time (long), identifier length (int),
+     * operation list length (int), data length (int), reserved (int).
+     */
+    static final int CHUNK_HEADER_SIZE = 32;
+
+    static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024 * 1024;
+    static final int MIN_CHUNK_SIZE = 1024;
+
+    private static final byte STATE_FREE = 0;
+    private static final byte STATE_USED = 1;
+
+    private final ByteBuffer[] segments;
+    private final int maxChunkSize;
+    private final boolean isMapped;
+
+    private final ConcurrentMap<HeapCache.Key, Entry> index =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Addresses of free chunks, indexed by {@link #sizeClass(int)}. Guarded
+     * by this.
+     */
+    private final List<Set<Long>> freeLists = new ArrayList<>();
+
+    /** Guarded by this. */
+    private int bumpSegment = 0;
+    /** Guarded by this. */
+    private int bumpOffset = SEGMENT_HEADER_SIZE;
+
+    /**
+     * @param capacity Capacity of the store in bytes.
+     * @return New instance backed by direct buffers. Its contents are lost
+     *         when the JVM exits.
+     */
+    static OffHeapStore newDirectStore(long capacity) {
+        return newDirectStore(capacity, DEFAULT_SEGMENT_SIZE);
+    }
+
+    static OffHeapStore newDirectStore(long capacity, int segmentSize) {
+        final ByteBuffer[] segments = new ByteBuffer[segmentCount(capacity, segmentSize)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(
+                    segmentLength(capacity, segmentSize, i));
+        }
+        return new OffHeapStore(segments, false);
+    }
+
+    /**
+     * Maps the file at the given path into memory, creating it if it does
+     * not exist, and rebuilds the index from its contents. If the file
+     * exists but was created with a different capacity, it is recreated.
+     *
+     * @param path     Path of the store file.
+     * @param capacity Capacity of the store in bytes.
+     * @return New instance backed by the given file.
+     */
+    static OffHeapStore newMappedStore(Path path,
+                                       long capacity) throws IOException {
+        return newMappedStore(path, capacity, DEFAULT_SEGMENT_SIZE);
+    }
+
+    static OffHeapStore newMappedStore(Path path, long capacity,
+                                       int segmentSize) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        final ByteBuffer[] segments = new ByteBuffer[segmentCount(capacity, segmentSize)];
+
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            boolean isValid = false;
+            if (file.length() == capacity) {
+                final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+                channel.read(header, 0);
+                isValid = header.getLong(0) == FILE_MAGIC &&
+                        header.getInt(8) == FILE_VERSION &&
+                        header.getInt(12) == segmentSize &&
+                        header.getLong(16) == capacity;
+            }
+            if (!isValid) {
+                if (file.length() > 0) {
+                    LOGGER.warn("newMappedStore(): {} is incompatible with " +
+                            "the current configuration; recreating it", path);
+                }
+                // Truncating first ensures that the whole file reads as
+                // zeroes (i.e. unallocated).
+                file.setLength(0);
+                file.setLength(capacity);
+            }
+
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        (long) i * segmentSize,
+                        segmentLength(capacity, segmentSize, i));
+            }
+            if (!isValid) {
+                segments[0].putLong(0, FILE_MAGIC);
+                segments[0].putInt(8, FILE_VERSION);
+                segments[0].putInt(12, segmentSize);
+                segments[0].putLong(16, capacity);
+            }
+        }
+
+        final OffHeapStore store = new OffHeapStore(segments, true);
+        store.rebuildIndex();
+        return store;
+    }
+
+    private static int segmentCount(long capacity, int segmentSize) {
+        if (capacity < SEGMENT_HEADER_SIZE + MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Capacity is too small");
+        }
+        final long count = (capacity + segmentSize - 1) / segmentSize;
+        if (capacity - (count - 1) * segmentSize < SEGMENT_HEADER_SIZE + MIN_CHUNK_SIZE) {
+            // Don't bother with a uselessly tiny last segment.
+            return (int) count - 1;
+        }
+        return (int) count;
+    }
+
+    private static int segmentLength(long capacity, int segmentSize,
+                                     int segmentIndex) {
+        final long offset = (long) segmentIndex * segmentSize;
+        return (int) Math.min(segmentSize, capacity - offset);
+    }
+
+    private static long address(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    private static int segment(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    /**
+     * @return Size class of the given chunk size, which must be a power of
+     *         two greater than or equal to {@link #MIN_CHUNK_SIZE}.
+     */
+    private static int sizeClass(int chunkSize) {
+        return Integer.numberOfTrailingZeros(chunkSize) -
+                Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+    }
+
+    private OffHeapStore(ByteBuffer[] segments, boolean isMapped) {
+        this.segments = segments;
+        this.isMapped = isMapped;
+
+        int largestSegment = 0;
+        for (ByteBuffer segment : segments) {
+            largestSegment = Math.max(largestSegment, segment.capacity());
+        }
+        maxChunkSize = Integer.highestOneBit(largestSegment - SEGMENT_HEADER_SIZE);
+
+        for (int i = 0; i <= sizeClass(maxChunkSize); i++) {
+            freeLists.add(new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Flushes the contents of a mapped store to disk.
+     */
+    void close() {
+        if (isMapped) {
+            for (ByteBuffer segment : segments) {
+                ((MappedByteBuffer) segment).force();
+            }
+        }
+    }
+
+    boolean contains(HeapCache.Key key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * @return Copy of the data of the item with the given key, or
+     *         <code>null</code> if there is no such item.
+     */
+    byte[] get(HeapCache.Key key) {
+        final Entry entry = acquire(key);
+        if (entry != null) {
+            try {
+                final byte[] data = new byte[entry.dataLength];
+                dataBuffer(entry).get(data);
+                return data;
+            } finally {
+                release(entry);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Sum of the data sizes of all items in the store.
+     */
+    long getByteSize() {
+        return index.values().stream().mapToLong(e -> e.dataLength).sum();
+    }
+
+    /**
+     * @return Size of the largest item, including its key, that can be
+     *         stored.
+     */
+    int getMaxItemSize() {
+        return maxChunkSize - CHUNK_HEADER_SIZE;
+    }
+
+    /**
+     * @return Stream that reads the data of the item with the given key
+     *         directly out of off-heap memory, or <code>null</code> if there
+     *         is no such item. The stream must be closed.
+     */
+    InputStream newInputStream(HeapCache.Key key) {
+        final Entry entry = acquire(key);
+        if (entry != null) {
+            return new EntryInputStream(entry, dataBuffer(entry));
+        }
+        return null;
+    }
+
+    /**
+     * Adds an item to the store, replacing any existing item with the same
+     * key.
+     *
+     * @return Whether the item was stored. Items may not be stored if they
+     *         are too big, or if space for them could not be made available.
+     */
+    boolean put(HeapCache.Key key, byte[] data) {
+        final byte[] idBytes =
+                key.getIdentifier().getBytes(StandardCharsets.UTF_8);
+        final byte[] opListBytes = (key.getOperationList() != null) ?
+                key.getOperationList().getBytes(StandardCharsets.UTF_8) :
+                new byte[0];
+        final long requiredSize = (long) CHUNK_HEADER_SIZE + idBytes.length +
+                opListBytes.length + data.length;
+        if (requiredSize > maxChunkSize) {
+            LOGGER.debug("put(): {} bytes exceeds the maximum item size; " +
+                    "not storing {}", requiredSize, key);
+            return false;
+        }
+        final int chunkSize = Math.max(MIN_CHUNK_SIZE,
+                Integer.highestOneBit((int) requiredSize - 1) << 1);
+        final long address = allocate(chunkSize);
+        if (address < 0) {
+            LOGGER.debug("put(): no space available for {}", key);
+            return false;
+        }
+
+        final long now = System.currentTimeMillis();
+        final ByteBuffer buffer = segments[segment(address)].duplicate();
+        final int offset = offset(address);
+        buffer.position(offset);
+        buffer.putInt(chunkSize);
+        buffer.put(STATE_FREE);
+        buffer.position(offset + 8);
+        buffer.putLong(now);
+        buffer.putInt(idBytes.length);
+        buffer.putInt(opListBytes.length);
+        buffer.putInt(data.length);
+        buffer.putInt(0);
+        buffer.put(idBytes);
+        buffer.put(opListBytes);
+        buffer.put(data);
+        // Mark the chunk as used only after its contents are complete, so
+        // that a crash in the middle of the write won't produce a corrupt
+        // item.
+        buffer.put(offset + 4, STATE_USED);
+
+        final Entry entry = new Entry(address, chunkSize,
+                CHUNK_HEADER_SIZE + idBytes.length + opListBytes.length,
+                data.length, now);
+        final Entry previous = index.put(key, entry);
+        if (previous != null) {
+            release(previous);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the item with the given key. Its chunk will be freed once it is
+     * no longer being read.
+     */
+    void remove(HeapCache.Key key) {
+        final Entry entry = index.remove(key);
+        if (entry != null) {
+            release(entry);
+        }
+    }
+
+    void removeAll() {
+        removeIf(key -> true);
+    }
+
+    void removeIf(Predicate<HeapCache.Key> predicate) {
+        for (Map.Entry<HeapCache.Key, Entry> e : index.entrySet()) {
+            if (predicate.test(e.getKey()) &&
+                    index.remove(e.getKey(), e.getValue())) {
+                release(e.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return Number of items in the store.
+     */
+    long size() {
+        return index.size();
+    }
+
+    private Entry acquire(HeapCache.Key key) {
+        final Entry entry = index.get(key);
+        if (entry != null && entry.acquire()) {
+            final long now = System.currentTimeMillis();
+            entry.lastAccessedTime = now;
+            segments[segment(entry.address)].putLong(
+                    offset(entry.address) + 8, now);
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Allocates a chunk, first from the free list of the given size, then by
+     * splitting a larger free chunk, then from the unused end of the store,
+     * and finally by evicting least-recently-accessed items of any size
+     * until a free chunk of the given size results.
+     *
+     * @return Address of the allocated chunk, or <code>-1</code> if no chunk
+     *         could be allocated.
+     */
+    private synchronized long allocate(int chunkSize) {
+        long address = allocateFree(chunkSize);
+        if (address >= 0) {
+            return address;
+        }
+        address = allocateUnused(chunkSize);
+        if (address >= 0) {
+            return address;
+        }
+        // Evict items, least recently accessed first, until their chunks
+        // have merged into one big enough. Items that are currently being
+        // read won't be freed until their streams are closed.
+        final List<Map.Entry<HeapCache.Key, Entry>> candidates =
+                new ArrayList<>(index.entrySet());
+        candidates.sort(Comparator.comparingLong(
+                e -> e.getValue().lastAccessedTime));
+        for (Map.Entry<HeapCache.Key, Entry> candidate : candidates) {
+            if (index.remove(candidate.getKey(), candidate.getValue())) {
+                LOGGER.debug("allocate(): evicting {}", candidate.getKey());
+                release(candidate.getValue());
+                address = allocateFree(chunkSize);
+                if (address >= 0) {
+                    return address;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Allocates a chunk from the free list of the given size, or else by
+     * splitting a larger free chunk. Must be called with the lock held.
+     *
+     * @return Address of the allocated chunk, or <code>-1</code> if there is
+     *         no large enough free chunk.
+     */
+    private long allocateFree(int chunkSize) {
+        final int sizeClass = sizeClass(chunkSize);
+        for (int c = sizeClass; c < freeLists.size(); c++) {
+            final Iterator<Long> it = freeLists.get(c).iterator();
+            if (it.hasNext()) {
+                final long address = it.next();
+                it.remove();
+                int size = chunkSize << (c - sizeClass);
+                while (size > chunkSize) {
+                    size >>= 1;
+                    final long buddy = address + size;
+                    writeFreeChunkHeader(buddy, size);
+                    freeLists.get(sizeClass(size)).add(buddy);
+                }
+                writeFreeChunkHeader(address, chunkSize);
+                return address;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Allocates a chunk from the unused end of the store. Space skipped in
+     * order to align the chunk, or at the end of a segment, is added to the
+     * free lists. Must be called with the lock held.
+     *
+     * @return Address of the allocated chunk, or <code>-1</code> if the
+     *         store is fully used.
+     */
+    private long allocateUnused(int chunkSize) {
+        while (bumpSegment < segments.length) {
+            final int start = bumpOffset - SEGMENT_HEADER_SIZE;
+            final int aligned = (start + chunkSize - 1) & -chunkSize;
+            final int end = segments[bumpSegment].capacity() -
+                    SEGMENT_HEADER_SIZE;
+            if (aligned + chunkSize <= end) {
+                freeRange(bumpSegment, start, aligned);
+                bumpOffset = SEGMENT_HEADER_SIZE + aligned + chunkSize;
+                return address(bumpSegment, SEGMENT_HEADER_SIZE + aligned);
+            }
+            freeRange(bumpSegment, start, end);
+            bumpSegment++;
+            bumpOffset = SEGMENT_HEADER_SIZE;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the unused space between the given offsets (relative to the end
+     * of the segment header) to the free lists as aligned chunks. Space at
+     * the end that is too small for a chunk is wasted.
+     */
+    private void freeRange(int segment, int start, int end) {
+        while (end - start >= MIN_CHUNK_SIZE) {
+            int size = (start == 0) ?
+                    maxChunkSize : Math.min(maxChunkSize, start & -start);
+            while (start + size > end) {
+                size >>= 1;
+            }
+            free(address(segment, SEGMENT_HEADER_SIZE + start), size);
+            start += size;
+        }
+    }
+
+    /**
+     * @return Read-only buffer positioned at the start of the data of the
+     *         given entry and limited to its end.
+     */
+    private ByteBuffer dataBuffer(Entry entry) {
+        final ByteBuffer buffer =
+                segments[segment(entry.address)].asReadOnlyBuffer();
+        final int start = offset(entry.address) + entry.dataOffset;
+        buffer.limit(start + entry.dataLength);
+        buffer.position(start);
+        return buffer.slice();
+    }
+
+    private void free(Entry entry) {
+        free(entry.address, entry.chunkSize);
+    }
+
+    /**
+     * Marks the given chunk as free and merges it with its buddy, and the
+     * resulting chunk with its own buddy, and so on, for as long as they are
+     * free too.
+     */
+    private synchronized void free(long address, int chunkSize) {
+        final int segment = segment(address);
+        final int end = segments[segment].capacity() - SEGMENT_HEADER_SIZE;
+        int start = offset(address) - SEGMENT_HEADER_SIZE;
+        while (chunkSize < maxChunkSize) {
+            final int buddyStart = start ^ chunkSize;
+            if (buddyStart + chunkSize > end ||
+                    !freeLists.get(sizeClass(chunkSize)).remove(
+                            address(segment, SEGMENT_HEADER_SIZE + buddyStart))) {
+                break;
+            }
+            start = Math.min(start, buddyStart);
+            chunkSize <<= 1;
+        }
+        final long merged = address(segment, SEGMENT_HEADER_SIZE + start);
+        writeFreeChunkHeader(merged, chunkSize);
+        freeLists.get(sizeClass(chunkSize)).add(merged);
+    }
+
+    /**
+     * Scans all chunks in the store, adding used ones to the index and free
+     * ones to the free lists.
+     */
+    private synchronized void rebuildIndex() {
+        for (int s = 0; s < segments.length; s++) {
+            final ByteBuffer segment = segments[s];
+            int offset = SEGMENT_HEADER_SIZE;
+            while (offset + CHUNK_HEADER_SIZE <= segment.capacity()) {
+                final int chunkSize = segment.getInt(offset);
+                if (chunkSize == 0) {
+                    break;
+                }
+                if (chunkSize < MIN_CHUNK_SIZE ||
+                        chunkSize > maxChunkSize ||
+                        Integer.bitCount(chunkSize) != 1 ||
+                        offset + chunkSize > segment.capacity()) {
+                    LOGGER.warn("rebuildIndex(): invalid chunk at {}:{}; " +
+                            "ignoring the rest of the segment", s, offset);
+                    break;
+                }
+                final long address = address(s, offset);
+                if (segment.get(offset + 4) == STATE_USED) {
+                    readEntry(address, chunkSize);
+                } else {
+                    free(address, chunkSize);
+                }
+                offset += chunkSize;
+            }
+            if (offset > SEGMENT_HEADER_SIZE) {
+                bumpSegment = s;
+                bumpOffset = offset;
+            }
+        }
+        LOGGER.info("rebuildIndex(): found {} items ({} bytes)",
+                size(), getByteSize());
+    }
+
+    private void readEntry(long address, int chunkSize) {
+        final ByteBuffer buffer = segments[segment(address)].duplicate();
+        buffer.position(offset(address) + 8);
+        final long lastAccessedTime = buffer.getLong();
+        final int idLength = buffer.getInt();
+        final int opListLength = buffer.getInt();
+        final int dataLength = buffer.getInt();
+        buffer.getInt();
+
+        if (idLength < 0 || opListLength < 0 || dataLength < 0 ||
+                (long) CHUNK_HEADER_SIZE + idLength + opListLength + dataLength > chunkSize) {
+            LOGGER.warn("readEntry(): corrupt item at {}:{}; freeing it",
+                    segment(address), offset(address));
+            free(address, chunkSize);
+            return;
+        }
+
+        final byte[] idBytes = new byte[idLength];
+        buffer.get(idBytes);
+        final byte[] opListBytes = new byte[opListLength];
+        buffer.get(opListBytes);
+
+        final String identifier = new String(idBytes, StandardCharsets.UTF_8);
+        final HeapCache.Key key = (opListLength > 0) ?
+                new HeapCache.Key(identifier,
+                        new String(opListBytes, StandardCharsets.UTF_8)) :
+                new HeapCache.Key(identifier);
+        key.setLastAccessedTime(lastAccessedTime);
+
+        final Entry entry = new Entry(address, chunkSize,
+                CHUNK_HEADER_SIZE + idLength + opListLength, dataLength,
+                lastAccessedTime);
+        final Entry existing = index.get(key);
+        // A crash between writing a replacement item and freeing the one it
+        // replaced can leave duplicates. Keep the newer one.
+        if (existing == null ||
+                existing.lastAccessedTime < entry.lastAccessedTime) {
+            index.put(key, entry);
+            if (existing != null) {
+                free(existing);
+            }
+        } else {
+            free(entry);
+        }
+    }
+
+    private void release(Entry entry) {
+        if (entry.refCount.decrementAndGet() == 0) {
+            free(entry);
+        }
+    }
+
+    private void writeFreeChunkHeader(long address, int chunkSize) {
+        final ByteBuffer segment = segments[segment(address)];
+        segment.putInt(offset(address), chunkSize);
+        segment.put(offset(address) + 4, STATE_FREE);
+    }
+
+}
@@ -24,6 +24,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.util.function.Consumer;
 
 /**
  * <p>Cache using Redis via the <a href="http://redis.paluch.biz">Lettuce</a>
@@ -39,6 +40,12 @@ import java.nio.ByteBuffer;
  *         "identifier": "UTF-8 JSON string"
  *     }
  * }</pre>
+ *
+ * <p>When {@link Key#DERIVATIVE_CACHE_BLOOM_FILTER_ENABLED} is
+ * <code>true</code>, a {@link CacheKeyFilter} of the fields of both hashes is
+ * maintained so that lookups of fields that are not in it are only confirmed
+ * with <code>HEXISTS</code>. Note that listing the fields uses
+ * <code>HKEYS</code>, which blocks the server for the duration.</p>
  */
 class RedisCache implements DerivativeCache {
 
@@ -210,10 +217,27 @@ class RedisCache implements DerivativeCache {
     static final String INFO_HASH_KEY =
             "edu.illinois.library.cantaloupe.info";
 
+    private final CacheKeyFilter keyFilter =
+            new CacheKeyFilter(RedisCache.class.getSimpleName());
+
     private static StatefulRedisConnection<String, byte[]> getConnection() {
         return LazyConnectionHolder.connection;
     }
 
+    /**
+     * @return Key of the given image hash field in the {@link #keyFilter}.
+     */
+    private static String filterKey(OperationList opList) {
+        return "image:" + imageKey(opList);
+    }
+
+    /**
+     * @return Key of the given info hash field in the {@link #keyFilter}.
+     */
+    private static String filterKey(Identifier identifier) {
+        return "info:" + infoKey(identifier);
+    }
+
     private static String imageKey(OperationList opList) {
         return opList.toString();
     }
@@ -222,8 +246,24 @@ class RedisCache implements DerivativeCache {
         return identifier.toString();
     }
 
+    /**
+     * Repopulates the key filter, if enabled and necessary.
+     */
+    @Override
+    public void cleanUp() {
+        if (CacheKeyFilter.isEnabled()) {
+            keyFilter.populateAsyncIfNecessary(this::listKeys);
+        }
+    }
+
     @Override
     public Info getImageInfo(Identifier identifier) throws IOException {
+        if (keyFilter.isDefinitelyAbsent(filterKey(identifier),
+                key -> getConnection().sync().hexists(INFO_HASH_KEY,
+                        infoKey(identifier)))) {
+            LOGGER.debug("getImageInfo(): {} is not cached", identifier);
+            return null;
+        }
         byte[] json = getConnection().sync().hget(INFO_HASH_KEY,
                 infoKey(identifier));
         if (json != null) {
@@ -233,9 +273,38 @@ class RedisCache implements DerivativeCache {
         return null;
     }
 
+    /**
+     * Populates the key filter, if enabled.
+     */
+    @Override
+    public void initialize() {
+        if (CacheKeyFilter.isEnabled()) {
+            keyFilter.populateAsync(this::listKeys);
+        }
+    }
+
+    /**
+     * Feeds the {@link #filterKey filter keys} of all fields in both hashes
+     * to the given consumer.
+     */
+    private void listKeys(Consumer<String> consumer) {
+        getConnection().sync().hkeys(
+                key -> consumer.accept("image:" + key), IMAGE_HASH_KEY);
+        getConnection().sync().hkeys(
+                key -> consumer.accept("info:" + key), INFO_HASH_KEY);
+    }
+
     @Override
-    public InputStream newDerivativeImageInputStream(OperationList opList) {
+    public InputStream newDerivativeImageInputStream(OperationList opList)
+            throws IOException {
         final String imageKey = imageKey(opList);
+        if (keyFilter.isDefinitelyAbsent(filterKey(opList),
+                key -> getConnection().sync().hexists(IMAGE_HASH_KEY,
+                        imageKey))) {
+            LOGGER.debug("newDerivativeImageInputStream(): {} is not cached",
+                    opList);
+            return null;
+        }
         if (getConnection().sync().hexists(IMAGE_HASH_KEY, imageKey)) {
             return new RedisInputStream(IMAGE_HASH_KEY, imageKey,
                     getConnection());
@@ -245,6 +314,7 @@ class RedisCache implements DerivativeCache {
 
     @Override
     public OutputStream newDerivativeImageOutputStream(OperationList opList) {
+        keyFilter.add(filterKey(opList));
         return new RedisOutputStream(IMAGE_HASH_KEY, imageKey(opList),
                 getConnection());
     }
@@ -258,6 +328,8 @@ class RedisCache implements DerivativeCache {
         // Purge images
         LOGGER.info("purge(): purging {}...", IMAGE_HASH_KEY);
         getConnection().sync().del(IMAGE_HASH_KEY);
+
+        keyFilter.clear();
     }
 
     @Override
@@ -297,6 +369,7 @@ class RedisCache implements DerivativeCache {
     @Override
     public void put(Identifier identifier, Info imageInfo) throws IOException {
         LOGGER.info("put(): caching info for {}", identifier);
+        keyFilter.add(filterKey(identifier));
         try {
             getConnection().async().hset(INFO_HASH_KEY, infoKey(identifier),
                     imageInfo.toJSON().getBytes("UTF-8"));
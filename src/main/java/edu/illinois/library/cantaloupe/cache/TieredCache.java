@@ -0,0 +1,599 @@
+package edu.illinois.library.cantaloupe.cache;
+
+import edu.illinois.library.cantaloupe.async.ThreadPool;
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Composite derivative cache that layers a "local" cache in front of a
+ * "remote" one. This is intended for deployments in which several nodes
+ * share a remote cache, like {@link AmazonS3Cache}, and each would benefit
+ * from a faster private cache, like {@link HeapCache} or
+ * {@link FilesystemCache}, in front of it.</p>
+ *
+ * <ul>
+ *     <li>Reads are served from the local tier when possible. Misses fall
+ *     back to the remote tier, and remote hits are promoted (copied) into the
+ *     local tier once they have been read completely, unless they are larger
+ *     than {@link #DEFAULT_MAX_PROMOTION_SIZE}, in which case they are not
+ *     buffered for promotion.</li>
+ *     <li>Writes go to both tiers. With a
+ *     {@link Key#TIEREDCACHE_WRITE_STRATEGY} of <code>WriteThrough</code>,
+ *     the remote tier is written synchronously alongside the local tier. With
+ *     <code>WriteBehind</code>, only the local tier is written synchronously,
+ *     and the remote tier is written to asynchronously afterwards, provided
+ *     that the local write completed without error and the image was not
+ *     purged in the meantime.</li>
+ *     <li>Purges apply to both tiers.</li>
+ * </ul>
+ *
+ * <p>The local tier should be size-limited, as it will otherwise eventually
+ * come to contain everything that the remote tier does.</p>
+ *
+ * @since 3.5
+ */
+class TieredCache implements DerivativeCache {
+
+    enum WriteStrategy {
+        WRITE_BEHIND, WRITE_THROUGH
+    }
+
+    /**
+     * Buffers everything read from a remote-tier stream and, if the stream
+     * is read to the end, writes it to the local tier asynchronously. If the
+     * buffer would grow beyond {@link #maxPromotionSize}, it is dropped and
+     * the image is not promoted.
+     */
+    private class PromotingInputStream extends FilterInputStream {
+
+        private final OperationList opList;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private boolean isComplete = false;
+
+        PromotingInputStream(InputStream remoteStream, OperationList opList) {
+            super(remoteStream);
+            this.opList = opList;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                if (reserve(1)) {
+                    buffer.write(b);
+                }
+            } else {
+                promote();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int count = super.read(b, off, len);
+            if (count > 0) {
+                if (reserve(count)) {
+                    buffer.write(b, off, count);
+                }
+            } else if (count < 0) {
+                promote();
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes would leave a hole in the buffer, so read them.
+            final byte[] bytes = new byte[(int) Math.min(n, 8192)];
+            final int count = read(bytes, 0, bytes.length);
+            return Math.max(count, 0);
+        }
+
+        /**
+         * @return Whether the given number of bytes can be added to the
+         *         buffer. If not, the buffer is dropped.
+         */
+        private boolean reserve(int len) {
+            if (buffer == null) {
+                return false;
+            }
+            if (buffer.size() + len > maxPromotionSize) {
+                LOGGER.debug("Not promoting {}: larger than {} bytes",
+                        opList, maxPromotionSize);
+                buffer = null;
+                return false;
+            }
+            return true;
+        }
+
+        private void promote() {
+            if (isComplete || buffer == null) {
+                return;
+            }
+            isComplete = true;
+            final byte[] bytes = buffer.toByteArray();
+            ThreadPool.getInstance().submit(() -> {
+                LOGGER.debug("Promoting {} ({} bytes) to {}",
+                        opList, bytes.length, localTier.getClass().getSimpleName());
+                try (OutputStream os =
+                             localTier.newDerivativeImageOutputStream(opList)) {
+                    os.write(bytes);
+                } catch (IOException e) {
+                    LOGGER.error("promote(): {}", e.getMessage());
+                }
+            }, ThreadPool.Priority.LOW);
+        }
+
+    }
+
+    /**
+     * Writes to the local tier and buffers everything written, then writes
+     * the buffer to the remote tier asynchronously upon closure. The remote
+     * write is queued only if every write to the local tier, and its
+     * closure, succeeded. Until it has completed, it is registered in {@link
+     * #pendingWrites}, so that a purge can {@link #discard() discard} it.
+     */
+    private class WriteBehindOutputStream extends FilterOutputStream {
+
+        private final OperationList opList;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private boolean isClosed = false;
+        private boolean isFailed = false;
+        private volatile boolean isDiscarded = false;
+
+        WriteBehindOutputStream(OutputStream localStream,
+                                OperationList opList) {
+            super(localStream);
+            this.opList = opList;
+        }
+
+        /**
+         * Prevents the remote write from happening if it hasn't started yet,
+         * or purges its result from the remote tier if it has.
+         */
+        void discard() {
+            isDiscarded = true;
+        }
+
+        /**
+         * May be called more than once, but queues the remote write only
+         * the first time.
+         */
+        @Override
+        public void close() throws IOException {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            try {
+                super.close();
+            } catch (IOException e) {
+                isFailed = true;
+                throw e;
+            } finally {
+                if (isFailed) {
+                    LOGGER.debug("close(): not writing {} to {}, as the " +
+                            "local write failed", opList,
+                            remoteTier.getClass().getSimpleName());
+                } else {
+                    writeBehind();
+                }
+            }
+        }
+
+        private void writeBehind() {
+            final byte[] bytes = buffer.toByteArray();
+            final WriteBehindOutputStream previous =
+                    pendingWrites.put(opList, this);
+            if (previous != null) {
+                previous.discard();
+            }
+            final Future<?> future = ThreadPool.getInstance().submit(() -> {
+                try {
+                    if (isDiscarded) {
+                        return;
+                    }
+                    try (OutputStream os =
+                                 remoteTier.newDerivativeImageOutputStream(opList)) {
+                        os.write(bytes);
+                    }
+                    // A purge may have happened while writing.
+                    if (isDiscarded) {
+                        remoteTier.purge(opList);
+                    }
+                } catch (IOException e) {
+                    LOGGER.error("close(): failed to write {} to {}: {}",
+                            opList, remoteTier.getClass().getSimpleName(),
+                            e.getMessage());
+                } finally {
+                    pendingWrites.remove(opList, this);
+                }
+            }, ThreadPool.Priority.LOW);
+            if (future.isCancelled()) {
+                pendingWrites.remove(opList, this);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                isFailed = true;
+                throw e;
+            }
+            buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                isFailed = true;
+                throw e;
+            }
+            buffer.write(b, off, len);
+        }
+
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(TieredCache.class);
+
+    /**
+     * Maximum size of an image that will be buffered for promotion from the
+     * remote tier to the local tier.
+     */
+    static final long DEFAULT_MAX_PROMOTION_SIZE = 16 * 1024 * 1024;
+
+    private DerivativeCache localTier;
+    private DerivativeCache remoteTier;
+    private long maxPromotionSize = DEFAULT_MAX_PROMOTION_SIZE;
+
+    /**
+     * Write-behind remote writes that have been queued but not completed.
+     */
+    private final Map<OperationList, WriteBehindOutputStream> pendingWrites =
+            new ConcurrentHashMap<>();
+
+    /**
+     * @param key Configuration key whose value is the unqualified class name
+     *            of a derivative cache.
+     * @return New instance of the derivative cache named by the given key.
+     */
+    private static DerivativeCache newTier(Key key) {
+        final String unqualifiedName = Configuration.getInstance().
+                getString(key, "");
+        if (unqualifiedName.isEmpty()) {
+            throw new IllegalArgumentException(key + " is not set");
+        } else if (unqualifiedName.equals(TieredCache.class.getSimpleName())) {
+            throw new IllegalArgumentException(key + " cannot be " +
+                    unqualifiedName);
+        }
+        final String qualifiedName = TieredCache.class.getPackage().getName() +
+                "." + unqualifiedName;
+        try {
+            Class<?> implClass = Class.forName(qualifiedName);
+            return (DerivativeCache) implClass.newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Class not found: " +
+                    e.getMessage(), e);
+        } catch (IllegalAccessException | InstantiationException |
+                ClassCastException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * No-op constructor. The tiers are created according to the application
+     * configuration in {@link #initialize()}.
+     */
+    TieredCache() {}
+
+    /**
+     * Constructor for tests. The given tiers are assumed to be initialized
+     * already.
+     */
+    TieredCache(DerivativeCache localTier, DerivativeCache remoteTier) {
+        this.localTier = localTier;
+        this.remoteTier = remoteTier;
+    }
+
+    DerivativeCache getLocalTier() {
+        return localTier;
+    }
+
+    DerivativeCache getRemoteTier() {
+        return remoteTier;
+    }
+
+    WriteStrategy getWriteStrategy() {
+        final String value = Configuration.getInstance().
+                getString(Key.TIEREDCACHE_WRITE_STRATEGY, "WriteThrough");
+        switch (value) {
+            case "WriteBehind":
+                return WriteStrategy.WRITE_BEHIND;
+            default:
+                return WriteStrategy.WRITE_THROUGH;
+        }
+    }
+
+    @Override
+    public void cleanUp() throws IOException {
+        checkTiers();
+        IOException exception = null;
+        try {
+            remoteTier.cleanUp();
+        } catch (IOException e) {
+            exception = e;
+        }
+        localTier.cleanUp();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    @Override
+    public Info getImageInfo(Identifier identifier) throws IOException {
+        checkTiers();
+        Info info = localTier.getImageInfo(identifier);
+        countLookup(localTier, "info", info != null);
+        if (info == null) {
+            info = remoteTier.getImageInfo(identifier);
+            countLookup(remoteTier, "info", info != null);
+            if (info != null) {
+                LOGGER.debug("getImageInfo(): promoting info for {}",
+                        identifier);
+                try {
+                    localTier.put(identifier, info);
+                } catch (IOException e) {
+                    LOGGER.error("getImageInfo(): failed to promote info " +
+                            "for {}: {}", identifier, e.getMessage());
+                }
+            }
+        }
+        return info;
+    }
+
+    @Override
+    public void initialize() {
+        try {
+            if (localTier == null) {
+                localTier = newTier(Key.TIEREDCACHE_LOCAL);
+                localTier.initialize();
+            }
+            if (remoteTier == null) {
+                remoteTier = newTier(Key.TIEREDCACHE_REMOTE);
+                remoteTier.initialize();
+            }
+            LOGGER.info("initialize(): local tier: {}; remote tier: {}",
+                    localTier.getClass().getSimpleName(),
+                    remoteTier.getClass().getSimpleName());
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("initialize(): {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @throws IOException If either tier failed to initialize.
+     */
+    private void checkTiers() throws IOException {
+        if (localTier == null || remoteTier == null) {
+            throw new IOException("Both " + Key.TIEREDCACHE_LOCAL + " and " +
+                    Key.TIEREDCACHE_REMOTE + " must be set to valid " +
+                    "derivative caches");
+        }
+    }
+
+    /**
+     * Counts a lookup in one of the tiers, so that the hit rate of each tier
+     * can be monitored separately.
+     */
+    private static void countLookup(DerivativeCache tier,
+                                    String type,
+                                    boolean isHit) {
+        Metrics.cacheLookup(tier.getClass().getSimpleName(), type, isHit);
+    }
+
+    /**
+     * Checks both tiers without counting the lookups or promoting the image.
+     */
+    @Override
+    public boolean isDerivativeImageCached(OperationList opList)
+            throws IOException {
+        checkTiers();
+        return localTier.isDerivativeImageCached(opList) ||
+                remoteTier.isDerivativeImageCached(opList);
+    }
+
+    @Override
+    public InputStream newDerivativeImageInputStream(OperationList opList)
+            throws IOException {
+        checkTiers();
+        InputStream is = localTier.newDerivativeImageInputStream(opList);
+        countLookup(localTier, "image", is != null);
+        if (is == null) {
+            is = remoteTier.newDerivativeImageInputStream(opList);
+            countLookup(remoteTier, "image", is != null);
+            if (is != null) {
+                is = new PromotingInputStream(is, opList);
+            }
+        }
+        return is;
+    }
+
+    @Override
+    public OutputStream newDerivativeImageOutputStream(OperationList opList)
+            throws IOException {
+        checkTiers();
+        final OutputStream localStream =
+                localTier.newDerivativeImageOutputStream(opList);
+        switch (getWriteStrategy()) {
+            case WRITE_BEHIND:
+                return new WriteBehindOutputStream(localStream, opList);
+            default:
+                return new TeeOutputStream(localStream,
+                        remoteTier.newDerivativeImageOutputStream(opList));
+        }
+    }
+
+    /**
+     * Prevents pending write-behind remote writes of the given image, or of
+     * all images if it is <code>null</code>, from taking effect. This is
+     * what prevents an image that was written incompletely to the local
+     * tier, and then purged by the writer (as {@link
+     * edu.illinois.library.cantaloupe.resource.ImageRepresentation} does),
+     * from ending up in the remote tier.
+     */
+    private void discardPendingWrites(Identifier identifier) {
+        pendingWrites.forEach((opList, stream) -> {
+            if (identifier == null ||
+                    identifier.equals(opList.getIdentifier())) {
+                stream.discard();
+            }
+        });
+    }
+
+    /**
+     * For testing.
+     *
+     * @param size Maximum size of an image that will be promoted, in bytes.
+     */
+    void setMaxPromotionSize(long size) {
+        this.maxPromotionSize = size;
+    }
+
+    /**
+     * Purges the remote tier first, so that content that has been purged from
+     * the local tier can't be promoted back into it from the remote tier.
+     * Pending write-behind writes are discarded.
+     */
+    @Override
+    public void purge() throws IOException {
+        checkTiers();
+        discardPendingWrites(null);
+        IOException exception = null;
+        try {
+            remoteTier.purge();
+        } catch (IOException e) {
+            exception = e;
+        }
+        localTier.purge();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * @see #purge()
+     */
+    @Override
+    public void purge(Identifier identifier) throws IOException {
+        checkTiers();
+        discardPendingWrites(identifier);
+        IOException exception = null;
+        try {
+            remoteTier.purge(identifier);
+        } catch (IOException e) {
+            exception = e;
+        }
+        localTier.purge(identifier);
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * @see #purge()
+     */
+    @Override
+    public void purge(OperationList opList) throws IOException {
+        checkTiers();
+        final WriteBehindOutputStream pendingWrite = pendingWrites.get(opList);
+        if (pendingWrite != null) {
+            pendingWrite.discard();
+        }
+        IOException exception = null;
+        try {
+            remoteTier.purge(opList);
+        } catch (IOException e) {
+            exception = e;
+        }
+        localTier.purge(opList);
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    @Override
+    public void purgeExpired() throws IOException {
+        checkTiers();
+        IOException exception = null;
+        try {
+            remoteTier.purgeExpired();
+        } catch (IOException e) {
+            exception = e;
+        }
+        localTier.purgeExpired();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    @Override
+    public void put(Identifier identifier, Info imageInfo) throws IOException {
+        checkTiers();
+        localTier.put(identifier, imageInfo);
+        switch (getWriteStrategy()) {
+            case WRITE_BEHIND:
+                ThreadPool.getInstance().submit(() -> {
+                    try {
+                        remoteTier.put(identifier, imageInfo);
+                    } catch (IOException e) {
+                        LOGGER.error("put(): failed to write info for {} " +
+                                "to {}: {}", identifier,
+                                remoteTier.getClass().getSimpleName(),
+                                e.getMessage());
+                    }
+                }, ThreadPool.Priority.LOW);
+                break;
+            default:
+                remoteTier.put(identifier, imageInfo);
+                break;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (localTier != null) {
+            localTier.shutdown();
+        }
+        if (remoteTier != null) {
+            remoteTier.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package edu.illinois.library.cantaloupe.cache;
+
+import edu.illinois.library.cantaloupe.metrics.Timer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Wraps a cache output stream and records the time spent in its
+ * <code>write()</code>, <code>flush()</code>, and <code>close()</code> methods
+ * into a {@link Timer} upon closing. This isolates the cost of cache I/O from
+ * that of producing the content, which is interleaved with it.
+ *
+ * @since 3.5
+ */
+class TimedOutputStream extends FilterOutputStream {
+
+    private long elapsedNanos;
+    private boolean isClosed = false;
+    private final Timer timer;
+
+    TimedOutputStream(OutputStream wrappedStream, Timer timer) {
+        super(wrappedStream);
+        this.timer = timer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        final long startTime = System.nanoTime();
+        try {
+            out.close();
+        } finally {
+            elapsedNanos += System.nanoTime() - startTime;
+            timer.record(elapsedNanos);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        final long startTime = System.nanoTime();
+        try {
+            out.flush();
+        } finally {
+            elapsedNanos += System.nanoTime() - startTime;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        final long startTime = System.nanoTime();
+        try {
+            out.write(b);
+        } finally {
+            elapsedNanos += System.nanoTime() - startTime;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        final long startTime = System.nanoTime();
+        try {
+            out.write(b, off, len);
+        } finally {
+            elapsedNanos += System.nanoTime() - startTime;
+        }
+    }
+
+}
@@ -1,7 +1,45 @@
 package edu.illinois.library.cantaloupe.config;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 abstract class AbstractConfiguration {
 
+    /**
+     * Incremented by {@link #invalidateSnapshot()} whenever the configuration
+     * changes.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile ConfigurationSnapshot snapshot;
+
+    /**
+     * Returns a snapshot of the current configuration, creating a new one if
+     * the configuration has changed since the last one was created.
+     *
+     * <p>If the configuration changes while a snapshot is being created, the
+     * snapshot may be inconsistent, but it will not be returned again.</p>
+     *
+     * @since 3.5
+     */
+    public ConfigurationSnapshot getSnapshot() {
+        ConfigurationSnapshot snapshot = this.snapshot;
+        final long currentVersion = version.get();
+        if (snapshot == null || snapshot.getVersion() != currentVersion) {
+            snapshot = new ConfigurationSnapshot((Configuration) this,
+                    currentVersion);
+            this.snapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Must be called by implementations after every change to the
+     * configuration.
+     */
+    void invalidateSnapshot() {
+        version.incrementAndGet();
+    }
+
     public void clearProperty(Key key) {
         clearProperty(key.key());
     }
@@ -98,6 +98,15 @@ public interface Configuration {
      */
     int getInt(String key, int defaultValue);
 
+    /**
+     * @return Immutable snapshot of the current configuration, which can be
+     *         read without locking. It is replaced when the configuration
+     *         changes, so callers should obtain a new one rather than holding
+     *         on to it.
+     * @since 3.5
+     */
+    ConfigurationSnapshot getSnapshot();
+
     /**
      * @return All keys contained in the configuration.
      */
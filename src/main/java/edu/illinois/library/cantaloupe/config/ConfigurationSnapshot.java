@@ -0,0 +1,181 @@
+package edu.illinois.library.cantaloupe.config;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * <p>Immutable copy of a {@link Configuration} whose values have already been
+ * converted to all of the types that they can be read as, so that reading
+ * one involves no locking, lookups in the underlying configuration, or
+ * parsing.</p>
+ *
+ * <p>Values are converted by the getters of the configuration from which the
+ * instance was created, so that they are the same as the ones that it would
+ * return.</p>
+ *
+ * <p>Instances are obtained from {@link Configuration#getSnapshot()}, which
+ * builds a new one when the configuration has changed.</p>
+ *
+ * @since 3.5
+ */
+public final class ConfigurationSnapshot {
+
+    /**
+     * Value of a key, converted to each type that it can be read as, or
+     * <code>null</code> for types that it can't be converted to.
+     */
+    private static final class Value {
+
+        final Object property;
+        final String string;
+        final Boolean bool;
+        final Double dub;
+        final Float flo;
+        final Integer integer;
+        final Long lon;
+
+        Value(Configuration config, String key) {
+            property = config.getProperty(key);
+            string = config.getString(key);
+            bool = convert(config::getBoolean, key);
+            dub = convert(config::getDouble, key);
+            flo = convert(config::getFloat, key);
+            integer = convert(config::getInt, key);
+            lon = convert(config::getLong, key);
+        }
+
+        private static <T> T convert(Function<String, T> getter, String key) {
+            try {
+                return getter.apply(key);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+    }
+
+    private static final Value[] NO_VALUES = new Value[0];
+
+    private final long version;
+
+    /**
+     * Values of {@link Key}s by {@link Key#ordinal() ordinal}, which enables
+     * them to be read without hashing the key.
+     */
+    private final Value[] keyValues;
+
+    private final Map<String, Value> values = new HashMap<>();
+
+    /**
+     * @param config  Configuration to copy.
+     * @param version Version of the configuration being copied.
+     */
+    ConfigurationSnapshot(Configuration config, long version) {
+        this.version = version;
+        final Iterator<String> it = config.getKeys();
+        while (it.hasNext()) {
+            final String key = it.next();
+            if (!values.containsKey(key)) {
+                values.put(key, new Value(config, key));
+            }
+        }
+        if (values.isEmpty()) {
+            keyValues = NO_VALUES;
+        } else {
+            final Key[] keys = Key.values();
+            keyValues = new Value[keys.length];
+            for (Key key : keys) {
+                keyValues[key.ordinal()] = values.get(key.key());
+            }
+        }
+    }
+
+    private Value get(Key key) {
+        final int ordinal = key.ordinal();
+        return (ordinal < keyValues.length) ? keyValues[ordinal] : null;
+    }
+
+    public boolean getBoolean(Key key, boolean defaultValue) {
+        final Value value = get(key);
+        return (value != null && value.bool != null) ?
+                value.bool : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        final Value value = values.get(key);
+        return (value != null && value.bool != null) ?
+                value.bool : defaultValue;
+    }
+
+    public double getDouble(Key key, double defaultValue) {
+        final Value value = get(key);
+        return (value != null && value.dub != null) ?
+                value.dub : defaultValue;
+    }
+
+    public float getFloat(Key key, float defaultValue) {
+        final Value value = get(key);
+        return (value != null && value.flo != null) ?
+                value.flo : defaultValue;
+    }
+
+    public int getInt(Key key, int defaultValue) {
+        final Value value = get(key);
+        return (value != null && value.integer != null) ?
+                value.integer : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        final Value value = values.get(key);
+        return (value != null && value.integer != null) ?
+                value.integer : defaultValue;
+    }
+
+    public long getLong(Key key, long defaultValue) {
+        final Value value = get(key);
+        return (value != null && value.lon != null) ?
+                value.lon : defaultValue;
+    }
+
+    public long getLong(String key, long defaultValue) {
+        final Value value = values.get(key);
+        return (value != null && value.lon != null) ?
+                value.lon : defaultValue;
+    }
+
+    public Object getProperty(Key key) {
+        final Value value = get(key);
+        return (value != null) ? value.property : null;
+    }
+
+    public String getString(Key key) {
+        return getString(key, null);
+    }
+
+    public String getString(Key key, String defaultValue) {
+        final Value value = get(key);
+        return (value != null && value.string != null) ?
+                value.string : defaultValue;
+    }
+
+    public String getString(String key) {
+        return getString(key, null);
+    }
+
+    public String getString(String key, String defaultValue) {
+        final Value value = values.get(key);
+        return (value != null && value.string != null) ?
+                value.string : defaultValue;
+    }
+
+    /**
+     * @return Version of the configuration at the time the instance was
+     *         created.
+     */
+    long getVersion() {
+        return version;
+    }
+
+}
@@ -36,8 +36,7 @@ abstract class FileConfiguration extends AbstractConfiguration {
      */
     public synchronized void startWatching() {
         watcher = new FileConfigurationWatcher(getFile());
-        watcherFuture = ThreadPool.getInstance().submit(watcher,
-                ThreadPool.Priority.LOW);
+        watcherFuture = ThreadPool.getInstance().submitLongRunning(watcher);
     }
 
     /**
@@ -47,6 +47,9 @@ class FileConfigurationWatcher implements Runnable {
         private void reload(Configuration config) {
             try {
                 config.reload();
+                // Build the new snapshot now rather than in a request
+                // thread.
+                config.getSnapshot();
                 LoggerUtil.reloadConfiguration();
             } catch (FileNotFoundException e) {
                 System.err.println("FileConfigurationWatcher$CallbackImpl: " +
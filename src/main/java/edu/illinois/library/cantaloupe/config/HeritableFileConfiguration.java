@@ -24,8 +24,7 @@ abstract class HeritableFileConfiguration extends FileConfiguration {
         for (File file : getFiles()) {
             FileConfigurationWatcher watcher = new FileConfigurationWatcher(file);
             watchers.put(file, watcher);
-            ThreadPool.getInstance().submit(watcher,
-                    ThreadPool.Priority.LOW);
+            ThreadPool.getInstance().submitLongRunning(watcher);
         }
     }
 
@@ -23,7 +23,9 @@ import java.util.concurrent.locks.StampedLock;
  * override ones in ancestor files.</p>
  *
  * <p>This implementation uses optimistic reads via a {@link StampedLock} for
- * good performance with thread-safety.</p>
+ * good performance with thread-safety. Code that reads the configuration many
+ * times per request should use {@link #getSnapshot()} instead, which involves
+ * no locking at all.</p>
  */
 class HeritablePropertiesConfiguration extends HeritableFileConfiguration
         implements Configuration {
@@ -76,6 +78,7 @@ class HeritablePropertiesConfiguration extends HeritableFileConfiguration
                     .forEach(PropertiesConfiguration::clear);
             mainContentsChecksum = new byte[]{};
         } finally {
+            invalidateSnapshot();
             lock.unlock(stamp);
         }
     }
@@ -87,6 +90,7 @@ class HeritablePropertiesConfiguration extends HeritableFileConfiguration
             commonsConfigs.values().parallelStream()
                     .forEach(c -> c.clearProperty(key));
         } finally {
+            invalidateSnapshot();
             lock.unlock(stamp);
         }
     }
@@ -447,6 +451,7 @@ class HeritablePropertiesConfiguration extends HeritableFileConfiguration
                 loadFileAndAncestors(mainConfigFile);
             }
         } finally {
+            invalidateSnapshot();
             lock.unlock(stamp);
         }
     }
@@ -499,6 +504,7 @@ class HeritablePropertiesConfiguration extends HeritableFileConfiguration
                 }
             }
         } finally {
+            invalidateSnapshot();
             lock.unlock(stamp);
         }
     }
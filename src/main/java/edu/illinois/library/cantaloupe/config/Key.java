@@ -25,6 +25,7 @@ public enum Key {
     ACCESS_LOG_SYSLOGAPPENDER_HOST("log.access.SyslogAppender.host"),
     ACCESS_LOG_SYSLOGAPPENDER_PORT("log.access.SyslogAppender.port"),
     ACCESS_LOG_SYSLOGAPPENDER_FACILITY("log.access.SyslogAppender.facility"),
+    ACCESS_LOG_TIMING_ENABLED("log.access.timing.enabled"),
     ADMIN_ENABLED("endpoint.admin.enabled"),
     ADMIN_SECRET("endpoint.admin.secret"),
     ADMIN_USERNAME("endpoint.admin.username"),
@@ -85,9 +86,20 @@ public enum Key {
     CLIENT_CACHE_PUBLIC("cache.client.public"),
     CLIENT_CACHE_SHARED_MAX_AGE("cache.client.shared_max_age"),
     DELEGATE_METHOD_INVOCATION_CACHE_ENABLED("delegate_script.cache.enabled"),
+    DELEGATE_METHOD_INVOCATION_CACHE_TTL("delegate_script.cache.ttl_seconds"),
+    DELEGATE_SCRIPT_CONTEXT_SCOPE("delegate_script.context_scope"),
     DELEGATE_SCRIPT_ENABLED("delegate_script.enabled"),
+    DELEGATE_SCRIPT_ENGINE("delegate_script.engine"),
     DELEGATE_SCRIPT_PATHNAME("delegate_script.pathname"),
+    DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_FAILURES("delegate_script.remote.circuit_breaker.failures"),
+    DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_RESET("delegate_script.remote.circuit_breaker.reset_msec"),
+    DELEGATE_SCRIPT_REMOTE_HOST("delegate_script.remote.host"),
+    DELEGATE_SCRIPT_REMOTE_PORT("delegate_script.remote.port"),
+    DELEGATE_SCRIPT_REMOTE_TIMEOUT("delegate_script.remote.timeout_msec"),
+    DELEGATE_SCRIPT_RUNTIME_POOL_SIZE("delegate_script.runtime_pool_size"),
     DERIVATIVE_CACHE("cache.server.derivative"),
+    DERIVATIVE_CACHE_BLOOM_FILTER_CAPACITY("cache.server.derivative.bloom_filter.capacity"),
+    DERIVATIVE_CACHE_BLOOM_FILTER_ENABLED("cache.server.derivative.bloom_filter.enabled"),
     DERIVATIVE_CACHE_ENABLED("cache.server.derivative.enabled"),
     ERROR_LOG_FILEAPPENDER_ENABLED("log.error.FileAppender.enabled"),
     ERROR_LOG_FILEAPPENDER_PATHNAME("log.error.FileAppender.pathname"),
@@ -99,13 +111,17 @@ public enum Key {
     FFMPEGPROCESSOR_PATH_TO_BINARIES("FfmpegProcessor.path_to_binaries"),
     FILESYSTEMCACHE_DIRECTORY_DEPTH("FilesystemCache.dir.depth"),
     FILESYSTEMCACHE_DIRECTORY_NAME_LENGTH("FilesystemCache.dir.name_length"),
+    FILESYSTEMCACHE_INDEX_ENABLED("FilesystemCache.index.enabled"),
+    FILESYSTEMCACHE_MAX_SIZE("FilesystemCache.max_size"),
     FILESYSTEMCACHE_PATHNAME("FilesystemCache.pathname"),
     FILESYSTEMRESOLVER_LOOKUP_STRATEGY("FilesystemResolver.lookup_strategy"),
     FILESYSTEMRESOLVER_PATH_PREFIX("FilesystemResolver.BasicLookupStrategy.path_prefix"),
     FILESYSTEMRESOLVER_PATH_SUFFIX("FilesystemResolver.BasicLookupStrategy.path_suffix"),
     GRAPHICSMAGICKPROCESSOR_PATH_TO_BINARIES("GraphicsMagickProcessor.path_to_binaries"),
+    HEAPCACHE_MAPPED_PATHNAME("HeapCache.mapped.pathname"),
     HEAPCACHE_PATHNAME("HeapCache.persist.filesystem.pathname"),
     HEAPCACHE_PERSIST("HeapCache.persist"),
+    HEAPCACHE_STORAGE("HeapCache.storage"),
     HEAPCACHE_TARGET_SIZE("HeapCache.target_size"),
     HTTP_ACCEPT_QUEUE_LIMIT("http.accept_queue_limit"),
     HTTP_ENABLED("http.enabled"),
@@ -130,6 +146,10 @@ public enum Key {
     IIIF_1_ENDPOINT_ENABLED("endpoint.iiif.1.enabled"),
     IIIF_2_ENDPOINT_ENABLED("endpoint.iiif.2.enabled"),
     IIIF_2_RESTRICT_TO_SIZES("endpoint.iiif.2.restrict_to_sizes"),
+    IIIF_ASYNC_ENABLED("endpoint.iiif.async.enabled"),
+    IIIF_ASYNC_MAX_THREADS("endpoint.iiif.async.max_threads"),
+    IIIF_ASYNC_OUTPUT_BUFFER_SIZE("endpoint.iiif.async.output_buffer_size"),
+    IIIF_ASYNC_TIMEOUT("endpoint.iiif.async.timeout"),
     IIIF_CONTENT_DISPOSITION("endpoint.iiif.content_disposition"),
     IIIF_MIN_SIZE("endpoint.iiif.min_size"),
     IIIF_MIN_TILE_SIZE("endpoint.iiif.min_tile_size"),
@@ -167,6 +187,11 @@ public enum Key {
     OVERLAY_STRING_STROKE_WIDTH("overlays.BasicStrategy.string.stroke.width"),
     OVERLAY_TYPE("overlays.BasicStrategy.type"),
     PRINT_STACK_TRACE_ON_ERROR_PAGES("print_stack_trace_on_error_pages"),
+    PROCESSOR_ADMISSION_ENABLED("processor.admission.enabled"),
+    PROCESSOR_ADMISSION_MAX_MEMORY("processor.admission.max_memory"),
+    PROCESSOR_ADMISSION_MAX_PIXELS("processor.admission.max_pixels"),
+    PROCESSOR_ADMISSION_QUEUE_SIZE("processor.admission.queue_size"),
+    PROCESSOR_ADMISSION_QUEUE_TIMEOUT("processor.admission.queue_timeout"),
     PROCESSOR_BACKGROUND_COLOR("processor.background_color"),
     PROCESSOR_DOWNSCALE_FILTER("processor.downscale_filter"),
     PROCESSOR_DPI("processor.dpi"),
@@ -178,6 +203,7 @@ public enum Key {
     PROCESSOR_PRESERVE_METADATA("processor.metadata.preserve"),
     PROCESSOR_RESPECT_ORIENTATION("processor.metadata.respect_orientation"),
     PROCESSOR_SHARPEN("processor.sharpen"),
+    PROCESSOR_STREAMING_MIN_PIXELS("processor.streaming.min_pixels"),
     PROCESSOR_TIF_COMPRESSION("processor.tif.compression"),
     PROCESSOR_UPSCALE_FILTER("processor.upscale_filter"),
     REDACTION_ENABLED("redaction.enabled"),
@@ -188,11 +214,21 @@ public enum Key {
     REDISCACHE_SSL("RedisCache.ssl"),
     RESOLVER_DELEGATE("resolver.delegate"),
     RESOLVER_STATIC("resolver.static"),
+    SERVER_TIMING_ENABLED("endpoint.server_timing.enabled"),
     SLASH_SUBSTITUTE("slash_substitute"),
     SOURCE_CACHE("cache.server.source"),
     SOURCE_CACHE_ENABLED("cache.server.source.enabled"),
     STREAMPROCESSOR_RETRIEVAL_STRATEGY("StreamProcessor.retrieval_strategy"),
-    TEMP_PATHNAME("temp_pathname");
+    TEMP_PATHNAME("temp_pathname"),
+    THREAD_POOL_HIGH_MAX_THREADS("thread_pool.high.max_threads"),
+    THREAD_POOL_HIGH_QUEUE_SIZE("thread_pool.high.queue_size"),
+    THREAD_POOL_LOW_MAX_THREADS("thread_pool.low.max_threads"),
+    THREAD_POOL_LOW_QUEUE_SIZE("thread_pool.low.queue_size"),
+    THREAD_POOL_NORMAL_MAX_THREADS("thread_pool.normal.max_threads"),
+    THREAD_POOL_NORMAL_QUEUE_SIZE("thread_pool.normal.queue_size"),
+    TIEREDCACHE_LOCAL("TieredCache.local"),
+    TIEREDCACHE_REMOTE("TieredCache.remote"),
+    TIEREDCACHE_WRITE_STRATEGY("TieredCache.write_strategy");
 
     private String key;
 
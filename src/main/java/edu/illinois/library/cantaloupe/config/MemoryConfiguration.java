@@ -22,11 +22,13 @@ class MemoryConfiguration extends AbstractConfiguration
     @Override
     public void clear() {
         configuration.keySet().clear();
+        invalidateSnapshot();
     }
 
     @Override
     public void clearProperty(String key) {
         configuration.remove(key);
+        invalidateSnapshot();
     }
 
     @Override
@@ -200,6 +202,7 @@ class MemoryConfiguration extends AbstractConfiguration
     @Override
     public void setProperty(String key, Object value) {
         configuration.put(key, value);
+        invalidateSnapshot();
     }
 
     /**
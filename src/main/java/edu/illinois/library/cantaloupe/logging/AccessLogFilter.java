@@ -10,8 +10,11 @@ import ch.qos.logback.core.spi.FilterReply;
 public class AccessLogFilter extends Filter<ILoggingEvent> {
 
     public FilterReply decide(ILoggingEvent event) {
-        // Accept Jetty access log messages; deny everything else.
-        return event.getLoggerName().equals("LogService") ?
+        // Accept Jetty access log messages and our own supplementary ones;
+        // deny everything else.
+        final String name = event.getLoggerName();
+        return (name.equals("LogService") ||
+                name.equals(AccessLogService.class.getName())) ?
                 FilterReply.ACCEPT : FilterReply.DENY;
     }
 
@@ -0,0 +1,39 @@
+package edu.illinois.library.cantaloupe.logging;
+
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Writes access log entries that supplement the ones written by Restlet,
+ * which are written before the response body has been sent, and so can't
+ * account for any work done while it is being produced.</p>
+ *
+ * <p>The entries are written to the access log appenders by virtue of the
+ * logger configuration in logback.xml and {@link AccessLogFilter}.</p>
+ *
+ * @since 3.5
+ */
+public final class AccessLogService {
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(AccessLogService.class);
+
+    /**
+     * Logs the stage durations of a completed request.
+     *
+     * @param method HTTP method.
+     * @param uri    Request URI.
+     * @param status HTTP status code.
+     * @param trace  Trace of the request.
+     */
+    public static void logTiming(String method,
+                                 String uri,
+                                 int status,
+                                 RequestTrace trace) {
+        LOGGER.info("{} {} {} {}", method, uri, status, trace.toLogFields());
+    }
+
+    private AccessLogService() {}
+
+}
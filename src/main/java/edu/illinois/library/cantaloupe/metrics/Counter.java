@@ -0,0 +1,32 @@
+package edu.illinois.library.cantaloupe.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing count. Instances are thread-safe and are obtained
+ * from {@link MetricRegistry#getCounter}.
+ *
+ * @since 3.5
+ */
+public final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {}
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void increment(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must be non-negative");
+        }
+        count.add(amount);
+    }
+
+}
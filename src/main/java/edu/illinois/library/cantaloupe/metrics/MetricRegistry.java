@@ -0,0 +1,211 @@
+package edu.illinois.library.cantaloupe.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * <p>Application-wide registry of {@link Counter}s and {@link Timer}s, which
+ * can be serialized in the Prometheus text exposition format.</p>
+ *
+ * <p>Metrics are identified by a name and zero or more labels, supplied as
+ * alternating names and values. Retrieving a metric with the same name and
+ * labels always returns the same instance. All metrics with the same name
+ * form a "family" and must be of the same type.</p>
+ *
+ * @see <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">
+ *     Exposition formats</a>
+ * @since 3.5
+ */
+public final class MetricRegistry {
+
+    private static final class Family {
+
+        private final String help;
+        private final ConcurrentMap<String, Object> metrics =
+                new ConcurrentHashMap<>();
+        private final Class<?> type;
+
+        Family(String help, Class<?> type) {
+            this.help = help;
+            this.type = type;
+        }
+
+    }
+
+    private static volatile MetricRegistry instance;
+
+    private final ConcurrentMap<String, Family> families =
+            new ConcurrentHashMap<>();
+
+    /**
+     * @return Shared instance.
+     */
+    public static MetricRegistry getInstance() {
+        MetricRegistry registry = instance;
+        if (registry == null) {
+            synchronized (MetricRegistry.class) {
+                registry = instance;
+                if (registry == null) {
+                    registry = new MetricRegistry();
+                    instance = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+
+    private static String formatDouble(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * @param labels Alternating label names and values.
+     * @return       Label set in exposition format, e.g.
+     *               <code>a="1",b="2"</code>, or an empty string.
+     */
+    private static String formatLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException(
+                    "Labels must be supplied as name/value pairs");
+        }
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"")
+                    .append(escape(String.valueOf(labels[i + 1])))
+                    .append('"');
+        }
+        return builder.toString();
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        final String label = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? label : labels + "," + label;
+    }
+
+    MetricRegistry() {}
+
+    /**
+     * Removes all metrics.
+     */
+    void clear() {
+        families.clear();
+    }
+
+    /**
+     * @param name   Metric name, which should end in <code>_total</code>.
+     * @param help   Description of the metric.
+     * @param labels Alternating label names and values.
+     * @return       Counter with the given name and labels.
+     */
+    public Counter getCounter(String name, String help, String... labels) {
+        return getMetric(name, help, labels, Counter.class, Counter::new);
+    }
+
+    private <T> T getMetric(String name,
+                            String help,
+                            String[] labels,
+                            Class<T> type,
+                            Supplier<T> supplier) {
+        final Family family = families.computeIfAbsent(name,
+                n -> new Family(help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException(name + " is a " +
+                    family.type.getSimpleName() + ", not a " +
+                    type.getSimpleName());
+        }
+        final String key = formatLabels(labels);
+        Object metric = family.metrics.get(key);
+        if (metric == null) {
+            metric = family.metrics.computeIfAbsent(key, k -> supplier.get());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * @param name   Metric name, which should end in <code>_seconds</code>.
+     * @param help   Description of the metric.
+     * @param labels Alternating label names and values.
+     * @return       Timer with the given name and labels.
+     */
+    public Timer getTimer(String name, String help, String... labels) {
+        return getMetric(name, help, labels, Timer.class, Timer::new);
+    }
+
+    /**
+     * @return All metrics in the Prometheus text exposition format.
+     */
+    public String toPrometheusText() {
+        final StringWriter writer = new StringWriter();
+        try {
+            writePrometheusText(writer);
+        } catch (IOException e) {
+            // StringWriter doesn't throw.
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes all metrics, sorted by name and labels, in the Prometheus text
+     * exposition format.
+     */
+    public void writePrometheusText(Writer writer) throws IOException {
+        final Map<String, Family> sortedFamilies = new TreeMap<>(families);
+        for (Map.Entry<String, Family> entry : sortedFamilies.entrySet()) {
+            final String name = entry.getKey();
+            final Family family = entry.getValue();
+            final boolean isTimer = (family.type == Timer.class);
+
+            writer.write("# HELP " + name + " " +
+                    family.help.replace("\n", " ") + "\n");
+            writer.write("# TYPE " + name + " " +
+                    (isTimer ? "histogram" : "counter") + "\n");
+
+            final Map<String, Object> sortedMetrics =
+                    new TreeMap<>(family.metrics);
+            for (Map.Entry<String, Object> metric : sortedMetrics.entrySet()) {
+                final String labels = metric.getKey();
+                if (isTimer) {
+                    final Timer timer = (Timer) metric.getValue();
+                    final long[] counts = timer.getCumulativeBucketCounts();
+                    for (int i = 0; i < counts.length; i++) {
+                        final String bound = (i < Timer.BUCKET_BOUNDS.length) ?
+                                formatDouble(Timer.BUCKET_BOUNDS[i]) : "+Inf";
+                        writer.write(name + "_bucket{" +
+                                withLabel(labels, "le", bound) + "} " +
+                                counts[i] + "\n");
+                    }
+                    final String suffix =
+                            labels.isEmpty() ? "" : "{" + labels + "}";
+                    writer.write(name + "_sum" + suffix + " " +
+                            formatDouble(timer.getSum()) + "\n");
+                    writer.write(name + "_count" + suffix + " " +
+                            counts[counts.length - 1] + "\n");
+                } else {
+                    final Counter counter = (Counter) metric.getValue();
+                    writer.write(name +
+                            (labels.isEmpty() ? "" : "{" + labels + "}") +
+                            " " + counter.getCount() + "\n");
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package edu.illinois.library.cantaloupe.metrics;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Provides the application's metrics from the shared {@link MetricRegistry},
+ * so that their names and descriptions are defined in one place.
+ *
+ * @since 3.5
+ */
+public final class Metrics {
+
+    private static MetricRegistry registry() {
+        return MetricRegistry.getInstance();
+    }
+
+    /**
+     * @param cache Name of the cache, or cache tier.
+     * @param type  Kind of content looked up: <code>contrast_range</code>,
+     *              <code>image</code>, <code>info</code>,
+     *              <code>overlay_image</code>, <code>overlay_string</code>,
+     *              <code>reader</code>, <code>source</code>,
+     *              <code>structure</code>, or <code>writer</code>; or, in
+     *              the delegate method invocation cache, the method name.
+     */
+    public static Counter cacheHits(String cache, String type) {
+        return registry().getCounter("cantaloupe_cache_hits_total",
+                "Number of cache lookups that found the content.",
+                "cache", cache, "type", type);
+    }
+
+    /**
+     * @see #cacheHits
+     */
+    public static Counter cacheMisses(String cache, String type) {
+        return registry().getCounter("cantaloupe_cache_misses_total",
+                "Number of cache lookups that did not find the content.",
+                "cache", cache, "type", type);
+    }
+
+    /**
+     * Counts a lookup as either a {@link #cacheHits hit} or a {@link
+     * #cacheMisses miss}.
+     *
+     * @see #cacheHits
+     */
+    public static void cacheLookup(String cache, String type, boolean isHit) {
+        if (isHit) {
+            cacheHits(cache, type).increment();
+        } else {
+            cacheMisses(cache, type).increment();
+        }
+    }
+
+    /**
+     * @see #cacheHits
+     */
+    public static Timer cacheRead(String cache, String type) {
+        return registry().getTimer("cantaloupe_cache_read_seconds",
+                "Time spent reading content from a cache, including misses.",
+                "cache", cache, "type", type);
+    }
+
+    /**
+     * @see #cacheHits
+     */
+    public static Timer cacheWrite(String cache, String type) {
+        return registry().getTimer("cantaloupe_cache_write_seconds",
+                "Time spent writing content to a cache.",
+                "cache", cache, "type", type);
+    }
+
+    /**
+     * @param format Source format.
+     */
+    public static Timer decode(String format) {
+        return registry().getTimer("cantaloupe_decode_seconds",
+                "Time spent decoding source images.",
+                "format", format);
+    }
+
+    /**
+     * @param format Output format.
+     */
+    public static Timer encode(String format) {
+        return registry().getTimer("cantaloupe_encode_seconds",
+                "Time spent encoding output images.",
+                "format", format);
+    }
+
+    /**
+     * @param processor Processor name.
+     */
+    public static Timer infoRead(String processor) {
+        return registry().getTimer("cantaloupe_info_read_seconds",
+                "Time spent reading image info from source images.",
+                "processor", processor);
+    }
+
+    /**
+     * @param operation Name of the operation, e.g. <code>scale</code>.
+     */
+    public static Timer operation(String operation) {
+        return registry().getTimer("cantaloupe_operation_seconds",
+                "Time spent applying individual operations to images.",
+                "operation", operation);
+    }
+
+    /**
+     * Counts the forking of an external process.
+     *
+     * @param command Command line of the process.
+     */
+    public static void processForked(List<String> command) {
+        String program = command.isEmpty() ? "" : command.get(0);
+        try {
+            program = Paths.get(program).getFileName().toString();
+        } catch (RuntimeException ignore) {
+            // Use the whole string.
+        }
+        registry().getCounter("cantaloupe_process_forks_total",
+                "Number of external processes forked.",
+                "program", program).increment();
+    }
+
+    /**
+     * @param processor Processor name.
+     */
+    public static Counter processorInvocations(String processor) {
+        return registry().getCounter("cantaloupe_processor_invocations_total",
+                "Number of images processed by a processor.",
+                "processor", processor);
+    }
+
+    /**
+     * @param resolver Resolver name.
+     */
+    public static Timer resolve(String resolver) {
+        return registry().getTimer("cantaloupe_resolve_seconds",
+                "Time spent resolving source images, from selecting the " +
+                        "resolver to connecting it to a processor.",
+                "resolver", resolver);
+    }
+
+    private Metrics() {}
+
+}
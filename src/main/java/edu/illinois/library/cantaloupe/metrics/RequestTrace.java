@@ -0,0 +1,193 @@
+package edu.illinois.library.cantaloupe.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Breakdown of the time spent in the various stages of handling a single
+ * request, e.g. resolving, decoding, scaling, and encoding.</p>
+ *
+ * <p>A trace is {@link #begin() begun} in the thread that handles a request
+ * and is accessible from anywhere in that thread via {@link #current()}, so
+ * that it doesn't have to be passed around. Stages are timed using {@link
+ * #stage(String)}, which returns a no-op {@link Stage} when there is no
+ * current trace, so instrumented code costs next to nothing when tracing is
+ * disabled.</p>
+ *
+ * <p>Stages with the same name are summed. Stages may be nested, in which
+ * case the duration of the outer stage includes that of the inner one.</p>
+ *
+ * <p>{@link #current()} only works in the thread that began the trace. Work
+ * that is handed off to other threads, such as those of the {@link
+ * edu.illinois.library.cantaloupe.async.ThreadPool}, must be given the trace
+ * explicitly and timed with {@link #stage(RequestTrace, String)}. Such
+ * stages may run in several threads at once, in which case their summed
+ * duration can exceed the elapsed time.</p>
+ *
+ * @see <a href="https://www.w3.org/TR/server-timing/">Server Timing</a>
+ * @since 3.5
+ */
+public final class RequestTrace {
+
+    /**
+     * Times a single stage. Closing an instance adds its duration to the
+     * trace in which it was created.
+     */
+    public static final class Stage implements AutoCloseable {
+
+        private final String name;
+        private final long startTime;
+        private final RequestTrace trace;
+
+        private Stage(RequestTrace trace, String name) {
+            this.trace = trace;
+            this.name = name;
+            this.startTime = (trace != null) ? System.nanoTime() : 0;
+        }
+
+        @Override
+        public void close() {
+            if (trace != null) {
+                trace.add(name, System.nanoTime() - startTime);
+            }
+        }
+
+    }
+
+    private static final ThreadLocal<RequestTrace> CURRENT =
+            new ThreadLocal<>();
+
+    private static final Stage NO_OP_STAGE = new Stage(null, null);
+
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Begins a new trace in the current thread, replacing any existing one.
+     *
+     * @return New trace, which must be {@link #end() ended} by the caller in
+     *         the same thread.
+     */
+    public static RequestTrace begin() {
+        final RequestTrace trace = new RequestTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * @return Trace of the request being handled by the current thread, or
+     *         <code>null</code> if tracing is not enabled.
+     */
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    private static String formatMsec(long nanos) {
+        return Double.toString(Math.round(nanos / 100000.0) / 10.0);
+    }
+
+    /**
+     * Adds the given duration to the given stage of the current trace, if
+     * any. This is an alternative to {@link #stage(String)} for code that
+     * has already measured the duration.
+     *
+     * @param name  Stage name.
+     * @param nanos Duration in nanoseconds.
+     */
+    public static void record(String name, long nanos) {
+        final RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.add(name, nanos);
+        }
+    }
+
+    /**
+     * @param name Stage name, which must be a valid HTTP token, e.g.
+     *             <code>encode</code>.
+     * @return     New instance that will record the time from now until it
+     *             is closed in the current trace, or a no-op instance if there
+     *             is no current trace.
+     */
+    public static Stage stage(String name) {
+        final RequestTrace trace = CURRENT.get();
+        return (trace != null) ? new Stage(trace, name) : NO_OP_STAGE;
+    }
+
+    /**
+     * Variant of {@link #stage(String)} for work done on behalf of a request
+     * in a thread other than the one that began its trace.
+     *
+     * @param trace Trace obtained from {@link #current()} in the thread that
+     *              began it. May be <code>null</code>.
+     * @param name  Stage name, which must be a valid HTTP token.
+     * @return      New instance that will record the time from now until it
+     *              is closed in the given trace, or a no-op instance if the
+     *              trace is <code>null</code>.
+     */
+    public static Stage stage(RequestTrace trace, String name) {
+        return (trace != null) ? new Stage(trace, name) : NO_OP_STAGE;
+    }
+
+    RequestTrace() {}
+
+    synchronized void add(String name, long nanos) {
+        final Long existing = durations.get(name);
+        durations.put(name, (existing != null) ? existing + nanos : nanos);
+    }
+
+    /**
+     * Removes the instance from the current thread.
+     */
+    public void end() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * @return Map of stage names to durations in nanoseconds, in the order in
+     *         which the stages were first recorded.
+     */
+    public synchronized Map<String, Long> getDurations() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(durations));
+    }
+
+    /**
+     * @return Nanoseconds elapsed since the trace was begun.
+     */
+    public long getElapsedTime() {
+        return System.nanoTime() - startTime;
+    }
+
+    /**
+     * @return Durations as space-separated <code>name=msec</code> pairs,
+     *         ending with the total elapsed time, e.g.
+     *         <code>resolve=12.3 decode=45.6 total=60.2</code>.
+     */
+    public String toLogFields() {
+        final StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Long> entry : getDurations().entrySet()) {
+            builder.append(entry.getKey()).append('=')
+                    .append(formatMsec(entry.getValue())).append(' ');
+        }
+        builder.append("total=").append(formatMsec(getElapsedTime()));
+        return builder.toString();
+    }
+
+    /**
+     * @return Value of a <code>Server-Timing</code> header containing the
+     *         durations recorded so far, ending with the total elapsed time,
+     *         e.g. <code>resolve;dur=12.3, total;dur=60.2</code>.
+     */
+    public String toServerTimingHeader() {
+        final StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Long> entry : getDurations().entrySet()) {
+            builder.append(entry.getKey()).append(";dur=")
+                    .append(formatMsec(entry.getValue())).append(", ");
+        }
+        builder.append("total;dur=").append(formatMsec(getElapsedTime()));
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,117 @@
+package edu.illinois.library.cantaloupe.metrics;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Histogram of durations. Instances are thread-safe and are obtained from
+ * {@link MetricRegistry#getTimer}.</p>
+ *
+ * <p>Durations are counted into a fixed set of buckets whose upper bounds
+ * range from 1 millisecond to 60 seconds, which is enough to estimate
+ * percentiles across the range of latencies that image requests exhibit.</p>
+ *
+ * @since 3.5
+ */
+public final class Timer {
+
+    /**
+     * Times a single event. Closing an instance records its duration; only
+     * the first {@link #close()} or {@link #stop()} has any effect.
+     */
+    public final class Context implements AutoCloseable {
+
+        private final AtomicBoolean isStopped = new AtomicBoolean(false);
+        private final long startTime = System.nanoTime();
+
+        private Context() {}
+
+        @Override
+        public void close() {
+            stop();
+        }
+
+        /**
+         * @return Elapsed time in nanoseconds.
+         */
+        public long stop() {
+            final long elapsed = System.nanoTime() - startTime;
+            if (isStopped.compareAndSet(false, true)) {
+                record(elapsed);
+            }
+            return elapsed;
+        }
+
+    }
+
+    /**
+     * Bucket upper bounds in seconds, in ascending order. There is an
+     * implicit final bucket with an upper bound of infinity.
+     */
+    static final double[] BUCKET_BOUNDS = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5,
+            1, 2.5, 5, 10, 30, 60 };
+
+    private final LongAdder[] bucketCounts =
+            new LongAdder[BUCKET_BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    Timer() {
+        for (int i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return Cumulative number of events whose duration was less than or
+     *         equal to the corresponding bound in {@link #BUCKET_BOUNDS}. The
+     *         last element is the total count.
+     */
+    long[] getCumulativeBucketCounts() {
+        final long[] counts = new long[bucketCounts.length];
+        long total = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            total += bucketCounts[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return Sum of all recorded durations in seconds.
+     */
+    public double getSum() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    /**
+     * @param nanos Duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        final double seconds = nanos / 1e9;
+        int i = 0;
+        while (i < BUCKET_BOUNDS.length && seconds > BUCKET_BOUNDS[i]) {
+            i++;
+        }
+        bucketCounts[i].increment();
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return New context that will record the time from now until it is
+     *         closed.
+     */
+    public Context time() {
+        return new Context();
+    }
+
+}
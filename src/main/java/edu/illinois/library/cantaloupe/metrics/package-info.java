@@ -0,0 +1,15 @@
+/**
+ * <p>Lightweight, always-on instrumentation of the application.</p>
+ *
+ * <p>{@link edu.illinois.library.cantaloupe.metrics.Metrics} provides the
+ * {@link edu.illinois.library.cantaloupe.metrics.Counter counters} and
+ * {@link edu.illinois.library.cantaloupe.metrics.Timer timers} that are
+ * recorded throughout the application, which are held by the
+ * {@link edu.illinois.library.cantaloupe.metrics.MetricRegistry} and exposed
+ * in the Prometheus format by
+ * {@link edu.illinois.library.cantaloupe.resource.admin.MetricsResource}.</p>
+ *
+ * <p>{@link edu.illinois.library.cantaloupe.metrics.RequestTrace} records
+ * the same stages for individual requests, when enabled.</p>
+ */
+package edu.illinois.library.cantaloupe.metrics;
@@ -17,6 +17,11 @@ import java.util.Map;
  */
 public class Redaction implements Operation {
 
+    /**
+     * Index of the redactions that the instance was created along with, set
+     * by {@link RedactionIndex#forOperationList}.
+     */
+    private volatile RedactionIndex index;
     private boolean isFrozen = false;
     private Rectangle region;
 
@@ -34,6 +39,10 @@ public class Redaction implements Operation {
         isFrozen = true;
     }
 
+    RedactionIndex getIndex() {
+        return index;
+    }
+
     /**
      * @return Redacted region in source image pixel coordinates.
      */
@@ -81,6 +90,14 @@ public class Redaction implements Operation {
         return getRegion().intersects(resultingImage);
     }
 
+    /**
+     * May be called even if the instance is frozen, as the index doesn't
+     * affect the redaction's behavior.
+     */
+    void setIndex(RedactionIndex index) {
+        this.index = index;
+    }
+
     /**
      * @param region Redacted region in source image pixel coordinates.
      * @throws IllegalStateException If the instance is frozen.
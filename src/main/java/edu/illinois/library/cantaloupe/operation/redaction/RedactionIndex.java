@@ -0,0 +1,196 @@
+package edu.illinois.library.cantaloupe.operation.redaction;
+
+import edu.illinois.library.cantaloupe.operation.Operation;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Spatial index of the {@link Redaction redactions} of a source image,
+ * which finds the ones that intersect a region of it without testing every
+ * one.</p>
+ *
+ * <p>Redactions are bucketed into a uniform grid of {@link #CELL_SIZE}-pixel
+ * cells in source image coordinates. Redactions spanning more than {@link
+ * #MAX_CELLS_PER_REDACTION} cells are kept in a separate list that is always
+ * tested, so that a redaction covering most of a huge image doesn't fill the
+ * grid.</p>
+ *
+ * <p>Instances are immutable. Each {@link Redaction} refers to the index that
+ * was last built from it, so that {@link #forOperationList} can reuse the
+ * index for as long as the {@link RedactionService} keeps returning the
+ * same instances.</p>
+ *
+ * @since 3.5
+ */
+public final class RedactionIndex {
+
+    private static final int CELL_SIZE = 1024;
+
+    private static final int MAX_CELLS_PER_REDACTION = 64;
+
+    private final List<Redaction> largeRedactions = new ArrayList<>();
+    private final Map<Long, List<Redaction>> cells = new HashMap<>();
+    private final int size;
+
+    /**
+     * Returns an index of the redactions in the given operation list that
+     * have an effect. If all of them refer to the same index, and it
+     * contains no others, that index is returned; otherwise a new one is
+     * built, and they are made to refer to it.
+     *
+     * @param opList Operation list.
+     * @return       Index of its redactions, or <code>null</code> if it
+     *               contains none that have an effect.
+     */
+    public static RedactionIndex forOperationList(OperationList opList) {
+        RedactionIndex sharedIndex = null;
+        boolean isShared = true;
+        int count = 0;
+        for (Operation op : opList) {
+            if (op instanceof Redaction && op.hasEffect()) {
+                final RedactionIndex index = ((Redaction) op).getIndex();
+                if (count == 0) {
+                    sharedIndex = index;
+                } else if (index != sharedIndex) {
+                    isShared = false;
+                }
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        if (isShared && sharedIndex != null && sharedIndex.size == count) {
+            return sharedIndex;
+        }
+
+        final List<Redaction> redactions = new ArrayList<>(count);
+        for (Operation op : opList) {
+            if (op instanceof Redaction && op.hasEffect()) {
+                redactions.add((Redaction) op);
+            }
+        }
+        final RedactionIndex index = new RedactionIndex(redactions);
+        for (Redaction redaction : redactions) {
+            redaction.setIndex(index);
+        }
+        return index;
+    }
+
+    private static long cellKey(int column, int row) {
+        return ((long) column << 32) | (row & 0xffffffffL);
+    }
+
+    RedactionIndex(List<Redaction> redactions) {
+        size = redactions.size();
+        for (Redaction redaction : redactions) {
+            final Rectangle region = redaction.getRegion();
+
+            final int minColumn = Math.floorDiv(region.x, CELL_SIZE);
+            final int maxColumn = Math.floorDiv(
+                    region.x + region.width - 1, CELL_SIZE);
+            final int minRow = Math.floorDiv(region.y, CELL_SIZE);
+            final int maxRow = Math.floorDiv(
+                    region.y + region.height - 1, CELL_SIZE);
+            final long numCells = (long) (maxColumn - minColumn + 1) *
+                    (maxRow - minRow + 1);
+            if (numCells > MAX_CELLS_PER_REDACTION) {
+                largeRedactions.add(redaction);
+                continue;
+            }
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    cells.computeIfAbsent(cellKey(column, row),
+                            k -> new ArrayList<>()).add(redaction);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param region Region in source image coordinates.
+     * @return       Whether the union of the redactions covers the whole
+     *               region, in which case nothing of it will be visible.
+     */
+    public boolean covers(Rectangle region) {
+        if (region.isEmpty()) {
+            return false;
+        }
+        final List<Redaction> redactions = getIntersecting(region);
+        if (redactions.isEmpty()) {
+            return false;
+        }
+        // Check the common case of a single covering redaction first.
+        for (Redaction redaction : redactions) {
+            if (redaction.getRegion().contains(region)) {
+                return true;
+            }
+        }
+        final Area union = new Area();
+        for (Redaction redaction : redactions) {
+            union.add(new Area(redaction.getRegion()));
+        }
+        return union.contains(region);
+    }
+
+    /**
+     * @param region Region in source image coordinates.
+     * @return       Redactions that intersect the given region.
+     */
+    public List<Redaction> getIntersecting(Rectangle region) {
+        if (region.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final Set<Redaction> candidates = new LinkedHashSet<>();
+        final int minColumn = Math.floorDiv(region.x, CELL_SIZE);
+        final int maxColumn = Math.floorDiv(
+                region.x + region.width - 1, CELL_SIZE);
+        final int minRow = Math.floorDiv(region.y, CELL_SIZE);
+        final int maxRow = Math.floorDiv(
+                region.y + region.height - 1, CELL_SIZE);
+        final long numCells = (long) (maxColumn - minColumn + 1) *
+                (maxRow - minRow + 1);
+        if (numCells > cells.size()) {
+            // The region spans more cells than are occupied.
+            for (List<Redaction> cell : cells.values()) {
+                candidates.addAll(cell);
+            }
+        } else {
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    final List<Redaction> cell =
+                            cells.get(cellKey(column, row));
+                    if (cell != null) {
+                        candidates.addAll(cell);
+                    }
+                }
+            }
+        }
+        candidates.addAll(largeRedactions);
+
+        final List<Redaction> intersecting = new ArrayList<>();
+        for (Redaction redaction : candidates) {
+            if (redaction.getRegion().intersects(region)) {
+                intersecting.add(redaction);
+            }
+        }
+        return intersecting;
+    }
+
+    /**
+     * @return Whether the index contains no redactions.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+}
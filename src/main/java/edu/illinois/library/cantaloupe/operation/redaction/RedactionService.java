@@ -7,11 +7,13 @@ import edu.illinois.library.cantaloupe.image.Identifier;
 import edu.illinois.library.cantaloupe.script.DelegateScriptDisabledException;
 import edu.illinois.library.cantaloupe.script.ScriptEngine;
 import edu.illinois.library.cantaloupe.script.ScriptEngineFactory;
+import edu.illinois.library.cantaloupe.util.ObjectCache;
 
 import javax.script.ScriptException;
 import java.awt.Rectangle;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +22,32 @@ import java.util.Map;
  */
 public class RedactionService {
 
+    /**
+     * Redactions created from a delegate method result.
+     */
+    private static final class CachedRedactions {
+
+        final Object result;
+        final List<Redaction> redactions;
+
+        CachedRedactions(Object result, List<Redaction> redactions) {
+            this.result = result;
+            this.redactions = redactions;
+        }
+
+    }
+
+    /**
+     * Redactions most recently created for each identifier, which are
+     * returned again for as long as the delegate method returns the very
+     * same result object, as it does when the result is served from the
+     * invocation cache. So, the same {@link Redaction} instances, and the
+     * {@link RedactionIndex} built from them, are reused without comparing
+     * any regions.
+     */
+    private static final ObjectCache<Identifier, CachedRedactions> CACHE =
+            new ObjectCache<>(1024);
+
     /**
      * @return Whether {@link Key#REDACTION_ENABLED} is true.
      */
@@ -36,8 +64,9 @@ public class RedactionService {
      * @param requestHeaders
      * @param clientIp
      * @param cookies
-     * @return Redactions applicable to the given parameters, or an empty list
-     *         if none.
+     * @return Frozen redactions applicable to the given parameters, or an
+     *         empty list if none. The list is unmodifiable, and may be
+     *         returned again for the same delegate method result.
      * @throws IOException
      * @throws ScriptException
      * @throws DelegateScriptDisabledException
@@ -49,20 +78,31 @@ public class RedactionService {
                                          Map<String,String> cookies)
             throws IOException, ScriptException,
             DelegateScriptDisabledException, ConfigurationException {
-        final List<Redaction> redactions = new ArrayList<>();
-
         final List<Map<String,Long>> defs = getRedactionDefsFromScript(
                 identifier, requestHeaders, clientIp, cookies);
-        if (defs != null) {
-            for (Map<String,Long> def : defs) {
-                redactions.add(new Redaction(
-                        new Rectangle(def.get("x").intValue(),
-                                def.get("y").intValue(),
-                                def.get("width").intValue(),
-                                def.get("height").intValue())));
-            }
+        if (defs == null) {
+            return Collections.emptyList();
+        }
+        final CachedRedactions cached = CACHE.get(identifier);
+        if (cached != null && cached.result == defs) {
+            return cached.redactions;
+        }
+
+        final List<Redaction> redactions = new ArrayList<>(defs.size());
+        for (Map<String,Long> def : defs) {
+            final Redaction redaction = new Redaction(
+                    new Rectangle(def.get("x").intValue(),
+                            def.get("y").intValue(),
+                            def.get("width").intValue(),
+                            def.get("height").intValue()));
+            redaction.freeze();
+            redactions.add(redaction);
         }
-        return redactions;
+        final List<Redaction> unmodifiableRedactions =
+                Collections.unmodifiableList(redactions);
+        CACHE.put(identifier, new CachedRedactions(defs,
+                unmodifiableRedactions));
+        return unmodifiableRedactions;
     }
 
     /**
@@ -3,7 +3,8 @@
  *
  * <p>This application uses the <a href="https://restlet.com/open-source/">Restlet
  * Framework</a> as an alternative to bare Servlets.
- * {@link org.restlet.ext.servlet.ServerServlet} is the only Servlet class,
+ * {@link edu.illinois.library.cantaloupe.AsyncServerServlet}, a subclass of
+ * {@link org.restlet.ext.servlet.ServerServlet}, is the only Servlet class,
  * wired up in <code>web.xml</code>. Servlet-equivalent functionality is
  * provided by Restlet resource classes residing in
  * {@link edu.illinois.library.cantaloupe.resource} and subpackages.</p>
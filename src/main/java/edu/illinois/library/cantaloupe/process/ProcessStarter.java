@@ -1,6 +1,7 @@
 package edu.illinois.library.cantaloupe.process;
 
 import edu.illinois.library.cantaloupe.async.ThreadPool;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -99,6 +100,7 @@ public final class ProcessStarter {
      */
     private Process startProcess(List<String> pArgs) throws IOException {
         ProcessBuilder builder = new ProcessBuilder(pArgs);
+        Metrics.processForked(builder.command());
         return builder.start();
     }
 
@@ -122,14 +124,14 @@ public final class ProcessStarter {
                 processOutput(process.getInputStream(), outputConsumer);
                 return null;
             });
-            ThreadPool.getInstance().submit(outTask);
+            ThreadPool.getInstance().submit(outTask, ThreadPool.Priority.HIGH);
         }
         if (errorConsumer != null) {
             errTask = new FutureTask<>(() -> {
                 processError(process.getErrorStream(), errorConsumer);
                 return null;
             });
-            ThreadPool.getInstance().submit(errTask);
+            ThreadPool.getInstance().submit(errTask, ThreadPool.Priority.HIGH);
         }
 
         try {
@@ -121,7 +121,13 @@ abstract class AbstractImageIOProcessor extends AbstractProcessor {
         this.streamSource = streamSource;
     }
 
-    private void disposeReader() {
+    /**
+     * Disposes of the reader returned by {@link #getReader()}, if any, so
+     * that a subsequent invocation will return a new one. Processors should
+     * call this rather than {@link ImageReader#dispose()} when they are done
+     * with the reader, so that the instance can process more than once.
+     */
+    void disposeReader() {
         if (reader != null) {
             reader.dispose();
         }
@@ -2,28 +2,34 @@ package edu.illinois.library.cantaloupe.processor;
 
 import edu.illinois.library.cantaloupe.image.Format;
 import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
+import edu.illinois.library.cantaloupe.metrics.Timer;
 import edu.illinois.library.cantaloupe.operation.ColorTransform;
 import edu.illinois.library.cantaloupe.operation.Crop;
 import edu.illinois.library.cantaloupe.operation.Encode;
 import edu.illinois.library.cantaloupe.operation.Normalize;
 import edu.illinois.library.cantaloupe.operation.Operation;
 import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.operation.Orientation;
 import edu.illinois.library.cantaloupe.operation.ReductionFactor;
 import edu.illinois.library.cantaloupe.operation.Rotate;
 import edu.illinois.library.cantaloupe.operation.Scale;
 import edu.illinois.library.cantaloupe.operation.Sharpen;
 import edu.illinois.library.cantaloupe.operation.Transpose;
 import edu.illinois.library.cantaloupe.operation.redaction.Redaction;
+import edu.illinois.library.cantaloupe.operation.redaction.RedactionIndex;
 import edu.illinois.library.cantaloupe.operation.overlay.Overlay;
 import edu.illinois.library.cantaloupe.processor.imageio.ImageReader;
 import edu.illinois.library.cantaloupe.processor.imageio.ImageWriter;
 import edu.illinois.library.cantaloupe.resource.iiif.ProcessorFeature;
 
 import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
@@ -94,6 +100,32 @@ abstract class AbstractJava2DProcessor extends AbstractImageIOProcessor {
         return qualities;
     }
 
+    /**
+     * <p>Reads the source image as efficiently as possible for the given
+     * operations, for processors that can do that independently of {@link
+     * #process}. This is used by {@link PyramidGenerator} to decode a
+     * resolution level once and derive many images from it.</p>
+     *
+     * <p>This implementation returns <code>null</code>.</p>
+     *
+     * @param opList          Operations that will be applied to the image.
+     * @param imageInfo       Information about the source image.
+     * @param reductionFactor Will be modified to reflect the reduction factor
+     *                        of the returned image.
+     * @param readerHints     Will be populated by information returned from
+     *                        the reader.
+     * @return                Decoded image, or <code>null</code> if not
+     *                        supported.
+     * @since 3.5
+     */
+    BufferedImage readImage(OperationList opList,
+                            Info imageInfo,
+                            ReductionFactor reductionFactor,
+                            Set<ImageReader.Hint> readerHints)
+            throws IOException, ProcessorException {
+        return null;
+    }
+
     /**
      * Convenience method for processors that use a Java 2D pipeline. Generally
      * a processor will read an image, and then pass it to this method to
@@ -112,8 +144,145 @@ abstract class AbstractJava2DProcessor extends AbstractImageIOProcessor {
                      final Info imageInfo,
                      ReductionFactor reductionFactor,
                      final OutputStream outputStream) throws IOException {
+        postProcess(image, readerHints, opList, imageInfo, reductionFactor,
+                null, outputStream);
+    }
+
+    /**
+     * Variant of {@link #postProcess(BufferedImage, Set, OperationList, Info,
+     * ReductionFactor, OutputStream)} that normalizes using the given
+     * contrast range, if any, instead of one computed from the image.
+     *
+     * @param contrastRange Contrast range of the whole source image, e.g.
+     *                      from {@link #getContrastRange}. May be
+     *                      <code>null</code>.
+     * @since 3.5
+     */
+    void postProcess(BufferedImage image,
+                     Set<ImageReader.Hint> readerHints,
+                     final OperationList opList,
+                     final Info imageInfo,
+                     ReductionFactor reductionFactor,
+                     final ContrastRange contrastRange,
+                     final OutputStream outputStream) throws IOException {
+        image = preProcess(image, opList, contrastRange);
+        image = processRegion(image, readerHints, opList, imageInfo,
+                reductionFactor, false);
+        new ImageWriter(opList).write(image, outputStream);
+    }
+
+    /**
+     * <p>Returns the contrast range of the whole source image, with which
+     * any region of it can be normalized consistently with the others
+     * without reading all of it.</p>
+     *
+     * <p>This implementation returns <code>null</code>, meaning that regions
+     * must be normalized using their own contrast range, so that consistency
+     * requires reading the whole image.</p>
+     *
+     * @param opList    Operation list containing the identifier of the source
+     *                  image.
+     * @param imageInfo Information about the source image.
+     * @return          Contrast range, or <code>null</code> if not
+     *                  available.
+     * @since 3.5
+     */
+    ContrastRange getContrastRange(OperationList opList, Info imageInfo) {
+        return null;
+    }
+
+    /**
+     * Applies the operations in the given list that apply to the decoded
+     * image as a whole, regardless of the region being requested. This is
+     * the first step of {@link #postProcess}.
+     *
+     * @param image  Image to process.
+     * @param opList Operations to apply to the image.
+     * @return       Processed image, which may be the same instance.
+     * @since 3.5
+     */
+    static BufferedImage preProcess(BufferedImage image,
+                                    final OperationList opList) {
+        return preProcess(image, opList, null);
+    }
+
+    /**
+     * Variant of {@link #preProcess(BufferedImage, OperationList)} that
+     * normalizes using the given contrast range, if any, instead of one
+     * computed from the image.
+     *
+     * @param image         Image to process.
+     * @param opList        Operations to apply to the image.
+     * @param contrastRange Contrast range of the whole source image. May be
+     *                      <code>null</code>.
+     * @return              Processed image, which may be the same instance.
+     * @since 3.5
+     */
+    static BufferedImage preProcess(BufferedImage image,
+                                    final OperationList opList,
+                                    final ContrastRange contrastRange) {
+        if (opList.getFirst(Normalize.class) != null) {
+            try (Timer.Context ignored =
+                         Metrics.operation("normalize").time();
+                 RequestTrace.Stage ignored2 =
+                         RequestTrace.stage("normalize")) {
+                image = (contrastRange != null) ?
+                        Java2DUtil.stretchContrast(image, contrastRange) :
+                        Java2DUtil.stretchContrast(image);
+            }
+        }
+
+        if (isReducingTo8Bits(opList)) {
+            try (Timer.Context ignored =
+                         Metrics.operation("reduce_to_8_bits").time();
+                 RequestTrace.Stage ignored2 =
+                         RequestTrace.stage("reduce_to_8_bits")) {
+                image = Java2DUtil.reduceTo8Bits(image);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * If the Encode specifies a max sample size of 8 bits, or if the output
+     * format's max sample size is 8 bits, we will need to reduce it. HOWEVER,
+     * if the output format's max sample size is LESS THAN 8 bits (I'm
+     * looking at you, GIF), don't do anything and let the writer handle it.
+     * The writer could actually do this itself regardless, but doing it here
+     * could make subsequent processing steps more efficient as they will have
+     * less data to deal with.
+     */
+    static boolean isReducingTo8Bits(OperationList opList) {
         final Format outputFormat = opList.getOutputFormat();
+        final Encode encode = (Encode) opList.getFirst(Encode.class);
+        return ((encode != null && encode.getMaxSampleSize() != null && encode.getMaxSampleSize() <= 8)
+                || outputFormat.getMaxSampleSize() <= 8)
+                && !Format.GIF.equals(outputFormat);
+    }
 
+    /**
+     * Applies the operations in the given list from cropping onward. This is
+     * the second step of {@link #postProcess}.
+     *
+     * @param image           Image to process, which has been passed through
+     *                        {@link #preProcess}.
+     * @param readerHints     Hints from the image reader. May be
+     *                        <code>null</code>.
+     * @param opList          Operations to apply to the image.
+     * @param imageInfo       Information about the source image.
+     * @param reductionFactor May be <code>null</code>.
+     * @param isShared        Whether <code>image</code> may be in use by
+     *                        other threads, in which case it will be copied
+     *                        before any operation that would draw on it.
+     * @return                Processed image.
+     * @since 3.5
+     */
+    static BufferedImage processRegion(BufferedImage image,
+                                       Set<ImageReader.Hint> readerHints,
+                                       final OperationList opList,
+                                       final Info imageInfo,
+                                       ReductionFactor reductionFactor,
+                                       boolean isShared) throws IOException {
         if (reductionFactor == null) {
             reductionFactor = new ReductionFactor();
         }
@@ -121,25 +290,6 @@ abstract class AbstractJava2DProcessor extends AbstractImageIOProcessor {
             readerHints = new HashSet<>();
         }
 
-        if (opList.getFirst(Normalize.class) != null) {
-            image = Java2DUtil.stretchContrast(image);
-        }
-
-        // If the Encode specifies a max sample size of 8 bits, or if the
-        // output format's max sample size is 8 bits, we will need to reduce
-        // it. HOWEVER, if the output format's max sample size is LESS THAN
-        // 8 bits (I'm looking at you, GIF), don't do anything and let the
-        // writer handle it.
-        // The writer could actually do this itself regardless, but doing it
-        // here could make subsequent processing steps more efficient as they
-        // will have less data to deal with.
-        Encode encode = (Encode) opList.getFirst(Encode.class);
-        if (((encode != null && encode.getMaxSampleSize() != null && encode.getMaxSampleSize() <= 8)
-                || outputFormat.getMaxSampleSize() <= 8)
-                && !Format.GIF.equals(outputFormat)) {
-            image = Java2DUtil.reduceTo8Bits(image);
-        }
-
         final Dimension fullSize = imageInfo.getSize();
 
         // Apply the crop operation, if present, and maintain a reference
@@ -151,44 +301,203 @@ abstract class AbstractJava2DProcessor extends AbstractImageIOProcessor {
                 crop = (Crop) op;
                 if (crop.hasEffect(fullSize, opList) &&
                         !readerHints.contains(ImageReader.Hint.ALREADY_CROPPED)) {
-                    image = Java2DUtil.cropImage(image, crop, reductionFactor);
+                    try (Timer.Context ignored =
+                                 Metrics.operation("crop").time();
+                         RequestTrace.Stage ignored2 =
+                                 RequestTrace.stage("crop")) {
+                        image = Java2DUtil.cropImage(image, crop,
+                                reductionFactor);
+                    }
                 }
             }
         }
 
-        // Redactions happen immediately after cropping.
-        List<Redaction> redactions = new ArrayList<>();
-        for (Operation op : opList) {
-            if (op instanceof Redaction) {
-                if (op.hasEffect(fullSize, opList)) {
-                    redactions.add((Redaction) op);
+        // Redactions happen immediately after cropping. Only the ones that
+        // intersect the cropped region are applied.
+        final RedactionIndex redactionIndex = RedactionIndex.forOperationList(opList);
+        final List<Redaction> redactions = (redactionIndex != null) ?
+                redactionIndex.getIntersecting(getRegion(opList, fullSize)) :
+                Collections.emptyList();
+        if (!redactions.isEmpty()) {
+            try (Timer.Context ignored =
+                         Metrics.operation("redaction").time();
+                 RequestTrace.Stage ignored2 =
+                         RequestTrace.stage("redaction")) {
+                if (isShared) {
+                    image = copy(image);
+                    isShared = false;
                 }
+                image = Java2DUtil.applyRedactions(image, crop,
+                        reductionFactor, redactions);
             }
         }
-        image = Java2DUtil.applyRedactions(image, crop, reductionFactor,
-                redactions);
 
-        // Apply remaining operations.
+        // Apply the remaining operations in one pass if possible...
+        final FusedPipeline pipeline =
+                FusedPipeline.compile(image, opList, fullSize);
+        if (pipeline != null) {
+            try (Timer.Context ignored =
+                         Metrics.operation("fused").time();
+                 RequestTrace.Stage ignored2 =
+                         RequestTrace.stage("fused")) {
+                return pipeline.apply(image, reductionFactor);
+            }
+        }
+
+        // ...or else one at a time.
         for (Operation op : opList) {
-            if (op.hasEffect(fullSize, opList)) {
-                if (op instanceof Scale) {
-                    image = Java2DUtil.scaleImage(image, (Scale) op,
-                            reductionFactor);
-                } else if (op instanceof Transpose) {
-                    image = Java2DUtil.transposeImage(image, (Transpose) op);
-                } else if (op instanceof Rotate) {
-                    image = Java2DUtil.rotateImage(image, (Rotate) op);
-                } else if (op instanceof ColorTransform) {
-                    image = Java2DUtil.transformColor(image, (ColorTransform) op);
-                } else if (op instanceof Sharpen) {
-                    image = Java2DUtil.sharpenImage(image, (Sharpen) op);
-                } else if (op instanceof Overlay) {
-                    image = Java2DUtil.applyOverlay(image, (Overlay) op);
+            if (op.hasEffect(fullSize, opList) && isPostProcessStage(op)) {
+                final String stageName = stageName(op);
+                try (Timer.Context ignored =
+                             Metrics.operation(stageName).time();
+                     RequestTrace.Stage ignored2 =
+                             RequestTrace.stage(stageName)) {
+                    if (isShared && op instanceof Overlay) {
+                        image = copy(image);
+                    }
+                    final BufferedImage result =
+                            applyPostProcessStage(image, op, reductionFactor);
+                    if (result != image) {
+                        isShared = false;
+                    }
+                    image = result;
                 }
             }
         }
+        return image;
+    }
 
-        new ImageWriter(opList).write(image, outputStream);
+    /**
+     * @return Copy of the given image with its own raster.
+     */
+    static BufferedImage copy(BufferedImage image) {
+        final WritableRaster raster = image.getColorModel()
+                .createCompatibleWritableRaster(image.getWidth(),
+                        image.getHeight());
+        image.copyData(raster);
+        return new BufferedImage(image.getColorModel(), raster,
+                image.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * @return Region of the full-sized source image requested by the given
+     *         operation list.
+     */
+    private static Rectangle getRegion(OperationList opList,
+                                       Dimension fullSize) {
+        final Crop crop = (Crop) opList.getFirst(Crop.class);
+        return (crop != null) ?
+                crop.getRectangle(fullSize) : new Rectangle(fullSize);
+    }
+
+    /**
+     * <p>Returns a black image in place of the region of the source image
+     * requested by the given operation list, if redactions cover all of it,
+     * so that the region doesn't have to be decoded only to be painted over.
+     * The image is reduced like the reader would have reduced the region,
+     * and it should be processed by {@link #postProcess} with the {@link
+     * ImageReader.Hint#ALREADY_CROPPED} hint.</p>
+     *
+     * @param opList          Operation list.
+     * @param imageInfo       Information about the source image.
+     * @param reductionFactor Its {@link ReductionFactor#factor} will be set
+     *                        to the reduction factor of the returned image.
+     * @return                Black image, or <code>null</code> if the region
+     *                        isn't fully redacted.
+     * @since 3.5
+     */
+    static BufferedImage newRedactedRegionImage(
+            OperationList opList,
+            Info imageInfo,
+            ReductionFactor reductionFactor) {
+        // Regions of rotated sources are read in terms of the rotated image.
+        if (!Orientation.ROTATE_0.equals(imageInfo.getOrientation())) {
+            return null;
+        }
+        final RedactionIndex redactionIndex = RedactionIndex.forOperationList(opList);
+        if (redactionIndex == null) {
+            return null;
+        }
+        final Rectangle region = getRegion(opList, imageInfo.getSize());
+        if (!redactionIndex.covers(region)) {
+            return null;
+        }
+
+        final Scale scale = (Scale) opList.getFirst(Scale.class);
+        reductionFactor.factor = (scale != null) ? Math.max(0,
+                scale.getReductionFactor(region.getSize(), 0).factor) : 0;
+        final double rfScale = reductionFactor.getScale();
+        return new BufferedImage(
+                Math.max(1, (int) Math.ceil(region.width * rfScale)),
+                Math.max(1, (int) Math.ceil(region.height * rfScale)),
+                BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * <p>If redactions cover the whole region of the source image requested
+     * by the given operation list, processes a black image in its place,
+     * obtained from {@link #newRedactedRegionImage}, and writes the result,
+     * so that the source image doesn't have to be read at all. Processors
+     * should call this before reading the source image.</p>
+     *
+     * <p>This is not used by {@link PdfBoxProcessor}, as the source image
+     * info describes only the first page of a document, so it can't be
+     * determined what region of another page is requested.</p>
+     *
+     * @param opList       Operation list.
+     * @param imageInfo    Information about the source image.
+     * @param outputStream Output stream to write the result to.
+     * @return             Whether the result was written.
+     * @since 3.5
+     */
+    boolean processRedactedRegion(OperationList opList,
+                                  Info imageInfo,
+                                  OutputStream outputStream)
+            throws IOException {
+        final ReductionFactor reductionFactor = new ReductionFactor();
+        final BufferedImage image =
+                newRedactedRegionImage(opList, imageInfo, reductionFactor);
+        if (image == null) {
+            return false;
+        }
+        postProcess(image, EnumSet.of(ImageReader.Hint.ALREADY_CROPPED),
+                opList, imageInfo, reductionFactor, outputStream);
+        return true;
+    }
+
+    private static boolean isPostProcessStage(Operation op) {
+        return (op instanceof Scale || op instanceof Transpose ||
+                op instanceof Rotate || op instanceof ColorTransform ||
+                op instanceof Sharpen || op instanceof Overlay);
+    }
+
+    /**
+     * @return Name of the given operation for use in metrics and traces, e.g.
+     *         <code>color_transform</code> for {@link ColorTransform}.
+     */
+    private static String stageName(Operation op) {
+        return op.getClass().getSimpleName()
+                .replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
+    }
+
+    private static BufferedImage applyPostProcessStage(
+            BufferedImage image,
+            Operation op,
+            ReductionFactor reductionFactor) throws IOException {
+        if (op instanceof Scale) {
+            return Java2DUtil.scaleImage(image, (Scale) op, reductionFactor);
+        } else if (op instanceof Transpose) {
+            return Java2DUtil.transposeImage(image, (Transpose) op);
+        } else if (op instanceof Rotate) {
+            return Java2DUtil.rotateImage(image, (Rotate) op);
+        } else if (op instanceof ColorTransform) {
+            return Java2DUtil.transformColor(image, (ColorTransform) op);
+        } else if (op instanceof Sharpen) {
+            return Java2DUtil.sharpenImage(image, (Sharpen) op);
+        } else if (op instanceof Overlay) {
+            return Java2DUtil.applyOverlay(image, (Overlay) op);
+        }
+        return image;
     }
 
 }
@@ -0,0 +1,63 @@
+package edu.illinois.library.cantaloupe.processor;
+
+/**
+ * Immutable range of 8-bit RGB intensities, from the darkest to the
+ * brightest sample of any color channel, that {@link
+ * Java2DUtil#stretchContrast} stretches to the full range of intensities.
+ *
+ * @since 3.5
+ */
+final class ContrastRange {
+
+    private final int low, high;
+
+    /**
+     * @param low  Lowest intensity, between 0 and 255.
+     * @param high Highest intensity, between 0 and 255.
+     */
+    ContrastRange(int low, int high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    int getHigh() {
+        return high;
+    }
+
+    int getLow() {
+        return low;
+    }
+
+    /**
+     * @return Whether there is any contrast to stretch.
+     */
+    boolean isStretchable() {
+        return high > low;
+    }
+
+    /**
+     * @return Lookup table mapping each 8-bit intensity to its stretched
+     *         value. Intensities outside of the range are clamped to it.
+     */
+    int[] toLookupTable() {
+        final int[] table = new int[256];
+        final float range = high - low;
+        for (int i = 0; i < table.length; i++) {
+            float stretched = (i - low) / range;
+            if (stretched < 0) {
+                stretched = 0;
+            } else if (stretched > 1) {
+                stretched = 1;
+            }
+            // Same rounding as java.awt.Color's float constructor
+            table[i] = (int) (stretched * 255 + 0.5);
+        }
+        return table;
+    }
+
+    @Override
+    public String toString() {
+        return low + "-" + high;
+    }
+
+}
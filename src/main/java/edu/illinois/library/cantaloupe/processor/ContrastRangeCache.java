@@ -0,0 +1,77 @@
+package edu.illinois.library.cantaloupe.processor;
+
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.util.ObjectCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Size-bounded heap cache of the {@link ContrastRange}s of whole source
+ * images, keyed by identifier, which enables every region of an image to be
+ * normalized consistently without reading the whole image for each one.</p>
+ *
+ * <p>Like the info cache, it is purged along with the other caches by
+ * {@link edu.illinois.library.cantaloupe.cache.CacheFacade}. As the key
+ * doesn't identify the version of the source image, the range of an image
+ * is also purged by {@link edu.illinois.library.cantaloupe.cache.InfoService}
+ * whenever the image's info is read from the source, so that a range
+ * doesn't outlive the info of the version of the image that it was sampled
+ * from.</p>
+ *
+ * @since 3.5
+ */
+public final class ContrastRangeCache {
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(ContrastRangeCache.class);
+
+    /**
+     * Rough estimate of the heap size of a range, including its key.
+     */
+    private static final int EXPECTED_AVERAGE_RANGE_SIZE = 128;
+
+    private static final ContrastRangeCache INSTANCE =
+            new ContrastRangeCache();
+
+    private final ObjectCache<Identifier, ContrastRange> objectCache =
+            new ObjectCache<>(ContrastRangeCache.class.getSimpleName(),
+                    "contrast_range", EXPECTED_AVERAGE_RANGE_SIZE);
+
+    /**
+     * @return Shared instance.
+     */
+    public static ContrastRangeCache getInstance() {
+        return INSTANCE;
+    }
+
+    private ContrastRangeCache() {}
+
+    /**
+     * @param identifier Identifier of a source image.
+     * @return           Contrast range of the image, or <code>null</code> if
+     *                   not cached.
+     */
+    ContrastRange get(Identifier identifier) {
+        return objectCache.get(identifier);
+    }
+
+    /**
+     * @param identifier Identifier of a source image.
+     * @param range      Contrast range of the image.
+     */
+    void put(Identifier identifier, ContrastRange range) {
+        LOGGER.debug("put(): {}: {}", identifier, range);
+        objectCache.put(identifier, range);
+    }
+
+    public void purge() {
+        LOGGER.debug("purge()");
+        objectCache.purge();
+    }
+
+    public void purge(Identifier identifier) {
+        LOGGER.debug("purge(): purging {}", identifier);
+        objectCache.remove(identifier);
+    }
+
+}
@@ -5,6 +5,7 @@ import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.image.Format;
 import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
 import edu.illinois.library.cantaloupe.operation.OperationList;
 import edu.illinois.library.cantaloupe.operation.ValidationException;
 import edu.illinois.library.cantaloupe.processor.imageio.ImageReader;
@@ -87,6 +88,7 @@ class FfmpegProcessor extends AbstractJava2DProcessor implements FileProcessor {
         pb.command(command);
         String commandString = String.join(" ", pb.command());
         LOGGER.info("invoke(): {}", commandString);
+        Metrics.processForked(pb.command());
         pb.start();
     }
 
@@ -146,6 +148,7 @@ class FfmpegProcessor extends AbstractJava2DProcessor implements FileProcessor {
             pb.redirectErrorStream(true);
 
             LOGGER.info("Invoking {}", StringUtils.join(pb.command(), " "));
+            Metrics.processForked(pb.command());
             Process process = pb.start();
 
             try (InputStream processInputStream = process.getInputStream();
@@ -174,14 +177,22 @@ class FfmpegProcessor extends AbstractJava2DProcessor implements FileProcessor {
 
         final ByteArrayOutputStream errorBucket = new ByteArrayOutputStream();
         try {
+            // If the region is fully redacted, there's no need to invoke
+            // the decoder.
+            if (processRedactedRegion(opList, imageInfo, outputStream)) {
+                return;
+            }
+
             final ProcessBuilder pb = getProcessBuilder(opList);
             LOGGER.info("Invoking {}", String.join(" ", pb.command()));
+            Metrics.processForked(pb.command());
             final Process process = pb.start();
 
             try (final InputStream processInputStream = process.getInputStream();
                  final InputStream processErrorStream = process.getErrorStream()) {
                 ThreadPool.getInstance().submit(
-                        new StreamCopier(processErrorStream, errorBucket));
+                        new StreamCopier(processErrorStream, errorBucket),
+                        ThreadPool.Priority.HIGH);
 
                 final ImageReader reader = new ImageReader(
                         new InputStreamStreamSource(processInputStream),
@@ -0,0 +1,581 @@
+package edu.illinois.library.cantaloupe.processor;
+
+import com.mortennobel.imagescaling.ResampleFilter;
+import edu.illinois.library.cantaloupe.async.ThreadPool;
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
+import edu.illinois.library.cantaloupe.operation.ColorTransform;
+import edu.illinois.library.cantaloupe.operation.Operation;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.operation.ReductionFactor;
+import edu.illinois.library.cantaloupe.operation.Rotate;
+import edu.illinois.library.cantaloupe.operation.Scale;
+import edu.illinois.library.cantaloupe.operation.Sharpen;
+import edu.illinois.library.cantaloupe.operation.Transpose;
+import edu.illinois.library.cantaloupe.operation.overlay.Overlay;
+import edu.illinois.library.cantaloupe.operation.redaction.Redaction;
+import edu.illinois.library.cantaloupe.util.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>Applies a scale &rarr; mirror/90&deg; rotation &rarr; gray sequence of
+ * operations to a cropped image in a single pass over its pixels, writing
+ * each output pixel directly into the resulting image instead of producing
+ * an intermediate image per operation as {@link
+ * AbstractJava2DProcessor#processRegion} otherwise does.</p>
+ *
+ * <p>Scaling uses the same filters and the same {@link ResampleContributions
+ * contributions} as {@link Java2DUtil#scaleImage}. Mirroring and rotating by
+ * multiples of 90 degrees are lossless remappings that are composed into one,
+ * and gray conversion uses the same luma weights as the Java 2D conversion
+ * performed by {@link Java2DUtil#transformColor}, so the result is the same
+ * as that of the operations applied one at a time, except that its type may
+ * differ: gray results are {@link BufferedImage#TYPE_BYTE_GRAY} and others
+ * are {@link BufferedImage#TYPE_INT_RGB} or {@link
+ * BufferedImage#TYPE_INT_ARGB} depending on whether the source has
+ * alpha.</p>
+ *
+ * <p>Large images are processed in horizontal bands in parallel.</p>
+ *
+ * <p>Instances are obtained from {@link #compile}, are immutable, and may be
+ * applied to any number of images.</p>
+ *
+ * @since 3.5
+ */
+final class FusedPipeline {
+
+    /**
+     * Processing of one band of rows, which is run at most once, by
+     * whichever thread gets to it first.
+     */
+    private static final class Band implements Runnable {
+
+        private final RowTask task;
+        private final int fromRow, toRow;
+        private final CompletableFuture<Void> result =
+                new CompletableFuture<>();
+        private final AtomicBoolean isStarted = new AtomicBoolean();
+        private final RequestTrace trace;
+
+        /**
+         * @param trace Trace of the request on behalf of which the band is
+         *              processed. May be <code>null</code>.
+         */
+        Band(RowTask task, int fromRow, int toRow, RequestTrace trace) {
+            this.task = task;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.trace = trace;
+        }
+
+        @Override
+        public void run() {
+            if (isStarted.compareAndSet(false, true)) {
+                try (RequestTrace.Stage ignored =
+                             RequestTrace.stage(trace, "fused_bands")) {
+                    task.run(fromRow, toRow);
+                    result.complete(null);
+                } catch (RuntimeException | Error e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface RowTask {
+        /**
+         * @param fromRow First row to process, inclusive.
+         * @param toRow   Last row to process, exclusive.
+         */
+        void run(int fromRow, int toRow);
+    }
+
+    /**
+     * Integer mapping of pixel coordinates in the scaled image to pixel
+     * coordinates in the result, composed of any number of mirrorings and
+     * rotations by multiples of 90 degrees.
+     */
+    private static final class Orientation {
+
+        // x' = a * x + b * y + c; y' = d * x + e * y + f
+        private int a = 1, b = 0, c = 0, d = 0, e = 1, f = 0;
+        private int width, height;
+
+        Orientation(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        void mirror() {
+            a = -a;
+            b = -b;
+            c = width - 1 - c;
+        }
+
+        /**
+         * Rotates 90 degrees clockwise.
+         */
+        void rotate() {
+            final int a0 = a, b0 = b, c0 = c;
+            a = -d;
+            b = -e;
+            c = height - 1 - f;
+            d = a0;
+            e = b0;
+            f = c0;
+            final int tmp = width;
+            width = height;
+            height = tmp;
+        }
+
+        /**
+         * @return Index within the result of pixel 0 of the given row of the
+         *         scaled image.
+         */
+        int rowStart(int y) {
+            return (e * y + f) * width + b * y + c;
+        }
+
+        /**
+         * @return Distance within the result between consecutive pixels of a
+         *         row of the scaled image.
+         */
+        int rowStep() {
+            return d * width + a;
+        }
+
+    }
+
+    /**
+     * Reads rows of an image of one of the {@link #SUPPORTED_IMAGE_TYPES} as
+     * packed ARGB, reusing the same buffers for each row. Gray samples are
+     * copied into all three color channels.
+     *
+     * <p>N.B.: the data elements of the byte types are in band (RGBA) order,
+     * not memory order.</p>
+     */
+    private static final class RowReader {
+
+        private final Raster raster;
+        private final int type;
+        private byte[] bytes;
+        private int[] samples;
+
+        RowReader(BufferedImage image) {
+            this.raster = image.getRaster();
+            this.type = image.getType();
+        }
+
+        /**
+         * @param y   Row to read.
+         * @param row Array to receive the row.
+         */
+        void read(int y, int[] row) {
+            final int width = row.length;
+            switch (type) {
+                case BufferedImage.TYPE_INT_RGB:
+                    raster.getDataElements(0, y, width, 1, row);
+                    for (int x = 0; x < width; x++) {
+                        row[x] |= 0xff000000;
+                    }
+                    break;
+                case BufferedImage.TYPE_INT_ARGB:
+                    raster.getDataElements(0, y, width, 1, row);
+                    break;
+                case BufferedImage.TYPE_3BYTE_BGR:
+                    bytes = (byte[]) raster.getDataElements(0, y, width, 1,
+                            bytes);
+                    for (int x = 0, i = 0; x < width; x++, i += 3) {
+                        row[x] = 0xff000000 | ((bytes[i] & 0xff) << 16) |
+                                ((bytes[i + 1] & 0xff) << 8) |
+                                (bytes[i + 2] & 0xff);
+                    }
+                    break;
+                case BufferedImage.TYPE_4BYTE_ABGR:
+                    bytes = (byte[]) raster.getDataElements(0, y, width, 1,
+                            bytes);
+                    for (int x = 0, i = 0; x < width; x++, i += 4) {
+                        row[x] = ((bytes[i + 3] & 0xff) << 24) |
+                                ((bytes[i] & 0xff) << 16) |
+                                ((bytes[i + 1] & 0xff) << 8) |
+                                (bytes[i + 2] & 0xff);
+                    }
+                    break;
+                case BufferedImage.TYPE_BYTE_GRAY:
+                    bytes = (byte[]) raster.getDataElements(0, y, width, 1,
+                            bytes);
+                    for (int x = 0; x < width; x++) {
+                        final int sample = bytes[x] & 0xff;
+                        row[x] = 0xff000000 | (sample << 16) |
+                                (sample << 8) | sample;
+                    }
+                    break;
+                default:
+                    samples = raster.getPixels(0, y, width, 1, samples);
+                    for (int x = 0, i = 0; x < width; x++, i += 3) {
+                        row[x] = 0xff000000 | (samples[i] << 16) |
+                                (samples[i + 1] << 8) | samples[i + 2];
+                    }
+                    break;
+            }
+        }
+
+    }
+
+    /**
+     * Writes rows of the scaled image into the result, converting them to
+     * gray if necessary.
+     */
+    private final class RowWriter {
+
+        private final Orientation orientation;
+        private final boolean isSourceGray;
+        private final byte[] grayPixels;
+        private final int[] rgbPixels;
+
+        RowWriter(BufferedImage outImage, Orientation orientation,
+                  boolean isSourceGray) {
+            this.orientation = orientation;
+            this.isSourceGray = isSourceGray;
+            if (outImage.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+                grayPixels = ((DataBufferByte) outImage.getRaster().
+                        getDataBuffer()).getData();
+                rgbPixels = null;
+            } else {
+                grayPixels = null;
+                rgbPixels = ((DataBufferInt) outImage.getRaster().
+                        getDataBuffer()).getData();
+            }
+        }
+
+        /**
+         * @param y   Index of a row of the scaled image.
+         * @param row The row as packed ARGB.
+         */
+        void write(int y, int[] row) {
+            final int step = orientation.rowStep();
+            int i = orientation.rowStart(y);
+            if (rgbPixels != null) {
+                for (int argb : row) {
+                    rgbPixels[i] = argb;
+                    i += step;
+                }
+            } else if (isSourceGray || !isGray) {
+                for (int argb : row) {
+                    grayPixels[i] = (byte) argb;
+                    i += step;
+                }
+            } else {
+                for (int argb : row) {
+                    grayPixels[i] = (byte) toGray(argb);
+                    i += step;
+                }
+            }
+        }
+
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(FusedPipeline.class);
+
+    /**
+     * Bands will contain at least this many pixels, so that small images are
+     * not split up.
+     */
+    private static final int MIN_BAND_PIXELS = 256 * 1024;
+
+    private static final Set<Integer> SUPPORTED_IMAGE_TYPES =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+                    BufferedImage.TYPE_3BYTE_BGR,
+                    BufferedImage.TYPE_4BYTE_ABGR,
+                    BufferedImage.TYPE_BYTE_GRAY,
+                    BufferedImage.TYPE_INT_ARGB,
+                    BufferedImage.TYPE_INT_BGR,
+                    BufferedImage.TYPE_INT_RGB)));
+
+    private final List<Operation> operations;
+    private final Scale scale;
+    /** Transposes and rotations, in order. */
+    private final List<Operation> orientationOps;
+    private final boolean isGray;
+
+    /**
+     * @param image    Cropped and redacted image to which the operations
+     *                 would be applied.
+     * @param opList   Operation list.
+     * @param fullSize Full size of the source image.
+     * @return         Instance that will apply all of the operations
+     *                 following cropping and redaction in the given list, or
+     *                 <code>null</code> if they can't be fused or there is no
+     *                 advantage to doing so.
+     */
+    static FusedPipeline compile(BufferedImage image,
+                                 OperationList opList,
+                                 Dimension fullSize) {
+        if (!SUPPORTED_IMAGE_TYPES.contains(image.getType())) {
+            return null;
+        }
+        final boolean isSourceAlpha = image.getColorModel().hasAlpha();
+        final List<Operation> operations = new ArrayList<>();
+        final List<Operation> orientationOps = new ArrayList<>();
+        Scale scale = null;
+        boolean isGray = false;
+
+        for (Operation op : opList) {
+            if (!op.hasEffect(fullSize, opList)) {
+                continue;
+            }
+            if (op instanceof Scale) {
+                // The scaling must come first: resampling a rotated or
+                // grayed image gives a slightly different result.
+                if (scale != null || !orientationOps.isEmpty() || isGray) {
+                    return null;
+                }
+                scale = (Scale) op;
+            } else if (Transpose.HORIZONTAL.equals(op)) {
+                if (isGray) {
+                    return null;
+                }
+                orientationOps.add(op);
+            } else if (op instanceof Rotate) {
+                if (isGray || ((Rotate) op).getDegrees() % 90 != 0) {
+                    return null;
+                }
+                orientationOps.add(op);
+            } else if (ColorTransform.GRAY.equals(op)) {
+                // Conversion of translucent pixels depends on compositing.
+                if (isGray || isSourceAlpha) {
+                    return null;
+                }
+                isGray = true;
+            } else if (op instanceof Transpose ||
+                    op instanceof ColorTransform || op instanceof Sharpen ||
+                    op instanceof Overlay || op instanceof Redaction) {
+                return null;
+            } else {
+                continue;
+            }
+            operations.add(op);
+        }
+
+        // A lone scale or color transform would gain nothing.
+        if (operations.size() < 2 && orientationOps.isEmpty()) {
+            return null;
+        }
+        return new FusedPipeline(operations, scale, orientationOps, isGray);
+    }
+
+    private FusedPipeline(List<Operation> operations,
+                          Scale scale,
+                          List<Operation> orientationOps,
+                          boolean isGray) {
+        this.operations = Collections.unmodifiableList(operations);
+        this.scale = scale;
+        this.orientationOps = Collections.unmodifiableList(orientationOps);
+        this.isGray = isGray;
+    }
+
+    /**
+     * @return Operations applied by the instance, in order.
+     */
+    List<Operation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * @param image Image that was passed to {@link #compile}, which is not
+     *              modified.
+     * @param rf    Reduction factor that has already been applied to the
+     *              image.
+     * @return      New image.
+     */
+    BufferedImage apply(final BufferedImage image, ReductionFactor rf) {
+        final Stopwatch watch = new Stopwatch();
+        final Dimension sourceSize =
+                new Dimension(image.getWidth(), image.getHeight());
+        Dimension scaledSize = sourceSize;
+        ResampleContributions horizontal = null, vertical = null;
+        if (scale != null && scale.hasEffect()) {
+            final Dimension size =
+                    Java2DUtil.getScaledSize(sourceSize, scale, rf);
+            if (!size.equals(sourceSize)) {
+                final ResampleFilter filter =
+                        Java2DUtil.getResampleFilter(scale, sourceSize, size);
+                horizontal = new ResampleContributions(filter,
+                        sourceSize.width, size.width);
+                vertical = new ResampleContributions(filter,
+                        sourceSize.height, size.height);
+                scaledSize = size;
+            }
+        }
+
+        final Orientation orientation =
+                new Orientation(scaledSize.width, scaledSize.height);
+        for (Operation op : orientationOps) {
+            if (op instanceof Transpose) {
+                orientation.mirror();
+            } else {
+                final int turns = Math.round(
+                        ((Rotate) op).getDegrees() / 90f) % 4;
+                for (int i = 0; i < turns; i++) {
+                    orientation.rotate();
+                }
+            }
+        }
+
+        final boolean isSourceGray =
+                (image.getType() == BufferedImage.TYPE_BYTE_GRAY);
+        final int outputType;
+        if (isGray || isSourceGray) {
+            outputType = BufferedImage.TYPE_BYTE_GRAY;
+        } else if (image.getColorModel().hasAlpha()) {
+            outputType = BufferedImage.TYPE_INT_ARGB;
+        } else {
+            outputType = BufferedImage.TYPE_INT_RGB;
+        }
+        final BufferedImage outImage = new BufferedImage(
+                orientation.width, orientation.height, outputType);
+        final RowWriter writer = new RowWriter(outImage, orientation,
+                isSourceGray);
+
+        if (horizontal == null) {
+            run(sourceSize.height, sourceSize.width, (fromRow, toRow) -> {
+                final RowReader reader = new RowReader(image);
+                final int[] row = new int[sourceSize.width];
+                for (int y = fromRow; y < toRow; y++) {
+                    reader.read(y, row);
+                    writer.write(y, row);
+                }
+            });
+        } else {
+            final ResampleContributions h = horizontal, v = vertical;
+            final int width = scaledSize.width;
+            final int[] work = new int[sourceSize.height * width];
+            final int channels = isSourceGray ? 1 :
+                    (image.getColorModel().hasAlpha() ? 4 : 3);
+            run(sourceSize.height, sourceSize.width, (fromRow, toRow) -> {
+                final RowReader reader = new RowReader(image);
+                final int[] row = new int[sourceSize.width];
+                for (int y = fromRow; y < toRow; y++) {
+                    reader.read(y, row);
+                    final int offset = y * width;
+                    for (int x = 0; x < width; x++) {
+                        work[offset + x] = resample(h, channels, x, row, 0, 1);
+                    }
+                }
+            });
+            run(scaledSize.height, width, (fromRow, toRow) -> {
+                final int[] row = new int[width];
+                for (int y = fromRow; y < toRow; y++) {
+                    for (int x = 0; x < width; x++) {
+                        row[x] = resample(v, channels, y, work, x, width);
+                    }
+                    writer.write(y, row);
+                }
+            });
+        }
+
+        LOGGER.debug("apply(): applied {} to {}x{} image in {} msec",
+                operations, sourceSize.width, sourceSize.height,
+                watch.timeElapsed());
+        return outImage;
+    }
+
+    /**
+     * @param argb Opaque pixel as packed ARGB.
+     * @return     Luma of the given pixel, as computed by Java 2D when
+     *             drawing an RGB image into a gray one.
+     */
+    private static int toGray(int argb) {
+        return (77 * ((argb >> 16) & 0xff) + 150 * ((argb >> 8) & 0xff) +
+                29 * (argb & 0xff) + 128) >> 8;
+    }
+
+    /**
+     * Invokes the variant of {@link ResampleContributions#resample} that is
+     * appropriate for the given number of channels.
+     */
+    private static int resample(ResampleContributions contributions,
+                                int channels, int i, int[] source,
+                                int offset, int stride) {
+        switch (channels) {
+            case 1:
+                return contributions.resampleGray(i, source, offset, stride);
+            case 3:
+                return contributions.resampleOpaque(i, source, offset,
+                        stride);
+            default:
+                return contributions.resample(i, source, offset, stride);
+        }
+    }
+
+    /**
+     * Runs the given task over the given number of rows, in parallel bands
+     * if the rows are numerous enough. One band is processed in the calling
+     * thread and the rest are submitted to the {@link ThreadPool}; any of
+     * them that have not started by the time the calling thread is done with
+     * its own are processed in the calling thread as well. The time spent
+     * processing each band, in whichever thread, is summed into the
+     * <code>fused_bands</code> stage of the {@link RequestTrace current
+     * trace}, which is passed to the bands explicitly because pool threads
+     * can't see it.
+     *
+     * @param numRows  Number of rows.
+     * @param rowWidth Number of pixels per row.
+     * @param task     Task to run.
+     */
+    private static void run(int numRows, int rowWidth, RowTask task) {
+        final int numBands = (int) Math.max(1, Math.min(
+                Runtime.getRuntime().availableProcessors(),
+                (long) numRows * rowWidth / MIN_BAND_PIXELS));
+        if (numBands < 2) {
+            task.run(0, numRows);
+            return;
+        }
+
+        final RequestTrace trace = RequestTrace.current();
+        final List<Band> bands = new ArrayList<>(numBands);
+        for (int i = 0; i < numBands; i++) {
+            bands.add(new Band(task, (int) ((long) numRows * i / numBands),
+                    (int) ((long) numRows * (i + 1) / numBands), trace));
+        }
+        for (int i = 1; i < bands.size(); i++) {
+            ThreadPool.getInstance().submit(bands.get(i));
+        }
+        try {
+            for (Band band : bands) {
+                band.run();
+                band.result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+
+}
@@ -4,6 +4,7 @@ import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.image.Compression;
 import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
 import edu.illinois.library.cantaloupe.operation.Color;
 import edu.illinois.library.cantaloupe.operation.ColorTransform;
 import edu.illinois.library.cantaloupe.operation.Crop;
@@ -116,6 +117,7 @@ class GraphicsMagickProcessor extends AbstractMagickProcessor
 
             try {
                 LOGGER.info("readFormats(): invoking {}", commandString);
+                Metrics.processForked(pb.command());
                 final Process process = pb.start();
 
                 final InputStream processInputStream = process.getInputStream();
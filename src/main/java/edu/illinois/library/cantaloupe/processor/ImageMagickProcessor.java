@@ -4,6 +4,7 @@ import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.image.Compression;
 import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
 import edu.illinois.library.cantaloupe.operation.Color;
 import edu.illinois.library.cantaloupe.operation.ColorTransform;
 import edu.illinois.library.cantaloupe.operation.Crop;
@@ -117,6 +118,7 @@ class ImageMagickProcessor extends AbstractMagickProcessor
                 final String commandString = StringUtils.join(pb.command(), " ");
                 LOGGER.debug("getIMVersion(): trying to invoke {}",
                         commandString);
+                Metrics.processForked(pb.command());
                 final Process process = pb.start();
                 process.waitFor();
                 LOGGER.info("getIMVersion(): found magick command; assuming " +
@@ -134,6 +136,7 @@ class ImageMagickProcessor extends AbstractMagickProcessor
                     final String commandString = StringUtils.join(pb.command(), " ");
                     LOGGER.debug("getIMVersion(): trying to invoke {}",
                             commandString);
+                    Metrics.processForked(pb.command());
                     final Process process = pb.start();
                     process.waitFor();
                     LOGGER.info("getIMVersion(): found identify command; " +
@@ -205,6 +208,7 @@ class ImageMagickProcessor extends AbstractMagickProcessor
                 final String commandString = String.join(" ", pb.command());
 
                 LOGGER.info("readFormats(): invoking {}", commandString);
+                Metrics.processForked(pb.command());
                 final Process process = pb.start();
                 final InputStream pis = process.getInputStream();
                 final InputStreamReader isReader =
@@ -638,7 +642,9 @@ class ImageMagickProcessor extends AbstractMagickProcessor
 
     @Override
     public InitializationException getInitializationException() {
-        initialize();
+        if (!initializationAttempted.get()) {
+            initialize();
+        }
         return initializationException;
     }
 
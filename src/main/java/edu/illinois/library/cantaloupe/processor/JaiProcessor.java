@@ -246,7 +246,7 @@ class JaiProcessor extends AbstractImageIOProcessor
             throw new ProcessorException(e.getMessage(), e);
         } finally {
             if (reader != null) {
-                reader.dispose();
+                disposeReader();
             }
         }
     }
@@ -22,25 +22,26 @@ import edu.illinois.library.cantaloupe.operation.overlay.Overlay;
 import edu.illinois.library.cantaloupe.processor.imageio.ImageReader;
 import edu.illinois.library.cantaloupe.resolver.InputStreamStreamSource;
 import edu.illinois.library.cantaloupe.util.Stopwatch;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.awt.BasicStroke;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
-import java.awt.Shape;
-import java.awt.font.FontRenderContext;
-import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorConvertOp;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
@@ -195,20 +196,47 @@ public final class Java2DUtil {
 
     /**
      * @param overlay
-     * @return Overlay image.
+     * @return Overlay image, converted to premultiplied ARGB, which must not
+     *         be modified. It is cached in the {@link RenderedOverlayCache}.
      */
     static BufferedImage getOverlayImage(ImageOverlay overlay)
             throws IOException {
-        ImageReader reader = null;
-        try (InputStream is = overlay.openStream()) {
-            InputStreamStreamSource isss = new InputStreamStreamSource(is);
-            reader = new ImageReader(isss, Format.PNG);
-            return reader.read();
-        } finally {
-            if (reader != null) {
-                reader.dispose();
+        final RenderedOverlayCache cache = RenderedOverlayCache.getInstance();
+        BufferedImage image = cache.getImage(overlay.getURI());
+        if (image == null) {
+            ImageReader reader = null;
+            try (InputStream is = overlay.openStream()) {
+                InputStreamStreamSource isss = new InputStreamStreamSource(is);
+                reader = new ImageReader(isss, Format.PNG);
+                image = convertToPremultipliedARGB(reader.read());
+            } finally {
+                if (reader != null) {
+                    reader.dispose();
+                }
             }
+            cache.putImage(overlay.getURI(), image);
+        }
+        return image;
+    }
+
+    /**
+     * @return Copy of the given image of type {@link
+     *         BufferedImage#TYPE_INT_ARGB_PRE}, which Java 2D can draw onto
+     *         other images most efficiently, or the given image if it is
+     *         already of that type.
+     */
+    private static BufferedImage convertToPremultipliedARGB(
+            BufferedImage inImage) {
+        if (inImage.getType() == BufferedImage.TYPE_INT_ARGB_PRE) {
+            return inImage;
         }
+        final BufferedImage outImage = new BufferedImage(
+                inImage.getWidth(), inImage.getHeight(),
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        final Graphics2D g2d = outImage.createGraphics();
+        g2d.drawImage(inImage, 0, 0, null);
+        g2d.dispose();
+        return outImage;
     }
 
     /**
@@ -282,7 +310,6 @@ public final class Java2DUtil {
                     RenderingHints.VALUE_RENDER_QUALITY);
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                     RenderingHints.VALUE_ANTIALIAS_ON);
-            g2d.drawImage(baseImage, 0, 0, null);
             g2d.drawImage(overlayImage, overlayX, overlayY, null);
             g2d.dispose();
             logger.debug("overlayImage() executed in {} msec",
@@ -294,6 +321,10 @@ public final class Java2DUtil {
     /**
      * <p>Overlays a string onto an image.</p>
      *
+     * <p>The overlay is laid out and rasterized by a {@link RenderedString}
+     * cached in the {@link RenderedOverlayCache}, so overlaying the same
+     * string onto many images of similar size is little more than a copy.</p>
+     *
      * @param baseImage Image to overlay the string onto.
      * @param overlay   String to overlay onto the image.
      * @return Image with a string overlaid on top of it.
@@ -302,53 +333,22 @@ public final class Java2DUtil {
                                                final StringOverlay overlay) {
         if (overlay.hasEffect()) {
             final Stopwatch watch = new Stopwatch();
-
-            final Graphics2D g2d = baseImage.createGraphics();
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                    RenderingHints.VALUE_ANTIALIAS_ON);
-            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
-                    RenderingHints.VALUE_TEXT_ANTIALIAS_GASP);
-            g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
-                    RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-            g2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
-                    RenderingHints.VALUE_STROKE_PURE);
-            g2d.setRenderingHint(RenderingHints.KEY_RENDERING,
-                    RenderingHints.VALUE_RENDER_QUALITY);
-
-            // Graphics2D.drawString() does not understand newlines. Each line
-            // has to be drawn separately.
-            Font font = overlay.getFont();
-            float fontSize = font.getSize();
+            final RenderedOverlayCache cache =
+                    RenderedOverlayCache.getInstance();
+            final Dimension imageSize =
+                    new Dimension(baseImage.getWidth(), baseImage.getHeight());
             final int inset = overlay.getInset();
-            final String[] lines = StringUtils.split(overlay.getString(), "\n");
-            final int padding = getBoxPadding(overlay);
-            int lineHeight;
-            int totalHeight;
-            int[] lineWidths;
-            int maxLineWidth;
-            boolean fits = false;
 
             // Starting at the initial font size, loop through smaller sizes
             // down to the minimum in order to find the largest that will fit
             // entirely within the image.
+            Font font = overlay.getFont();
+            float fontSize = font.getSize();
+            RenderedString rendered;
+            boolean fits = false;
             while (true) {
-                maxLineWidth = 0;
-                g2d.setFont(font);
-                final FontMetrics fm = g2d.getFontMetrics();
-                lineHeight = fm.getHeight();
-                totalHeight = lineHeight * lines.length;
-                // Find the max line width.
-                lineWidths = new int[lines.length];
-                for (int i = 0; i < lines.length; i++) {
-                    lineWidths[i] = fm.stringWidth(lines[i]);
-                    if (lineWidths[i] > maxLineWidth) {
-                        maxLineWidth = lineWidths[i];
-                    }
-                }
-
-                // Will the overlay fit inside the image?
-                if (maxLineWidth + (inset * 2) + (padding * 2) <= baseImage.getWidth() &&
-                        totalHeight + (inset * 2) + (padding * 2) <= baseImage.getHeight()) {
+                rendered = cache.getString(overlay, font);
+                if (rendered.fits(imageSize, inset)) {
                     fits = true;
                     break;
                 } else {
@@ -366,90 +366,27 @@ public final class Java2DUtil {
                         fontSize, overlay.getMinSize(),
                         overlay.getFont().getSize());
 
-                g2d.drawImage(baseImage, 0, 0, null);
-
                 final Rectangle bgBox = getBoundingBox(overlay, inset,
-                        lineWidths, lineHeight,
-                        new Dimension(baseImage.getWidth(), baseImage.getHeight()));
-
-                // Draw the background, if it is not transparent.
-                if (overlay.getBackgroundColor().getAlpha() > 0) {
-                    g2d.setPaint(overlay.getBackgroundColor().toColor());
-                    g2d.fillRect(bgBox.x, bgBox.y, bgBox.width,
-                            bgBox.height);
-                }
+                        rendered.getLineWidths(), rendered.getLineHeight(),
+                        imageSize);
+                final int margin = rendered.getMargin();
 
-                // Draw each line individually.
-                for (int i = 0; i < lines.length; i++) {
-                    int x, y;
-                    switch (overlay.getPosition()) {
-                        case TOP_LEFT:
-                            x = bgBox.x + padding;
-                            y = bgBox.y + lineHeight * i + padding;
-                            break;
-                        case TOP_RIGHT:
-                            x = bgBox.x + maxLineWidth - lineWidths[i] + padding;
-                            y = bgBox.y + lineHeight * i + padding;
-                            break;
-                        case BOTTOM_LEFT:
-                            x = bgBox.x + padding;
-                            y = bgBox.y + lineHeight * i + padding;
-                            break;
-                        // case BOTTOM_RIGHT: will be handled in default:
-                        case TOP_CENTER:
-                            x = bgBox.x + Math.round((bgBox.width - lineWidths[i]) / 2f);
-                            y = bgBox.y + lineHeight * i + padding;
-                            break;
-                        case BOTTOM_CENTER:
-                            x = bgBox.x + Math.round((bgBox.width - lineWidths[i]) / 2f);
-                            y = bgBox.y + lineHeight * i + padding;
-                            break;
-                        case LEFT_CENTER:
-                            x = bgBox.x + padding;
-                            y = bgBox.y + lineHeight * i + padding;
-                            break;
-                        case RIGHT_CENTER:
-                            x = bgBox.x + maxLineWidth - lineWidths[i] + padding;
-                            y = bgBox.y + lineHeight * i + padding;
-                            break;
-                        case CENTER:
-                            x = bgBox.x + Math.round((bgBox.width - lineWidths[i]) / 2f);
-                            y = bgBox.y + lineHeight * i + padding;
-                            break;
-                        default: // bottom right
-                            x = bgBox.x + maxLineWidth - lineWidths[i] + padding;
-                            y = bgBox.y + lineHeight * i + padding;
-                            break;
-                    }
-
-                    // This is arbitrary fudge, but it seems to work OK.
-                    y += lineHeight * 0.73;
-
-                    // Draw the text outline.
-                    if (overlay.getStrokeWidth() > 0.001f) {
-                        final FontRenderContext frc = g2d.getFontRenderContext();
-                        final GlyphVector gv = font.createGlyphVector(frc, lines[i]);
-                        final Shape shape = gv.getOutline(x, y);
-                        g2d.setStroke(new BasicStroke(overlay.getStrokeWidth()));
-                        g2d.setPaint(overlay.getStrokeColor().toColor());
-                        g2d.draw(shape);
-                    }
+                final Graphics2D g2d = baseImage.createGraphics();
+                g2d.drawImage(rendered.getImage(), bgBox.x - margin,
+                        bgBox.y - margin, null);
+                g2d.dispose();
 
-                    // Draw the string.
-                    g2d.setPaint(overlay.getColor().toColor());
-                    g2d.drawString(lines[i], x, y);
-                }
                 logger.debug("overlayString() executed in {} msec",
                         watch.timeElapsed());
             } else {
+                final Dimension boxSize = rendered.getBoxSize();
                 logger.debug("overlayString(): {}-point ({}x{}) text won't fit in {}x{} image",
                         fontSize,
-                        maxLineWidth + inset,
-                        totalHeight + inset,
+                        boxSize.width + inset,
+                        boxSize.height + inset,
                         baseImage.getWidth(),
                         baseImage.getHeight());
             }
-            g2d.dispose();
         }
         return baseImage;
     }
@@ -461,7 +398,7 @@ public final class Java2DUtil {
                                             final Dimension imageSize) {
         // If the overlay background is visible, add some padding between the
         // text and the margin.
-        final int padding = getBoxPadding(overlay);
+        final int padding = RenderedString.getBoxPadding(overlay);
         final int boxWidth = NumberUtils.max(lineWidths) + padding * 2;
         final int boxHeight = lineHeight * lineWidths.length + padding * 2;
         int boxX, boxY;
@@ -507,10 +444,6 @@ public final class Java2DUtil {
         return new Rectangle(boxX, boxY, boxWidth, boxHeight);
     }
 
-    private static int getBoxPadding(StringOverlay overlay) {
-        return (overlay.getBackgroundColor().getAlpha() > 0) ? 5 : 0;
-    }
-
     /**
      * Reduces an image's component size to 8 bits if greater.
      *
@@ -716,26 +649,7 @@ public final class Java2DUtil {
 
         final Dimension sourceSize = new Dimension(
                 inImage.getWidth(), inImage.getHeight());
-
-        // Calculate the size that the image will need to be scaled to based
-        // on the source image size, scale, and already-applied reduction
-        // factor.
-        Dimension targetSize;
-        if (scale.getPercent() != null) {
-            targetSize = new Dimension();
-            targetSize.width = (int) Math.round(sourceSize.width *
-                    (scale.getPercent() / rf.getScale()));
-            targetSize.height = (int) Math.round(sourceSize.height *
-                    (scale.getPercent() / rf.getScale()));
-        } else {
-            targetSize = scale.getResultingSize(sourceSize);
-        }
-
-        // com.mortennobel.imagescaling.ResampleFilter requires a target size
-        // of at least 3 pixels on a side.
-        // OpenSeadragon has been known to request smaller.
-        targetSize.width = (targetSize.width < 3) ? 3 : targetSize.width;
-        targetSize.height = (targetSize.height < 3) ? 3 : targetSize.height;
+        final Dimension targetSize = getScaledSize(sourceSize, scale, rf);
 
         BufferedImage scaledImage = inImage;
         if (scale.hasEffect() && (targetSize.width != sourceSize.width ||
@@ -744,21 +658,8 @@ public final class Java2DUtil {
 
             final ResampleOp resampleOp = new ResampleOp(
                     targetSize.width, targetSize.height);
-
-            // Try to use the requested resample filter.
-            ResampleFilter filter = null;
-            if (scale.getFilter() != null) {
-                filter = scale.getFilter().toResampleFilter();
-            }
-            // No particular filter requested, so select a default.
-            if (filter == null) {
-                if (targetSize.width < sourceSize.width ||
-                        targetSize.height < sourceSize.height) {
-                    filter = DEFAULT_DOWNSCALE_FILTER.toResampleFilter();
-                } else {
-                    filter = DEFAULT_UPSCALE_FILTER.toResampleFilter();
-                }
-            }
+            final ResampleFilter filter =
+                    getResampleFilter(scale, sourceSize, targetSize);
             resampleOp.setFilter(filter);
 
             scaledImage = resampleOp.filter(inImage, null);
@@ -772,6 +673,70 @@ public final class Java2DUtil {
         return scaledImage;
     }
 
+    /**
+     * @param scale      Scale operation.
+     * @param sourceSize Size of the image being scaled.
+     * @param targetSize Size that the image is being scaled to.
+     * @return           Resample filter requested by the given scale
+     *                   operation, or a default one appropriate for the
+     *                   direction of scaling.
+     * @since 3.5
+     */
+    static ResampleFilter getResampleFilter(final Scale scale,
+                                            final Dimension sourceSize,
+                                            final Dimension targetSize) {
+        // Try to use the requested resample filter.
+        ResampleFilter filter = null;
+        if (scale.getFilter() != null) {
+            filter = scale.getFilter().toResampleFilter();
+        }
+        // No particular filter requested, so select a default.
+        if (filter == null) {
+            if (targetSize.width < sourceSize.width ||
+                    targetSize.height < sourceSize.height) {
+                filter = DEFAULT_DOWNSCALE_FILTER.toResampleFilter();
+            } else {
+                filter = DEFAULT_UPSCALE_FILTER.toResampleFilter();
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Calculates the size that an image will need to be scaled to based on
+     * its size, the scale, and an already-applied reduction factor.
+     *
+     * @param sourceSize Size of the image being scaled.
+     * @param scale      Requested size ignoring any reduction factor.
+     * @param rf         Reduction factor that has already been applied to
+     *                   the image.
+     * @return           Size that the image will be scaled to by {@link
+     *                   #scaleImage(BufferedImage, Scale, ReductionFactor)}
+     *                   if the scale has an effect.
+     * @since 3.5
+     */
+    static Dimension getScaledSize(final Dimension sourceSize,
+                                   final Scale scale,
+                                   final ReductionFactor rf) {
+        Dimension targetSize;
+        if (scale.getPercent() != null) {
+            targetSize = new Dimension();
+            targetSize.width = (int) Math.round(sourceSize.width *
+                    (scale.getPercent() / rf.getScale()));
+            targetSize.height = (int) Math.round(sourceSize.height *
+                    (scale.getPercent() / rf.getScale()));
+        } else {
+            targetSize = scale.getResultingSize(sourceSize);
+        }
+
+        // com.mortennobel.imagescaling.ResampleFilter requires a target size
+        // of at least 3 pixels on a side.
+        // OpenSeadragon has been known to request smaller.
+        targetSize.width = (targetSize.width < 3) ? 3 : targetSize.width;
+        targetSize.height = (targetSize.height < 3) ? 3 : targetSize.height;
+        return targetSize;
+    }
+
     /**
      * @param inImage Image to sharpen.
      * @param sharpen The sharpen operation.
@@ -799,6 +764,122 @@ public final class Java2DUtil {
         return sharpenedImage;
     }
 
+    /**
+     * <p>Finds the darkest and brightest samples of any color channel of an
+     * image, as 8-bit RGB intensities, in one row-major pass.</p>
+     *
+     * <p>The samples of images of the standard 8-bit RGB types are read
+     * directly from their data buffers. Others are read a row at a time via
+     * {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.</p>
+     *
+     * @param image Image to scan.
+     * @return      Contrast range of the image.
+     * @since 3.5
+     */
+    static ContrastRange getContrastRange(final BufferedImage image) {
+        final Stopwatch watch = new Stopwatch();
+        final Raster raster = image.getRaster();
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        int low = 255, high = 0;
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB: {
+                final int[] data = ((DataBufferInt) raster.getDataBuffer()).
+                        getData();
+                for (int y = 0; y < height; y++) {
+                    final int offset = getRowOffset(raster, y);
+                    for (int i = offset; i < offset + width; i++) {
+                        final int rgb = data[i];
+                        for (int shift = 0; shift <= 16; shift += 8) {
+                            final int sample = (rgb >>> shift) & 0xff;
+                            if (sample < low) {
+                                low = sample;
+                            }
+                            if (sample > high) {
+                                high = sample;
+                            }
+                        }
+                    }
+                }
+                break;
+            }
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                final byte[] data = ((DataBufferByte) raster.getDataBuffer()).
+                        getData();
+                final ComponentSampleModel sampleModel =
+                        (ComponentSampleModel) raster.getSampleModel();
+                final int pixelStride = sampleModel.getPixelStride();
+                final int[] bandOffsets = sampleModel.getBandOffsets();
+                for (int y = 0; y < height; y++) {
+                    final int offset = getRowOffset(raster, y);
+                    for (int i = offset; i < offset + width * pixelStride;
+                         i += pixelStride) {
+                        // Bands 0-2 are RGB; band 3, if present, is alpha.
+                        for (int b = 0; b < 3; b++) {
+                            final int sample = data[i + bandOffsets[b]] & 0xff;
+                            if (sample < low) {
+                                low = sample;
+                            }
+                            if (sample > high) {
+                                high = sample;
+                            }
+                        }
+                    }
+                }
+                break;
+            }
+            default: {
+                final int[] row = new int[width];
+                for (int y = 0; y < height; y++) {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                    for (int rgb : row) {
+                        for (int shift = 0; shift <= 16; shift += 8) {
+                            final int sample = (rgb >>> shift) & 0xff;
+                            if (sample < low) {
+                                low = sample;
+                            }
+                            if (sample > high) {
+                                high = sample;
+                            }
+                        }
+                    }
+                }
+                break;
+            }
+        }
+
+        final ContrastRange range = new ContrastRange(low, high);
+        logger.debug("getContrastRange(): found {} in {}x{} image in {} msec",
+                range, width, height, watch.timeElapsed());
+        return range;
+    }
+
+    /**
+     * @param raster Raster of a {@link BufferedImage}, which may be a child
+     *               of a larger raster.
+     * @param y      Row index.
+     * @return       Index of the first element of the given row within the
+     *               raster's data buffer.
+     */
+    private static int getRowOffset(Raster raster, int y) {
+        final SampleModel sampleModel = raster.getSampleModel();
+        final int x = -raster.getSampleModelTranslateX();
+        y -= raster.getSampleModelTranslateY();
+        final int offset = raster.getDataBuffer().getOffset();
+        if (sampleModel instanceof ComponentSampleModel) {
+            final ComponentSampleModel csm =
+                    (ComponentSampleModel) sampleModel;
+            return offset + y * csm.getScanlineStride() +
+                    x * csm.getPixelStride();
+        }
+        final SinglePixelPackedSampleModel sppsm =
+                (SinglePixelPackedSampleModel) sampleModel;
+        return offset + y * sppsm.getScanlineStride() + x;
+    }
+
     /**
      * <p>Linearly stretches the contrast of an image to occupy the full range
      * of intensities. Histogram gaps will result.</p>
@@ -807,86 +888,111 @@ public final class Java2DUtil {
      *
      * @param inImage Image to stretch.
      * @return Stretched image.
+     * @see #getContrastRange(BufferedImage)
      */
     static BufferedImage stretchContrast(BufferedImage inImage) {
-        if (inImage.getType() != BufferedImage.TYPE_BYTE_INDEXED) {
-            // Stretch only if there is at least this difference between
-            // minimum and maximum luminance.
-            final float threshold = 0.01f;
-            final float maxColor =
-                    (float) Math.pow(2, inImage.getColorModel().getComponentSize(0));
+        if (inImage.getType() == BufferedImage.TYPE_BYTE_INDEXED) {
+            logger.debug("stretchContrast(): can't stretch an indexed image.");
+            return inImage;
+        }
+        return stretchContrast(inImage, getContrastRange(inImage));
+    }
 
-            final Stopwatch watch = new Stopwatch();
-            final int minX = inImage.getMinX();
-            final int minY = inImage.getMinY();
-            final int width = inImage.getWidth();
-            final int height = inImage.getHeight();
-            float lowRgb = maxColor, highRgb = 0;
-
-            // Scan every pixel to find the darkest and brightest.
-            for (int x = minX; x < minX + width; x++) {
-                for (int y = minY; y < minY + height; y++) {
-                    final int color = inImage.getRGB(x, y);
-                    final int red = (color >>> 16) & 0xFF;
-                    final int green = (color >>> 8) & 0xFF;
-                    final int blue = color & 0xFF;
-                    if (red < lowRgb) {
-                        lowRgb = red;
-                    }
-                    if (green < lowRgb) {
-                        lowRgb = green;
-                    }
-                    if (blue < lowRgb) {
-                        lowRgb = blue;
-                    }
-                    if (red > highRgb) {
-                        highRgb = red;
-                    }
-                    if (green > highRgb) {
-                        highRgb = green;
-                    }
-                    if (blue > highRgb) {
-                        highRgb = blue;
+    /**
+     * <p>Linearly stretches the given range of intensities of an image to
+     * occupy the full range of intensities, in place, in one row-major pass.
+     * Histogram gaps will result. Intensities outside of the given range are
+     * clamped to it. The resulting pixels are opaque.</p>
+     *
+     * <p>Using the range of a whole image to stretch parts of it (like tiles)
+     * gives them consistent luminance.</p>
+     *
+     * <p>Does not work with indexed images.</p>
+     *
+     * @param inImage Image to stretch.
+     * @param range   Range of intensities to stretch, e.g. as returned by
+     *                {@link #getContrastRange(BufferedImage)}.
+     * @return Stretched image.
+     * @since 3.5
+     */
+    static BufferedImage stretchContrast(final BufferedImage inImage,
+                                         final ContrastRange range) {
+        if (inImage.getType() == BufferedImage.TYPE_BYTE_INDEXED) {
+            logger.debug("stretchContrast(): can't stretch an indexed image.");
+            return inImage;
+        }
+        if (!range.isStretchable()) {
+            logger.debug("stretchContrast(): not enough contrast to stretch.");
+            return inImage;
+        }
+
+        final Stopwatch watch = new Stopwatch();
+        final WritableRaster raster = inImage.getRaster();
+        final int width = inImage.getWidth();
+        final int height = inImage.getHeight();
+        final int[] table = range.toLookupTable();
+
+        switch (inImage.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB: {
+                final int[] data = ((DataBufferInt) raster.getDataBuffer()).
+                        getData();
+                final int alpha = inImage.getColorModel().hasAlpha() ?
+                        0xff000000 : 0;
+                for (int y = 0; y < height; y++) {
+                    final int offset = getRowOffset(raster, y);
+                    for (int i = offset; i < offset + width; i++) {
+                        final int rgb = data[i];
+                        data[i] = alpha |
+                                (table[(rgb >>> 16) & 0xff] << 16) |
+                                (table[(rgb >>> 8) & 0xff] << 8) |
+                                table[rgb & 0xff];
                     }
                 }
+                break;
             }
-
-            if (Math.abs(highRgb - lowRgb) > threshold) {
-                for (int x = minX; x < minX + width; x++) {
-                    for (int y = minY; y < minY + height; y++) {
-                        final int color = inImage.getRGB(x, y);
-                        final int red = (color >>> 16) & 0xFF;
-                        final int green = (color >>> 8) & 0xFF;
-                        final int blue = color & 0xFF;
-
-                        float stretchedRed =
-                                Math.abs((red - lowRgb) / (highRgb - lowRgb));
-                        if (stretchedRed > 1) {
-                            stretchedRed = 1;
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                final byte[] data = ((DataBufferByte) raster.getDataBuffer()).
+                        getData();
+                final ComponentSampleModel sampleModel =
+                        (ComponentSampleModel) raster.getSampleModel();
+                final int pixelStride = sampleModel.getPixelStride();
+                final int[] bandOffsets = sampleModel.getBandOffsets();
+                final boolean hasAlpha = (bandOffsets.length > 3);
+                for (int y = 0; y < height; y++) {
+                    final int offset = getRowOffset(raster, y);
+                    for (int i = offset; i < offset + width * pixelStride;
+                         i += pixelStride) {
+                        for (int b = 0; b < 3; b++) {
+                            final int j = i + bandOffsets[b];
+                            data[j] = (byte) table[data[j] & 0xff];
                         }
-                        float stretchedGreen =
-                                Math.abs((green - lowRgb) / (highRgb - lowRgb));
-                        if (stretchedGreen > 1) {
-                            stretchedGreen = 1;
+                        if (hasAlpha) {
+                            data[i + bandOffsets[3]] = (byte) 0xff;
                         }
-                        float stretchedBlue =
-                                Math.abs((blue - lowRgb) / (highRgb - lowRgb));
-                        if (stretchedBlue > 1) {
-                            stretchedBlue = 1;
-                        }
-                        final java.awt.Color outColor = new java.awt.Color(
-                                stretchedRed, stretchedGreen, stretchedBlue);
-                        inImage.setRGB(x, y, outColor.getRGB());
                     }
                 }
-                logger.debug("stretchContrast(): rescaled in {} msec ",
-                        watch.timeElapsed());
-            } else {
-                logger.debug("stretchContrast(): not enough contrast to stretch.");
+                break;
+            }
+            default: {
+                final int[] row = new int[width];
+                for (int y = 0; y < height; y++) {
+                    inImage.getRGB(0, y, width, 1, row, 0, width);
+                    for (int x = 0; x < width; x++) {
+                        final int rgb = row[x];
+                        row[x] = 0xff000000 |
+                                (table[(rgb >>> 16) & 0xff] << 16) |
+                                (table[(rgb >>> 8) & 0xff] << 8) |
+                                table[rgb & 0xff];
+                    }
+                    inImage.setRGB(0, y, width, 1, row, 0, width);
+                }
+                break;
             }
-        } else {
-            logger.debug("stretchContrast(): can't stretch an indexed image.");
         }
+        logger.debug("stretchContrast(): stretched {} in {} msec", range,
+                watch.timeElapsed());
         return inImage;
     }
 
@@ -1,24 +1,46 @@
 package edu.illinois.library.cantaloupe.processor;
 
+import edu.illinois.library.cantaloupe.image.Identifier;
 import edu.illinois.library.cantaloupe.image.Info;
 import edu.illinois.library.cantaloupe.operation.Normalize;
 import edu.illinois.library.cantaloupe.operation.OperationList;
 import edu.illinois.library.cantaloupe.operation.ReductionFactor;
 import edu.illinois.library.cantaloupe.processor.imageio.ImageReader;
+import edu.illinois.library.cantaloupe.processor.imageio.ImageWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.EnumSet;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
  * <p>Processor using the Java 2D and ImageIO frameworks.</p>
+ *
+ * <p>Large regions of TIFF sources that only need to be cropped, scaled,
+ * and/or converted to gray are processed by a {@link StripPipeline} to limit
+ * memory use.</p>
+ *
+ * <p>When normalizing, only the requested region is read, and it is
+ * normalized using the {@link #getContrastRange contrast range} of the whole
+ * image, which is sampled once per image.</p>
  */
 class Java2dProcessor extends AbstractJava2DProcessor
         implements StreamProcessor, FileProcessor {
 
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(Java2dProcessor.class);
+
+    /**
+     * Approximate number of pixels from which the histogram of a source
+     * image is sampled when normalizing.
+     */
+    private static final long CONTRAST_RANGE_SAMPLE_PIXELS = 1024 * 1024;
+
     @Override
     public void process(final OperationList ops,
                         final Info imageInfo,
@@ -26,30 +48,88 @@ class Java2dProcessor extends AbstractJava2DProcessor
             throws ProcessorException {
         super.process(ops, imageInfo, outputStream);
 
-        ImageReader reader = null;
         try {
-            reader = getReader();
+            // If the region is fully redacted, there's no need to read it.
+            if (processRedactedRegion(ops, imageInfo, outputStream)) {
+                return;
+            }
+
+            if (StripPipeline.isEligible(ops, imageInfo, getSourceFormat())) {
+                final BufferedImage image =
+                        new StripPipeline(getReader(), ops, imageInfo).getImage();
+                new ImageWriter(ops).write(image, outputStream);
+                return;
+            }
+
             final ReductionFactor rf = new ReductionFactor();
             final Set<ImageReader.Hint> hints =
                     EnumSet.noneOf(ImageReader.Hint.class);
 
+            ContrastRange contrastRange = null;
             if (ops.getFirst(Normalize.class) != null) {
-                // When normalizing, the reader needs to read the entire image
-                // so that its histogram can be sampled accurately. This will
-                // preserve the luminance across tiles.
-                hints.add(ImageReader.Hint.IGNORE_CROP);
+                // When normalizing, the histogram of the entire image is
+                // needed in order to preserve the luminance across tiles.
+                // If it isn't available, the reader needs to read the entire
+                // image.
+                contrastRange = getContrastRange(ops, imageInfo);
+                if (contrastRange == null) {
+                    hints.add(ImageReader.Hint.IGNORE_CROP);
+                }
             }
 
-            BufferedImage image = reader.read(ops, imageInfo.getOrientation(),
-                    rf, hints);
-            postProcess(image, hints, ops, imageInfo, rf, outputStream);
+            BufferedImage image = readImage(ops, imageInfo, rf, hints);
+            postProcess(image, hints, ops, imageInfo, rf, contrastRange,
+                    outputStream);
         } catch (IOException e) {
             throw new ProcessorException(e.getMessage(), e);
+        } catch (UncheckedIOException e) {
+            throw new ProcessorException(e.getMessage(), e.getCause());
         } finally {
-            if (reader != null) {
-                reader.dispose();
+            disposeReader();
+        }
+    }
+
+    /**
+     * <p>Override that samples the histogram of the whole source image from
+     * its smallest resolution, subsampled to around {@link
+     * #CONTRAST_RANGE_SAMPLE_PIXELS} pixels, and caches it in the {@link
+     * ContrastRangeCache}.</p>
+     *
+     * @return Contrast range, or <code>null</code> if the source image could
+     *         not be sampled.
+     */
+    @Override
+    ContrastRange getContrastRange(OperationList opList, Info imageInfo) {
+        final ContrastRangeCache cache = ContrastRangeCache.getInstance();
+        final Identifier identifier = opList.getIdentifier();
+        ContrastRange range = cache.get(identifier);
+        if (range == null) {
+            try {
+                final ImageReader reader = getReader();
+                final int imageIndex = reader.getNumResolutions() - 1;
+                final Dimension size = reader.getSize(imageIndex);
+                final int subsampling = (int) Math.max(1, Math.ceil(Math.sqrt(
+                        size.width * (double) size.height /
+                                CONTRAST_RANGE_SAMPLE_PIXELS)));
+                range = Java2DUtil.getContrastRange(
+                        reader.readSubsampled(imageIndex, subsampling));
+                cache.put(identifier, range);
+            } catch (IOException e) {
+                LOGGER.warn("getContrastRange(): failed to sample {}: {}",
+                        identifier, e.getMessage());
             }
         }
+        return range;
+    }
+
+    @Override
+    BufferedImage readImage(OperationList ops,
+                            Info imageInfo,
+                            ReductionFactor reductionFactor,
+                            Set<ImageReader.Hint> hints)
+            throws IOException, ProcessorException {
+        return getReader().read(ops, imageInfo.getOrientation(),
+                reductionFactor, hints);
     }
 
 }
@@ -6,6 +6,7 @@ import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.image.Format;
 import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
 import edu.illinois.library.cantaloupe.operation.Normalize;
 import edu.illinois.library.cantaloupe.operation.Operation;
 import edu.illinois.library.cantaloupe.operation.OperationList;
@@ -165,6 +166,7 @@ class KakaduProcessor extends AbstractJava2DProcessor implements FileProcessor {
         pb.command(command);
         String commandString = String.join(" ", pb.command());
         LOGGER.info("invoke(): {}", commandString);
+        Metrics.processForked(pb.command());
         pb.start();
     }
 
@@ -296,6 +298,7 @@ class KakaduProcessor extends AbstractJava2DProcessor implements FileProcessor {
         final ProcessBuilder pb = new ProcessBuilder(command);
         pb.redirectErrorStream(true);
         LOGGER.info("Invoking {}", String.join(" ", pb.command()));
+        Metrics.processForked(pb.command());
         Process process = pb.start();
         ByteArrayOutputStream outputBucket = new ByteArrayOutputStream();
 
@@ -335,6 +338,12 @@ class KakaduProcessor extends AbstractJava2DProcessor implements FileProcessor {
         // Will receive stderr output from kdu_expand.
         final ByteArrayOutputStream errorBucket = new ByteArrayOutputStream();
         try {
+            // If the region is fully redacted, there's no need to invoke
+            // the decoder.
+            if (processRedactedRegion(opList, imageInfo, outputStream)) {
+                return;
+            }
+
             final ReductionFactor reductionFactor = new ReductionFactor();
 
             // If we are normalizing, we need to read the entire image region.
@@ -343,13 +352,15 @@ class KakaduProcessor extends AbstractJava2DProcessor implements FileProcessor {
             final ProcessBuilder pb = getProcessBuilder(
                     opList, imageInfo.getSize(), reductionFactor, normalize);
             LOGGER.info("Invoking {}", String.join(" ", pb.command()));
+            Metrics.processForked(pb.command());
             final Process process = pb.start();
 
             try (final InputStream processInputStream =
                          new BufferedInputStream(process.getInputStream());
                  final InputStream processErrorStream = process.getErrorStream()) {
                 ThreadPool.getInstance().submit(
-                        new StreamCopier(processErrorStream, errorBucket));
+                        new StreamCopier(processErrorStream, errorBucket),
+                        ThreadPool.Priority.HIGH);
 
                 final ImageReader reader = new ImageReader(
                         new InputStreamStreamSource(processInputStream),
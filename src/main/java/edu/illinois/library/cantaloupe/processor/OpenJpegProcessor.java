@@ -6,6 +6,7 @@ import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.image.Format;
 import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
 import edu.illinois.library.cantaloupe.operation.Encode;
 import edu.illinois.library.cantaloupe.operation.Normalize;
 import edu.illinois.library.cantaloupe.operation.Operation;
@@ -166,6 +167,7 @@ class OpenJpegProcessor extends AbstractJava2DProcessor
         pb.command(command);
         String commandString = String.join(" ", pb.command());
         LOGGER.info("invoke(): {}", commandString);
+        Metrics.processForked(pb.command());
         pb.start();
     }
 
@@ -180,6 +182,7 @@ class OpenJpegProcessor extends AbstractJava2DProcessor
             LOGGER.debug("isQuietModeSupported(): invoking {}",
                     String.join(" ", pb.command()));
             try {
+                Metrics.processForked(pb.command());
                 Process process = pb.start();
                 try (InputStream processInputStream =
                              new BufferedInputStream(process.getInputStream())) {
@@ -344,6 +347,7 @@ class OpenJpegProcessor extends AbstractJava2DProcessor
         ProcessBuilder pb = new ProcessBuilder(command);
         pb.redirectErrorStream(true);
         LOGGER.info("Invoking {}", String.join(" ", pb.command()));
+        Metrics.processForked(pb.command());
         Process process = pb.start();
 
         try (InputStream processInputStream =
@@ -386,6 +390,12 @@ class OpenJpegProcessor extends AbstractJava2DProcessor
         // Will receive stderr output from opj_decompress.
         final ByteArrayOutputStream errorBucket = new ByteArrayOutputStream();
         try {
+            // If the region is fully redacted, there's no need to invoke
+            // the decoder.
+            if (processRedactedRegion(opList, imageInfo, outputStream)) {
+                return;
+            }
+
             final ReductionFactor reductionFactor = new ReductionFactor();
 
             // If we are normalizing, we need to read the entire image region.
@@ -394,13 +404,15 @@ class OpenJpegProcessor extends AbstractJava2DProcessor
             final ProcessBuilder pb = getProcessBuilder(
                     opList, imageInfo.getSize(), reductionFactor, normalize);
             LOGGER.info("Invoking {}", String.join(" ", pb.command()));
+            Metrics.processForked(pb.command());
             final Process process = pb.start();
 
             try (final InputStream processInputStream =
                          new BufferedInputStream(process.getInputStream());
                  final InputStream processErrorStream = process.getErrorStream()) {
                 ThreadPool.getInstance().submit(
-                        new StreamCopier(processErrorStream, errorBucket));
+                        new StreamCopier(processErrorStream, errorBucket),
+                        ThreadPool.Priority.HIGH);
 
                 final ImageReader reader = new ImageReader(
                         new InputStreamStreamSource(processInputStream),
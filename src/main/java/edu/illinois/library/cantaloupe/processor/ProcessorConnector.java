@@ -6,6 +6,9 @@ import edu.illinois.library.cantaloupe.cache.CacheDisabledException;
 import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
+import edu.illinois.library.cantaloupe.metrics.Timer;
 import edu.illinois.library.cantaloupe.resolver.FileResolver;
 import edu.illinois.library.cantaloupe.resolver.InputStreamStreamSource;
 import edu.illinois.library.cantaloupe.resolver.Resolver;
@@ -36,7 +39,7 @@ public class ProcessorConnector {
 
     public static StreamProcessorRetrievalStrategy
     getStreamProcessorRetrievalStrategy() {
-        return Configuration.getInstance().getString(
+        return Configuration.getInstance().getSnapshot().getString(
                 Key.STREAMPROCESSOR_RETRIEVAL_STRATEGY,
                 "StreamStrategy").equals("StreamStrategy") ?
                 StreamProcessorRetrievalStrategy.STREAM :
@@ -90,6 +93,16 @@ public class ProcessorConnector {
                         Identifier identifier)
             throws IOException, CacheDisabledException,
             IncompatibleResolverException {
+        try (RequestTrace.Stage ignored = RequestTrace.stage("connect")) {
+            doConnect(resolver, processor, identifier);
+        }
+    }
+
+    private void doConnect(Resolver resolver,
+                           Processor processor,
+                           Identifier identifier)
+            throws IOException, CacheDisabledException,
+            IncompatibleResolverException {
         final String resolverName = resolver.getClass().getSimpleName();
         final String processorName = processor.getClass().getSimpleName();
 
@@ -155,10 +168,19 @@ public class ProcessorConnector {
             throws IOException {
         // This will block while a file is being written in another thread,
         // which will prevent the image from being downloaded multiple times.
+        final String cacheName = sourceCache.getClass().getSimpleName();
         Path sourceFile = sourceCache.getSourceImageFile(identifier);
         if (sourceFile == null) {
-            downloadToSourceCache(resolver, sourceCache, identifier);
+            Metrics.cacheMisses(cacheName, "source").increment();
+            try (Timer.Context ignored =
+                         Metrics.cacheWrite(cacheName, "source").time();
+                 RequestTrace.Stage ignored2 =
+                         RequestTrace.stage("source_fetch")) {
+                downloadToSourceCache(resolver, sourceCache, identifier);
+            }
             sourceFile = sourceCache.getSourceImageFile(identifier);
+        } else {
+            Metrics.cacheHits(cacheName, "source").increment();
         }
         LOGGER.info("SourceCache -> FileProcessor connection between {} and {}",
                 sourceCache.getClass().getSimpleName(),
@@ -3,7 +3,9 @@ package edu.illinois.library.cantaloupe.processor;
 import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.util.ConstructorCache;
 
+import java.lang.invoke.MethodHandles;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -14,6 +16,9 @@ import java.util.Set;
  */
 public class ProcessorFactory {
 
+    private static final ConstructorCache<Processor> CONSTRUCTORS =
+            new ConstructorCache<>(MethodHandles.lookup(), Processor.class);
+
     public static Set<Processor> getAllProcessors() {
         return new HashSet<>(Arrays.asList(
                 new FfmpegProcessor(),
@@ -48,8 +53,7 @@ public class ProcessorFactory {
         final String className = ProcessorFactory.class.getPackage().getName() +
                 "." + processorName;
         try {
-            final Class<?> class_ = Class.forName(className);
-            final Processor processor = (Processor) class_.newInstance();
+            final Processor processor = CONSTRUCTORS.newInstance(className);
 
             InitializationException e = processor.getInitializationException();
             if (e != null) {
@@ -70,13 +74,14 @@ public class ProcessorFactory {
      *         one is not set.
      */
     private String getAssignedProcessorName(Format format) {
-        final String value = Configuration.getInstance().
+        final String value = Configuration.getInstance().getSnapshot().
                 getString("processor." + format.getPreferredExtension());
         return (value != null && value.length() > 0) ? value : null;
     }
 
     private String getFallbackProcessorName() {
-        return Configuration.getInstance().getString(Key.PROCESSOR_FALLBACK);
+        return Configuration.getInstance().getSnapshot().
+                getString(Key.PROCESSOR_FALLBACK);
     }
 
 }
@@ -0,0 +1,362 @@
+package edu.illinois.library.cantaloupe.processor;
+
+import edu.illinois.library.cantaloupe.async.ThreadPool;
+import edu.illinois.library.cantaloupe.cache.CacheFacade;
+import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.operation.Crop;
+import edu.illinois.library.cantaloupe.operation.Normalize;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.operation.ReductionFactor;
+import edu.illinois.library.cantaloupe.operation.Scale;
+import edu.illinois.library.cantaloupe.processor.imageio.ImageReader;
+import edu.illinois.library.cantaloupe.processor.imageio.ImageWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Generates many derivatives of a source image, like the tiles of a IIIF
+ * tile pyramid, from one decode per resolution level rather than one decode
+ * per derivative, and writes them to the derivative cache.</p>
+ *
+ * <p>Operation lists are grouped into {@link Level levels} by the reduction
+ * factor needed to fulfill them. Each level is decoded once by {@link
+ * AbstractJava2DProcessor#readImage} (a source with only one resolution is
+ * decoded once for all levels), and the operations that apply to the whole
+ * image are applied once. Each derivative is then cropped from it,
+ * processed, and encoded in the {@link ThreadPool}, in parallel, and written
+ * to the derivative cache under its operation list.</p>
+ *
+ * <p>The derivatives are the same as the ones that the processor would
+ * produce from the same operation lists, except when normalizing with a
+ * processor that can't {@link AbstractJava2DProcessor#getContrastRange
+ * sample the whole image}, in which case the histogram is sampled from the
+ * decoded level rather than the full resolution image. Derivatives of processors that don't support {@link
+ * AbstractJava2DProcessor#readImage}, and of levels too large to hold in
+ * memory safely, are instead generated one at a time using {@link
+ * Processor#process}.</p>
+ *
+ * <p>Instances are not thread-safe, and should be {@link #close() closed}
+ * when done.</p>
+ *
+ * @since 3.5
+ */
+public final class PyramidGenerator implements AutoCloseable {
+
+    /**
+     * Group of operation lists that can be fulfilled from the same decoded
+     * resolution level.
+     */
+    public static final class Level {
+
+        private final OperationList decodeOpList;
+        private final int factor;
+        private final List<OperationList> opLists = new ArrayList<>();
+
+        private Level(int factor, OperationList decodeOpList) {
+            this.factor = factor;
+            this.decodeOpList = decodeOpList;
+        }
+
+        /**
+         * @return Operation list describing the decoding of the level, which
+         *         can be used to estimate its cost.
+         */
+        public OperationList getDecodeOperationList() {
+            return decodeOpList;
+        }
+
+        /**
+         * @return Reduction factor of the level.
+         */
+        public int getFactor() {
+            return factor;
+        }
+
+        /**
+         * @return Operation lists of the derivatives to generate from the
+         *         level.
+         */
+        public List<OperationList> getOperationLists() {
+            return Collections.unmodifiableList(opLists);
+        }
+
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(PyramidGenerator.class);
+
+    /**
+     * Fraction of the maximum heap size that a decoded level may occupy.
+     * Larger levels are processed one derivative at a time.
+     */
+    private static final double MAX_LEVEL_HEAP_FRACTION = 0.25;
+
+    private final CacheFacade cacheFacade;
+    private final Info info;
+    private final Processor processor;
+
+    /**
+     * Most recently decoded level, which is reused by subsequent levels of
+     * sources that have only one resolution.
+     */
+    private BufferedImage decodedImage;
+    private ReductionFactor decodedReductionFactor;
+
+    /**
+     * {@link #decodedImage} after {@link
+     * AbstractJava2DProcessor#preProcess}, keyed by {@link
+     * #preProcessKey(OperationList)}.
+     */
+    private final Map<String, BufferedImage> preProcessedImages =
+            new HashMap<>();
+
+    /**
+     * @return Reduction factor that will supply enough resolution for the
+     *         given operation list.
+     */
+    static int requiredFactor(OperationList opList, Dimension fullSize) {
+        Dimension regionSize = fullSize;
+        final Crop crop = (Crop) opList.getFirst(Crop.class);
+        if (crop != null) {
+            regionSize = crop.getResultingSize(fullSize);
+        }
+        final Scale scale = (Scale) opList.getFirst(Scale.class);
+        if (scale == null || regionSize.width < 1 || regionSize.height < 1) {
+            return 0;
+        }
+        final Dimension scaledSize = scale.getResultingSize(regionSize);
+        final double requiredScale = Math.max(
+                scaledSize.width / (double) regionSize.width,
+                scaledSize.height / (double) regionSize.height);
+        return Math.max(0, ReductionFactor.forScale(requiredScale).factor);
+    }
+
+    /**
+     * @return Key identifying the result of {@link
+     *         AbstractJava2DProcessor#preProcess} for the given operation
+     *         list.
+     */
+    private static String preProcessKey(OperationList opList) {
+        return (opList.getFirst(Normalize.class) != null) + "/" +
+                AbstractJava2DProcessor.isReducingTo8Bits(opList);
+    }
+
+    /**
+     * @param processor   Processor whose source has been set.
+     * @param info        Information about the source image.
+     * @param cacheFacade Cache facade whose derivative cache is available.
+     */
+    public PyramidGenerator(Processor processor,
+                            Info info,
+                            CacheFacade cacheFacade) {
+        this.processor = processor;
+        this.info = info;
+        this.cacheFacade = cacheFacade;
+    }
+
+    /**
+     * Releases the decoded image and the processor's reader.
+     */
+    @Override
+    public void close() {
+        releaseDecodedImage();
+        if (processor instanceof AbstractImageIOProcessor) {
+            ((AbstractImageIOProcessor) processor).disposeReader();
+        }
+    }
+
+    /**
+     * @param level Level to generate.
+     * @return      Number of derivatives written. Failures are logged.
+     */
+    public int generate(Level level) throws InterruptedException {
+        BufferedImage image = null;
+        if (processor instanceof AbstractJava2DProcessor &&
+                isDecodable(level)) {
+            try {
+                image = decode(level);
+            } catch (IOException | ProcessorException e) {
+                LOGGER.warn("generate(): failed to decode level {}: {}",
+                        level.getFactor(), e.getMessage());
+            }
+        }
+        if (image == null) {
+            LOGGER.debug("generate(): processing level {} one derivative " +
+                    "at a time", level.getFactor());
+            return processIndividually(level);
+        }
+
+        final ReductionFactor rf = decodedReductionFactor;
+        final List<Future<?>> futures = new ArrayList<>();
+        for (OperationList opList : level.opLists) {
+            final BufferedImage preProcessedImage = preProcessedImages.
+                    computeIfAbsent(preProcessKey(opList),
+                            k -> preProcess(opList));
+            futures.add(ThreadPool.getInstance().submit(() -> {
+                write(preProcessedImage, opList, rf);
+                return null;
+            }));
+        }
+
+        int numWritten = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+                numWritten++;
+            } catch (ExecutionException e) {
+                LOGGER.warn("generate(): failed to generate {}: {}",
+                        level.opLists.get(i), e.getCause().getMessage());
+            }
+        }
+        LOGGER.debug("generate(): wrote {} of {} derivatives from level {}",
+                numWritten, level.opLists.size(), level.getFactor());
+        return numWritten;
+    }
+
+    /**
+     * @return Decoded image of the given level, which may be one that was
+     *         decoded for a previous level.
+     */
+    private BufferedImage decode(Level level)
+            throws IOException, ProcessorException {
+        if (decodedImage != null && info.getImages().size() == 1) {
+            return decodedImage;
+        }
+        releaseDecodedImage();
+
+        final ReductionFactor rf = new ReductionFactor();
+        final Set<ImageReader.Hint> hints =
+                EnumSet.noneOf(ImageReader.Hint.class);
+        final BufferedImage image = ((AbstractJava2DProcessor) processor).
+                readImage(level.getDecodeOperationList(), info, rf, hints);
+        if (image != null) {
+            decodedImage = image;
+            decodedReductionFactor = rf;
+        }
+        return image;
+    }
+
+    /**
+     * @return {@link #decodedImage} after {@link
+     *         AbstractJava2DProcessor#preProcess}.
+     */
+    private BufferedImage preProcess(OperationList opList) {
+        BufferedImage image = decodedImage;
+        ContrastRange contrastRange = null;
+        // Normalization draws on the image, which other keys may be using.
+        if (opList.getFirst(Normalize.class) != null) {
+            image = AbstractJava2DProcessor.copy(image);
+            contrastRange = ((AbstractJava2DProcessor) processor).
+                    getContrastRange(opList, info);
+        }
+        return AbstractJava2DProcessor.preProcess(image, opList,
+                contrastRange);
+    }
+
+    /**
+     * @return Whether the given level would fit in memory once decoded.
+     */
+    private boolean isDecodable(Level level) {
+        final Dimension fullSize = info.getSize();
+        // A source with one resolution is always decoded at full size.
+        final double scale = (info.getImages().size() > 1) ?
+                new ReductionFactor(level.getFactor()).getScale() : 1;
+        // Assume 4 bytes per pixel (as in TYPE_INT_ARGB).
+        final double bytes = fullSize.width * scale *
+                fullSize.height * scale * 4;
+        return bytes <= Runtime.getRuntime().maxMemory() *
+                MAX_LEVEL_HEAP_FRACTION;
+    }
+
+    /**
+     * @param opLists Operation lists of the derivatives to generate, all of
+     *                which must have the same identifier.
+     * @return        Levels in order of increasing reduction factor, i.e.
+     *                largest first.
+     */
+    public List<Level> plan(List<OperationList> opLists) {
+        final Dimension fullSize = info.getSize();
+        final SortedMap<Integer, Level> levels = new TreeMap<>();
+        for (OperationList opList : opLists) {
+            final int factor = requiredFactor(opList, fullSize);
+            Level level = levels.get(factor);
+            if (level == null) {
+                final OperationList decodeOpList = new OperationList(
+                        opList.getIdentifier(), opList.getOutputFormat(),
+                        new Scale((float) new ReductionFactor(factor).getScale()));
+                level = new Level(factor, decodeOpList);
+                levels.put(factor, level);
+            }
+            level.opLists.add(opList);
+        }
+        return new ArrayList<>(levels.values());
+    }
+
+    private int processIndividually(Level level) {
+        int numWritten = 0;
+        for (OperationList opList : level.opLists) {
+            try {
+                try (OutputStream outputStream = newOutputStream(opList)) {
+                    processor.process(opList, info, outputStream);
+                } catch (ProcessorException | RuntimeException e) {
+                    // The cached image may have been incompletely written.
+                    cacheFacade.purge(opList);
+                    throw e;
+                }
+                numWritten++;
+            } catch (Exception e) {
+                LOGGER.warn("processIndividually(): failed to generate {}: {}",
+                        opList, e.getMessage());
+            }
+        }
+        return numWritten;
+    }
+
+    private OutputStream newOutputStream(OperationList opList)
+            throws IOException {
+        final OutputStream outputStream =
+                cacheFacade.newDerivativeImageOutputStream(opList);
+        if (outputStream == null) {
+            throw new IOException("The derivative cache is not available.");
+        }
+        return outputStream;
+    }
+
+    private void releaseDecodedImage() {
+        decodedImage = null;
+        decodedReductionFactor = null;
+        preProcessedImages.clear();
+    }
+
+    private void write(BufferedImage image,
+                       OperationList opList,
+                       ReductionFactor rf) throws IOException {
+        final BufferedImage result = AbstractJava2DProcessor.processRegion(
+                image, null, opList, info, new ReductionFactor(rf.factor),
+                true);
+        try (OutputStream outputStream = newOutputStream(opList)) {
+            new ImageWriter(opList).write(result, outputStream);
+        } catch (IOException | RuntimeException e) {
+            // The cached image may have been incompletely written.
+            cacheFacade.purge(opList);
+            throw e;
+        }
+    }
+
+}
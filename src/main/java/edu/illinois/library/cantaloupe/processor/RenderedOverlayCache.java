@@ -0,0 +1,107 @@
+package edu.illinois.library.cantaloupe.processor;
+
+import edu.illinois.library.cantaloupe.operation.overlay.StringOverlay;
+import edu.illinois.library.cantaloupe.util.ObjectCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Memory-bounded heap cache of decoded image overlays, keyed by URI, and
+ * of {@link RenderedString rendered string overlays}, keyed by all of the
+ * properties that affect their appearance, which enables the same overlay to
+ * be applied to many images (such as all of the tiles of a watermarked
+ * collection) without decoding or rasterizing it each time.</p>
+ *
+ * <p>Because the keys include everything that can be configured about an
+ * overlay, an overlay whose configuration changes is simply looked up under
+ * a different key, and the stale entries are eventually evicted. The cache is
+ * also purged along with the other caches by {@link
+ * edu.illinois.library.cantaloupe.cache.CacheFacade}.</p>
+ *
+ * @since 3.5
+ */
+public final class RenderedOverlayCache {
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(RenderedOverlayCache.class);
+
+    private static final RenderedOverlayCache INSTANCE =
+            new RenderedOverlayCache();
+
+    private final ObjectCache<URI, BufferedImage> imageCache =
+            new ObjectCache<>(RenderedOverlayCache.class.getSimpleName(),
+                    "overlay_image",
+                    image -> image.getWidth() * image.getHeight() * 4);
+    private final ObjectCache<List<Object>, RenderedString> stringCache =
+            new ObjectCache<>(RenderedOverlayCache.class.getSimpleName(),
+                    "overlay_string", RenderedString::getWeight);
+
+    /**
+     * @return Shared instance.
+     */
+    public static RenderedOverlayCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return Key identifying the appearance of the given overlay set in the
+     *         given font, regardless of where it is drawn.
+     */
+    private static List<Object> getKey(StringOverlay overlay, Font font) {
+        return Arrays.asList(overlay.getString(), font,
+                overlay.getPosition(), overlay.getColor(),
+                overlay.getBackgroundColor(), overlay.getStrokeColor(),
+                overlay.getStrokeWidth());
+    }
+
+    private RenderedOverlayCache() {}
+
+    /**
+     * @param uri URI of an image overlay.
+     * @return    Decoded overlay image, which must not be modified, or
+     *            <code>null</code> if not cached.
+     */
+    BufferedImage getImage(URI uri) {
+        return imageCache.get(uri);
+    }
+
+    /**
+     * Returns the given overlay set in the given font, laying it out and
+     * caching it if necessary.
+     *
+     * @param overlay Overlay to render.
+     * @param font    Font in which to set the overlay string.
+     * @return        Rendered overlay.
+     */
+    RenderedString getString(StringOverlay overlay, Font font) {
+        final List<Object> key = getKey(overlay, font);
+        RenderedString string = stringCache.get(key);
+        if (string == null) {
+            string = new RenderedString(overlay, font);
+            stringCache.put(key, string);
+        }
+        return string;
+    }
+
+    /**
+     * @param uri   URI of an image overlay.
+     * @param image Decoded overlay image.
+     */
+    void putImage(URI uri, BufferedImage image) {
+        LOGGER.debug("putImage(): {}", uri);
+        imageCache.put(uri, image);
+    }
+
+    public void purge() {
+        LOGGER.debug("purge()");
+        imageCache.purge();
+        stringCache.purge();
+    }
+
+}
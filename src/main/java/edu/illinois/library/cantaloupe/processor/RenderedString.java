@@ -0,0 +1,219 @@
+package edu.illinois.library.cantaloupe.processor;
+
+import edu.illinois.library.cantaloupe.operation.overlay.StringOverlay;
+import org.apache.commons.lang3.StringUtils;
+
+import java.awt.BasicStroke;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+
+/**
+ * <p>Layout of a {@link StringOverlay} set in a particular font, and its
+ * rasterization, which can be drawn onto any image that it {@link #fits}
+ * without laying out or rasterizing the glyphs again.</p>
+ *
+ * <p>The raster contains the background box of the overlay surrounded by a
+ * transparent {@link #getMargin() margin}, to make room for glyphs and
+ * strokes that overhang the box.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ *
+ * @since 3.5
+ */
+final class RenderedString {
+
+    private final StringOverlay overlay;
+    private final Font font;
+    private final String[] lines;
+    private final int[] lineWidths;
+    private final int lineHeight;
+    private final int maxLineWidth;
+    private final int padding;
+    private final int margin;
+
+    private BufferedImage image;
+
+    /**
+     * @return Padding between the text and the edges of the background box.
+     */
+    static int getBoxPadding(StringOverlay overlay) {
+        return (overlay.getBackgroundColor().getAlpha() > 0) ? 5 : 0;
+    }
+
+    private static void setRenderingHints(Graphics2D g2d) {
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_GASP);
+        g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
+                RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
+                RenderingHints.VALUE_STROKE_PURE);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING,
+                RenderingHints.VALUE_RENDER_QUALITY);
+    }
+
+    /**
+     * Lays out the given overlay, but does not rasterize it.
+     *
+     * @param overlay Overlay to lay out.
+     * @param font    Font in which to set the overlay string, which may be a
+     *                smaller version of the overlay's font.
+     */
+    RenderedString(StringOverlay overlay, Font font) {
+        this.overlay = overlay;
+        this.font = font;
+        // Graphics2D.drawString() does not understand newlines. Each line
+        // has to be drawn separately.
+        this.lines = StringUtils.split(overlay.getString(), "\n");
+        this.padding = getBoxPadding(overlay);
+
+        final BufferedImage scratch =
+                new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE);
+        final Graphics2D g2d = scratch.createGraphics();
+        try {
+            setRenderingHints(g2d);
+            g2d.setFont(font);
+            final FontMetrics fm = g2d.getFontMetrics();
+            lineHeight = fm.getHeight();
+            lineWidths = new int[lines.length];
+            int maxWidth = 0;
+            for (int i = 0; i < lines.length; i++) {
+                lineWidths[i] = fm.stringWidth(lines[i]);
+                if (lineWidths[i] > maxWidth) {
+                    maxWidth = lineWidths[i];
+                }
+            }
+            maxLineWidth = maxWidth;
+        } finally {
+            g2d.dispose();
+        }
+        margin = lineHeight / 2 + (int) Math.ceil(overlay.getStrokeWidth());
+    }
+
+    /**
+     * @param imageSize Size of the image to draw onto.
+     * @param inset     Inset of the box from the edges of the image.
+     * @return          Whether the whole box would fit inside the image.
+     */
+    boolean fits(Dimension imageSize, int inset) {
+        final Dimension boxSize = getBoxSize();
+        return boxSize.width + inset * 2 <= imageSize.width &&
+                boxSize.height + inset * 2 <= imageSize.height;
+    }
+
+    /**
+     * @return Size of the background box.
+     */
+    Dimension getBoxSize() {
+        return new Dimension(maxLineWidth + padding * 2,
+                lineHeight * lines.length + padding * 2);
+    }
+
+    Font getFont() {
+        return font;
+    }
+
+    /**
+     * @return Rasterization of the overlay, which must not be modified.
+     *         Its top left corner lies {@link #getMargin()} pixels above and
+     *         to the left of the top left corner of the background box.
+     */
+    synchronized BufferedImage getImage() {
+        if (image == null) {
+            image = render();
+        }
+        return image;
+    }
+
+    int getLineHeight() {
+        return lineHeight;
+    }
+
+    int[] getLineWidths() {
+        return lineWidths.clone();
+    }
+
+    /**
+     * @return Width of the transparent border around the background box in
+     *         the {@link #getImage() raster}.
+     */
+    int getMargin() {
+        return margin;
+    }
+
+    /**
+     * @return Approximate heap size of the instance once rasterized, in
+     *         bytes.
+     */
+    int getWeight() {
+        final Dimension boxSize = getBoxSize();
+        return 256 + (boxSize.width + margin * 2) *
+                (boxSize.height + margin * 2) * 4;
+    }
+
+    private BufferedImage render() {
+        final Dimension boxSize = getBoxSize();
+        final BufferedImage raster = new BufferedImage(
+                boxSize.width + margin * 2, boxSize.height + margin * 2,
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        final Graphics2D g2d = raster.createGraphics();
+        try {
+            setRenderingHints(g2d);
+            g2d.setFont(font);
+
+            // Draw the background, if it is not transparent.
+            if (overlay.getBackgroundColor().getAlpha() > 0) {
+                g2d.setPaint(overlay.getBackgroundColor().toColor());
+                g2d.fillRect(margin, margin, boxSize.width, boxSize.height);
+            }
+
+            // Draw each line individually.
+            for (int i = 0; i < lines.length; i++) {
+                int x = margin;
+                switch (overlay.getPosition()) {
+                    case TOP_LEFT:
+                    case BOTTOM_LEFT:
+                    case LEFT_CENTER:
+                        x += padding;
+                        break;
+                    case TOP_CENTER:
+                    case BOTTOM_CENTER:
+                    case CENTER:
+                        x += Math.round((boxSize.width - lineWidths[i]) / 2f);
+                        break;
+                    default: // right-aligned
+                        x += maxLineWidth - lineWidths[i] + padding;
+                        break;
+                }
+                // This is arbitrary fudge, but it seems to work OK.
+                final int y = margin + lineHeight * i + padding +
+                        (int) (lineHeight * 0.73);
+
+                // Draw the text outline.
+                if (overlay.getStrokeWidth() > 0.001f) {
+                    final GlyphVector gv = font.createGlyphVector(
+                            g2d.getFontRenderContext(), lines[i]);
+                    final Shape shape = gv.getOutline(x, y);
+                    g2d.setStroke(new BasicStroke(overlay.getStrokeWidth()));
+                    g2d.setPaint(overlay.getStrokeColor().toColor());
+                    g2d.draw(shape);
+                }
+
+                // Draw the string.
+                g2d.setPaint(overlay.getColor().toColor());
+                g2d.drawString(lines[i], x, y);
+            }
+        } finally {
+            g2d.dispose();
+        }
+        return raster;
+    }
+
+}
@@ -0,0 +1,173 @@
+package edu.illinois.library.cantaloupe.processor;
+
+import com.mortennobel.imagescaling.ResampleFilter;
+
+/**
+ * <p>Resampling contributions of source pixels to each target pixel along
+ * one axis, as computed by {@link com.mortennobel.imagescaling.ResampleOp}.
+ * Applying them horizontally to each row and then vertically to each column,
+ * with the intermediate samples rounded to 8 bits, produces the same result
+ * as {@link Java2DUtil#scaleImage}.</p>
+ *
+ * <p>Pixels are handled as packed 8-bit ARGB, each channel of which is
+ * resampled independently.</p>
+ *
+ * @since 3.5
+ */
+final class ResampleContributions {
+
+    final int[] counts;
+    final int numContributors;
+    final int[] pixels;
+    final float[] weights;
+
+    /**
+     * @param sample Sample value.
+     * @return       Given sample rounded and clamped to 0-255, as in {@link
+     *               com.mortennobel.imagescaling.ResampleOp}.
+     */
+    private static int toByte(float sample) {
+        if (sample < 0) {
+            return 0;
+        } else if (sample > 255) {
+            return 255;
+        }
+        return (int) (sample + 0.5f);
+    }
+
+    static int pack(float a, float r, float g, float b) {
+        return (toByte(a) << 24) | (toByte(r) << 16) | (toByte(g) << 8) |
+                toByte(b);
+    }
+
+    ResampleContributions(ResampleFilter filter, int srcSize, int dstSize) {
+        final float scale = dstSize / (float) srcSize;
+        final float centerOffset = 0.5f / scale;
+        final float filterWidth = filter.getSamplingRadius();
+        final float width;
+        final float normFactor;
+        if (scale < 1) {
+            width = filterWidth / scale;
+            normFactor = (float) (1f / (Math.ceil(width) / filterWidth));
+            numContributors = (int) (width * 2f + 2);
+        } else {
+            width = filterWidth;
+            normFactor = 1;
+            numContributors = (int) (filterWidth * 2f + 1);
+        }
+        counts = new int[dstSize];
+        pixels = new int[dstSize * numContributors];
+        weights = new float[dstSize * numContributors];
+
+        for (int i = 0; i < dstSize; i++) {
+            final int offset = i * numContributors;
+            final float center = i / scale + centerOffset;
+            final int left = (int) Math.floor(center - width);
+            final int right = (int) Math.ceil(center + width);
+            for (int j = left; j <= right; j++) {
+                float weight = filter.apply((center - j) * normFactor);
+                if (weight == 0f) {
+                    continue;
+                }
+                // Mirror the edges.
+                int n = j;
+                if (j < 0) {
+                    n = -j;
+                } else if (j >= srcSize) {
+                    n = srcSize - j + srcSize - 1;
+                }
+                if (n < 0 || n >= srcSize) {
+                    n = Math.max(0, Math.min(n, srcSize - 1));
+                    weight = 0f;
+                }
+                pixels[offset + counts[i]] = n;
+                weights[offset + counts[i]] = weight;
+                counts[i]++;
+            }
+            // Normalize the weights so that they sum to 1.
+            float total = 0;
+            for (int k = 0; k < counts[i]; k++) {
+                total += weights[offset + k];
+            }
+            if (total != 0f) {
+                for (int k = 0; k < counts[i]; k++) {
+                    weights[offset + k] /= total;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param i Index of a target pixel.
+     * @return  Index of the first source pixel that contributes to it.
+     */
+    int getMinPixel(int i) {
+        int min = Integer.MAX_VALUE;
+        for (int k = 0; k < counts[i]; k++) {
+            min = Math.min(min, pixels[i * numContributors + k]);
+        }
+        return min;
+    }
+
+    /**
+     * @param i      Index of a target pixel.
+     * @param source Source pixels as packed ARGB.
+     * @param offset Index of source pixel 0 within <code>source</code>.
+     * @param stride Distance between consecutive source pixels within
+     *               <code>source</code>: 1 for a row, or the row length for
+     *               a column.
+     * @return       Target pixel as packed ARGB.
+     */
+    int resample(int i, int[] source, int offset, int stride) {
+        final int start = i * numContributors;
+        final int end = start + counts[i];
+        float a = 0, r = 0, g = 0, b = 0;
+        for (int k = start; k < end; k++) {
+            final int argb = source[offset + pixels[k] * stride];
+            final float weight = weights[k];
+            a += (argb >>> 24) * weight;
+            r += ((argb >> 16) & 0xff) * weight;
+            g += ((argb >> 8) & 0xff) * weight;
+            b += (argb & 0xff) * weight;
+        }
+        return pack(a, r, g, b);
+    }
+
+    /**
+     * Variant of {@link #resample} for pixels whose channels are all equal,
+     * which resamples only one of them.
+     *
+     * @return Target pixel as opaque packed ARGB.
+     */
+    int resampleGray(int i, int[] source, int offset, int stride) {
+        final int start = i * numContributors;
+        final int end = start + counts[i];
+        float v = 0;
+        for (int k = start; k < end; k++) {
+            v += (source[offset + pixels[k] * stride] & 0xff) * weights[k];
+        }
+        final int sample = toByte(v);
+        return 0xff000000 | (sample << 16) | (sample << 8) | sample;
+    }
+
+    /**
+     * Variant of {@link #resample} for opaque pixels, which skips the alpha
+     * channel.
+     *
+     * @return Target pixel as opaque packed ARGB.
+     */
+    int resampleOpaque(int i, int[] source, int offset, int stride) {
+        final int start = i * numContributors;
+        final int end = start + counts[i];
+        float r = 0, g = 0, b = 0;
+        for (int k = start; k < end; k++) {
+            final int rgb = source[offset + pixels[k] * stride];
+            final float weight = weights[k];
+            r += ((rgb >> 16) & 0xff) * weight;
+            g += ((rgb >> 8) & 0xff) * weight;
+            b += (rgb & 0xff) * weight;
+        }
+        return 0xff000000 | (toByte(r) << 16) | (toByte(g) << 8) | toByte(b);
+    }
+
+}
@@ -0,0 +1,486 @@
+package edu.illinois.library.cantaloupe.processor;
+
+import com.mortennobel.imagescaling.ResampleFilter;
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.operation.ColorTransform;
+import edu.illinois.library.cantaloupe.operation.Crop;
+import edu.illinois.library.cantaloupe.operation.Encode;
+import edu.illinois.library.cantaloupe.operation.MetadataCopy;
+import edu.illinois.library.cantaloupe.operation.Operation;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.operation.Orientation;
+import edu.illinois.library.cantaloupe.operation.ReductionFactor;
+import edu.illinois.library.cantaloupe.operation.Scale;
+import edu.illinois.library.cantaloupe.processor.imageio.ImageReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Applies a crop &rarr; scale &rarr; color transform sequence to a source
+ * image a strip at a time, using memory proportional to the width of the
+ * image rather than its area.</p>
+ *
+ * <p>{@link #getImage()} returns an image whose pixels are computed on demand
+ * as an image writer reads them, from source strips that are themselves read
+ * on demand. Scaling uses the same filters and the same contributions as
+ * {@link Java2DUtil#scaleImage}, applied horizontally to each source row and
+ * then vertically across a sliding window of horizontally-scaled rows. At
+ * most one source strip, one output strip, and the rows in the window are
+ * held in memory at once.</p>
+ *
+ * <p>This is only worthwhile for sources from which strips can be read
+ * without decoding everything before them, i.e. TIFF, and only supports
+ * operation lists that {@link #isEligible} approves. The result may differ
+ * from that of {@link AbstractJava2DProcessor#postProcess} by a level or so
+ * per sample, as pixels are converted to 8-bit RGB when they are read.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @since 3.5
+ */
+final class StripPipeline {
+
+    /**
+     * Data buffer of {@link #getImage()}, whose elements are computed one
+     * output strip at a time as they are requested.
+     */
+    private final class StripDataBuffer extends DataBuffer {
+
+        StripDataBuffer(int size, int numBanks) {
+            super(DataBuffer.TYPE_BYTE, size, numBanks);
+        }
+
+        @Override
+        public int getElem(int bank, int i) {
+            final int y = i / targetSize.width;
+            final int x = i - y * targetSize.width;
+            if (outputStrip == null || y < outputStripY ||
+                    y >= outputStripY + outputStrip.getHeight()) {
+                try {
+                    loadOutputStrip(y);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return outputStrip.getRaster().getSample(x, y - outputStripY, bank);
+        }
+
+        @Override
+        public void setElem(int bank, int i, int val) {
+            throw new UnsupportedOperationException(
+                    "This buffer is read-only.");
+        }
+
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(StripPipeline.class);
+
+    /**
+     * Used when {@link Key#PROCESSOR_STREAMING_MIN_PIXELS} is not set.
+     */
+    private static final long DEFAULT_MIN_PIXELS = 50000000;
+
+    private static final int MAX_SOURCE_STRIP_HEIGHT = 1024;
+
+    private static final int MIN_SOURCE_STRIP_HEIGHT = 16;
+
+    private static final int OUTPUT_STRIP_HEIGHT = 16;
+
+    private static final Set<Format> OUTPUT_FORMATS =
+            Collections.unmodifiableSet(
+                    EnumSet.of(Format.JPG, Format.PNG, Format.TIF));
+
+    private final ImageReader reader;
+    private final OperationList opList;
+    private final Info info;
+
+    private int imageIndex;
+    /** Source region in the coordinates of the image at imageIndex. */
+    private Rectangle sourceRegion;
+    private int sourceStripHeight;
+    private Dimension targetSize;
+    /** Null when not scaling. */
+    private ResampleContributions horizontal, vertical;
+    private boolean isSourceAlpha, isSourceGray;
+    /** Type of {@link #outputStrip}. */
+    private int outputType;
+
+    private BufferedImage sourceStrip;
+    private int sourceStripY;
+    private int[] sourceRowBuffer;
+
+    /**
+     * Horizontally-scaled source rows as packed ARGB, keyed by row index
+     * within {@link #sourceRegion}.
+     */
+    private final Map<Integer, int[]> workRows = new HashMap<>();
+
+    private BufferedImage outputStrip;
+    private int outputStripY;
+
+    /**
+     * @param opList    Operation list to fulfill.
+     * @param imageInfo Information about the source image.
+     * @param sourceFormat Format of the source image.
+     * @return Whether the given operation list can be fulfilled by an
+     *         instance, and is large enough for that to be worthwhile
+     *         according to {@link Key#PROCESSOR_STREAMING_MIN_PIXELS}.
+     */
+    static boolean isEligible(OperationList opList,
+                              Info imageInfo,
+                              Format sourceFormat) {
+        final long minPixels = Configuration.getInstance().
+                getLong(Key.PROCESSOR_STREAMING_MIN_PIXELS, DEFAULT_MIN_PIXELS);
+        // The output is always reduced to 8 bits, and the pixels are not
+        // rotated.
+        if (minPixels <= 0 || !Format.TIF.equals(sourceFormat) ||
+                !OUTPUT_FORMATS.contains(opList.getOutputFormat()) ||
+                !AbstractJava2DProcessor.isReducingTo8Bits(opList) ||
+                !Orientation.ROTATE_0.equals(imageInfo.getOrientation())) {
+            return false;
+        }
+
+        final Dimension fullSize = imageInfo.getSize();
+        for (Operation op : opList) {
+            if (op instanceof Crop || op instanceof Scale ||
+                    op instanceof Encode || op instanceof MetadataCopy ||
+                    ColorTransform.GRAY.equals(op)) {
+                continue;
+            }
+            if (op.hasEffect(fullSize, opList)) {
+                return false;
+            }
+        }
+
+        final Dimension regionSize = getRegion(opList, fullSize).getSize();
+        final Dimension targetSize = getTargetSize(opList, regionSize,
+                new ReductionFactor());
+        return (long) regionSize.width * regionSize.height >= minPixels &&
+                (long) targetSize.width * targetSize.height <= Integer.MAX_VALUE;
+    }
+
+    private static Rectangle getRegion(OperationList opList,
+                                       Dimension fullSize) {
+        final Crop crop = (Crop) opList.getFirst(Crop.class);
+        if (crop != null && crop.hasEffect(fullSize, opList)) {
+            return crop.getRectangle(fullSize);
+        }
+        return new Rectangle(0, 0, fullSize.width, fullSize.height);
+    }
+
+    private static Dimension getTargetSize(OperationList opList,
+                                           Dimension regionSize,
+                                           ReductionFactor rf) {
+        final Scale scale = (Scale) opList.getFirst(Scale.class);
+        if (scale != null && scale.hasEffect()) {
+            final Dimension size =
+                    Java2DUtil.getScaledSize(regionSize, scale, rf);
+            if (!size.equals(regionSize)) {
+                return size;
+            }
+        }
+        return new Dimension(regionSize);
+    }
+
+    /**
+     * @param reader    Reader of the source image, which remains owned by
+     *                  the caller.
+     * @param opList    Operation list approved by {@link #isEligible}.
+     * @param imageInfo Information about the source image.
+     */
+    StripPipeline(ImageReader reader, OperationList opList, Info imageInfo) {
+        this.reader = reader;
+        this.opList = opList;
+        this.info = imageInfo;
+    }
+
+    /**
+     * @return Image whose pixels are computed as they are read. It is
+     *         intended to be read once, from top to bottom, by an image
+     *         writer. Its data buffer may throw {@link UncheckedIOException}
+     *         if the source cannot be read.
+     */
+    BufferedImage getImage() throws IOException {
+        final Dimension fullSize = info.getSize();
+        final Rectangle region = getRegion(opList, fullSize);
+        final Dimension fullTargetSize = getTargetSize(opList,
+                region.getSize(), new ReductionFactor());
+
+        // Use the smallest resolution that can supply the target size.
+        final ReductionFactor rf = new ReductionFactor();
+        imageIndex = 0;
+        sourceRegion = region;
+        for (int i = reader.getNumResolutions() - 1; i > 0; i--) {
+            final Dimension levelSize = reader.getSize(i);
+            final double reducedScale =
+                    levelSize.width / (double) fullSize.width;
+            final Rectangle reducedRegion = new Rectangle(
+                    (int) Math.round(region.x * reducedScale),
+                    (int) Math.round(region.y * reducedScale),
+                    (int) Math.round(region.width * reducedScale),
+                    (int) Math.round(region.height * reducedScale)).
+                    intersection(new Rectangle(levelSize));
+            if (reducedRegion.width >= fullTargetSize.width &&
+                    reducedRegion.height >= fullTargetSize.height) {
+                imageIndex = i;
+                sourceRegion = reducedRegion;
+                rf.factor = ReductionFactor.forScale(reducedScale, 0).factor;
+                break;
+            }
+        }
+
+        targetSize = getTargetSize(opList, sourceRegion.getSize(), rf);
+        if (!targetSize.equals(sourceRegion.getSize())) {
+            final ResampleFilter filter = Java2DUtil.getResampleFilter(
+                    (Scale) opList.getFirst(Scale.class),
+                    sourceRegion.getSize(), targetSize);
+            horizontal = new ResampleContributions(filter,
+                    sourceRegion.width, targetSize.width);
+            vertical = new ResampleContributions(filter,
+                    sourceRegion.height, targetSize.height);
+        }
+
+        sourceStripHeight = Math.max(MIN_SOURCE_STRIP_HEIGHT,
+                Math.min(reader.getTileSize(imageIndex).height,
+                        MAX_SOURCE_STRIP_HEIGHT));
+        sourceRowBuffer = new int[sourceRegion.width];
+        loadSourceStrip(0);
+        final ColorModel sourceColorModel = sourceStrip.getColorModel();
+        isSourceAlpha = sourceColorModel.hasAlpha();
+        // 8-bit gray samples are used as-is, as they are by
+        // Java2DUtil.scaleImage(). Others are converted to 8-bit RGB, as they
+        // are by Java2DUtil.reduceTo8Bits().
+        isSourceGray = sourceColorModel.getNumComponents() == 1 &&
+                sourceColorModel.getComponentSize(0) == 8 &&
+                sourceColorModel.getColorSpace().getType() ==
+                        ColorSpace.TYPE_GRAY;
+
+        final boolean isGray = isSourceGray ||
+                opList.getFirst(ColorTransform.class) != null;
+        final boolean isAlpha = !isGray && isSourceAlpha &&
+                !Format.JPG.equals(opList.getOutputFormat());
+        final int numBands;
+        final ColorModel colorModel;
+        if (isGray) {
+            outputType = BufferedImage.TYPE_BYTE_GRAY;
+            numBands = 1;
+            colorModel = new ComponentColorModel(
+                    ColorSpace.getInstance(ColorSpace.CS_GRAY), false, false,
+                    Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        } else {
+            outputType = isAlpha ?
+                    BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+            numBands = isAlpha ? 4 : 3;
+            colorModel = new ComponentColorModel(
+                    ColorSpace.getInstance(ColorSpace.CS_sRGB), isAlpha,
+                    false, isAlpha ? Transparency.TRANSLUCENT :
+                    Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        }
+
+        // A banded layout keeps the size of each bank, which is limited to
+        // Integer.MAX_VALUE, down to the number of pixels.
+        final BandedSampleModel sampleModel = new BandedSampleModel(
+                DataBuffer.TYPE_BYTE, targetSize.width, targetSize.height,
+                numBands);
+        final DataBuffer dataBuffer = new StripDataBuffer(
+                targetSize.width * targetSize.height, numBands);
+        final WritableRaster raster =
+                Raster.createWritableRaster(sampleModel, dataBuffer, null);
+
+        LOGGER.debug("getImage(): streaming {}x{} region of image {} to " +
+                        "{}x{} in {}-row strips",
+                sourceRegion.width, sourceRegion.height, imageIndex,
+                targetSize.width, targetSize.height, sourceStripHeight);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * @param row Index of a row within {@link #sourceRegion}.
+     */
+    private void loadSourceStrip(int row) throws IOException {
+        // Align strips to the source's own strips or tiles.
+        final int absRow = sourceRegion.y + row;
+        final int top = Math.max(sourceRegion.y,
+                absRow - absRow % sourceStripHeight);
+        final int bottom = Math.min(sourceRegion.y + sourceRegion.height,
+                top + sourceStripHeight);
+        // Allow the previous strip to be collected during the read.
+        sourceStrip = null;
+        sourceStrip = reader.readRegion(imageIndex, new Rectangle(
+                sourceRegion.x, top, sourceRegion.width, bottom - top));
+        sourceStripY = top - sourceRegion.y;
+    }
+
+    /**
+     * @param row Index of a row within {@link #sourceRegion}.
+     * @return    The row as packed ARGB, which must not be modified. Gray
+     *            samples are copied into all three color channels.
+     */
+    private int[] getSourceRow(int row) throws IOException {
+        if (row < sourceStripY ||
+                row >= sourceStripY + sourceStrip.getHeight()) {
+            loadSourceStrip(row);
+        }
+        if (isSourceGray) {
+            final int[] samples = sourceStrip.getRaster().getSamples(0,
+                    row - sourceStripY, sourceRegion.width, 1, 0,
+                    sourceRowBuffer);
+            for (int x = 0; x < samples.length; x++) {
+                final int sample = samples[x];
+                samples[x] = 0xff000000 | (sample << 16) | (sample << 8) |
+                        sample;
+            }
+            return samples;
+        }
+        return sourceStrip.getRGB(0, row - sourceStripY, sourceRegion.width,
+                1, sourceRowBuffer, 0, sourceRegion.width);
+    }
+
+    /**
+     * @param row Index of a row within {@link #sourceRegion}.
+     * @return    The row scaled horizontally, as packed ARGB.
+     */
+    private int[] getWorkRow(int row) throws IOException {
+        int[] workRow = workRows.get(row);
+        if (workRow == null) {
+            final int[] sourceRow = getSourceRow(row);
+            if (horizontal == null) {
+                workRow = sourceRow.clone();
+            } else {
+                workRow = new int[targetSize.width];
+                for (int x = 0; x < targetSize.width; x++) {
+                    workRow[x] = horizontal.resample(x, sourceRow, 0, 1);
+                }
+            }
+            workRows.put(row, workRow);
+        }
+        return workRow;
+    }
+
+    /**
+     * Computes the output strip containing the given row into {@link
+     * #outputStrip}.
+     *
+     * @param y Output row.
+     */
+    private void loadOutputStrip(int y) throws IOException {
+        final int top = y - y % OUTPUT_STRIP_HEIGHT;
+        final int height = Math.min(OUTPUT_STRIP_HEIGHT,
+                targetSize.height - top);
+        if (outputStrip != null && top < outputStripY) {
+            // The strips are being read out of order, which is inefficient
+            // but still possible.
+            workRows.clear();
+        }
+
+        final int stripType;
+        if (isSourceGray) {
+            stripType = BufferedImage.TYPE_BYTE_GRAY;
+        } else if (isSourceAlpha) {
+            stripType = BufferedImage.TYPE_INT_ARGB;
+        } else {
+            stripType = BufferedImage.TYPE_INT_RGB;
+        }
+        final BufferedImage strip =
+                new BufferedImage(targetSize.width, height, stripType);
+        final int[] stripRow = new int[targetSize.width];
+        for (int i = 0; i < height; i++) {
+            final int row = top + i;
+            if (vertical == null) {
+                System.arraycopy(getWorkRow(row), 0, stripRow, 0,
+                        stripRow.length);
+                evictWorkRows(row);
+            } else {
+                scaleVertically(row, stripRow);
+                evictWorkRows(vertical.getMinPixel(row));
+            }
+            if (isSourceGray) {
+                for (int x = 0; x < stripRow.length; x++) {
+                    stripRow[x] &= 0xff;
+                }
+                strip.getRaster().setSamples(0, i, targetSize.width, 1, 0,
+                        stripRow);
+            } else {
+                strip.setRGB(0, i, targetSize.width, 1, stripRow, 0,
+                        targetSize.width);
+            }
+        }
+
+        if (strip.getType() == outputType) {
+            outputStrip = strip;
+        } else {
+            // Convert to gray and/or flatten the alpha in the same way as
+            // Java2DUtil.transformColor() and removeAlpha().
+            outputStrip = new BufferedImage(targetSize.width, height,
+                    outputType);
+            final Graphics2D g2d = outputStrip.createGraphics();
+            g2d.drawImage(strip, 0, 0, null);
+            g2d.dispose();
+        }
+        outputStripY = top;
+    }
+
+    /**
+     * Discards the horizontally-scaled rows above the given row, which will
+     * no longer be needed.
+     */
+    private void evictWorkRows(int minRow) {
+        final Iterator<Integer> it = workRows.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next() < minRow) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @param y      Output row.
+     * @param result Array to receive the row as packed ARGB.
+     */
+    private void scaleVertically(int y, int[] result) throws IOException {
+        final int offset = y * vertical.numContributors;
+        final int count = vertical.counts[y];
+        final int[][] rows = new int[count][];
+        for (int k = 0; k < count; k++) {
+            rows[k] = getWorkRow(vertical.pixels[offset + k]);
+        }
+        for (int x = 0; x < targetSize.width; x++) {
+            float a = 0, r = 0, g = 0, b = 0;
+            for (int k = 0; k < count; k++) {
+                final int argb = rows[k][x];
+                final float weight = vertical.weights[offset + k];
+                a += (argb >>> 24) * weight;
+                r += ((argb >> 16) & 0xff) * weight;
+                g += ((argb >> 8) & 0xff) * weight;
+                b += (argb & 0xff) * weight;
+            }
+            result[x] = ResampleContributions.pack(a, r, g, b);
+        }
+    }
+
+}
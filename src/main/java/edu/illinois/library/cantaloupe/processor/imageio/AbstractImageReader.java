@@ -18,6 +18,7 @@ import org.slf4j.Logger;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.FileImageInputStream;
 import javax.imageio.stream.ImageInputStream;
 import java.awt.Dimension;
 import java.awt.Rectangle;
@@ -26,6 +27,8 @@ import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -52,6 +55,9 @@ abstract class AbstractImageReader {
     /** Set in setSource(). */
     private Object source;
 
+    /** Access via {@link #getStructure()}. */
+    private SourceStructure structure;
+
     /**
      * Initializes an instance.
      *
@@ -77,14 +83,13 @@ abstract class AbstractImageReader {
         createReader();
     }
 
+    /**
+     * @return Readers that can read the source, as determined by sniffing
+     *         its contents. Only used when the format is not known.
+     */
     private List<javax.imageio.ImageReader> availableIIOReaders() {
-        final Iterator<javax.imageio.ImageReader> it;
-        if (format != null) {
-            it = ImageIO.getImageReadersByMIMEType(
-                    format.getPreferredMediaType().toString());
-        } else {
-            it = ImageIO.getImageReaders(inputStream);
-        }
+        final Iterator<javax.imageio.ImageReader> it =
+                ImageIO.getImageReaders(inputStream);
 
         final List<javax.imageio.ImageReader> iioReaders = new ArrayList<>();
         while (it.hasNext()) {
@@ -110,7 +115,13 @@ abstract class AbstractImageReader {
             throw new IOException("No source set.");
         }
 
-        iioReader = negotiateIIOReader();
+        if (format != null) {
+            iioReader = IIOPluginPool.getInstance().acquireReader(
+                    format.getPreferredMediaType().toString(),
+                    preferredIIOImplementations());
+        } else {
+            iioReader = negotiateIIOReader();
+        }
 
         if (iioReader != null) {
             getLogger().debug("Using {}", iioReader.getClass().getName());
@@ -136,14 +147,15 @@ abstract class AbstractImageReader {
     }
 
     /**
-     * Should be called when the instance is no longer needed.
+     * Should be called when the instance is no longer needed. The ImageIO
+     * reader is returned to the {@link IIOPluginPool} for reuse.
      */
     void dispose() {
         try {
             IOUtils.closeQuietly(inputStream);
         } finally {
             if (iioReader != null) {
-                iioReader.dispose();
+                IIOPluginPool.getInstance().releaseReader(iioReader);
                 iioReader = null;
             }
         }
@@ -156,19 +168,66 @@ abstract class AbstractImageReader {
     }
 
     abstract Logger getLogger();
+
+    /**
+     * @return Source file, or <code>null</code> if the source is a {@link
+     *         StreamSource}.
+     * @since 3.5
+     */
+    Path getSourceFile() {
+        return (source instanceof Path) ? (Path) source : null;
+    }
+
     abstract Metadata getMetadata(int imageIndex) throws IOException;
 
     /**
      * @return The number of images contained inside the source image.
      */
     int getNumResolutions() throws IOException {
-        // The boolean parameter tells getNumImages() whether to scan for
-        // images, which seems to be necessary for some, but is slower.
-        int numImages = iioReader.getNumImages(false);
-        if (numImages == -1) {
-            numImages = iioReader.getNumImages(true);
+        final SourceStructure structure = getStructure();
+        if (structure != null) {
+            return structure.getNumImages();
         }
-        return numImages;
+        return readNumResolutions();
+    }
+
+    /**
+     * @return Structure of the source, if {@link #isStructureCacheable()
+     *         cacheable} and the version of the source can be identified;
+     *         otherwise <code>null</code>. When the structure of the current
+     *         version of the source is not already in the {@link
+     *         SourceStructureCache}, it is read (which requires parsing the
+     *         headers of every image) and cached.
+     * @since 3.5
+     */
+    SourceStructure getStructure() throws IOException {
+        if (structure == null && isStructureCacheable()) {
+            final String key = getStructureKey();
+            if (key != null) {
+                final SourceStructureCache cache =
+                        SourceStructureCache.getInstance();
+                structure = cache.get(key);
+                if (structure == null) {
+                    structure = readStructure();
+                    cache.put(key, structure);
+                }
+            }
+        }
+        return structure;
+    }
+
+    /**
+     * @return Key of the current version of the source in the {@link
+     *         SourceStructureCache}, or <code>null</code> if its version
+     *         can't be identified.
+     */
+    private String getStructureKey() throws IOException {
+        if (source instanceof Path) {
+            return SourceStructureCache.getKey((Path) source);
+        } else if (source instanceof StreamSource) {
+            return ((StreamSource) source).getVersionKey();
+        }
+        return null;
     }
 
     /**
@@ -187,6 +246,10 @@ abstract class AbstractImageReader {
      * @return Dimensions in pixels
      */
     Dimension getSize(int imageIndex) throws IOException {
+        final SourceStructure structure = getStructure();
+        if (structure != null) {
+            return structure.getSize(imageIndex);
+        }
         final int width = iioReader.getWidth(imageIndex);
         final int height = iioReader.getHeight(imageIndex);
         return new Dimension(width, height);
@@ -198,11 +261,26 @@ abstract class AbstractImageReader {
      *         tiled, the full image dimensions are returned.
      */
     Dimension getTileSize(int imageIndex) throws IOException {
+        final SourceStructure structure = getStructure();
+        if (structure != null) {
+            return structure.getTileSize(imageIndex);
+        }
         final int width = iioReader.getTileWidth(imageIndex);
         final int height = iioReader.getTileHeight(imageIndex);
         return new Dimension(width, height);
     }
 
+    /**
+     * @return Whether the {@link #getStructure() structure} of the source
+     *         image is worth caching across instances. This is the case for
+     *         formats whose images are expensive to count or to locate
+     *         within the source.
+     * @since 3.5
+     */
+    boolean isStructureCacheable() {
+        return false;
+    }
+
     private javax.imageio.ImageReader negotiateIIOReader() {
         javax.imageio.ImageReader negotiatedReader = null;
 
@@ -250,6 +328,60 @@ abstract class AbstractImageReader {
         return new String[] {};
     }
 
+    /**
+     * @return Compression of the image at the given index, as read from the
+     *         source rather than the {@link #getStructure() structure}.
+     *         Readers of formats whose {@link #getStructure() structure} is
+     *         {@link #isStructureCacheable() cacheable} must override this to
+     *         do the reading, and may then read it from the structure in
+     *         {@link #getCompression(int)}.
+     * @since 3.5
+     */
+    Compression readCompression(int imageIndex) throws IOException {
+        return getCompression(imageIndex);
+    }
+
+    /**
+     * @return Byte offsets of the headers of the images within the source,
+     *         or an empty list if the format doesn't have such a thing or
+     *         they could not be read.
+     * @since 3.5
+     */
+    List<Long> readImageOffsets() throws IOException {
+        return Collections.emptyList();
+    }
+
+    private int readNumResolutions() throws IOException {
+        // The boolean parameter tells getNumImages() whether to scan for
+        // images, which seems to be necessary for some, but is slower.
+        int numImages = iioReader.getNumImages(false);
+        if (numImages == -1) {
+            numImages = iioReader.getNumImages(true);
+        }
+        return numImages;
+    }
+
+    private SourceStructure readStructure() throws IOException {
+        final int numImages = readNumResolutions();
+        final List<Dimension> sizes = new ArrayList<>(numImages);
+        final List<Dimension> tileSizes = new ArrayList<>(numImages);
+        for (int i = 0; i < numImages; i++) {
+            sizes.add(new Dimension(
+                    iioReader.getWidth(i), iioReader.getHeight(i)));
+            tileSizes.add(new Dimension(
+                    iioReader.getTileWidth(i), iioReader.getTileHeight(i)));
+        }
+        List<Long> offsets = readImageOffsets();
+        if (offsets.size() != numImages) {
+            getLogger().debug("readStructure(): found {} image offsets but " +
+                    "{} images; ignoring the offsets",
+                    offsets.size(), numImages);
+            offsets = Collections.emptyList();
+        }
+        return new SourceStructure(sizes, tileSizes, readCompression(0),
+                offsets);
+    }
+
     private void reset() throws IOException {
         if (source instanceof Path) {
             setSource((Path) source);
@@ -266,7 +398,9 @@ abstract class AbstractImageReader {
     void setSource(Path inputFile) throws IOException {
         dispose();
         source = inputFile;
-        inputStream = ImageIO.createImageInputStream(inputFile.toFile());
+        // Read the file directly rather than through whatever stream
+        // ImageIO.createImageInputStream() would choose.
+        inputStream = new FileImageInputStream(inputFile.toFile());
     }
 
     void setSource(StreamSource streamSource) throws IOException {
@@ -275,6 +409,16 @@ abstract class AbstractImageReader {
         inputStream = streamSource.newImageInputStream();
     }
 
+    /**
+     * Sets the structure to be returned by {@link #getStructure()} instead of
+     * looking it up in the {@link SourceStructureCache}.
+     *
+     * @since 3.5
+     */
+    void setStructure(SourceStructure structure) {
+        this.structure = structure;
+    }
+
     ////////////////////////////////////////////////////////////////////////
     /////////////////////// BufferedImage methods //////////////////////////
     ////////////////////////////////////////////////////////////////////////
@@ -318,8 +462,7 @@ abstract class AbstractImageReader {
 
         Crop crop = (Crop) ops.getFirst(Crop.class);
         if (crop != null && !hints.contains(ImageReader.Hint.IGNORE_CROP)) {
-            final Dimension fullSize = new Dimension(
-                    iioReader.getWidth(0), iioReader.getHeight(0));
+            final Dimension fullSize = getSize(0);
             image = tileAwareRead(0, crop.getRectangle(fullSize), hints);
         } else {
             image = iioReader.read(0);
@@ -350,8 +493,7 @@ abstract class AbstractImageReader {
             final ReductionFactor rf,
             final Set<ImageReader.Hint> hints)
             throws IOException {
-        final Dimension fullSize = new Dimension(
-                iioReader.getWidth(0), iioReader.getHeight(0));
+        final Dimension fullSize = getSize(0);
         final Rectangle regionRect = crop.getRectangle(fullSize);
         BufferedImage bestImage = null;
         if (!scale.hasEffect()) {
@@ -361,20 +503,11 @@ abstract class AbstractImageReader {
                     bestImage.getWidth(), bestImage.getHeight());
         } else {
             // Pyramidal TIFFs will have > 1 image, each with half the
-            // dimensions of the previous one. The boolean parameter tells
-            // getNumImages() whether to scan for images, which seems to be
-            // necessary for at least some files, but is slower. If it is
-            // false, and getNumImages() can't find anything, it will return -1.
-            int numImages = iioReader.getNumImages(false);
+            // dimensions of the previous one.
+            final int numImages = getNumResolutions();
             if (numImages > 1) {
                 getLogger().debug("Detected {} subimage(s)", numImages);
-            } else if (numImages == -1) {
-                numImages = iioReader.getNumImages(true);
-                if (numImages > 1) {
-                    getLogger().debug("Scan revealed {} subimage(s)", numImages);
-                }
             }
-            // At this point, we know how many images are available.
             if (numImages == 1) {
                 bestImage = tileAwareRead(0, regionRect, hints);
                 getLogger().debug("readSmallestUsableSubimage(): using a " +
@@ -384,8 +517,9 @@ abstract class AbstractImageReader {
                 // Loop through the reduced images from smallest to largest to
                 // find the first one that can supply the requested scale.
                 for (int i = numImages - 1; i >= 0; i--) {
-                    final int subimageWidth = iioReader.getWidth(i);
-                    final int subimageHeight = iioReader.getHeight(i);
+                    final Dimension subimageSize = getSize(i);
+                    final int subimageWidth = subimageSize.width;
+                    final int subimageHeight = subimageSize.height;
 
                     final double reducedScale = (double) subimageWidth /
                             (double) fullSize.width;
@@ -413,6 +547,39 @@ abstract class AbstractImageReader {
         return bestImage;
     }
 
+    /**
+     * Reads a region of the image at the given index, regardless of any
+     * operations. This enables an image to be read one strip at a time.
+     *
+     * @param imageIndex Index of the image to read.
+     * @param region     Region to read, in the coordinates of the image at
+     *                   the given index.
+     * @return           Image of the region, which may be of any type.
+     * @since 3.5
+     */
+    BufferedImage readRegion(int imageIndex, Rectangle region)
+            throws IOException {
+        return tileAwareRead(imageIndex, region,
+                EnumSet.noneOf(ImageReader.Hint.class));
+    }
+
+    /**
+     * Reads the whole image at the given index, regardless of any
+     * operations, keeping only every <code>subsampling</code>th pixel of
+     * every <code>subsampling</code>th row.
+     *
+     * @param imageIndex  Index of the image to read.
+     * @param subsampling Subsampling factor, 1 or greater.
+     * @return            Subsampled image, which may be of any type.
+     * @since 3.5
+     */
+    BufferedImage readSubsampled(int imageIndex, int subsampling)
+            throws IOException {
+        final ImageReadParam param = iioReader.getDefaultReadParam();
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        return iioReader.read(imageIndex, param);
+    }
+
     /**
      * <p>Returns an image for the requested source area by reading the tiles
      * (or strips) of the source image and joining them into a single image.</p>
@@ -433,13 +600,11 @@ abstract class AbstractImageReader {
      *                   reader.
      * @return Image
      */
-    private BufferedImage tileAwareRead(final int imageIndex,
+    BufferedImage tileAwareRead(final int imageIndex,
                                         final Rectangle region,
                                         final Set<ImageReader.Hint> hints)
             throws IOException {
-        final Dimension imageSize = new Dimension(
-                iioReader.getWidth(imageIndex),
-                iioReader.getHeight(imageIndex));
+        final Dimension imageSize = getSize(imageIndex);
         getLogger().debug("Acquiring region {},{}/{}x{} from {}x{} image",
                 region.x, region.y, region.width, region.height,
                 imageSize.width, imageSize.height);
@@ -547,8 +712,7 @@ abstract class AbstractImageReader {
                                              final Scale scale,
                                              final ReductionFactor rf)
             throws IOException {
-        final Dimension fullSize = new Dimension(
-                iioReader.getWidth(0), iioReader.getHeight(0));
+        final Dimension fullSize = getSize(0);
         final Rectangle regionRect = crop.getRectangle(fullSize);
         final ImageReadParam param = iioReader.getDefaultReadParam();
         RenderedImage bestImage = null;
@@ -558,18 +722,10 @@ abstract class AbstractImageReader {
                     bestImage.getWidth(), bestImage.getHeight());
         } else {
             // Pyramidal TIFFs will have > 1 image, each half the dimensions of
-            // the next larger. The "true" parameter tells getNumImages() to
-            // scan for images, which seems to be necessary for at least some
-            // files, but is slower.
-            int numImages = iioReader.getNumImages(false);
+            // the next larger.
+            final int numImages = getNumResolutions();
             if (numImages > 1) {
                 getLogger().debug("Detected {} subimage(s)", numImages - 1);
-            } else if (numImages == -1) {
-                numImages = iioReader.getNumImages(true);
-                if (numImages > 1) {
-                    getLogger().debug("Scan revealed {} subimage(s)",
-                            numImages - 1);
-                }
             }
             if (numImages == 1) {
                 bestImage = iioReader.read(0, param);
@@ -580,8 +736,9 @@ abstract class AbstractImageReader {
                 // Loop through the reduced images from smallest to largest to
                 // find the first one that can supply the requested scale.
                 for (int i = numImages - 1; i >= 0; i--) {
-                    final int subimageWidth = iioReader.getWidth(i);
-                    final int subimageHeight = iioReader.getHeight(i);
+                    final Dimension subimageSize = getSize(i);
+                    final int subimageWidth = subimageSize.width;
+                    final int subimageHeight = subimageSize.height;
 
                     final double reducedScale = (double) subimageWidth /
                             (double) fullSize.width;
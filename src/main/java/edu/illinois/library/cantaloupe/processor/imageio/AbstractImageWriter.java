@@ -5,7 +5,6 @@ import edu.illinois.library.cantaloupe.operation.Operation;
 import edu.illinois.library.cantaloupe.operation.OperationList;
 import org.slf4j.Logger;
 
-import javax.imageio.ImageIO;
 import javax.imageio.ImageTypeSpecifier;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.metadata.IIOMetadata;
@@ -13,9 +12,6 @@ import javax.imageio.metadata.IIOMetadataNode;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 
 abstract class AbstractImageWriter {
 
@@ -56,20 +52,15 @@ abstract class AbstractImageWriter {
      */
     abstract void addMetadata(IIOMetadataNode baseTree) throws IOException;
 
-    private List<javax.imageio.ImageWriter> availableIIOWriters() {
-        final Iterator<javax.imageio.ImageWriter> it =
-                ImageIO.getImageWritersByMIMEType(
-                    opList.getOutputFormat().getPreferredMediaType().toString());
-
-        final List<javax.imageio.ImageWriter> iioWriters = new ArrayList<>();
-        while (it.hasNext()) {
-            iioWriters.add(it.next());
-        }
-        return iioWriters;
-    }
-
     private void createWriter() {
-        this.iioWriter = negotiateImageWriter();
+        try {
+            this.iioWriter = IIOPluginPool.getInstance().acquireWriter(
+                    opList.getOutputFormat().getPreferredMediaType().toString(),
+                    preferredIIOImplementations());
+        } catch (IOException e) {
+            // This is what ImageIO.getImageWritersByMIMEType() would do.
+            throw new IllegalStateException(e);
+        }
 
         getLogger().debug("Using {}", iioWriter.getClass().getName());
     }
@@ -107,41 +98,6 @@ abstract class AbstractImageWriter {
         return derivativeMetadata;
     }
 
-    private javax.imageio.ImageWriter negotiateImageWriter() {
-        javax.imageio.ImageWriter negotiatedWriter = null;
-
-        final List<javax.imageio.ImageWriter> iioWriters =
-                availableIIOWriters();
-        boolean found = false;
-
-        if (!iioWriters.isEmpty()) {
-            final String[] preferredImplClasses = preferredIIOImplementations();
-
-            getLogger().debug("ImageIO plugin preferences: {}",
-                    (preferredImplClasses.length > 0) ?
-                            String.join(", ", preferredImplClasses) : "none");
-
-            if (preferredImplClasses.length > 0) {
-                for (String preferredImplClass : preferredImplClasses) {
-                    if (!found) {
-                        for (javax.imageio.ImageWriter candidateWriter : iioWriters) {
-                            if (preferredImplClass.equals(candidateWriter.getClass().getName())) {
-                                negotiatedWriter = candidateWriter;
-                                found = true;
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-
-            if (negotiatedWriter == null) {
-                negotiatedWriter = iioWriters.get(0);
-            }
-        }
-        return negotiatedWriter;
-    }
-
     /**
      * N.B. This method returns a list of strings rather than classes because
      * some writers reside under the com.sun package which is private in
@@ -154,6 +110,18 @@ abstract class AbstractImageWriter {
         return new String[] {};
     }
 
+    /**
+     * Returns the ImageIO writer to the {@link IIOPluginPool} for reuse.
+     * Should be called when the instance is done writing, after which it
+     * can no longer be used.
+     */
+    void releaseIIOWriter() {
+        if (iioWriter != null) {
+            IIOPluginPool.getInstance().releaseWriter(iioWriter);
+            iioWriter = null;
+        }
+    }
+
     /**
      * Writes the given image to the given output stream.
      *
@@ -6,11 +6,11 @@ import org.slf4j.LoggerFactory;
 import org.w3c.dom.NodeList;
 
 import javax.imageio.IIOImage;
-import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import javax.media.jai.JAI;
 import javax.media.jai.PlanarImage;
 import java.awt.image.BufferedImage;
@@ -97,13 +97,13 @@ final class GIFImageWriter extends AbstractImageWriter {
         final IIOMetadata metadata = getMetadata(writeParam, image);
         final IIOImage iioImage = new IIOImage(image, null, metadata);
 
-        try (ImageOutputStream os = ImageIO.
-                createImageOutputStream(outputStream)) {
+        try (ImageOutputStream os =
+                     new MemoryCacheImageOutputStream(outputStream)) {
             iioWriter.setOutput(os);
             iioWriter.write(iioImage);
             os.flush(); // http://stackoverflow.com/a/14489406
         } finally {
-            iioWriter.dispose();
+            releaseIIOWriter();
         }
     }
 
@@ -0,0 +1,257 @@
+package edu.illinois.library.cantaloupe.processor.imageio;
+
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.spi.ImageReaderWriterSpi;
+import javax.imageio.spi.ImageWriterSpi;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Pools of idle ImageIO readers and writers, one per plugin, which enable
+ * them to be reused across requests instead of being negotiated and
+ * instantiated for each one.</p>
+ *
+ * <p>The plugin to use for a given media type and implementation preference
+ * is negotiated once, from the service providers in the {@link
+ * IIORegistry}, without instantiating any of the candidates. Readers and
+ * writers are {@link ImageReader#reset() reset} when they are released, and
+ * are only {@link ImageReader#dispose() disposed} when their pool is
+ * full.</p>
+ *
+ * <p>N.B.: A released instance must no longer be used by the code that
+ * released it.</p>
+ *
+ * @since 3.5
+ */
+final class IIOPluginPool {
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(IIOPluginPool.class);
+
+    /**
+     * Maximum number of idle instances of each plugin. Busy instances are
+     * not limited.
+     */
+    private static final int MAX_IDLE_PER_PLUGIN =
+            Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final String METRIC_NAME =
+            IIOPluginPool.class.getSimpleName();
+
+    private static final IIOPluginPool INSTANCE = new IIOPluginPool();
+
+    private final ConcurrentMap<List<String>, ImageReaderSpi> readerProviders =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, ImageWriterSpi> writerProviders =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<ImageReaderSpi, BlockingQueue<ImageReader>>
+            idleReaders = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ImageWriterSpi, BlockingQueue<ImageWriter>>
+            idleWriters = new ConcurrentHashMap<>();
+
+    /**
+     * @return Shared instance.
+     */
+    static IIOPluginPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return Key of the negotiated provider for the given arguments.
+     */
+    private static List<String> getKey(String mediaType,
+                                       String[] preferredImplClasses) {
+        final List<String> key =
+                new ArrayList<>(preferredImplClasses.length + 1);
+        key.add(mediaType);
+        key.addAll(Arrays.asList(preferredImplClasses));
+        return key;
+    }
+
+    /**
+     * @return The first of the given providers whose plugin class is the
+     *         most preferred, or the first provider if none are preferred,
+     *         or <code>null</code> if there are no providers.
+     */
+    private static <T extends ImageReaderWriterSpi> T negotiate(
+            Iterator<T> providers, String[] preferredImplClasses) {
+        final List<T> candidates = new ArrayList<>();
+        while (providers.hasNext()) {
+            candidates.add(providers.next());
+        }
+        for (String preferredImplClass : preferredImplClasses) {
+            for (T candidate : candidates) {
+                if (preferredImplClass.equals(
+                        candidate.getPluginClassName())) {
+                    return candidate;
+                }
+            }
+        }
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    private static boolean supportsMediaType(ImageReaderWriterSpi provider,
+                                             String mediaType) {
+        final String[] mediaTypes = provider.getMIMETypes();
+        return mediaTypes != null &&
+                Arrays.asList(mediaTypes).contains(mediaType);
+    }
+
+    private IIOPluginPool() {}
+
+    /**
+     * @param mediaType            Media type to read.
+     * @param preferredImplClasses Preferred reader implementation classes, in
+     *                             priority order. May be empty.
+     * @return Idle or new reader of the given media type, or
+     *         <code>null</code> if no plugin can read it. It should be
+     *         {@link #releaseReader released} when it is no longer needed.
+     */
+    ImageReader acquireReader(String mediaType,
+                              String[] preferredImplClasses)
+            throws IOException {
+        final List<String> key = getKey(mediaType, preferredImplClasses);
+        ImageReaderSpi provider = readerProviders.get(key);
+        if (provider == null) {
+            provider = negotiate(IIORegistry.getDefaultInstance().
+                    getServiceProviders(ImageReaderSpi.class,
+                            p -> supportsMediaType((ImageReaderSpi) p,
+                                    mediaType), true),
+                    preferredImplClasses);
+            if (provider == null) {
+                return null;
+            }
+            LOGGER.debug("acquireReader(): negotiated {} for {}",
+                    provider.getPluginClassName(), mediaType);
+            readerProviders.put(key, provider);
+        }
+        ImageReader reader = getIdleReaders(provider).poll();
+        Metrics.cacheLookup(METRIC_NAME, "reader", reader != null);
+        if (reader == null) {
+            reader = provider.createReaderInstance();
+        }
+        return reader;
+    }
+
+    /**
+     * @param mediaType            Media type to write.
+     * @param preferredImplClasses Preferred writer implementation classes, in
+     *                             priority order. May be empty.
+     * @return Idle or new writer of the given media type, or
+     *         <code>null</code> if no plugin can write it. It should be
+     *         {@link #releaseWriter released} when it is no longer needed.
+     */
+    ImageWriter acquireWriter(String mediaType,
+                              String[] preferredImplClasses)
+            throws IOException {
+        final List<String> key = getKey(mediaType, preferredImplClasses);
+        ImageWriterSpi provider = writerProviders.get(key);
+        if (provider == null) {
+            provider = negotiate(IIORegistry.getDefaultInstance().
+                    getServiceProviders(ImageWriterSpi.class,
+                            p -> supportsMediaType((ImageWriterSpi) p,
+                                    mediaType), true),
+                    preferredImplClasses);
+            if (provider == null) {
+                return null;
+            }
+            LOGGER.debug("acquireWriter(): negotiated {} for {}",
+                    provider.getPluginClassName(), mediaType);
+            writerProviders.put(key, provider);
+        }
+        ImageWriter writer = getIdleWriters(provider).poll();
+        Metrics.cacheLookup(METRIC_NAME, "writer", writer != null);
+        if (writer == null) {
+            writer = provider.createWriterInstance();
+        }
+        return writer;
+    }
+
+    private BlockingQueue<ImageReader> getIdleReaders(ImageReaderSpi provider) {
+        return idleReaders.computeIfAbsent(provider,
+                p -> new ArrayBlockingQueue<>(MAX_IDLE_PER_PLUGIN));
+    }
+
+    private BlockingQueue<ImageWriter> getIdleWriters(ImageWriterSpi provider) {
+        return idleWriters.computeIfAbsent(provider,
+                p -> new ArrayBlockingQueue<>(MAX_IDLE_PER_PLUGIN));
+    }
+
+    /**
+     * Disposes of all idle instances.
+     */
+    void purge() {
+        LOGGER.debug("purge()");
+        for (BlockingQueue<ImageReader> readers : idleReaders.values()) {
+            ImageReader reader;
+            while ((reader = readers.poll()) != null) {
+                reader.dispose();
+            }
+        }
+        for (BlockingQueue<ImageWriter> writers : idleWriters.values()) {
+            ImageWriter writer;
+            while ((writer = writers.poll()) != null) {
+                writer.dispose();
+            }
+        }
+    }
+
+    /**
+     * Resets the given reader and returns it to its pool, or disposes of it
+     * if the pool is full or it can't be reset.
+     *
+     * @param reader Reader that is no longer needed, which may have been
+     *               obtained from somewhere other than {@link
+     *               #acquireReader}.
+     */
+    void releaseReader(ImageReader reader) {
+        final ImageReaderSpi provider = reader.getOriginatingProvider();
+        try {
+            reader.reset();
+            if (provider != null && getIdleReaders(provider).offer(reader)) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            LOGGER.debug("releaseReader(): failed to reset {}: {}",
+                    reader.getClass().getName(), e.getMessage());
+        }
+        reader.dispose();
+    }
+
+    /**
+     * Resets the given writer and returns it to its pool, or disposes of it
+     * if the pool is full or it can't be reset.
+     *
+     * @param writer Writer that is no longer needed, which may have been
+     *               obtained from somewhere other than {@link
+     *               #acquireWriter}.
+     */
+    void releaseWriter(ImageWriter writer) {
+        final ImageWriterSpi provider = writer.getOriginatingProvider();
+        try {
+            writer.reset();
+            if (provider != null && getIdleWriters(provider).offer(writer)) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            LOGGER.debug("releaseWriter(): failed to reset {}: {}",
+                    writer.getClass().getName(), e.getMessage());
+        }
+        writer.dispose();
+    }
+
+}
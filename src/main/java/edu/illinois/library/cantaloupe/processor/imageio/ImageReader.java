@@ -2,6 +2,9 @@ package edu.illinois.library.cantaloupe.processor.imageio;
 
 import edu.illinois.library.cantaloupe.image.Compression;
 import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
+import edu.illinois.library.cantaloupe.metrics.Timer;
 import edu.illinois.library.cantaloupe.operation.OperationList;
 import edu.illinois.library.cantaloupe.operation.Orientation;
 import edu.illinois.library.cantaloupe.processor.ProcessorException;
@@ -13,6 +16,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
 import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
@@ -61,6 +65,7 @@ public class ImageReader {
                     Format.GIF, Format.JPG, Format.PNG, Format.TIF));
 
     private Metadata cachedMetadata;
+    private Format format;
     private AbstractImageReader reader;
 
     static {
@@ -123,6 +128,7 @@ public class ImageReader {
      */
     public ImageReader(Path sourceFile, Format format)
             throws IOException {
+        this.format = format;
         switch (format) {
             case BMP:
                 reader = new BMPImageReader(sourceFile);
@@ -153,6 +159,7 @@ public class ImageReader {
      */
     public ImageReader(StreamSource streamSource, Format format)
             throws IOException {
+        this.format = format;
         switch (format) {
             case BMP:
                 reader = new BMPImageReader(streamSource);
@@ -175,6 +182,10 @@ public class ImageReader {
         }
     }
 
+    private Timer decodeTimer() {
+        return Metrics.decode(format.getPreferredExtension());
+    }
+
     /**
      * Should be called when the reader is no longer needed.
      */
@@ -250,7 +261,10 @@ public class ImageReader {
      *         {@link BufferedImage#TYPE_CUSTOM}.
      */
     public BufferedImage read() throws IOException {
-        return reader.read();
+        try (Timer.Context ignored = decodeTimer().time();
+             RequestTrace.Stage ignored2 = RequestTrace.stage("decode")) {
+            return reader.read();
+        }
     }
 
     /**
@@ -282,7 +296,50 @@ public class ImageReader {
                               final ReductionFactor reductionFactor,
                               final Set<Hint> hints)
             throws IOException, ProcessorException {
-        return reader.read(opList, orientation, reductionFactor, hints);
+        try (Timer.Context ignored = decodeTimer().time();
+             RequestTrace.Stage ignored2 = RequestTrace.stage("decode")) {
+            return reader.read(opList, orientation, reductionFactor, hints);
+        }
+    }
+
+    /**
+     * <p>Reads a region of the image at the given index, regardless of any
+     * operations. This enables an image to be read one strip at a time, which
+     * is efficient only for formats whose readers can decode a region
+     * without decoding everything before it, like TIFF.</p>
+     *
+     * <p>Unlike the other read methods, this one is not timed, as it is
+     * expected to be invoked many times per request.</p>
+     *
+     * @param imageIndex Zero-based index of the image to read.
+     * @param region     Region to read, in the coordinates of the image at
+     *                   the given index.
+     * @return           Image of the region, which may be of any type.
+     * @since 3.5
+     */
+    public BufferedImage readRegion(int imageIndex, Rectangle region)
+            throws IOException {
+        return reader.readRegion(imageIndex, region);
+    }
+
+    /**
+     * <p>Reads the whole image at the given index, regardless of any
+     * operations, keeping only every <code>subsampling</code>th pixel of
+     * every <code>subsampling</code>th row. This is a way to sample an image
+     * that may be too large to hold in memory, although all of it may still
+     * need to be decoded.</p>
+     *
+     * @param imageIndex  Zero-based index of the image to read.
+     * @param subsampling Subsampling factor, 1 or greater.
+     * @return            Subsampled image, which may be of any type.
+     * @since 3.5
+     */
+    public BufferedImage readSubsampled(int imageIndex, int subsampling)
+            throws IOException {
+        try (Timer.Context ignored = decodeTimer().time();
+             RequestTrace.Stage ignored2 = RequestTrace.stage("decode")) {
+            return reader.readSubsampled(imageIndex, subsampling);
+        }
     }
 
     /**
@@ -292,7 +349,10 @@ public class ImageReader {
      */
     public RenderedImage readRendered() throws IOException,
             UnsupportedSourceFormatException {
-        return reader.readRendered();
+        try (Timer.Context ignored = decodeTimer().time();
+             RequestTrace.Stage ignored2 = RequestTrace.stage("decode")) {
+            return reader.readRendered();
+        }
     }
 
     /**
@@ -318,7 +378,11 @@ public class ImageReader {
                                       final ReductionFactor reductionFactor,
                                       final Set<ImageReader.Hint> hints)
             throws IOException, ProcessorException {
-        return reader.readRendered(opList, orientation, reductionFactor, hints);
+        try (Timer.Context ignored = decodeTimer().time();
+             RequestTrace.Stage ignored2 = RequestTrace.stage("decode")) {
+            return reader.readRendered(opList, orientation, reductionFactor,
+                    hints);
+        }
     }
 
 }
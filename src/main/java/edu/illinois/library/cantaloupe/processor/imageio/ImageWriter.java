@@ -1,6 +1,9 @@
 package edu.illinois.library.cantaloupe.processor.imageio;
 
 import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
+import edu.illinois.library.cantaloupe.metrics.Timer;
 import edu.illinois.library.cantaloupe.operation.OperationList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +35,7 @@ public class ImageWriter {
             Collections.unmodifiableSet(EnumSet.of(Format.GIF, Format.JPG,
                     Format.PNG, Format.TIF));
 
+    private Format outputFormat;
     private AbstractImageWriter wrappedWriter;
     private Metadata sourceMetadata;
 
@@ -70,7 +74,8 @@ public class ImageWriter {
     }
 
     public ImageWriter(final OperationList opList) {
-        switch (opList.getOutputFormat()) {
+        outputFormat = opList.getOutputFormat();
+        switch (outputFormat) {
             case GIF:
                 wrappedWriter = new GIFImageWriter(opList, sourceMetadata);
                 break;
@@ -107,7 +112,11 @@ public class ImageWriter {
      */
     public void write(final RenderedImage image,
                       final OutputStream outputStream) throws IOException {
-        wrappedWriter.write(image, outputStream);
+        try (Timer.Context ignored =
+                     Metrics.encode(outputFormat.getPreferredExtension()).time();
+             RequestTrace.Stage ignored2 = RequestTrace.stage("encode")) {
+            wrappedWriter.write(image, outputStream);
+        }
     }
 
 }
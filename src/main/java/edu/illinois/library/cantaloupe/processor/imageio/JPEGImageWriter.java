@@ -9,11 +9,11 @@ import org.slf4j.LoggerFactory;
 import org.w3c.dom.Node;
 
 import javax.imageio.IIOImage;
-import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import javax.media.jai.JAI;
 import javax.media.jai.OpImage;
 import javax.media.jai.PlanarImage;
@@ -166,11 +166,11 @@ final class JPEGImageWriter extends AbstractImageWriter {
         final IIOImage iioImage = new IIOImage(image, null, metadata);
 
         try (ImageOutputStream os =
-                     ImageIO.createImageOutputStream(outputStream)) {
+                     new MemoryCacheImageOutputStream(outputStream)) {
             iioWriter.setOutput(os);
             iioWriter.write(null, iioImage, writeParam);
         } finally {
-            iioWriter.dispose();
+            releaseIIOWriter();
         }
     }
 
@@ -201,11 +201,11 @@ final class JPEGImageWriter extends AbstractImageWriter {
                 image.getAsBufferedImage(), null, metadata);
 
         try (ImageOutputStream os =
-                     ImageIO.createImageOutputStream(outputStream)) {
+                     new MemoryCacheImageOutputStream(outputStream)) {
             iioWriter.setOutput(os);
             iioWriter.write(null, iioImage, writeParam);
         } finally {
-            iioWriter.dispose();
+            releaseIIOWriter();
         }
 
     }
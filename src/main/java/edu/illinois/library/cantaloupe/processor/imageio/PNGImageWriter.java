@@ -6,10 +6,10 @@ import org.slf4j.LoggerFactory;
 import org.w3c.dom.NodeList;
 
 import javax.imageio.IIOImage;
-import javax.imageio.ImageIO;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import javax.media.jai.PlanarImage;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
@@ -110,11 +110,11 @@ final class PNGImageWriter extends AbstractImageWriter {
         final IIOImage iioImage = new IIOImage(image, null, metadata);
 
         try (ImageOutputStream os =
-                     ImageIO.createImageOutputStream(outputStream)) {
+                     new MemoryCacheImageOutputStream(outputStream)) {
             iioWriter.setOutput(os);
             iioWriter.write(iioImage);
         } finally {
-            iioWriter.dispose();
+            releaseIIOWriter();
         }
     }
 
@@ -0,0 +1,107 @@
+package edu.illinois.library.cantaloupe.processor.imageio;
+
+import edu.illinois.library.cantaloupe.image.Compression;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Immutable structural information about a source image that is expensive
+ * to obtain from an ImageIO reader, because it requires parsing the headers
+ * of every image in the source: the number of images, their dimensions and
+ * tile dimensions, their compression, and (for formats that have such a
+ * thing) their byte offsets within the source.</p>
+ *
+ * <p>Instances are cached across readers by {@link
+ * SourceStructureCache}.</p>
+ *
+ * @since 3.5
+ */
+final class SourceStructure {
+
+    private final Compression compression;
+    private final List<Long> imageOffsets;
+    private final List<Dimension> sizes;
+    private final List<Dimension> tileSizes;
+
+    /**
+     * @param sizes        Dimensions of each image.
+     * @param tileSizes    Tile dimensions of each image.
+     * @param compression  Compression of the first image.
+     * @param imageOffsets Byte offset of the header of each image within the
+     *                     source, or an empty list if not known.
+     */
+    SourceStructure(List<Dimension> sizes,
+                    List<Dimension> tileSizes,
+                    Compression compression,
+                    List<Long> imageOffsets) {
+        if (sizes.size() != tileSizes.size()) {
+            throw new IllegalArgumentException(
+                    "There must be as many tile sizes as sizes.");
+        }
+        this.sizes = copy(sizes);
+        this.tileSizes = copy(tileSizes);
+        this.compression = compression;
+        this.imageOffsets = Collections.unmodifiableList(
+                new ArrayList<>(imageOffsets));
+    }
+
+    private static List<Dimension> copy(List<Dimension> dimensions) {
+        final List<Dimension> copies = new ArrayList<>(dimensions.size());
+        for (Dimension dimension : dimensions) {
+            copies.add(new Dimension(dimension));
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @param imageIndex Zero-based image index.
+     * @return           Byte offset of the header of the image at the given
+     *                   index within the source, or <code>-1</code> if not
+     *                   known.
+     */
+    long getImageOffset(int imageIndex) {
+        return (imageIndex < imageOffsets.size()) ?
+                imageOffsets.get(imageIndex) : -1;
+    }
+
+    int getNumImages() {
+        return sizes.size();
+    }
+
+    /**
+     * @param imageIndex Zero-based image index.
+     * @return           New instance describing the image at the given index
+     *                   as though it were the only one in the source.
+     */
+    SourceStructure getSubimage(int imageIndex) {
+        return new SourceStructure(
+                Collections.singletonList(sizes.get(imageIndex)),
+                Collections.singletonList(tileSizes.get(imageIndex)),
+                compression,
+                Collections.singletonList(getImageOffset(imageIndex)));
+    }
+
+    /**
+     * @param imageIndex Zero-based image index.
+     * @return           New instance.
+     */
+    Dimension getSize(int imageIndex) {
+        return new Dimension(sizes.get(imageIndex));
+    }
+
+    /**
+     * @param imageIndex Zero-based image index.
+     * @return           New instance.
+     */
+    Dimension getTileSize(int imageIndex) {
+        return new Dimension(tileSizes.get(imageIndex));
+    }
+
+}
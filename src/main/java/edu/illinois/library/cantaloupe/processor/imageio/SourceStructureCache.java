@@ -0,0 +1,89 @@
+package edu.illinois.library.cantaloupe.processor.imageio;
+
+import edu.illinois.library.cantaloupe.resolver.StreamSource;
+import edu.illinois.library.cantaloupe.util.ObjectCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * <p>Size-bounded heap cache of {@link SourceStructure}s of sources, which
+ * enables readers of the same source to skip parsing the headers of every
+ * image within it. This matters most for sources on network storage, where
+ * parsing them requires reading everything up to the last header.</p>
+ *
+ * <p>Structures of files are keyed by pathname, last-modified time, and
+ * size, and structures of {@link StreamSource}s by their {@link
+ * StreamSource#getVersionKey() version key}, which includes the location and
+ * last-modified time of the source. Either way, a source that is replaced or
+ * modified will be parsed again.</p>
+ *
+ * @since 3.5
+ */
+final class SourceStructureCache {
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(SourceStructureCache.class);
+
+    /**
+     * Rough estimate of the heap size of a structure, including its key. A
+     * structure of a pyramid with many levels will be somewhat bigger.
+     */
+    private static final int EXPECTED_AVERAGE_STRUCTURE_SIZE = 1024;
+
+    private static final SourceStructureCache INSTANCE =
+            new SourceStructureCache();
+
+    private final ObjectCache<String, SourceStructure> objectCache =
+            new ObjectCache<>(SourceStructureCache.class.getSimpleName(),
+                    "structure", EXPECTED_AVERAGE_STRUCTURE_SIZE);
+
+    /**
+     * @return Shared instance.
+     */
+    static SourceStructureCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return Key identifying the current version of the given file.
+     */
+    static String getKey(Path file) throws IOException {
+        final BasicFileAttributes attrs =
+                Files.readAttributes(file, BasicFileAttributes.class);
+        return file.toAbsolutePath() + "@" +
+                attrs.lastModifiedTime().toMillis() + "/" + attrs.size();
+    }
+
+    private SourceStructureCache() {}
+
+    /**
+     * @param key Key identifying the version of a source, from {@link
+     *            #getKey(Path)} or {@link StreamSource#getVersionKey()}.
+     * @return    Structure of the given version of the source, or
+     *            <code>null</code> if not cached.
+     */
+    SourceStructure get(String key) {
+        return objectCache.get(key);
+    }
+
+    /**
+     * @param key       Key identifying the version of a source, from {@link
+     *                  #getKey(Path)} or {@link
+     *                  StreamSource#getVersionKey()}.
+     * @param structure Structure of the given version of the source.
+     */
+    void put(String key, SourceStructure structure) {
+        LOGGER.debug("put(): adding {}", key);
+        objectCache.put(key, structure);
+    }
+
+    void purge() {
+        objectCache.purge();
+    }
+
+}
@@ -1,6 +1,8 @@
 package edu.illinois.library.cantaloupe.processor.imageio;
 
+import edu.illinois.library.cantaloupe.async.ThreadPool;
 import edu.illinois.library.cantaloupe.image.Compression;
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
 import edu.illinois.library.cantaloupe.operation.Crop;
 import edu.illinois.library.cantaloupe.image.Format;
 import edu.illinois.library.cantaloupe.operation.Operation;
@@ -16,19 +18,157 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.NodeList;
 
+import javax.imageio.ImageReadParam;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteOrder;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 final class TIFFImageReader extends AbstractImageReader {
 
     private static final Logger LOGGER = LoggerFactory.
             getLogger(TIFFImageReader.class);
 
+    /**
+     * Minimum number of pixels in each band of a region that is decoded in
+     * parallel by {@link #tileAwareRead}.
+     */
+    private static final long MIN_PARALLEL_BAND_PIXELS = 1024 * 1024;
+
+    /**
+     * Maximum number of IFDs that {@link #readIFDOffsets} will follow, as a
+     * safeguard against corrupt files.
+     */
+    private static final int MAX_IFDS = 1024;
+
+    /**
+     * Offset of the IFD that the instance reads as image 0, if it was
+     * created by {@link #TIFFImageReader(Path, SourceStructure, int)};
+     * otherwise 0.
+     */
+    private long subimageOffset;
+
+    /**
+     * Divides a region into horizontal bands along tile boundaries, for
+     * decoding in parallel.
+     *
+     * @param region        Region to divide.
+     * @param tileHeight    Height of the tiles or strips of the image.
+     * @param maxBands      Maximum number of bands.
+     * @param minBandPixels Minimum number of pixels in each band.
+     * @return              Bands covering the region, top to bottom. There
+     *                      will be only one if the region is too small to
+     *                      divide.
+     */
+    static List<Rectangle> getBands(Rectangle region,
+                                    int tileHeight,
+                                    int maxBands,
+                                    long minBandPixels) {
+        final List<Rectangle> bands = new ArrayList<>();
+        if (region.isEmpty() || tileHeight < 1) {
+            bands.add(region);
+            return bands;
+        }
+        final int firstTileRow = region.y / tileHeight;
+        final int numTileRows =
+                (region.y + region.height - 1) / tileHeight - firstTileRow + 1;
+        final long numPixels = (long) region.width * region.height;
+        final int numBands = (int) Math.max(1, Math.min(
+                Math.min(maxBands, numTileRows), numPixels / minBandPixels));
+
+        final int bottom = region.y + region.height;
+        for (int i = 0; i < numBands; i++) {
+            final int startTileRow = firstTileRow + numTileRows * i / numBands;
+            final int endTileRow =
+                    firstTileRow + numTileRows * (i + 1) / numBands;
+            final int y = Math.max(region.y, startTileRow * tileHeight);
+            final int endY = Math.min(bottom, endTileRow * tileHeight);
+            bands.add(new Rectangle(region.x, y, region.width, endY - y));
+        }
+        return bands;
+    }
+
+    /**
+     * Reads the offsets of the image file directories (IFDs) in the main IFD
+     * chain of a TIFF or BigTIFF stream, which correspond to the image
+     * indices of an ImageIO reader, without parsing the IFDs themselves.
+     *
+     * @param inputStream Stream to read. Its position and byte order will be
+     *                    changed.
+     * @return            IFD offsets in chain order, or an empty list if the
+     *                    stream is not a TIFF or the chain is corrupt.
+     */
+    static List<Long> readIFDOffsets(ImageInputStream inputStream)
+            throws IOException {
+        final List<Long> offsets = new ArrayList<>();
+        inputStream.seek(0);
+        final int byteOrder = inputStream.readUnsignedShort();
+        if (byteOrder == 0x4949) { // "II"
+            inputStream.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        } else if (byteOrder == 0x4d4d) { // "MM"
+            inputStream.setByteOrder(ByteOrder.BIG_ENDIAN);
+        } else {
+            return offsets;
+        }
+
+        final boolean isBigTIFF;
+        long offset;
+        switch (inputStream.readUnsignedShort()) {
+            case 42:
+                isBigTIFF = false;
+                offset = inputStream.readUnsignedInt();
+                break;
+            case 43:
+                isBigTIFF = true;
+                inputStream.skipBytes(4);
+                offset = inputStream.readLong();
+                break;
+            default:
+                return offsets;
+        }
+
+        final long length = inputStream.length();
+        try {
+            while (offset != 0) {
+                if (offset < 0 || (length >= 0 && offset >= length) ||
+                        offsets.contains(offset) ||
+                        offsets.size() >= MAX_IFDS) {
+                    LOGGER.debug("readIFDOffsets(): invalid IFD offset: {}",
+                            offset);
+                    return new ArrayList<>();
+                }
+                offsets.add(offset);
+                inputStream.seek(offset);
+                if (isBigTIFF) {
+                    final long numEntries = inputStream.readLong();
+                    inputStream.seek(offset + 8 + numEntries * 20);
+                    offset = inputStream.readLong();
+                } else {
+                    final int numEntries = inputStream.readUnsignedShort();
+                    inputStream.seek(offset + 2 + numEntries * 12L);
+                    offset = inputStream.readUnsignedInt();
+                }
+            }
+        } catch (EOFException e) {
+            LOGGER.debug("readIFDOffsets(): {}", e.getMessage());
+            return new ArrayList<>();
+        }
+        return offsets;
+    }
+
     /**
      * @param sourceFile Source file to read.
      */
@@ -36,6 +176,32 @@ final class TIFFImageReader extends AbstractImageReader {
         super(sourceFile, Format.TIF);
     }
 
+    /**
+     * Creates an instance that reads only the image at the given index,
+     * as image 0, by opening it at the IFD offset recorded in the given
+     * structure instead of scanning the IFDs of the images before it. Its
+     * metadata is ignored.
+     *
+     * @param sourceFile Source file to read.
+     * @param structure  Structure of the source file, which must contain
+     *                   the offset of the image at the given index.
+     * @param imageIndex Index of the image to read.
+     */
+    TIFFImageReader(Path sourceFile,
+                    SourceStructure structure,
+                    int imageIndex) throws IOException {
+        super(sourceFile, Format.TIF);
+        subimageOffset = structure.getImageOffset(imageIndex);
+        if (subimageOffset < 1) {
+            throw new IllegalArgumentException(
+                    "The structure does not contain the image offset.");
+        }
+        setStructure(structure.getSubimage(imageIndex));
+        inputStream = new TIFFSubimageInputStream(inputStream,
+                subimageOffset);
+        iioReader.setInput(inputStream, false, true);
+    }
+
     /**
      * @param streamSource Source of streams to read.
      */
@@ -45,6 +211,64 @@ final class TIFFImageReader extends AbstractImageReader {
 
     @Override
     Compression getCompression(int imageIndex) throws IOException {
+        final SourceStructure structure = getStructure();
+        if (structure != null) {
+            return structure.getCompression();
+        }
+        return readCompression(imageIndex);
+    }
+
+    @Override
+    Logger getLogger() {
+        return LOGGER;
+    }
+
+    @Override
+    Metadata getMetadata(int imageIndex) throws IOException {
+        final IIOMetadata metadata = iioReader.getImageMetadata(imageIndex);
+        final String metadataFormat = metadata.getNativeMetadataFormatName();
+        return new TIFFMetadata(metadata, metadataFormat);
+    }
+
+    /**
+     * @return <code>true</code>, as counting the images in the source
+     *         requires reading every IFD, and locating one requires reading
+     *         every IFD before it.
+     */
+    @Override
+    boolean isStructureCacheable() {
+        return true;
+    }
+
+    /**
+     * @return A new instance reading the same image from the same file.
+     */
+    private TIFFImageReader newSiblingReader() throws IOException {
+        if (subimageOffset > 0) {
+            return new TIFFImageReader(getSourceFile(), getStructure(), 0);
+        }
+        return new TIFFImageReader(getSourceFile());
+    }
+
+    @Override
+    String[] preferredIIOImplementations() {
+        // N.B.: The GeoSolutions TIFF reader supports BigTIFF among other
+        // enhancements. The Sun reader will do as a fallback.
+        String[] impls = new String[2];
+        impls[0] = it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReader.class.getName();
+
+        // The Sun TIFF reader has moved in Java 9.
+        if (SystemUtils.getJavaMajorVersion() >= 9) {
+            impls[1] = "com.sun.imageio.plugins.tiff.TIFFImageReader";
+        } else {
+            impls[1] = "com.sun.media.imageioimpl.plugins.tiff.TIFFImageReader";
+        }
+
+        return impls;
+    }
+
+    @Override
+    Compression readCompression(int imageIndex) throws IOException {
         String compStr = "";
         final IIOMetadataNode node = getMetadata(0).getAsTree();
         final NodeList fields = node.getElementsByTagName("TIFFField");
@@ -73,33 +297,32 @@ final class TIFFImageReader extends AbstractImageReader {
         }
     }
 
+    /**
+     * @return Offsets of the IFDs of the images in the source.
+     */
     @Override
-    Logger getLogger() {
-        return LOGGER;
-    }
-
-    @Override
-    Metadata getMetadata(int imageIndex) throws IOException {
-        final IIOMetadata metadata = iioReader.getImageMetadata(imageIndex);
-        final String metadataFormat = metadata.getNativeMetadataFormatName();
-        return new TIFFMetadata(metadata, metadataFormat);
+    List<Long> readImageOffsets() throws IOException {
+        final long position = inputStream.getStreamPosition();
+        final ByteOrder byteOrder = inputStream.getByteOrder();
+        try {
+            return readIFDOffsets(inputStream);
+        } finally {
+            inputStream.seek(position);
+            inputStream.setByteOrder(byteOrder);
+        }
     }
 
+    /**
+     * Override that preserves the view of a single image of an instance
+     * created by {@link #TIFFImageReader(Path, SourceStructure, int)}.
+     */
     @Override
-    String[] preferredIIOImplementations() {
-        // N.B.: The GeoSolutions TIFF reader supports BigTIFF among other
-        // enhancements. The Sun reader will do as a fallback.
-        String[] impls = new String[2];
-        impls[0] = it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReader.class.getName();
-
-        // The Sun TIFF reader has moved in Java 9.
-        if (SystemUtils.getJavaMajorVersion() >= 9) {
-            impls[1] = "com.sun.imageio.plugins.tiff.TIFFImageReader";
-        } else {
-            impls[1] = "com.sun.media.imageioimpl.plugins.tiff.TIFFImageReader";
+    void setSource(Path inputFile) throws IOException {
+        super.setSource(inputFile);
+        if (subimageOffset > 0) {
+            inputStream = new TIFFSubimageInputStream(inputStream,
+                    subimageOffset);
         }
-
-        return impls;
     }
 
     ////////////////////////////////////////////////////////////////////////
@@ -157,6 +380,175 @@ final class TIFFImageReader extends AbstractImageReader {
         return image;
     }
 
+    /**
+     * <p>Override that decodes large regions spanning multiple rows of tiles
+     * (or strips) in parallel, when the source is a file. The region is
+     * divided into horizontal bands along tile boundaries, which are decoded
+     * by separate ImageIO readers, each with its own stream, directly into
+     * the returned image. One band is decoded in the calling thread and the
+     * rest are submitted to the {@link ThreadPool}; any of them that have not
+     * started by the time the calling thread is done with its own are
+     * decoded in the calling thread as well.</p>
+     *
+     * <p>The time spent decoding each band, in whichever thread, is summed
+     * into the <code>decode_bands</code> stage of the {@link RequestTrace
+     * current trace}, which is passed to the bands explicitly because pool
+     * threads can't see it.</p>
+     *
+     * <p>Smaller regions are read serially by the parent.</p>
+     *
+     * <p>Images other than the first one in a source file are read by a new
+     * instance that opens the file at the offset of the image, when it is
+     * known from the {@link #getStructure() structure}.</p>
+     */
+    @Override
+    BufferedImage tileAwareRead(final int imageIndex,
+                                final Rectangle region,
+                                final Set<ImageReader.Hint> hints)
+            throws IOException {
+        final SourceStructure structure = getStructure();
+        if (imageIndex > 0 && structure != null &&
+                structure.getImageOffset(imageIndex) > 0 &&
+                getSourceFile() != null) {
+            LOGGER.debug("tileAwareRead(): opening image {} at offset {}",
+                    imageIndex, structure.getImageOffset(imageIndex));
+            final TIFFImageReader reader = new TIFFImageReader(
+                    getSourceFile(), structure, imageIndex);
+            try {
+                return reader.tileAwareRead(0, region, hints);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        final Rectangle clippedRegion = region.intersection(new Rectangle(
+                getSize(imageIndex)));
+        final List<Rectangle> bands = getBands(clippedRegion,
+                getTileSize(imageIndex).height,
+                Runtime.getRuntime().availableProcessors(),
+                MIN_PARALLEL_BAND_PIXELS);
+        if (bands.size() < 2 || getSourceFile() == null) {
+            return super.tileAwareRead(imageIndex, region, hints);
+        }
+
+        LOGGER.debug("tileAwareRead(): decoding region {},{}/{}x{} in {} " +
+                        "bands", clippedRegion.x, clippedRegion.y,
+                clippedRegion.width, clippedRegion.height, bands.size());
+
+        final BufferedImage image = iioReader.getImageTypes(imageIndex).
+                next().createBufferedImage(clippedRegion.width,
+                        clippedRegion.height);
+        final RequestTrace trace = RequestTrace.current();
+        final List<BandRead> reads = new ArrayList<>(bands.size());
+        for (Rectangle band : bands) {
+            reads.add(new BandRead(imageIndex, band, clippedRegion, image,
+                    trace));
+        }
+        for (int i = 1; i < reads.size(); i++) {
+            ThreadPool.getInstance().submit(reads.get(i));
+        }
+        reads.get(0).run(iioReader);
+
+        try {
+            for (BandRead read : reads) {
+                read.run();
+                read.result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+        hints.add(ImageReader.Hint.ALREADY_CROPPED);
+        return image;
+    }
+
+    /**
+     * Decoding of one band of a region into the image that will be returned
+     * by {@link #tileAwareRead}. It is run at most once, by whichever thread
+     * gets to it first.
+     */
+    private final class BandRead implements Runnable {
+
+        private final Rectangle band;
+        private final BufferedImage destination;
+        private final int imageIndex;
+        private final Rectangle region;
+        private final CompletableFuture<Void> result =
+                new CompletableFuture<>();
+        private final AtomicBoolean isStarted = new AtomicBoolean();
+        private final RequestTrace trace;
+
+        /**
+         * @param trace Trace of the request on behalf of which the band is
+         *              decoded. May be <code>null</code>.
+         */
+        BandRead(int imageIndex, Rectangle band, Rectangle region,
+                 BufferedImage destination, RequestTrace trace) {
+            this.imageIndex = imageIndex;
+            this.band = band;
+            this.region = region;
+            this.destination = destination;
+            this.trace = trace;
+        }
+
+        /**
+         * Decodes the band using a new reader.
+         */
+        @Override
+        public void run() {
+            if (isStarted.compareAndSet(false, true)) {
+                TIFFImageReader reader = null;
+                try {
+                    reader = newSiblingReader();
+                    read(reader.iioReader);
+                } catch (Throwable t) {
+                    // Anything that escapes would leave the result
+                    // incomplete and the thread waiting for it hung.
+                    result.completeExceptionally(t);
+                } finally {
+                    if (reader != null) {
+                        reader.dispose();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Decodes the band using the given reader.
+         */
+        void run(javax.imageio.ImageReader reader) {
+            if (isStarted.compareAndSet(false, true)) {
+                try {
+                    read(reader);
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            }
+        }
+
+        private void read(javax.imageio.ImageReader reader)
+                throws IOException {
+            try (RequestTrace.Stage ignored =
+                         RequestTrace.stage(trace, "decode_bands")) {
+                final ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(band);
+                param.setDestination(destination);
+                param.setDestinationOffset(new Point(0, band.y - region.y));
+                reader.read(imageIndex, param);
+            }
+            result.complete(null);
+        }
+
+    }
+
     ////////////////////////////////////////////////////////////////////////
     /////////////////////// RenderedImage methods //////////////////////////
     ////////////////////////////////////////////////////////////////////////
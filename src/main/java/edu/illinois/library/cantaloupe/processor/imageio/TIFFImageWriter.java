@@ -12,12 +12,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.imageio.IIOImage;
-import javax.imageio.ImageIO;
 import javax.imageio.ImageTypeSpecifier;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import javax.media.jai.PlanarImage;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
@@ -186,12 +186,12 @@ final class TIFFImageWriter extends AbstractImageWriter {
         final IIOImage iioImage = new IIOImage(image, null, metadata);
 
         try (ImageOutputStream os =
-                     ImageIO.createImageOutputStream(outputStream)) {
+                     new MemoryCacheImageOutputStream(outputStream)) {
             iioWriter.setOutput(os);
             iioWriter.write(metadata, iioImage, writeParam);
             os.flush(); // http://stackoverflow.com/a/14489406
         } finally {
-            iioWriter.dispose();
+            releaseIIOWriter();
         }
     }
 
@@ -0,0 +1,123 @@
+package edu.illinois.library.cantaloupe.processor.imageio;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>View of a TIFF stream whose header points to the image file directory
+ * (IFD) at a given offset instead of the first one, so that a TIFF reader
+ * will read the image at that offset as image 0 without scanning the IFDs
+ * of the images before it.</p>
+ *
+ * <p>Only the pointer in the header is changed. The rest of the stream,
+ * including all of the offsets within it, is read unchanged from the wrapped
+ * stream, which is closed along with the instance.</p>
+ *
+ * @since 3.5
+ */
+final class TIFFSubimageInputStream extends ImageInputStreamImpl {
+
+    private final byte[] header;
+    private final ImageInputStream wrappedStream;
+
+    /**
+     * @param wrappedStream Stream of a TIFF or BigTIFF image.
+     * @param ifdOffset     Byte offset of the IFD to read as the first one.
+     * @throws IOException  If the wrapped stream is not a TIFF.
+     */
+    TIFFSubimageInputStream(ImageInputStream wrappedStream,
+                            long ifdOffset) throws IOException {
+        this.wrappedStream = wrappedStream;
+
+        final byte[] bytes = new byte[16];
+        wrappedStream.seek(0);
+        wrappedStream.readFully(bytes, 0, 8);
+
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes[0] == 'I' && bytes[1] == 'I') {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (bytes[0] == 'M' && bytes[1] == 'M') {
+            buffer.order(ByteOrder.BIG_ENDIAN);
+        } else {
+            throw new IOException("Not a TIFF stream");
+        }
+        switch (buffer.getShort(2)) {
+            case 42:
+                buffer.putInt(4, (int) ifdOffset);
+                header = new byte[8];
+                break;
+            case 43:
+                wrappedStream.readFully(bytes, 8, 8);
+                buffer.putLong(8, ifdOffset);
+                header = new byte[16];
+                break;
+            default:
+                throw new IOException("Not a TIFF stream");
+        }
+        System.arraycopy(bytes, 0, header, 0, header.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            wrappedStream.close();
+        }
+    }
+
+    @Override
+    public long length() {
+        try {
+            return wrappedStream.length();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos < header.length) {
+            return header[(int) streamPos++] & 0xff;
+        }
+        seekWrappedStream();
+        final int b = wrappedStream.read();
+        if (b != -1) {
+            streamPos++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (len == 0) {
+            return 0;
+        }
+        if (streamPos < header.length) {
+            final int n = (int) Math.min(len, header.length - streamPos);
+            System.arraycopy(header, (int) streamPos, b, off, n);
+            streamPos += n;
+            return n;
+        }
+        seekWrappedStream();
+        final int n = wrappedStream.read(b, off, len);
+        if (n > 0) {
+            streamPos += n;
+        }
+        return n;
+    }
+
+    private void seekWrappedStream() throws IOException {
+        if (wrappedStream.getStreamPosition() != streamPos) {
+            wrappedStream.seek(streamPos);
+        }
+    }
+
+}
@@ -16,13 +16,14 @@ import edu.illinois.library.cantaloupe.util.AWSClientBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import javax.script.ScriptException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.NoSuchFileException;
+import java.util.Date;
 import java.util.Map;
 
 /**
@@ -70,14 +71,26 @@ class AmazonS3Resolver extends AbstractResolver implements StreamResolver {
     private static class S3ObjectStreamSource implements StreamSource {
 
         private ObjectInfo objectInfo;
+        private Date lastModified;
 
-        S3ObjectStreamSource(ObjectInfo objectInfo) {
+        /**
+         * @param lastModified Last-modified time of the object, or
+         *                     <code>null</code> if not known.
+         */
+        S3ObjectStreamSource(ObjectInfo objectInfo, Date lastModified) {
             this.objectInfo = objectInfo;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public String getVersionKey() {
+            return (lastModified != null) ?
+                    objectInfo + "@" + lastModified.getTime() : null;
         }
 
         @Override
         public ImageInputStream newImageInputStream() throws IOException {
-            return ImageIO.createImageInputStream(newInputStream());
+            return new MemoryCacheImageInputStream(newInputStream());
         }
 
         @Override
@@ -98,6 +111,11 @@ class AmazonS3Resolver extends AbstractResolver implements StreamResolver {
 
     private IOException cachedAccessException;
 
+    /**
+     * Last-modified time of the object, set by {@link #getObject()}.
+     */
+    private Date lastModified;
+
     private static synchronized AmazonS3 getClientInstance() {
         if (client == null) {
             final Configuration config = Configuration.getInstance();
@@ -148,7 +166,9 @@ class AmazonS3Resolver extends AbstractResolver implements StreamResolver {
         } else {
             try {
                 final ObjectInfo info = getObjectInfo();
-                return fetchObject(info);
+                final S3Object object = fetchObject(info);
+                lastModified = object.getObjectMetadata().getLastModified();
+                return object;
             } catch (IOException e) {
                 cachedAccessException = e;
                 throw e;
@@ -237,7 +257,7 @@ class AmazonS3Resolver extends AbstractResolver implements StreamResolver {
 
     @Override
     public StreamSource newStreamSource() throws IOException {
-        return new S3ObjectStreamSource(getObjectInfo());
+        return new S3ObjectStreamSource(getObjectInfo(), lastModified);
     }
 
 }
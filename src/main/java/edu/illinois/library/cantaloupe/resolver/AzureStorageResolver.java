@@ -17,14 +17,15 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import javax.script.ScriptException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.NoSuchFileException;
 import java.security.InvalidKeyException;
+import java.util.Date;
 
 /**
  * <p>Maps an identifier to a
@@ -53,7 +54,18 @@ class AzureStorageResolver extends AbstractResolver implements StreamResolver {
 
         @Override
         public ImageInputStream newImageInputStream() throws IOException {
-            return ImageIO.createImageInputStream(newInputStream());
+            return new MemoryCacheImageInputStream(newInputStream());
+        }
+
+        /**
+         * @return URI and last-modified time of the blob, which are known
+         *         once its existence has been checked.
+         */
+        @Override
+        public String getVersionKey() {
+            final Date lastModified = blob.getProperties().getLastModified();
+            return (lastModified != null) ?
+                    blob.getUri() + "@" + lastModified.getTime() : null;
         }
 
         @Override
@@ -21,6 +21,7 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 
 /**
@@ -55,6 +56,22 @@ class FilesystemResolver extends AbstractResolver
             this.file = file;
         }
 
+        /**
+         * @return Pathname, last-modified time, and size of the file.
+         */
+        @Override
+        public String getVersionKey() {
+            try {
+                final BasicFileAttributes attrs = Files.readAttributes(file,
+                        BasicFileAttributes.class);
+                return file.toAbsolutePath() + "@" +
+                        attrs.lastModifiedTime().toMillis() + "/" +
+                        attrs.size();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
         @Override
         public FileImageInputStream newImageInputStream() throws IOException {
             return new FileImageInputStream(file.toFile());
@@ -23,8 +23,8 @@ import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import javax.script.ScriptException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -83,15 +83,27 @@ class HttpResolver extends AbstractResolver implements StreamResolver {
 
         private final HttpClient client;
         private final URI uri;
-
-        HTTPStreamSource(HttpClient client, URI uri) {
+        private final String lastModified;
+
+        /**
+         * @param lastModified Value of the <code>Last-Modified</code> header
+         *                     of the resource, or <code>null</code> if not
+         *                     known.
+         */
+        HTTPStreamSource(HttpClient client, URI uri, String lastModified) {
             this.client = client;
             this.uri = uri;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public String getVersionKey() {
+            return (lastModified != null) ? uri + "@" + lastModified : null;
         }
 
         @Override
         public ImageInputStream newImageInputStream() throws IOException {
-            return ImageIO.createImageInputStream(newInputStream());
+            return new MemoryCacheImageInputStream(newInputStream());
         }
 
         @Override
@@ -290,7 +302,21 @@ class HttpResolver extends AbstractResolver implements StreamResolver {
 
         if (info != null) {
             LOGGER.info("Resolved {} to {}", identifier, info.getURI());
-            return new HTTPStreamSource(getHTTPClient(info), info.getURI());
+            return new HTTPStreamSource(getHTTPClient(info), info.getURI(),
+                    getLastModified());
+        }
+        return null;
+    }
+
+    /**
+     * @return Value of the <code>Last-Modified</code> header of the response
+     *         to the <code>HEAD</code> request, if one has been issued and
+     *         was successful; otherwise <code>null</code>.
+     */
+    private String getLastModified() {
+        if (headResponse != null && headResponse.getStatus() >= 200 &&
+                headResponse.getStatus() < 300) {
+            return headResponse.getHeaders().get("Last-Modified");
         }
         return null;
     }
@@ -1,7 +1,7 @@
 package edu.illinois.library.cantaloupe.resolver;
 
-import javax.imageio.ImageIO;
 import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -19,7 +19,7 @@ public class InputStreamStreamSource implements StreamSource {
 
     @Override
     public ImageInputStream newImageInputStream() throws IOException {
-        return ImageIO.createImageInputStream(inputStream);
+        return new MemoryCacheImageInputStream(inputStream);
     }
 
     @Override
@@ -11,8 +11,8 @@ import edu.illinois.library.cantaloupe.script.ScriptEngineFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import javax.script.ScriptException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -49,7 +49,7 @@ class JdbcResolver extends AbstractResolver implements StreamResolver {
 
         @Override
         public ImageInputStream newImageInputStream() throws IOException {
-            return ImageIO.createImageInputStream(newInputStream());
+            return new MemoryCacheImageInputStream(newInputStream());
         }
 
         @Override
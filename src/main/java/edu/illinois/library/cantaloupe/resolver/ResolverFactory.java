@@ -4,15 +4,18 @@ import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.config.ConfigurationException;
 import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
 import edu.illinois.library.cantaloupe.resource.RequestContext;
 import edu.illinois.library.cantaloupe.script.ScriptEngine;
 import edu.illinois.library.cantaloupe.script.ScriptEngineFactory;
+import edu.illinois.library.cantaloupe.util.ConstructorCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.script.ScriptException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -36,6 +39,9 @@ public class ResolverFactory {
     private static final String RESOLVER_CHOOSER_DELEGATE_METHOD =
             "get_resolver";
 
+    private static final ConstructorCache<Resolver> CONSTRUCTORS =
+            new ConstructorCache<>(MethodHandles.lookup(), Resolver.class);
+
     /**
      * @return Set of instances of each unique resolver.
      */
@@ -63,7 +69,11 @@ public class ResolverFactory {
                                 RequestContext context) throws Exception {
         final Configuration config = Configuration.getInstance();
         if (getSelectionStrategy().equals(SelectionStrategy.DELEGATE_SCRIPT)) {
-            Resolver resolver = newDynamicResolver(identifier, context);
+            final Resolver resolver;
+            try (RequestTrace.Stage ignored =
+                         RequestTrace.stage("select_resolver")) {
+                resolver = newDynamicResolver(identifier, context);
+            }
             LOGGER.info("{}() returned a {} for {}",
                     RESOLVER_CHOOSER_DELEGATE_METHOD,
                     resolver.getClass().getSimpleName(), identifier);
@@ -91,9 +101,8 @@ public class ResolverFactory {
     private Resolver newResolver(String name,
                                  Identifier identifier,
                                  RequestContext context) throws Exception {
-        Class<?> class_ = Class.forName(
+        final Resolver resolver = CONSTRUCTORS.newInstance(
                 ResolverFactory.class.getPackage().getName() + "." + name);
-        Resolver resolver = (Resolver) class_.newInstance();
         resolver.setIdentifier(identifier);
         resolver.setContext(context);
         return resolver;
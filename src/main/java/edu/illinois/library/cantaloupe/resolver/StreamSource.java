@@ -2,6 +2,7 @@ package edu.illinois.library.cantaloupe.resolver;
 
 import javax.imageio.ImageIO;
 import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -17,8 +18,10 @@ public interface StreamSource {
      * <p>N.B.: {@link ImageInputStream} is an ImageIO class that supports
      * seeking, among other benefits, making it potentially much more efficient
      * than an {@link InputStream}. If a first-class implementation can't be
-     * returned, then {@link ImageIO#createImageInputStream} can be used to
-     * return a wrapped {@link InputStream}.</p>
+     * returned, then a {@link MemoryCacheImageInputStream} can be used to
+     * return a wrapped {@link InputStream}. ({@link
+     * ImageIO#createImageInputStream} is best avoided, as it may return a
+     * stream that caches to disk.)</p>
      *
      * @return New input stream to read from.
      * @throws IOException If there is any issue creating the stream.
@@ -33,4 +36,21 @@ public interface StreamSource {
      */
     InputStream newInputStream() throws IOException;
 
+    /**
+     * <p>Returns a string identifying both the source and the version of its
+     * content, such as its location and last-modified time, for use as a key
+     * by caches of information parsed from the content. Two instances may
+     * return the same key only if they provide the same content.</p>
+     *
+     * <p>This default implementation returns <code>null</code>, meaning that
+     * the version isn't known and such information shouldn't be cached.</p>
+     *
+     * @return Key identifying the version of the source, or
+     *         <code>null</code>.
+     * @since 3.5
+     */
+    default String getVersionKey() {
+        return null;
+    }
+
 }
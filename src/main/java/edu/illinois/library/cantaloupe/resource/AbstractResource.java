@@ -9,8 +9,12 @@ import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.image.Info;
 import edu.illinois.library.cantaloupe.image.Format;
 import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
+import edu.illinois.library.cantaloupe.metrics.Timer;
 import edu.illinois.library.cantaloupe.operation.OperationList;
 import edu.illinois.library.cantaloupe.processor.Processor;
+import edu.illinois.library.cantaloupe.resolver.Resolver;
 import edu.illinois.library.cantaloupe.util.StringUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.restlet.Request;
@@ -34,9 +38,11 @@ import org.slf4j.LoggerFactory;
 
 import javax.script.ScriptException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -253,6 +259,28 @@ public abstract class AbstractResource extends ServerResource {
     protected void commitCustomResponseHeaders() {
         getResponse().getHeaders().addAll(getBufferedResponseHeaders());
         getResponseCacheDirectives().addAll(getCacheDirectives());
+        addServerTimingHeader();
+    }
+
+    /**
+     * <p>Adds a <code>Server-Timing</code> header containing the durations of
+     * the stages of the {@link RequestTrace current trace} that have been
+     * completed so far, if {@link Key#SERVER_TIMING_ENABLED} is
+     * <code>true</code>.</p>
+     *
+     * <p>Stages that occur while the response body is being written can't be
+     * included. That is none of them for information responses, but for
+     * image responses, it is all of the decoding, processing and encoding
+     * (<code>process</code> and the stages nested in it), as well as the
+     * writing of the derivative cache.</p>
+     */
+    private void addServerTimingHeader() {
+        final RequestTrace trace = RequestTrace.current();
+        if (trace != null && Configuration.getInstance().
+                getBoolean(Key.SERVER_TIMING_ENABLED, false)) {
+            getResponse().getHeaders().add("Server-Timing",
+                    trace.toServerTimingHeader());
+        }
     }
 
     /**
@@ -380,16 +408,41 @@ public abstract class AbstractResource extends ServerResource {
      */
     protected final Info getOrReadInfo(final Identifier identifier,
                                        final Processor proc) throws IOException {
+        try (RequestTrace.Stage ignored = RequestTrace.stage("info")) {
+            return doGetOrReadInfo(identifier, proc);
+        }
+    }
+
+    private Info doGetOrReadInfo(final Identifier identifier,
+                                 final Processor proc) throws IOException {
         Info info;
         if (!isBypassingCache()) {
             info = new CacheFacade().getOrReadInfo(identifier, proc);
         } else {
             LOGGER.debug("getOrReadInfo(): bypassing the cache, as requested");
-            info = proc.readImageInfo();
+            try (Timer.Context ignored = Metrics.infoRead(
+                    proc.getClass().getSimpleName()).time()) {
+                info = proc.readImageInfo();
+            }
         }
         return info;
     }
 
+    /**
+     * Records the time taken to resolve a source image, from the selection of
+     * its resolver through the connection of the resolver to a processor.
+     *
+     * @param resolver  Resolver that was selected.
+     * @param startTime Value of {@link System#nanoTime()} before the resolver
+     *                  was selected.
+     */
+    protected final void recordResolveTime(Resolver resolver, long startTime) {
+        final long elapsedTime = System.nanoTime() - startTime;
+        Metrics.resolve(resolver.getClass().getSimpleName()).
+                record(elapsedTime);
+        RequestTrace.record("resolve", elapsedTime);
+    }
+
     /**
      * @return Value of the {@link #PUBLIC_IDENTIFIER_HEADER} header, if
      *         available, or else the <code>identifier</code> URI path
@@ -522,6 +575,73 @@ public abstract class AbstractResource extends ServerResource {
         return bypassingCache;
     }
 
+    /**
+     * <p>Returns a representation that will write the image described by the
+     * given arguments.</p>
+     *
+     * <p>If {@link AdmissionController#isEnabled() admission control} is
+     * enabled and the operations require processing, a permit is obtained
+     * first. If one is not immediately available, the derivative cache is
+     * checked, and if it contains the image, a {@link
+     * CachedImageRepresentation} is returned without waiting. Otherwise,
+     * this method waits for a permit.</p>
+     *
+     * @param info        Info of the source image.
+     * @param processor   Processor configured for writing the image.
+     * @param opList      Operations to apply.
+     * @param disposition Response disposition.
+     * @return            Representation that will write the image.
+     * @throws ServiceUnavailableException If a permit could not be obtained.
+     */
+    protected Representation newImageRepresentation(
+            final Info info,
+            final Processor processor,
+            final OperationList opList,
+            final Disposition disposition) {
+        final boolean bypassCache = isBypassingCache();
+        if (!AdmissionController.isEnabled() ||
+                !opList.hasEffect(processor.getSourceFormat())) {
+            return new ImageRepresentation(info, processor, opList,
+                    disposition, bypassCache);
+        }
+
+        final AdmissionController controller =
+                AdmissionController.getInstance();
+        final AdmissionController.Cost cost =
+                AdmissionController.estimateCost(info, opList);
+        AdmissionController.Permit permit = controller.tryAcquire(cost);
+        if (permit == null) {
+            if (!bypassCache) {
+                InputStream cacheStream = null;
+                try {
+                    cacheStream = new CacheFacade().
+                            newDerivativeImageInputStream(opList);
+                } catch (IOException e) {
+                    LOGGER.error("newImageRepresentation(): {}",
+                            e.getMessage());
+                }
+                if (cacheStream != null) {
+                    LOGGER.debug("newImageRepresentation(): processing " +
+                            "capacity is exhausted, but {} is cached", opList);
+                    return new CachedImageRepresentation(
+                            opList.getOutputFormat().getPreferredMediaType(),
+                            disposition, cacheStream);
+                }
+            }
+            LOGGER.debug("newImageRepresentation(): waiting for admission " +
+                    "({})", cost);
+            try {
+                permit = controller.acquire(cost);
+            } catch (ServiceUnavailableException e) {
+                getResponse().setRetryAfter(new Date(
+                        System.currentTimeMillis() + e.getRetryAfter() * 1000L));
+                throw e;
+            }
+        }
+        return new ImageRepresentation(info, processor, opList, disposition,
+                bypassCache, permit);
+    }
+
     /**
      * @param name Template pathname, with leading slash.
      * @return     Representation using the given template and the common
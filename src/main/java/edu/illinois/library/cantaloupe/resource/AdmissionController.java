@@ -0,0 +1,444 @@
+package edu.illinois.library.cantaloupe.resource;
+
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.operation.Crop;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>Limits the amount of image processing that can happen concurrently.</p>
+ *
+ * <p>Each request that needs to be processed is assigned a {@link Cost}
+ * estimated from its {@link Info} and {@link OperationList}, and must obtain
+ * a {@link Permit} before processing. Permits are granted as long as the
+ * total cost of all outstanding permits stays within a global pixel budget
+ * ({@link Key#PROCESSOR_ADMISSION_MAX_PIXELS}) and memory budget
+ * ({@link Key#PROCESSOR_ADMISSION_MAX_MEMORY}). Otherwise, requests wait in
+ * a bounded FIFO queue ({@link Key#PROCESSOR_ADMISSION_QUEUE_SIZE}) for up
+ * to {@link Key#PROCESSOR_ADMISSION_QUEUE_TIMEOUT} seconds, and when the
+ * queue is full or the wait times out, a {@link ServiceUnavailableException}
+ * is thrown.</p>
+ *
+ * <p>A single request that costs more than the whole budget is admitted
+ * when nothing else is being processed, so that it doesn't wait forever.</p>
+ *
+ * <p>All settings are read from the application configuration upon every
+ * acquisition, so changes take effect without restarting.</p>
+ *
+ * @since 3.5
+ */
+public final class AdmissionController {
+
+    /**
+     * Estimated cost of processing a request.
+     */
+    public static final class Cost {
+
+        private final long sourcePixels;
+        private final long outputPixels;
+        private final long bytes;
+
+        Cost(long sourcePixels, long outputPixels, long bytes) {
+            this.sourcePixels = sourcePixels;
+            this.outputPixels = outputPixels;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return Estimated peak memory use in bytes.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return Number of pixels in the output image.
+         */
+        public long getOutputPixels() {
+            return outputPixels;
+        }
+
+        /**
+         * @return Sum of {@link #getSourcePixels()} and {@link
+         *         #getOutputPixels()}.
+         */
+        public long getPixels() {
+            return sourcePixels + outputPixels;
+        }
+
+        /**
+         * @return Estimated number of source pixels that will be decoded.
+         */
+        public long getSourcePixels() {
+            return sourcePixels;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d source pixels; %d output pixels; %d bytes",
+                    sourcePixels, outputPixels, bytes);
+        }
+
+    }
+
+    /**
+     * Permission to process a request, which must be {@link #close() closed}
+     * when processing is complete. Closing is idempotent.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final AtomicBoolean isClosed = new AtomicBoolean(false);
+        private final long pixels;
+        private final long bytes;
+        private final long acquisitionTime = System.currentTimeMillis();
+
+        private Permit(long pixels, long bytes) {
+            this.pixels = pixels;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            if (isClosed.compareAndSet(false, true)) {
+                release(this);
+            }
+        }
+
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(AdmissionController.class);
+
+    /**
+     * Assumed size of a decoded source pixel when {@link
+     * Key#PROCESSOR_LIMIT_TO_8_BITS} is <code>true</code>, e.g. a packed
+     * ARGB int. Twice this is assumed otherwise.
+     */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+    private static final int DEFAULT_QUEUE_TIMEOUT = 30;
+    private static final int MAX_RETRY_AFTER = 60;
+
+    /**
+     * Weight of the most recent sample in the moving average of permit hold
+     * times.
+     */
+    private static final double HOLD_TIME_SMOOTHING = 0.2;
+
+    private static AdmissionController instance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    /** Queue of waiting requests, each represented by a unique object. */
+    private final Deque<Object> waiters = new ArrayDeque<>();
+
+    private int inFlightCount;
+    private long inFlightPixels;
+    private long inFlightBytes;
+    private long admittedCount;
+    private long rejectedCount;
+    private double meanHoldMillis;
+
+    /**
+     * @return Estimated cost of applying the given operation list to the
+     *         image described by the given info.
+     */
+    public static Cost estimateCost(Info info, OperationList opList) {
+        final Dimension fullSize = info.getSize();
+
+        Rectangle region = new Rectangle(0, 0, fullSize.width, fullSize.height);
+        final Crop crop = (Crop) opList.getFirst(Crop.class);
+        if (crop != null) {
+            region = crop.getRectangle(fullSize).intersection(region);
+        }
+        final Dimension outputSize = opList.getResultingSize(fullSize);
+        final long outputPixels =
+                (long) outputSize.width * (long) outputSize.height;
+
+        // Find the smallest resolution level that can supply the region at
+        // the scale of the output. Levels beyond the first are assumed to be
+        // reduced versions of it (as in a pyramidal TIFF).
+        double scale = 1;
+        if (region.width > 0 && region.height > 0) {
+            scale = Math.min(1, Math.max(
+                    outputSize.width / (double) region.width,
+                    outputSize.height / (double) region.height));
+        }
+        Info.Image level = info.getImages().get(0);
+        double levelScale = 1;
+        for (Info.Image image : info.getImages()) {
+            final double imageScale = image.width / (double) fullSize.width;
+            if (imageScale >= scale && imageScale < levelScale) {
+                level = image;
+                levelScale = imageScale;
+            }
+        }
+
+        // If the level isn't tiled, it is assumed that it has to be decoded
+        // in full, regardless of the region.
+        long sourcePixels;
+        if (level.getTileSize().equals(level.getSize())) {
+            sourcePixels = (long) level.width * (long) level.height;
+        } else {
+            sourcePixels = Math.round(region.width * levelScale) *
+                    Math.round(region.height * levelScale);
+        }
+
+        final boolean limitTo8Bits = Configuration.getInstance().
+                getBoolean(Key.PROCESSOR_LIMIT_TO_8_BITS, true);
+        final long bytes = sourcePixels * BYTES_PER_PIXEL *
+                (limitTo8Bits ? 1 : 2) + outputPixels * BYTES_PER_PIXEL;
+        return new Cost(sourcePixels, outputPixels, bytes);
+    }
+
+    /**
+     * @return Shared instance.
+     */
+    public static synchronized AdmissionController getInstance() {
+        if (instance == null) {
+            instance = new AdmissionController();
+        }
+        return instance;
+    }
+
+    /**
+     * @return Whether {@link Key#PROCESSOR_ADMISSION_ENABLED} is <code>true</code>.
+     */
+    public static boolean isEnabled() {
+        return Configuration.getInstance().
+                getBoolean(Key.PROCESSOR_ADMISSION_ENABLED, false);
+    }
+
+    private static long getMaxBytes() {
+        final String value = Configuration.getInstance().
+                getString(Key.PROCESSOR_ADMISSION_MAX_MEMORY, "");
+        if (value != null && !value.isEmpty()) {
+            try {
+                return StringUtil.parseByteSize(value);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("getMaxBytes(): invalid value for {}: {}",
+                        Key.PROCESSOR_ADMISSION_MAX_MEMORY, value);
+            }
+        }
+        return Runtime.getRuntime().maxMemory() / 2;
+    }
+
+    private static long getMaxPixels() {
+        return Configuration.getInstance().
+                getLong(Key.PROCESSOR_ADMISSION_MAX_PIXELS, 0);
+    }
+
+    AdmissionController() {}
+
+    /**
+     * <p>Obtains a permit, waiting for one if necessary.</p>
+     *
+     * @param cost Cost of the request.
+     * @return     Permit, which must be closed when processing is complete.
+     * @throws ServiceUnavailableException If the wait queue is full, or the
+     *                                     wait timed out.
+     */
+    public Permit acquire(Cost cost) throws ServiceUnavailableException {
+        final Configuration config = Configuration.getInstance();
+        final int queueSize = config.getInt(Key.PROCESSOR_ADMISSION_QUEUE_SIZE,
+                DEFAULT_QUEUE_SIZE);
+        final long timeoutNanos = TimeUnit.SECONDS.toNanos(config.getInt(
+                Key.PROCESSOR_ADMISSION_QUEUE_TIMEOUT, DEFAULT_QUEUE_TIMEOUT));
+        final long maxPixels = getMaxPixels();
+        final long maxBytes = getMaxBytes();
+
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && fits(cost, maxPixels, maxBytes)) {
+                return admit(cost, maxPixels, maxBytes);
+            }
+            if (waiters.size() >= queueSize) {
+                LOGGER.debug("acquire(): queue is full; rejecting {}", cost);
+                throw reject();
+            }
+            final Object waiter = new Object();
+            waiters.addLast(waiter);
+            try {
+                long nanos = timeoutNanos;
+                while (waiters.peekFirst() != waiter ||
+                        !fits(cost, maxPixels, maxBytes)) {
+                    if (nanos <= 0) {
+                        LOGGER.debug("acquire(): timed out waiting for " +
+                                "admission; rejecting {}", cost);
+                        throw reject();
+                    }
+                    nanos = changed.awaitNanos(nanos);
+                }
+                return admit(cost, maxPixels, maxBytes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject();
+            } finally {
+                waiters.remove(waiter);
+                // Give the next waiter a chance to be admitted.
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private Permit admit(Cost cost, long maxPixels, long maxBytes) {
+        // Clamp the cost to the budget, so that a request that costs more
+        // than the whole budget doesn't block everything else after its
+        // admission any more than it has to.
+        final long pixels = (maxPixels > 0) ?
+                Math.min(cost.getPixels(), maxPixels) : cost.getPixels();
+        final long bytes = (maxBytes > 0) ?
+                Math.min(cost.getBytes(), maxBytes) : cost.getBytes();
+        inFlightCount++;
+        inFlightPixels += pixels;
+        inFlightBytes += bytes;
+        admittedCount++;
+        return new Permit(pixels, bytes);
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private boolean fits(Cost cost, long maxPixels, long maxBytes) {
+        if (inFlightCount == 0) {
+            return true;
+        }
+        return (maxPixels <= 0 || inFlightPixels + cost.getPixels() <= maxPixels) &&
+                (maxBytes <= 0 || inFlightBytes + cost.getBytes() <= maxBytes);
+    }
+
+    public long getAdmittedCount() {
+        lock.lock();
+        try {
+            return admittedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getInFlightBytes() {
+        lock.lock();
+        try {
+            return inFlightBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlightCount() {
+        lock.lock();
+        try {
+            return inFlightCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getInFlightPixels() {
+        lock.lock();
+        try {
+            return inFlightPixels;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueLength() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejectedCount() {
+        lock.lock();
+        try {
+            return rejectedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private ServiceUnavailableException reject() {
+        rejectedCount++;
+        return new ServiceUnavailableException(getRetryAfter());
+    }
+
+    /**
+     * Must be called while holding the lock.
+     *
+     * @return Estimated number of seconds until the queue will have drained,
+     *         based on how long permits have been held on average.
+     */
+    private int getRetryAfter() {
+        final double millis = meanHoldMillis * (waiters.size() + 1) /
+                Math.max(1, inFlightCount);
+        return (int) Math.max(1, Math.min(MAX_RETRY_AFTER,
+                Math.ceil(millis / 1000.0)));
+    }
+
+    private void release(Permit permit) {
+        lock.lock();
+        try {
+            inFlightCount--;
+            inFlightPixels -= permit.pixels;
+            inFlightBytes -= permit.bytes;
+
+            final long holdMillis =
+                    System.currentTimeMillis() - permit.acquisitionTime;
+            meanHoldMillis = (admittedCount <= 1) ? holdMillis :
+                    HOLD_TIME_SMOOTHING * holdMillis +
+                            (1 - HOLD_TIME_SMOOTHING) * meanHoldMillis;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * <p>Obtains a permit without waiting.</p>
+     *
+     * @param cost Cost of the request.
+     * @return     Permit, which must be closed when processing is complete;
+     *             or <code>null</code> if one is not immediately available.
+     */
+    public Permit tryAcquire(Cost cost) {
+        final long maxPixels = getMaxPixels();
+        final long maxBytes = getMaxBytes();
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && fits(cost, maxPixels, maxBytes)) {
+                return admit(cost, maxPixels, maxBytes);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -2,6 +2,8 @@ package edu.illinois.library.cantaloupe.resource;
 
 import edu.illinois.library.cantaloupe.cache.CacheFacade;
 import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import edu.illinois.library.cantaloupe.metrics.RequestTrace;
 import edu.illinois.library.cantaloupe.operation.OperationList;
 import edu.illinois.library.cantaloupe.processor.FileProcessor;
 import edu.illinois.library.cantaloupe.processor.Processor;
@@ -33,6 +35,7 @@ public class ImageRepresentation extends OutputRepresentation {
     private boolean bypassCache = false;
     private Info imageInfo;
     private OperationList opList;
+    private AdmissionController.Permit permit;
     private Processor processor;
 
     /**
@@ -58,6 +61,45 @@ public class ImageRepresentation extends OutputRepresentation {
         this.setDisposition(disposition);
     }
 
+    /**
+     * @param imageInfo
+     * @param processor   Processor configured for writing the image.
+     * @param opList      Will be frozen, if it isn't already.
+     * @param disposition
+     * @param bypassCache If true, the cache will not be written to nor read
+     *                    from, regardless of whether caching is enabled in the
+     *                    application configuration.
+     * @param permit      Admission permit, which will be closed after writing
+     *                    or upon {@link #release() release}, or as soon as the
+     *                    image is found in the derivative cache. May be
+     *                    <code>null</code>.
+     */
+    public ImageRepresentation(final Info imageInfo,
+                               final Processor processor,
+                               final OperationList opList,
+                               final Disposition disposition,
+                               final boolean bypassCache,
+                               final AdmissionController.Permit permit) {
+        this(imageInfo, processor, opList, disposition, bypassCache);
+        this.permit = permit;
+    }
+
+    private void closePermit() {
+        if (permit != null) {
+            permit.close();
+        }
+    }
+
+    /**
+     * Closes the admission permit, if any, in case {@link #write} was never
+     * called.
+     */
+    @Override
+    public void release() {
+        closePermit();
+        super.release();
+    }
+
     /**
      * Writes the image requested in the constructor to the given output
      * stream, either retrieving it from the derivative cache, or getting it
@@ -67,6 +109,15 @@ public class ImageRepresentation extends OutputRepresentation {
      */
     @Override
     public void write(OutputStream responseOutputStream) throws IOException {
+        try {
+            doCacheAwareWrite(responseOutputStream);
+        } finally {
+            closePermit();
+        }
+    }
+
+    private void doCacheAwareWrite(OutputStream responseOutputStream)
+            throws IOException {
         // N.B. We don't need to close outputStream after writing to it;
         // Restlet will take care of that.
         if (!bypassCache) {
@@ -76,8 +127,10 @@ public class ImageRepresentation extends OutputRepresentation {
                 try (InputStream cacheInputStream =
                              cacheFacade.newDerivativeImageInputStream(opList)) {
                     if (cacheInputStream != null) {
-                        // The image is available in the cache; write it to the
+                        // The image is available in the cache, so no
+                        // processing capacity is needed to write it to the
                         // response output stream.
+                        closePermit();
                         final Stopwatch watch = new Stopwatch();
                         IOUtils.copy(cacheInputStream, responseOutputStream);
 
@@ -161,7 +214,12 @@ public class ImageRepresentation extends OutputRepresentation {
                     watch.timeElapsed(), opList);
         } else {
             try {
-                processor.process(opList, imageInfo, outputStream);
+                Metrics.processorInvocations(
+                        processor.getClass().getSimpleName()).increment();
+                try (RequestTrace.Stage ignored =
+                             RequestTrace.stage("process")) {
+                    processor.process(opList, imageInfo, outputStream);
+                }
 
                 LOGGER.debug("{} processed in {} msec: {}",
                         processor.getClass().getSimpleName(),
@@ -0,0 +1,34 @@
+package edu.illinois.library.cantaloupe.resource;
+
+import org.restlet.data.Status;
+import org.restlet.resource.ResourceException;
+
+/**
+ * Thrown when a request can't be serviced due to a temporary overload.
+ *
+ * @since 3.5
+ */
+public class ServiceUnavailableException extends ResourceException {
+
+    private final int retryAfter;
+
+    /**
+     * @param retryAfter Number of seconds after which the client may retry
+     *                   the request.
+     */
+    ServiceUnavailableException(int retryAfter) {
+        super(Status.SERVER_ERROR_SERVICE_UNAVAILABLE,
+                "The server is too busy to process this request. " +
+                        "Please try again later.");
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return Number of seconds after which the client may retry the
+     *         request.
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+}
@@ -0,0 +1,24 @@
+package edu.illinois.library.cantaloupe.resource.admin;
+
+import edu.illinois.library.cantaloupe.metrics.MetricRegistry;
+import org.restlet.data.MediaType;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.resource.Get;
+
+/**
+ * Provides all of the application's metrics in the Prometheus text
+ * exposition format, for scraping by a monitoring system.
+ *
+ * @since 3.5
+ */
+public class MetricsResource extends AbstractAdminResource {
+
+    @Get
+    public Representation getMetrics() {
+        return new StringRepresentation(
+                MetricRegistry.getInstance().toPrometheusText(),
+                MediaType.TEXT_PLAIN);
+    }
+
+}
@@ -1,5 +1,6 @@
 package edu.illinois.library.cantaloupe.resource.admin;
 
+import edu.illinois.library.cantaloupe.async.ThreadPool;
 import edu.illinois.library.cantaloupe.cache.InfoService;
 import edu.illinois.library.cantaloupe.resource.JSONRepresentation;
 import edu.illinois.library.cantaloupe.script.InvocationCache;
@@ -25,6 +26,7 @@ public class StatusResource extends AbstractAdminResource {
 
         public final Map<String,Object> delegateMethodInvocationCache = new HashMap<>();
         public final Map<String,Object> infoCache = new HashMap<>();
+        public final Map<String,Object> threadPools = new HashMap<>();
         public final Map<String,Object> vm = new HashMap<>();
 
         public Status() {
@@ -33,6 +35,8 @@ public class StatusResource extends AbstractAdminResource {
                         ScriptEngineFactory.getScriptEngine().getInvocationCache();
                 delegateMethodInvocationCache.put("size", cache.size());
                 delegateMethodInvocationCache.put("maxSize", cache.maxSize());
+                delegateMethodInvocationCache.put("hitRatios",
+                        cache.hitRatios());
             } catch (Exception e) {
                 // If this is significant it will be noticed & handled
                 // elsewhere.
@@ -43,6 +47,22 @@ public class StatusResource extends AbstractAdminResource {
             this.infoCache.put("maxSize",
                     InfoService.getInstance().getObjectCacheMaxSize());
 
+            for (ThreadPool.Priority priority : ThreadPool.Priority.values()) {
+                ThreadPool.Statistics stats =
+                        ThreadPool.getInstance().getStatistics(priority);
+                Map<String,Object> pool = new HashMap<>();
+                pool.put("activeCount", stats.getActiveCount());
+                pool.put("completedCount", stats.getCompletedCount());
+                pool.put("maxThreads", stats.getMaxThreads());
+                pool.put("maxWaitTime", stats.getMaxWaitTime());
+                pool.put("meanWaitTime", stats.getMeanWaitTime());
+                pool.put("poolSize", stats.getPoolSize());
+                pool.put("queueCapacity", stats.getQueueCapacity());
+                pool.put("queuedCount", stats.getQueuedCount());
+                pool.put("rejectedCount", stats.getRejectedCount());
+                this.threadPools.put(priority.name().toLowerCase(), pool);
+            }
+
             Runtime runtime = Runtime.getRuntime();
             RuntimeMXBean runtimeMxBean = ManagementFactory.getRuntimeMXBean();
             this.vm.put("usedHeap", (runtime.totalMemory() - runtime.freeMemory()) / MEGABYTE);
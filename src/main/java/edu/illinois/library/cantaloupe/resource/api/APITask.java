@@ -2,17 +2,31 @@ package edu.illinois.library.cantaloupe.resource.api;
 
 import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import edu.illinois.library.cantaloupe.async.AuditableFutureTask;
 
 import java.util.concurrent.Callable;
 
 class APITask<T> extends AuditableFutureTask<T> {
 
+    private TaskProgress progress;
     private String verb;
 
     APITask(Callable<T> callable) {
         super(callable);
-        setVerb(((Command) callable).getVerb());
+        final Command command = (Command) callable;
+        setVerb(command.getVerb());
+        progress = command.getProgress();
+    }
+
+    /**
+     * @return Progress of the task, or <code>null</code> if it does not
+     *         report progress.
+     */
+    @JsonGetter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    TaskProgress getProgress() {
+        return progress;
     }
 
     @JsonGetter
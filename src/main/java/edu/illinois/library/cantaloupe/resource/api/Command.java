@@ -29,10 +29,22 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
                 value = PurgeInvalidFromCacheCommand.class),
         @JsonSubTypes.Type(
                 name = "PurgeItemFromCache",
-                value = PurgeItemFromCacheCommand.class)
+                value = PurgeItemFromCacheCommand.class),
+        @JsonSubTypes.Type(
+                name = "SeedCache",
+                value = SeedCacheCommand.class)
 })
 abstract class Command {
 
+    /**
+     * @return Progress of the command, or <code>null</code> if it does not
+     *         report progress.
+     * @since 3.5
+     */
+    TaskProgress getProgress() {
+        return null;
+    }
+
     abstract String getVerb();
 
 }
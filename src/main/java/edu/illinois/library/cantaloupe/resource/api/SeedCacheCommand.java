@@ -0,0 +1,222 @@
+package edu.illinois.library.cantaloupe.resource.api;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.resource.iiif.v2.CacheSeeder;
+import edu.illinois.library.cantaloupe.script.ScriptEngine;
+import edu.illinois.library.cantaloupe.script.ScriptEngineFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Pre-generates the info and the standard IIIF Image API 2.x tile pyramid
+ * and sizes of a list of images, using {@link CacheSeeder}.</p>
+ *
+ * <p>The images are identified by an <code>identifiers</code> list, and/or
+ * by the return value of the <code>seed_cache_identifiers</code> delegate
+ * method, which receives the value of <code>delegate_argument</code>.
+ * <code>concurrency</code> images (1 by default, and at most the number of
+ * processors) are seeded at a time. With a <code>priority</code> of
+ * <code>low</code>, seeding is done in minimum-priority threads and yields
+ * to request traffic when admission control is enabled.</p>
+ *
+ * @since 3.5
+ */
+final class SeedCacheCommand<T> extends Command implements Callable<T> {
+
+    enum Priority {
+        LOW, NORMAL
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(SeedCacheCommand.class);
+
+    static final String IDENTIFIERS_DELEGATE_METHOD =
+            "seed_cache_identifiers";
+
+    private int concurrency = 1;
+    private String delegateArgument;
+    private List<String> identifiers = new ArrayList<>();
+    private Format outputFormat = Format.JPG;
+    private Priority priority = Priority.NORMAL;
+    private final TaskProgress progress = new TaskProgress();
+
+    @Override
+    public T call() throws Exception {
+        final List<Identifier> allIdentifiers = getAllIdentifiers();
+        progress.addToTotal(allIdentifiers.size());
+
+        final int numThreads = Math.min(getConcurrency(),
+                allIdentifiers.size());
+        final ExecutorService executor = newExecutor(Math.max(numThreads, 1));
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (Identifier identifier : allIdentifiers) {
+                futures.add(executor.submit(() -> seed(identifier)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        LOGGER.info("call(): seeded {} images ({} failed)",
+                progress.getNumCompleted(), progress.getNumFailed());
+        return null;
+    }
+
+    /**
+     * @return Union of {@link #getIdentifiers()} and the return value of the
+     *         delegate method, if a delegate argument has been set.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Identifier> getAllIdentifiers() throws Exception {
+        final Set<String> strings = new LinkedHashSet<>(getIdentifiers());
+        if (getDelegateArgument() != null) {
+            final ScriptEngine engine = ScriptEngineFactory.getScriptEngine();
+            final Object result = engine.invoke(IDENTIFIERS_DELEGATE_METHOD,
+                    getDelegateArgument());
+            if (result instanceof List) {
+                for (Object identifier : (List<Object>) result) {
+                    strings.add(identifier.toString());
+                }
+            }
+        }
+        final List<Identifier> allIdentifiers = new ArrayList<>(strings.size());
+        for (String string : strings) {
+            allIdentifiers.add(new Identifier(string));
+        }
+        return allIdentifiers;
+    }
+
+    /**
+     * @return Number of images to seed at a time.
+     */
+    @JsonGetter("concurrency")
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return Argument to the delegate method that returns identifiers.
+     */
+    @JsonGetter("delegate_argument")
+    String getDelegateArgument() {
+        return delegateArgument;
+    }
+
+    /**
+     * @return Identifiers of the images to seed.
+     */
+    @JsonGetter("identifiers")
+    List<String> getIdentifiers() {
+        return identifiers;
+    }
+
+    /**
+     * @return Format of the derivative images.
+     */
+    Format getOutputFormat() {
+        return outputFormat;
+    }
+
+    Priority getPriority() {
+        return priority;
+    }
+
+    @Override
+    TaskProgress getProgress() {
+        return progress;
+    }
+
+    @Override
+    String getVerb() {
+        return "SeedCache";
+    }
+
+    private ExecutorService newExecutor(int numThreads) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(numThreads, runnable -> {
+            final Thread thread = new Thread(runnable,
+                    "seed-cache-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            if (Priority.LOW.equals(getPriority())) {
+                thread.setPriority(Thread.MIN_PRIORITY);
+            }
+            return thread;
+        });
+    }
+
+    private void seed(Identifier identifier) {
+        final CacheSeeder seeder = new CacheSeeder();
+        seeder.setLowPriority(Priority.LOW.equals(getPriority()));
+        seeder.setOutputFormat(getOutputFormat());
+        try {
+            final CacheSeeder.Result result = seeder.seed(identifier);
+            if (result.getNumFailed() > 0) {
+                progress.itemFailed();
+            } else {
+                progress.itemCompleted();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.itemFailed();
+        } catch (Exception e) {
+            LOGGER.warn("seed(): failed to seed {}: {}",
+                    identifier, e.getMessage());
+            progress.itemFailed();
+        }
+    }
+
+    /**
+     * @param concurrency Number of images to seed at a time, which will be
+     *                    clamped to between 1 and the number of processors.
+     */
+    @JsonSetter("concurrency")
+    void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, Math.min(concurrency,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    @JsonSetter("delegate_argument")
+    void setDelegateArgument(String delegateArgument) {
+        this.delegateArgument = delegateArgument;
+    }
+
+    @JsonSetter("identifiers")
+    void setIdentifiers(List<String> identifiers) {
+        this.identifiers = (identifiers != null) ?
+                identifiers : new ArrayList<>();
+    }
+
+    /**
+     * @param format Format extension, e.g. <code>jpg</code>.
+     * @throws IllegalArgumentException if the format is not supported.
+     */
+    @JsonSetter("format")
+    void setOutputFormat(String format) {
+        this.outputFormat = Format.valueOf(format.toUpperCase());
+    }
+
+    /**
+     * @param priority <code>low</code> or <code>normal</code>.
+     * @throws IllegalArgumentException if the priority is not supported.
+     */
+    @JsonSetter("priority")
+    void setPriority(String priority) {
+        this.priority = Priority.valueOf(priority.toUpperCase());
+    }
+
+}
@@ -0,0 +1,61 @@
+package edu.illinois.library.cantaloupe.resource.api;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of a {@link Command} that works through a number of items, which
+ * is reported by {@link TaskResource} as part of its {@link APITask}. Safe
+ * for use by multiple threads.
+ *
+ * @since 3.5
+ */
+@JsonPropertyOrder({ "total", "completed", "failed" })
+final class TaskProgress {
+
+    private final AtomicInteger numCompleted = new AtomicInteger();
+    private final AtomicInteger numFailed = new AtomicInteger();
+    private final AtomicInteger numTotal = new AtomicInteger();
+
+    /**
+     * @param numItems Number of items to add to the total.
+     */
+    void addToTotal(int numItems) {
+        numTotal.addAndGet(numItems);
+    }
+
+    /**
+     * @return Number of items that have been completed successfully.
+     */
+    @JsonGetter("completed")
+    int getNumCompleted() {
+        return numCompleted.get();
+    }
+
+    /**
+     * @return Number of items that have failed.
+     */
+    @JsonGetter("failed")
+    int getNumFailed() {
+        return numFailed.get();
+    }
+
+    /**
+     * @return Total number of items.
+     */
+    @JsonGetter("total")
+    int getNumTotal() {
+        return numTotal.get();
+    }
+
+    void itemCompleted() {
+        numCompleted.incrementAndGet();
+    }
+
+    void itemFailed() {
+        numFailed.incrementAndGet();
+    }
+
+}
@@ -15,7 +15,6 @@ import edu.illinois.library.cantaloupe.processor.UnsupportedSourceFormatExceptio
 import edu.illinois.library.cantaloupe.resolver.Resolver;
 import edu.illinois.library.cantaloupe.resolver.ResolverFactory;
 import edu.illinois.library.cantaloupe.processor.ProcessorConnector;
-import edu.illinois.library.cantaloupe.resource.ImageRepresentation;
 import org.apache.commons.lang3.StringUtils;
 import org.restlet.data.Disposition;
 import org.restlet.representation.Representation;
@@ -77,6 +76,7 @@ public class ImageResource extends IIIF1Resource {
             }
         }
 
+        final long resolveStartTime = System.nanoTime();
         final Resolver resolver = new ResolverFactory().
                 newResolver(identifier, getRequestContext());
 
@@ -101,6 +101,7 @@ public class ImageResource extends IIIF1Resource {
 
         // Connect it to the resolver.
         new ProcessorConnector().connect(resolver, processor, identifier);
+        recordResolveTime(resolver, resolveStartTime);
 
         final Set<Format> availableOutputFormats =
                 processor.getAvailableOutputFormats();
@@ -148,8 +149,7 @@ public class ImageResource extends IIIF1Resource {
         }
 
         commitCustomResponseHeaders();
-        return new ImageRepresentation(info, processor, ops, disposition,
-                isBypassingCache());
+        return newImageRepresentation(info, processor, ops, disposition);
     }
 
     private void addLinkHeader(Processor processor) {
@@ -87,6 +87,7 @@ public class InformationResource extends IIIF1Resource {
             }
         }
 
+        final long resolveStartTime = System.nanoTime();
         final Resolver resolver = new ResolverFactory().
                 newResolver(identifier, getRequestContext());
 
@@ -108,6 +109,7 @@ public class InformationResource extends IIIF1Resource {
 
         // Connect it to the resolver.
         new ProcessorConnector().connect(resolver, processor, identifier);
+        recordResolveTime(resolver, resolveStartTime);
 
         final Info info = getOrReadInfo(identifier, processor);
         final ImageInfo imageInfo = new ImageInfoFactory().newImageInfo(
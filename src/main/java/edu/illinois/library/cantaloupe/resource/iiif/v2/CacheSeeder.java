@@ -0,0 +1,359 @@
+package edu.illinois.library.cantaloupe.resource.iiif.v2;
+
+import edu.illinois.library.cantaloupe.RestletApplication;
+import edu.illinois.library.cantaloupe.cache.CacheFacade;
+import edu.illinois.library.cantaloupe.cache.DerivativeCache;
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.processor.Processor;
+import edu.illinois.library.cantaloupe.processor.ProcessorConnector;
+import edu.illinois.library.cantaloupe.processor.ProcessorFactory;
+import edu.illinois.library.cantaloupe.processor.PyramidGenerator;
+import edu.illinois.library.cantaloupe.processor.UnsupportedOutputFormatException;
+import edu.illinois.library.cantaloupe.resolver.Resolver;
+import edu.illinois.library.cantaloupe.resolver.ResolverFactory;
+import edu.illinois.library.cantaloupe.resource.AdmissionController;
+import edu.illinois.library.cantaloupe.resource.RequestContext;
+import edu.illinois.library.cantaloupe.resource.ServiceUnavailableException;
+import org.restlet.data.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Pre-generates the derivatives of an image that a typical IIIF Image API
+ * 2.x client, like a deep-zoom viewer, will request, so that the first
+ * visitors to the image don't have to wait for them to be generated.</p>
+ *
+ * <p>These are the image's info, which is written to the info and
+ * derivative caches; every tile at every scale factor; and every size, as
+ * advertised in the information response produced by {@link
+ * ImageInfoFactory}. The derivatives are written to the derivative cache
+ * under the same {@link OperationList}s as the corresponding image requests
+ * with no query arguments, so that those requests will be cache hits.
+ * Derivatives that are already cached are skipped. They are generated by a
+ * {@link PyramidGenerator}, which decodes the source image only once per
+ * resolution level.</p>
+ *
+ * <p>The decoding of each level is subject to {@link AdmissionController
+ * admission control}, when it is enabled. In {@link #setLowPriority(boolean)
+ * low-priority mode}, it waits until admission is possible without making
+ * any request wait, so that it doesn't compete with request traffic.</p>
+ *
+ * @since 3.5
+ */
+public final class CacheSeeder {
+
+    /**
+     * Counts of the derivatives of one image.
+     */
+    public static final class Result {
+
+        private int numFailed;
+        private int numSkipped;
+        private int numWritten;
+
+        /**
+         * @return Number of derivatives that could not be generated.
+         */
+        public int getNumFailed() {
+            return numFailed;
+        }
+
+        /**
+         * @return Number of derivatives that were already cached or that
+         *         don't need to be.
+         */
+        public int getNumSkipped() {
+            return numSkipped;
+        }
+
+        /**
+         * @return Number of derivatives written to the cache.
+         */
+        public int getNumWritten() {
+            return numWritten;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d written, %d skipped, %d failed",
+                    numWritten, numSkipped, numFailed);
+        }
+
+    }
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(CacheSeeder.class);
+
+    /**
+     * Time to wait between attempts to obtain an admission permit.
+     */
+    private static final long ADMISSION_RETRY_INTERVAL_MSEC = 1000;
+
+    private boolean isLowPriority = false;
+    private Format outputFormat = Format.JPG;
+
+    /**
+     * @param params Parameters of an image request.
+     * @return       Relative URI of the image request, which is supplied to
+     *               delegate methods that may be invoked during seeding in
+     *               lieu of a real request URI.
+     */
+    private static URI requestURI(Parameters params) {
+        final String identifier = params.getIdentifier().toString();
+        return URI.create(RestletApplication.IIIF_2_PATH + "/" +
+                Reference.encode(identifier) +
+                params.toString().substring(identifier.length()));
+    }
+
+    /**
+     * @param identifier   Image identifier.
+     * @param imageInfo    Information response of the image.
+     * @param outputFormat Format of the derivatives.
+     * @return             Parameters of the image requests for every tile at
+     *                     every scale factor, followed by every size, in
+     *                     <code>imageInfo</code>, in IIIF Image API 2.x
+     *                     canonical form.
+     */
+    static List<Parameters> newParametersList(Identifier identifier,
+                                              ImageInfo<String,Object> imageInfo,
+                                              Format outputFormat)
+            throws UnsupportedOutputFormatException {
+        final int fullWidth = (Integer) imageInfo.get("width");
+        final int fullHeight = (Integer) imageInfo.get("height");
+        final String format = outputFormat.name().toLowerCase();
+
+        // Tiles and sizes may overlap, so use a set.
+        final Set<String> paramStrings = new LinkedHashSet<>();
+
+        @SuppressWarnings("unchecked")
+        final List<ImageInfo.Tile> tiles =
+                (List<ImageInfo.Tile>) imageInfo.get("tiles");
+        for (ImageInfo.Tile tile : tiles) {
+            for (int scaleFactor : tile.scaleFactors) {
+                final int regionWidth = tile.width * scaleFactor;
+                final int regionHeight = tile.height * scaleFactor;
+                for (int y = 0; y < fullHeight; y += regionHeight) {
+                    for (int x = 0; x < fullWidth; x += regionWidth) {
+                        final int width = Math.min(regionWidth, fullWidth - x);
+                        final int height =
+                                Math.min(regionHeight, fullHeight - y);
+                        final String region =
+                                (width == fullWidth && height == fullHeight) ?
+                                        "full" :
+                                        x + "," + y + "," + width + "," + height;
+                        final int scaledWidth =
+                                (int) Math.ceil(width / (double) scaleFactor);
+                        paramStrings.add(region + "/" + scaledWidth + ",");
+                    }
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        final List<ImageInfo.Size> sizes =
+                (List<ImageInfo.Size>) imageInfo.get("sizes");
+        for (ImageInfo.Size size : sizes) {
+            paramStrings.add("full/" + size.width + ",");
+        }
+
+        final List<Parameters> paramsList =
+                new ArrayList<>(paramStrings.size());
+        for (String paramString : paramStrings) {
+            final String[] parts = paramString.split("/");
+            paramsList.add(new Parameters(identifier, parts[0], parts[1],
+                    "0", "default", format));
+        }
+        return paramsList;
+    }
+
+    /**
+     * @return Whether the instance is in low-priority mode.
+     */
+    public boolean isLowPriority() {
+        return isLowPriority;
+    }
+
+    /**
+     * @param isLowPriority Whether to generate derivatives only when doing so
+     *                      won't make any request wait for admission.
+     */
+    public void setLowPriority(boolean isLowPriority) {
+        this.isLowPriority = isLowPriority;
+    }
+
+    /**
+     * @param outputFormat Format of the derivatives. The default is JPEG.
+     */
+    public void setOutputFormat(Format outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    /**
+     * Generates all of the derivatives of the image with the given
+     * identifier and writes them to the derivative cache.
+     *
+     * @param identifier Image identifier.
+     * @return           Counts of the derivatives.
+     * @throws IllegalStateException if no derivative cache is available.
+     * @throws Exception if the image could not be resolved or read. Failures
+     *                   to generate individual derivatives are counted in the
+     *                   return value instead.
+     */
+    public Result seed(Identifier identifier) throws Exception {
+        final CacheFacade cacheFacade = new CacheFacade();
+        if (!cacheFacade.isDerivativeCacheAvailable()) {
+            throw new IllegalStateException(
+                    "The derivative cache is not available.");
+        }
+
+        final Resolver resolver = new ResolverFactory().
+                newResolver(identifier, new RequestContext());
+        resolver.checkAccess();
+        final Format sourceFormat = resolver.getSourceFormat();
+        final Processor processor = new ProcessorFactory().
+                newProcessor(sourceFormat);
+        new ProcessorConnector().connect(resolver, processor, identifier);
+
+        if (!processor.getAvailableOutputFormats().contains(outputFormat)) {
+            throw new UnsupportedOutputFormatException(
+                    outputFormat.getPreferredExtension());
+        }
+
+        // This caches the info.
+        final Info info = cacheFacade.getOrReadInfo(identifier, processor);
+
+        final ImageInfo<String,Object> imageInfo = new ImageInfoFactory().
+                newImageInfo(identifier, null, processor, info);
+        final List<OperationList> opLists = new ArrayList<>();
+        for (Parameters params :
+                newParametersList(identifier, imageInfo, outputFormat)) {
+            final OperationList opList = params.toOperationList();
+            opList.applyNonEndpointMutations(info.getSize(),
+                    info.getOrientation(),
+                    null,
+                    requestURI(params),
+                    Collections.emptyMap(),
+                    Collections.emptyMap());
+            opLists.add(opList);
+        }
+
+        final Result result = new Result();
+        final List<OperationList> pendingOpLists = new ArrayList<>();
+        for (OperationList opList : opLists) {
+            if (!isSeedable(opList, info, sourceFormat) ||
+                    isCached(opList, cacheFacade.getDerivativeCache())) {
+                result.numSkipped++;
+                continue;
+            }
+            try {
+                processor.validate(opList, info.getSize());
+                pendingOpLists.add(opList);
+            } catch (Exception e) {
+                LOGGER.warn("seed(): invalid {}: {}", opList, e.getMessage());
+                result.numFailed++;
+            }
+        }
+
+        // Generate the derivatives one resolution level at a time, from one
+        // decode per level.
+        try (PyramidGenerator generator =
+                     new PyramidGenerator(processor, info, cacheFacade)) {
+            for (PyramidGenerator.Level level :
+                    generator.plan(pendingOpLists)) {
+                try (AdmissionController.Permit permit = acquirePermit(
+                        info, level.getDecodeOperationList())) {
+                    final int numWritten = generator.generate(level);
+                    result.numWritten += numWritten;
+                    result.numFailed +=
+                            level.getOperationLists().size() - numWritten;
+                }
+            }
+        }
+        LOGGER.info("seed(): {}: {}", identifier, result);
+        return result;
+    }
+
+    /**
+     * @return Permit, or <code>null</code> if admission control is disabled.
+     */
+    private AdmissionController.Permit acquirePermit(Info info,
+                                                     OperationList opList)
+            throws InterruptedException {
+        if (!AdmissionController.isEnabled()) {
+            return null;
+        }
+        final AdmissionController controller =
+                AdmissionController.getInstance();
+        final AdmissionController.Cost cost =
+                AdmissionController.estimateCost(info, opList);
+        while (true) {
+            if (isLowPriority) {
+                final AdmissionController.Permit permit =
+                        controller.tryAcquire(cost);
+                if (permit != null) {
+                    return permit;
+                }
+            } else {
+                try {
+                    return controller.acquire(cost);
+                } catch (ServiceUnavailableException e) {
+                    LOGGER.debug("acquirePermit(): {}", e.getMessage());
+                }
+            }
+            TimeUnit.MILLISECONDS.sleep(ADMISSION_RETRY_INTERVAL_MSEC);
+        }
+    }
+
+    /**
+     * Checks the derivative cache directly rather than via {@link
+     * CacheFacade}, so that these lookups are not counted as cache hits and
+     * misses in {@link edu.illinois.library.cantaloupe.metrics.Metrics}.
+     */
+    private boolean isCached(OperationList opList,
+                             DerivativeCache derivativeCache) {
+        try {
+            return derivativeCache.isDerivativeImageCached(opList);
+        } catch (IOException e) {
+            LOGGER.warn("isCached(): {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return Whether the derivative corresponding to the given operation
+     *         list is one that would be generated by a processor and would
+     *         pass validation in {@link ImageResource}.
+     */
+    private boolean isSeedable(OperationList opList,
+                               Info info,
+                               Format sourceFormat) {
+        // Requests that have no effect are streamed from the source.
+        if (!opList.hasEffect(sourceFormat)) {
+            return false;
+        }
+        final Dimension resultingSize = opList.getResultingSize(info.getSize());
+        if (resultingSize.width < 1 || resultingSize.height < 1) {
+            return false;
+        }
+        final long maxPixels =
+                Configuration.getInstance().getLong(Key.MAX_PIXELS, 0);
+        return (maxPixels <= 0 ||
+                (long) resultingSize.width * resultingSize.height <= maxPixels);
+    }
+
+}
@@ -16,7 +16,6 @@ import edu.illinois.library.cantaloupe.resolver.Resolver;
 import edu.illinois.library.cantaloupe.resolver.ResolverFactory;
 import edu.illinois.library.cantaloupe.processor.ProcessorConnector;
 import edu.illinois.library.cantaloupe.resource.CachedImageRepresentation;
-import edu.illinois.library.cantaloupe.resource.ImageRepresentation;
 import edu.illinois.library.cantaloupe.resource.iiif.SizeRestrictedException;
 import org.restlet.data.Disposition;
 import org.restlet.representation.Representation;
@@ -107,6 +106,7 @@ public class ImageResource extends IIIF2Resource {
             }
         }
 
+        final long resolveStartTime = System.nanoTime();
         final Resolver resolver = new ResolverFactory().
                 newResolver(identifier, getRequestContext());
 
@@ -131,6 +131,7 @@ public class ImageResource extends IIIF2Resource {
 
         // Connect it to the resolver.
         new ProcessorConnector().connect(resolver, processor, identifier);
+        recordResolveTime(resolver, resolveStartTime);
 
         final Info info = getOrReadInfo(ops.getIdentifier(), processor);
         final Dimension fullSize = info.getSize();
@@ -194,8 +195,7 @@ public class ImageResource extends IIIF2Resource {
 
         addLinkHeader(params);
         commitCustomResponseHeaders();
-        return new ImageRepresentation(info, processor, ops, disposition,
-                isBypassingCache());
+        return newImageRepresentation(info, processor, ops, disposition);
     }
 
     private void addLinkHeader(Parameters params) {
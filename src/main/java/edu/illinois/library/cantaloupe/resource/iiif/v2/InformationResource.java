@@ -84,6 +84,7 @@ public class InformationResource extends IIIF2Resource {
             }
         }
 
+        final long resolveStartTime = System.nanoTime();
         final Resolver resolver = new ResolverFactory().
                 newResolver(identifier, getRequestContext());
 
@@ -105,6 +106,7 @@ public class InformationResource extends IIIF2Resource {
 
         // Connect it to the resolver.
         new ProcessorConnector().connect(resolver, processor, identifier);
+        recordResolveTime(resolver, resolveStartTime);
 
         final Info info = getOrReadInfo(identifier, processor);
 
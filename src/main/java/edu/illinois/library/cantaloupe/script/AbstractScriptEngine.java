@@ -1,15 +1,91 @@
 package edu.illinois.library.cantaloupe.script;
 
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.ConfigurationSnapshot;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.util.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.ScriptException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 
 abstract class AbstractScriptEngine {
 
+    private static final Logger LOGGER = LoggerFactory.
+            getLogger(AbstractScriptEngine.class);
+
     private static ScriptWatcher scriptWatcher = new ScriptWatcher();
     private static ScheduledExecutorService watcherExecutorService;
     private static Future<?> watcherFuture;
 
+    private final InvocationCache invocationCache =
+            new HeapInvocationCache();
+
+    /**
+     * Invokes a method without consulting the invocation cache.
+     *
+     * @param methodName Name of the method to invoke.
+     * @param args       Arguments to pass to the method.
+     * @return           Return value of the method.
+     */
+    protected abstract Object doInvoke(String methodName, Object... args)
+            throws ScriptException;
+
+    /**
+     * @return Method invocation cache.
+     */
+    public InvocationCache getInvocationCache() {
+        return invocationCache;
+    }
+
+    /**
+     * N.B. Clients should not modify the returned object nor any of its owned
+     * objects, as this could disrupt the invocation cache.
+     *
+     * @param methodName Method to invoke.
+     * @param args       Arguments to pass to the method.
+     * @return           Return value of the method.
+     */
+    public Object invoke(String methodName, Object... args)
+            throws ScriptException {
+        final Stopwatch watch = new Stopwatch();
+
+        Object returnValue;
+        final ConfigurationSnapshot config =
+                Configuration.getInstance().getSnapshot();
+        if (config.getBoolean(Key.DELEGATE_METHOD_INVOCATION_CACHE_ENABLED, false)) {
+            returnValue = retrieveFromCacheOrInvoke(methodName, args);
+        } else {
+            returnValue = doInvoke(methodName, args);
+        }
+        LOGGER.debug("invoke({}): exec time: {} msec",
+                methodName, watch.timeElapsed());
+        return returnValue;
+    }
+
+    private Object retrieveFromCacheOrInvoke(String methodName, Object... args)
+            throws ScriptException {
+        final InvocationCachePolicy policy =
+                InvocationCachePolicy.forMethod(methodName);
+        final InvocationKey cacheKey = policy.getCacheKey(methodName, args);
+        Object returnValue = invocationCache.get(cacheKey);
+        if (returnValue != null) {
+            LOGGER.debug("invoke({}): cache hit (skipping invocation)",
+                    methodName);
+        } else {
+            LOGGER.debug("invoke({}): cache miss", methodName);
+            returnValue = doInvoke(methodName, args);
+            if (returnValue != null) {
+                invocationCache.put(cacheKey, returnValue,
+                        policy.getTtlSeconds());
+            }
+        }
+        return returnValue;
+    }
+
     /**
      * Starts watching the configuration file for changes.
      */
@@ -0,0 +1,91 @@
+package edu.illinois.library.cantaloupe.script;
+
+/**
+ * <p>Stops calls to a remote service after it has failed a number of times
+ * in a row, so that callers fail fast instead of each waiting for a timeout
+ * while the service is down.</p>
+ *
+ * <p>The breaker opens after {@link #getFailureThreshold()} consecutive
+ * failures. Once it has been open for the reset period, it becomes
+ * half-open, and lets exactly one "probe" call through while all others
+ * continue to fail fast. If the probe succeeds, the breaker closes; if it
+ * fails, the breaker opens for another reset period. A probe whose outcome
+ * is never recorded is given up on after the reset period, and another one
+ * is let through.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ *
+ * @since 3.5
+ */
+class CircuitBreaker {
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long resetMsec;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+
+    /**
+     * Time at which the breaker last opened, or at which the current probe
+     * was let through when it is half-open.
+     */
+    private long stateChangedAt;
+
+    /**
+     * @param failureThreshold Number of consecutive failures after which to
+     *                         open.
+     * @param resetMsec        Time to stay open before allowing a probe.
+     */
+    CircuitBreaker(int failureThreshold, long resetMsec) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.resetMsec = resetMsec;
+    }
+
+    /**
+     * @return Whether a call should be attempted. When the breaker is not
+     *         closed, at most one caller at a time gets <code>true</code>,
+     *         and it must record the outcome of its call.
+     */
+    synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        final long now = System.currentTimeMillis();
+        if (now - stateChangedAt >= resetMsec) {
+            state = State.HALF_OPEN;
+            stateChangedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * @return Whether the breaker is open or half-open.
+     */
+    synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN ||
+                consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            stateChangedAt = System.currentTimeMillis();
+        }
+    }
+
+    synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+}
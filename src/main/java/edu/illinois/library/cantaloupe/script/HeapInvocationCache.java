@@ -1,35 +1,151 @@
 package edu.illinois.library.cantaloupe.script;
 
+import edu.illinois.library.cantaloupe.metrics.Metrics;
 import edu.illinois.library.cantaloupe.util.ObjectCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Heap cache of method invocations whose total size is bounded to a
+ * percentage of max heap, based on an estimate of the size of each key and
+ * return value.</p>
+ *
+ * <p>Entries may expire individually. Expired entries are not returned, and
+ * are removed when they are next looked up.</p>
+ */
 class HeapInvocationCache implements InvocationCache {
 
+    /**
+     * Cached return value.
+     */
+    private static class Entry {
+
+        final Object value;
+        final long expiresAt;
+        final int weight;
+
+        Entry(Object value, long expiresAt, int weight) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.weight = weight;
+        }
+
+        boolean isExpired() {
+            return expiresAt > 0 && System.currentTimeMillis() >= expiresAt;
+        }
+
+    }
+
     private static final Logger LOGGER = LoggerFactory.
             getLogger(HeapInvocationCache.class);
 
-    private ObjectCache<Object, Object> store;
+    /**
+     * The cache will consume, at most, this much of max heap.
+     */
+    private static final float MAX_HEAP_PERCENT = 0.05f;
 
-    HeapInvocationCache() {
-        final long maxSize = computeMaxSize();
-        LOGGER.info("Invocation cache limit: {}", maxSize);
-        store = new ObjectCache<>(maxSize);
+    /**
+     * Name of the cache in {@link Metrics}.
+     */
+    private static final String METRIC_NAME = "HeapInvocationCache";
+
+    /**
+     * Estimated size of an object header plus a reference to it.
+     */
+    private static final int OBJECT_OVERHEAD = 24;
+
+    private final ObjectCache<Object, Entry> store;
+
+    /**
+     * Names of the methods whose invocations have been looked up.
+     */
+    private final Set<String> methodNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param obj Key or return value, which is typically a string, number,
+     *            boolean, or a list or map of those.
+     * @return    Rough estimate of the heap size of the given object, in
+     *            bytes.
+     */
+    static int estimateWeight(Object obj) {
+        if (obj == null) {
+            return 0;
+        } else if (obj instanceof CharSequence) {
+            return OBJECT_OVERHEAD + 16 + ((CharSequence) obj).length() * 2;
+        } else if (obj instanceof InvocationKey) {
+            final InvocationKey key = (InvocationKey) obj;
+            return OBJECT_OVERHEAD + estimateWeight(key.getMethodName()) +
+                    estimateWeight(key.getArguments());
+        } else if (obj instanceof Collection) {
+            long weight = OBJECT_OVERHEAD * 2;
+            for (Object element : (Collection<?>) obj) {
+                weight += estimateWeight(element);
+            }
+            return (int) Math.min(weight, Integer.MAX_VALUE);
+        } else if (obj instanceof Map) {
+            long weight = OBJECT_OVERHEAD * 2;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet()) {
+                weight += OBJECT_OVERHEAD + estimateWeight(entry.getKey()) +
+                        estimateWeight(entry.getValue());
+            }
+            return (int) Math.min(weight, Integer.MAX_VALUE);
+        }
+        return OBJECT_OVERHEAD;
     }
 
-    private long computeMaxSize() {
-        // TODO: this is very crude and needs tuning.
-        final Runtime runtime = Runtime.getRuntime();
-        return Math.round(runtime.maxMemory() / 1024f / 2f);
+    HeapInvocationCache() {
+        final long maxWeight = Math.round(Runtime.getRuntime().maxMemory() *
+                MAX_HEAP_PERCENT);
+        LOGGER.info("Invocation cache limit: {} bytes", maxWeight);
+        store = new ObjectCache<>(maxWeight, entry -> entry.weight);
     }
 
+    /**
+     * Records hits and misses of {@link InvocationKey invocation keys} per
+     * method in {@link Metrics}.
+     */
     @Override
     public Object get(Object key) {
-        return store.get(key);
+        Entry entry = store.get(key);
+        if (entry != null && entry.isExpired()) {
+            store.remove(key);
+            entry = null;
+        }
+        if (key instanceof InvocationKey) {
+            final String methodName = ((InvocationKey) key).getMethodName();
+            methodNames.add(methodName);
+            if (entry != null) {
+                Metrics.cacheHits(METRIC_NAME, methodName).increment();
+            } else {
+                Metrics.cacheMisses(METRIC_NAME, methodName).increment();
+            }
+        }
+        return (entry != null) ? entry.value : null;
+    }
+
+    @Override
+    public Map<String, Double> hitRatios() {
+        final Map<String, Double> ratios = new TreeMap<>();
+        for (String methodName : methodNames) {
+            final long hits =
+                    Metrics.cacheHits(METRIC_NAME, methodName).getCount();
+            final long misses =
+                    Metrics.cacheMisses(METRIC_NAME, methodName).getCount();
+            if (hits + misses > 0) {
+                ratios.put(methodName, hits / (double) (hits + misses));
+            }
+        }
+        return ratios;
     }
 
     /**
-     * @return Auto-computed max size.
+     * @return Auto-computed max size, in bytes.
      */
     @Override
     public long maxSize() {
@@ -43,7 +159,17 @@ class HeapInvocationCache implements InvocationCache {
 
     @Override
     public void put(Object key, Object value) {
-        store.put(key, value);
+        put(key, value, 0);
+    }
+
+    @Override
+    public void put(Object key, Object value, long ttlSeconds) {
+        final long expiresAt = (ttlSeconds > 0) ?
+                System.currentTimeMillis() + ttlSeconds * 1000 : 0;
+        final long weight = (long) OBJECT_OVERHEAD * 2 +
+                estimateWeight(key) + estimateWeight(value);
+        store.put(key, new Entry(value, expiresAt,
+                (int) Math.min(weight, Integer.MAX_VALUE)));
     }
 
     @Override
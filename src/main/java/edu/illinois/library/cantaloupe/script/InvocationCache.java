@@ -1,5 +1,7 @@
 package edu.illinois.library.cantaloupe.script;
 
+import java.util.Map;
+
 /**
  * Stores method invocations (method name and arguments) and corresponding
  * return values.
@@ -14,7 +16,16 @@ public interface InvocationCache {
     Object get(Object key);
 
     /**
-     * @return Maximum number of items allowed in the cache.
+     * @return Ratio of lookups of each method's invocations that found a
+     *         return value, by method name, for the methods that have been
+     *         looked up using {@link InvocationKey invocation keys}.
+     * @since 3.5
+     */
+    Map<String, Double> hitRatios();
+
+    /**
+     * @return Maximum size of the cache, in units specific to the
+     *         implementation.
      */
     long maxSize();
 
@@ -25,6 +36,15 @@ public interface InvocationCache {
 
     void put(Object key, Object value);
 
+    /**
+     * @param key
+     * @param value
+     * @param ttlSeconds Time after which the item expires, or <code>0</code>
+     *                   for it to never expire.
+     * @since 3.5
+     */
+    void put(Object key, Object value, long ttlSeconds);
+
     /**
      * @return Number of valid items in the cache.
      */
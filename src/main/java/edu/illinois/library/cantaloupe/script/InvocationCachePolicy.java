@@ -0,0 +1,162 @@
+package edu.illinois.library.cantaloupe.script;
+
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.ConfigurationSnapshot;
+import edu.illinois.library.cantaloupe.config.Key;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Determines how the return values of a delegate method are cached in an
+ * {@link InvocationCache}, based on the following configuration keys, in
+ * which <var>method</var> is the method name as passed to {@link
+ * ScriptEngine#invoke}:</p>
+ *
+ * <dl>
+ *     <dt><code>delegate_script.cache.<var>method</var>.arguments</code></dt>
+ *     <dd>Comma-separated zero-based positions of the arguments on which the
+ *     return value depends. Only these arguments are part of the cache key,
+ *     so that e.g. a method that depends only on the identifier is cached
+ *     per identifier regardless of the request headers, client IP, and
+ *     cookies it receives. If not set, all arguments are part of the
+ *     key. A return value is served to every invocation whose key
+ *     arguments match, so omitting an argument that the method does
+ *     consult (like the cookies of an authorization method) makes it
+ *     return another invocation's result.</dd>
+ *     <dt><code>delegate_script.cache.<var>method</var>.ttl_seconds</code></dt>
+ *     <dd>Time after which a cached return value expires. If not set, {@link
+ *     Key#DELEGATE_METHOD_INVOCATION_CACHE_TTL} is used.</dd>
+ * </dl>
+ *
+ * <p>Policies are resolved once per {@link ConfigurationSnapshot}, and
+ * resolved again only after the configuration has changed.</p>
+ *
+ * @since 3.5
+ */
+final class InvocationCachePolicy {
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(InvocationCachePolicy.class);
+
+    /**
+     * Policies resolved from a particular configuration snapshot.
+     */
+    private static final class ResolvedPolicies {
+
+        final ConfigurationSnapshot snapshot;
+        final Map<String, InvocationCachePolicy> policies =
+                new ConcurrentHashMap<>();
+
+        ResolvedPolicies(ConfigurationSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+    }
+
+    private static final String KEY_PREFIX = "delegate_script.cache.";
+
+    /**
+     * Replaced as a whole when the configuration snapshot changes.
+     */
+    private static volatile ResolvedPolicies resolvedPolicies;
+
+    /**
+     * Positions of the arguments that are part of the cache key, or
+     * <code>null</code> if all of them are.
+     */
+    private final int[] argumentPositions;
+
+    private final long ttlSeconds;
+
+    /**
+     * @param methodName Method name as passed to {@link ScriptEngine#invoke}.
+     * @return           Policy of the given method in the current
+     *                   configuration.
+     */
+    static InvocationCachePolicy forMethod(String methodName) {
+        final ConfigurationSnapshot config =
+                Configuration.getInstance().getSnapshot();
+        ResolvedPolicies resolved = resolvedPolicies;
+        if (resolved == null || resolved.snapshot != config) {
+            resolved = new ResolvedPolicies(config);
+            resolvedPolicies = resolved;
+        }
+        return resolved.policies.computeIfAbsent(methodName,
+                name -> resolve(config, name));
+    }
+
+    private static InvocationCachePolicy resolve(ConfigurationSnapshot config,
+                                                 String methodName) {
+        final String prefix = KEY_PREFIX + methodName;
+        final long defaultTtl = config.getLong(
+                Key.DELEGATE_METHOD_INVOCATION_CACHE_TTL, 0);
+        return new InvocationCachePolicy(
+                parsePositions(methodName,
+                        config.getString(prefix + ".arguments", "")),
+                config.getLong(prefix + ".ttl_seconds", defaultTtl));
+    }
+
+    /**
+     * @return Positions in the given comma-separated list, or
+     *         <code>null</code> if it is empty or invalid.
+     */
+    private static int[] parsePositions(String methodName, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Arrays.stream(StringUtils.split(value, ",")).
+                    map(String::trim).
+                    mapToInt(Integer::parseInt).
+                    toArray();
+        } catch (NumberFormatException e) {
+            LOGGER.warn("parsePositions(): invalid argument positions for " +
+                    "{}: {} (keying on all arguments)", methodName, value);
+            return null;
+        }
+    }
+
+    InvocationCachePolicy(int[] argumentPositions, long ttlSeconds) {
+        this.argumentPositions = argumentPositions;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * @param methodName Name of the method being invoked.
+     * @param args       Method arguments.
+     * @return           Cache key comprising the method name and the
+     *                   arguments on which the return value depends.
+     *                   Positions beyond the end of the arguments are
+     *                   ignored.
+     */
+    InvocationKey getCacheKey(String methodName, Object... args) {
+        final List<Object> keyArgs;
+        if (argumentPositions == null) {
+            keyArgs = new ArrayList<>(Arrays.asList(args));
+        } else {
+            keyArgs = new ArrayList<>(argumentPositions.length);
+            for (int position : argumentPositions) {
+                if (position >= 0 && position < args.length) {
+                    keyArgs.add(args[position]);
+                }
+            }
+        }
+        return new InvocationKey(methodName, keyArgs);
+    }
+
+    /**
+     * @return Time after which a cached return value expires, or
+     *         <code>0</code> if it does not.
+     */
+    long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+}
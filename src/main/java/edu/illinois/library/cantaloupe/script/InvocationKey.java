@@ -0,0 +1,56 @@
+package edu.illinois.library.cantaloupe.script;
+
+import java.util.List;
+
+/**
+ * Key of a method invocation in an {@link InvocationCache}.
+ *
+ * @since 3.5
+ */
+public final class InvocationKey {
+
+    private final String methodName;
+    private final List<Object> arguments;
+
+    /**
+     * @param methodName Name of the invoked method.
+     * @param arguments  Arguments on which the return value depends, which
+     *                   may be a subset of the ones the method was invoked
+     *                   with.
+     */
+    public InvocationKey(String methodName, List<Object> arguments) {
+        this.methodName = methodName;
+        this.arguments = arguments;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (obj instanceof InvocationKey) {
+            final InvocationKey other = (InvocationKey) obj;
+            return methodName.equals(other.methodName) &&
+                    arguments.equals(other.arguments);
+        }
+        return false;
+    }
+
+    public List<Object> getArguments() {
+        return arguments;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * methodName.hashCode() + arguments.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return methodName + arguments;
+    }
+
+}
@@ -0,0 +1,397 @@
+package edu.illinois.library.cantaloupe.script;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.ScriptException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Sends delegate method invocations to a separate "sidecar" process,
+ * which may be written in any language, over a TCP connection, so that the
+ * script interpreter doesn't have to run inside the application JVM.</p>
+ *
+ * <h3>Protocol</h3>
+ *
+ * <p>Each message in either direction is a frame consisting of a 4-byte
+ * big-endian payload length followed by the payload, which is a UTF-8 JSON
+ * array of one or more calls or results:</p>
+ *
+ * <ul>
+ *     <li>Invocation: <code>{"id":1,"method":"authorized?","args":[...]}</code></li>
+ *     <li>Script load: <code>{"id":2,"load":"...code..."}</code> (the
+ *     sidecar may ignore the code if it manages its own)</li>
+ *     <li>Result: <code>{"id":1,"result":...}</code></li>
+ *     <li>Error: <code>{"id":1,"error":"message"}</code></li>
+ * </ul>
+ *
+ * <p>Calls are pipelined over one connection: any number of them may be in
+ * flight at once, and the sidecar may return results in any order and in
+ * any grouping. Calls that are issued while a frame is being written are
+ * coalesced into the next frame, so that under load, many calls travel in
+ * one round trip.</p>
+ *
+ * <p>Each call fails with a {@link ScriptException} if no result arrives
+ * within {@link Key#DELEGATE_SCRIPT_REMOTE_TIMEOUT}. After {@link
+ * Key#DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_FAILURES} consecutive timeouts
+ * or connection failures, calls fail immediately for {@link
+ * Key#DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_RESET} milliseconds, after
+ * which a single call is let through to retry the connection.</p>
+ *
+ * @since 3.5
+ */
+class RemoteScriptEngine extends AbstractScriptEngine
+        implements ScriptEngine {
+
+    /**
+     * Call awaiting its result.
+     */
+    private static class Call {
+
+        final long id;
+        final byte[] message;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Call(long id, byte[] message) {
+            this.id = id;
+            this.message = message;
+        }
+
+    }
+
+    /**
+     * Connection to the sidecar, with a thread that writes queued calls and
+     * a thread that reads results.
+     */
+    private static class Connection {
+
+        private final Socket socket;
+        private final DataInputStream inputStream;
+        private final DataOutputStream outputStream;
+        private final BlockingQueue<Call> queue = new LinkedBlockingQueue<>();
+        private final Map<Long, Call> pendingCalls = new ConcurrentHashMap<>();
+
+        private volatile boolean isClosed;
+
+        Connection(String host, int port, int timeoutMsec) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), timeoutMsec);
+            inputStream = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            outputStream = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            LOGGER.info("Connection(): connected to {}:{}", host, port);
+
+            startThread(this::write, "delegate-writer");
+            startThread(this::read, "delegate-reader");
+        }
+
+        private void startThread(Runnable runnable, String name) {
+            final Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Fails all pending calls and closes the socket.
+         */
+        void close(Exception cause) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            LOGGER.warn("close(): closing connection: {}", cause.getMessage());
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.debug("close(): {}", e.getMessage());
+            }
+            queue.clear();
+            for (Call call : pendingCalls.values()) {
+                call.result.completeExceptionally(cause);
+            }
+            pendingCalls.clear();
+        }
+
+        /**
+         * Gives up waiting for the result of the given call.
+         */
+        void abandon(Call call) {
+            pendingCalls.remove(call.id);
+        }
+
+        boolean isClosed() {
+            return isClosed;
+        }
+
+        private void read() {
+            try {
+                while (!isClosed) {
+                    final int length = inputStream.readInt();
+                    if (length < 0 || length > MAX_FRAME_LENGTH) {
+                        throw new IOException("Invalid frame length: " +
+                                length);
+                    }
+                    final byte[] payload = new byte[length];
+                    inputStream.readFully(payload);
+                    for (JsonNode node : MAPPER.readTree(payload)) {
+                        final Call call = pendingCalls.remove(
+                                node.path("id").asLong());
+                        if (call == null) {
+                            // It has timed out.
+                            continue;
+                        }
+                        if (node.has("error")) {
+                            call.result.completeExceptionally(
+                                    new ScriptException(
+                                            node.get("error").asText()));
+                        } else {
+                            call.result.complete(MAPPER.treeToValue(
+                                    node.get("result"), Object.class));
+                        }
+                    }
+                }
+            } catch (EOFException e) {
+                close(new IOException("Connection closed by the sidecar"));
+            } catch (IOException | RuntimeException e) {
+                close(e instanceof IOException ?
+                        (IOException) e : new IOException(e));
+            }
+        }
+
+        void send(Call call) throws IOException {
+            pendingCalls.put(call.id, call);
+            if (isClosed) {
+                pendingCalls.remove(call.id);
+                throw new IOException("Connection is closed");
+            }
+            queue.add(call);
+        }
+
+        private void write() {
+            final List<Call> batch = new ArrayList<>();
+            final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            try {
+                while (!isClosed) {
+                    batch.add(queue.take());
+                    // Coalesce whatever else has been queued in the meantime.
+                    queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+                    frame.reset();
+                    frame.write('[');
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (i > 0) {
+                            frame.write(',');
+                        }
+                        frame.write(batch.get(i).message);
+                    }
+                    frame.write(']');
+                    outputStream.writeInt(frame.size());
+                    frame.writeTo(outputStream);
+                    outputStream.flush();
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                close(new IOException(e));
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                close(e);
+            }
+        }
+
+    }
+
+    private static final Logger LOGGER = LoggerFactory.
+            getLogger(RemoteScriptEngine.class);
+
+    /**
+     * Maximum number of calls written in one frame.
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    /**
+     * Maximum length of a frame from the sidecar, to guard against reading
+     * garbage as a huge length.
+     */
+    private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().
+            enable(DeserializationFeature.USE_LONG_FOR_INTS);
+
+    private final AtomicLong callIds = new AtomicLong();
+
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Current or pending connection. It is replaced by whichever thread
+     * first finds it failed or closed, which then connects while any others
+     * wait for the same future.
+     */
+    private final AtomicReference<CompletableFuture<Connection>> connection =
+            new AtomicReference<>();
+
+    RemoteScriptEngine() {
+        final Configuration config = Configuration.getInstance();
+        circuitBreaker = new CircuitBreaker(
+                config.getInt(
+                        Key.DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_FAILURES, 5),
+                config.getLong(
+                        Key.DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_RESET, 10000));
+    }
+
+    /**
+     * @param message Call to send.
+     * @return        Result of the call.
+     * @throws ScriptException If the sidecar returned an error, the call
+     *                         timed out, the connection failed, or the
+     *                         circuit breaker is open.
+     */
+    private Object call(Map<String, Object> message) throws ScriptException {
+        if (!circuitBreaker.allowRequest()) {
+            throw new ScriptException("The delegate sidecar is unavailable " +
+                    "(circuit breaker is open)");
+        }
+        final long timeoutMsec = Configuration.getInstance().getSnapshot().
+                getLong(Key.DELEGATE_SCRIPT_REMOTE_TIMEOUT, 2000);
+        final long id = callIds.incrementAndGet();
+        message.put("id", id);
+
+        final Call call;
+        try {
+            call = new Call(id, MAPPER.writeValueAsBytes(message));
+        } catch (JsonProcessingException e) {
+            throw new ScriptException(e);
+        }
+
+        Connection connection = null;
+        try {
+            connection = getConnection();
+            connection.send(call);
+            final Object result =
+                    call.result.get(timeoutMsec, TimeUnit.MILLISECONDS);
+            circuitBreaker.recordSuccess();
+            return result;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ScriptException) {
+                // The sidecar is working; the method failed.
+                circuitBreaker.recordSuccess();
+                throw (ScriptException) e.getCause();
+            }
+            circuitBreaker.recordFailure();
+            throw new ScriptException((Exception) e.getCause());
+        } catch (TimeoutException e) {
+            connection.abandon(call);
+            circuitBreaker.recordFailure();
+            throw new ScriptException("Timed out after " + timeoutMsec +
+                    " msec waiting for the delegate sidecar");
+        } catch (IOException e) {
+            circuitBreaker.recordFailure();
+            throw new ScriptException(e);
+        } catch (InterruptedException e) {
+            // The outcome is unknown, so none is recorded. If this was the
+            // circuit breaker's probe, another will be let through after
+            // the reset period.
+            if (connection != null) {
+                connection.abandon(call);
+            }
+            Thread.currentThread().interrupt();
+            throw new ScriptException(e);
+        }
+    }
+
+    @Override
+    protected Object doInvoke(String methodName, Object... args)
+            throws ScriptException {
+        final Map<String, Object> message = new LinkedHashMap<>();
+        message.put("method", methodName);
+        message.put("args", Arrays.asList(args));
+        return call(message);
+    }
+
+    /**
+     * @return Open connection to the sidecar, connecting if necessary. Only
+     *         one thread connects at a time, without holding any lock;
+     *         other threads that need a connection meanwhile wait for its
+     *         outcome.
+     */
+    private Connection getConnection()
+            throws IOException, InterruptedException {
+        CompletableFuture<Connection> current = connection.get();
+        if (current == null || isFailedOrClosed(current)) {
+            final CompletableFuture<Connection> next =
+                    new CompletableFuture<>();
+            if (connection.compareAndSet(current, next)) {
+                final Configuration config = Configuration.getInstance();
+                try {
+                    next.complete(new Connection(
+                            config.getString(Key.DELEGATE_SCRIPT_REMOTE_HOST,
+                                    "localhost"),
+                            config.getInt(Key.DELEGATE_SCRIPT_REMOTE_PORT,
+                                    8193),
+                            config.getInt(Key.DELEGATE_SCRIPT_REMOTE_TIMEOUT,
+                                    2000)));
+                } catch (IOException | RuntimeException e) {
+                    next.completeExceptionally(e);
+                }
+            }
+            // Either the future completed above, or that of another thread
+            // that got there first.
+            current = connection.get();
+        }
+        try {
+            return current.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            throw (cause instanceof IOException) ?
+                    (IOException) cause : new IOException(cause);
+        }
+    }
+
+    private static boolean isFailedOrClosed(
+            CompletableFuture<Connection> connection) {
+        return connection.isDone() &&
+                (connection.isCompletedExceptionally() ||
+                        connection.join().isClosed());
+    }
+
+    /**
+     * Sends the given code to the sidecar, which may load it or ignore it.
+     */
+    @Override
+    public void load(String code) throws ScriptException {
+        LOGGER.info("load(): sending script code to the sidecar");
+        final Map<String, Object> message = new LinkedHashMap<>();
+        message.put("load", code);
+        call(message);
+    }
+
+}
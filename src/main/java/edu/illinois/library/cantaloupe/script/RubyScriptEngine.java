@@ -2,70 +2,312 @@ package edu.illinois.library.cantaloupe.script;
 
 import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.config.Key;
-import edu.illinois.library.cantaloupe.util.Stopwatch;
 import org.apache.commons.lang3.StringUtils;
+import org.jruby.Ruby;
+import org.jruby.RubyArray;
+import org.jruby.RubyHash;
+import org.jruby.embed.EvalFailedException;
+import org.jruby.embed.InvokeFailedException;
+import org.jruby.embed.LocalContextScope;
+import org.jruby.embed.LocalVariableBehavior;
+import org.jruby.embed.ParseFailedException;
+import org.jruby.embed.ScriptingContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.script.Invocable;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.locks.StampedLock;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * @see <a href="https://github.com/jruby/jruby/wiki/Embedding-with-JSR-223">
- *     Embedding JRuby with JSR223 - Code Examples</a>
+ * <p>Invokes delegate methods through JRuby's embedding API.</p>
+ *
+ * <p>The module that contains each method is resolved only once per Ruby
+ * runtime, and its methods are then called on it directly, so that an
+ * invocation doesn't have to evaluate any code.</p>
+ *
+ * <p>The way Ruby runtimes are shared among threads is controlled by {@link
+ * Key#DELEGATE_SCRIPT_CONTEXT_SCOPE}:</p>
+ *
+ * <dl>
+ *     <dt><code>concurrent</code> (the default)</dt>
+ *     <dd>All threads share one runtime.</dd>
+ *     <dt><code>pooled</code></dt>
+ *     <dd>Each invocation has exclusive use of a runtime from a pool of at
+ *     most {@link Key#DELEGATE_SCRIPT_RUNTIME_POOL_SIZE} runtimes, into each
+ *     of which the script is loaded when it is created. This uses more
+ *     memory, but eliminates contention on any state that the script shares
+ *     among invocations.</dd>
+ * </dl>
+ *
+ * <p>{@link Map} and {@link Collection} arguments are converted to Ruby
+ * hashes and arrays before being passed. JRuby would otherwise wrap them in
+ * Java proxies, through which every element access in the script would cross
+ * back into Java and convert its key and value anew. A typical
+ * <code>authorized?</code> script reads the same few request headers and
+ * size entries several times, so converting each element once up front is
+ * the cheaper option.</p>
+ *
+ * <p>When the script is reloaded, the runtimes into which the previous
+ * version was loaded are terminated as soon as the invocations in progress
+ * in them have completed.</p>
+ *
  * @see <a href="https://github.com/jruby/jruby/wiki/RedBridge">RedBridge</a>
  */
 class RubyScriptEngine extends AbstractScriptEngine
         implements ScriptEngine {
 
+    /**
+     * Method whose module has been resolved in a Ruby runtime.
+     */
+    private static class ResolvedMethod {
+
+        final Object module;
+        final String name;
+
+        ResolvedMethod(Object module, String name) {
+            this.module = module;
+            this.name = name;
+        }
+
+    }
+
+    /**
+     * Ruby runtime into which the script has been loaded, and the methods
+     * that have been resolved in it.
+     */
+    private static class RubyRuntime {
+
+        final ScriptingContainer container;
+        final Map<String, ResolvedMethod> methods;
+
+        RubyRuntime(ScriptingContainer container,
+                    Map<String, ResolvedMethod> methods) {
+            this.container = container;
+            this.methods = methods;
+        }
+
+    }
+
+    /**
+     * Loaded script code, and the runtimes into which it was loaded.
+     */
+    private static class Script {
+
+        final String code;
+        final LocalContextScope scope;
+
+        /**
+         * Runtime shared by all threads in the concurrent scope;
+         * <code>null</code> in the pooled scope.
+         */
+        private final RubyRuntime sharedRuntime;
+
+        /**
+         * Idle runtimes in the pooled scope; <code>null</code> in the
+         * concurrent scope.
+         */
+        private final BlockingQueue<RubyRuntime> idleRuntimes;
+
+        /** All runtimes that have been created, whether idle or not. */
+        private final Queue<RubyRuntime> allRuntimes =
+                new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger runtimeCount = new AtomicInteger();
+        private final int maxRuntimeCount;
+
+        /**
+         * One reference held by the engine until the script is replaced,
+         * plus one per invocation in progress. When it reaches zero, the
+         * runtimes are terminated.
+         */
+        private final AtomicInteger referenceCount = new AtomicInteger(1);
+
+        /**
+         * Loads the code into a new runtime.
+         *
+         * @param poolSize Maximum number of runtimes in the pooled scope.
+         */
+        Script(String code, LocalContextScope scope, int poolSize) {
+            this.code = code;
+            this.scope = scope;
+            if (LocalContextScope.CONCURRENT.equals(scope)) {
+                maxRuntimeCount = 1;
+                idleRuntimes = null;
+                sharedRuntime = newRuntime(new ConcurrentHashMap<>());
+            } else {
+                maxRuntimeCount = poolSize;
+                idleRuntimes = new ArrayBlockingQueue<>(poolSize);
+                sharedRuntime = null;
+                idleRuntimes.add(newRuntime(new HashMap<>()));
+            }
+            runtimeCount.set(1);
+        }
+
+        /**
+         * @return Runtime for the exclusive use of the calling thread (in
+         *         the pooled scope) until it is {@link
+         *         #releaseRuntime(RubyRuntime) released}, waiting for one to
+         *         be released if the pool is exhausted.
+         */
+        RubyRuntime acquireRuntime() throws ScriptException {
+            if (sharedRuntime != null) {
+                return sharedRuntime;
+            }
+            RubyRuntime runtime = idleRuntimes.poll();
+            if (runtime != null) {
+                return runtime;
+            }
+            if (runtimeCount.incrementAndGet() <= maxRuntimeCount) {
+                LOGGER.debug("acquireRuntime(): creating runtime {} of {}",
+                        runtimeCount.get(), maxRuntimeCount);
+                try {
+                    return newRuntime(new HashMap<>());
+                } catch (RuntimeException e) {
+                    runtimeCount.decrementAndGet();
+                    throw e;
+                }
+            }
+            runtimeCount.decrementAndGet();
+            try {
+                return idleRuntimes.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ScriptException(
+                        "Interrupted while waiting for a Ruby runtime");
+            }
+        }
+
+        void releaseRuntime(RubyRuntime runtime) {
+            if (idleRuntimes != null) {
+                idleRuntimes.offer(runtime);
+            }
+        }
+
+        private RubyRuntime newRuntime(Map<String, ResolvedMethod> methods) {
+            final ScriptingContainer container = new ScriptingContainer(
+                    scope, LocalVariableBehavior.TRANSIENT);
+            try {
+                container.runScriptlet(code);
+            } catch (RuntimeException e) {
+                container.terminate();
+                throw e;
+            }
+            final RubyRuntime runtime = new RubyRuntime(container, methods);
+            allRuntimes.add(runtime);
+            return runtime;
+        }
+
+        /**
+         * @return Whether a reference was acquired. If not, the script has
+         *         already been terminated.
+         */
+        boolean retain() {
+            int count;
+            do {
+                count = referenceCount.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!referenceCount.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        /**
+         * Releases a reference acquired by {@link #retain()} or the
+         * constructor, terminating the runtimes if it was the last one.
+         */
+        void release() {
+            if (referenceCount.decrementAndGet() == 0) {
+                LOGGER.debug("release(): terminating {} runtime(s)",
+                        allRuntimes.size());
+                RubyRuntime runtime;
+                while ((runtime = allRuntimes.poll()) != null) {
+                    runtime.container.terminate();
+                }
+            }
+        }
+
+    }
+
     private static final Logger LOGGER = LoggerFactory.
             getLogger(RubyScriptEngine.class);
 
     /** Top-level Ruby module containing methods to invoke. */
     static final String TOP_MODULE = "Cantaloupe";
 
-    private final InvocationCache invocationCache =
-            new HeapInvocationCache();
-    private javax.script.ScriptEngine scriptEngine;
-    private final StampedLock stampedLock = new StampedLock();
-
-    static {
-        // Available values are singleton, singlethread, threadsafe and
-        // concurrent (JSR-223 default). See
-        // https://github.com/jruby/jruby/wiki/RedBridge#Context_Instance_Type
-        System.setProperty("org.jruby.embed.localcontext.scope", "concurrent");
-
-        // Available values are transient, persistent, global (JSR-223 default)
-        // and bsf. See
-        // https://github.com/jruby/jruby/wiki/RedBridge#Local_Variable_Behavior_Options
-        System.setProperty("org.jruby.embed.localvariable.behavior", "transient");
+    /**
+     * Replaced as a whole by {@link #load(String)}, so that invocations
+     * already in progress complete with the script they started with.
+     */
+    private volatile Script script;
+
+    /**
+     * @return Scope of each Ruby runtime according to {@link
+     *         Key#DELEGATE_SCRIPT_CONTEXT_SCOPE}:
+     *         {@link LocalContextScope#CONCURRENT} for one runtime shared by
+     *         all threads, or {@link LocalContextScope#SINGLETHREAD} for
+     *         pooled runtimes used by one thread at a time.
+     */
+    static LocalContextScope getContextScope() {
+        final String value = Configuration.getInstance().
+                getString(Key.DELEGATE_SCRIPT_CONTEXT_SCOPE, "concurrent");
+        if ("pooled".equalsIgnoreCase(value)) {
+            return LocalContextScope.SINGLETHREAD;
+        } else if (!"concurrent".equalsIgnoreCase(value)) {
+            LOGGER.warn("getContextScope(): unsupported value for {}: {} " +
+                    "(using concurrent)",
+                    Key.DELEGATE_SCRIPT_CONTEXT_SCOPE, value);
+        }
+        return LocalContextScope.CONCURRENT;
     }
 
     /**
-     * @param methodName Name of the method being invoked.
-     * @param args       Method arguments.
-     * @return           Cache key corresponding to the given arguments.
+     * @return Maximum number of pooled runtimes according to {@link
+     *         Key#DELEGATE_SCRIPT_RUNTIME_POOL_SIZE}, defaulting to the
+     *         number of processors.
      */
-    private Object getCacheKey(String methodName, Object... args) {
-        // The cache key is comprised of the method name at position 0 followed
-        // by the arguments at succeeding positions.
-        List<Object> key = Arrays.asList(args);
-        key = new ArrayList<>(key);
-        key.add(0, methodName);
-        return key;
+    static int getRuntimePoolSize() {
+        final int size = Configuration.getInstance().
+                getInt(Key.DELEGATE_SCRIPT_RUNTIME_POOL_SIZE, 0);
+        return (size > 0) ? size : Runtime.getRuntime().availableProcessors();
     }
 
     /**
-     * @return Method invocation cache.
+     * @param ruby Runtime in which the returned object will be used.
+     * @param arg  Argument to convert.
+     * @return     {@link RubyHash} or {@link RubyArray} equivalent of the
+     *             argument, with nested maps and collections also converted,
+     *             if it is a {@link Map} or {@link Collection}; otherwise the
+     *             argument itself.
      */
-    @Override
-    public InvocationCache getInvocationCache() {
-        return invocationCache;
+    static Object toRuby(Ruby ruby, Object arg) {
+        if (arg instanceof Map) {
+            final RubyHash hash = RubyHash.newHash(ruby);
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) arg).entrySet()) {
+                hash.put(toRuby(ruby, entry.getKey()),
+                        toRuby(ruby, entry.getValue()));
+            }
+            return hash;
+        } else if (arg instanceof Collection) {
+            final Collection<?> collection = (Collection<?>) arg;
+            final RubyArray array =
+                    RubyArray.newArray(ruby, collection.size());
+            for (Object element : collection) {
+                array.add(toRuby(ruby, element));
+            }
+            return array;
+        }
+        return arg;
     }
 
     /**
@@ -91,74 +333,74 @@ class RubyScriptEngine extends AbstractScriptEngine
         return parts[parts.length - 1];
     }
 
+    @Override
+    public void load(String code) throws ScriptException {
+        final LocalContextScope scope = getContextScope();
+        final int poolSize = getRuntimePoolSize();
+        if (LocalContextScope.CONCURRENT.equals(scope)) {
+            LOGGER.info("load(): loading script code (context scope: " +
+                    "concurrent)");
+        } else {
+            LOGGER.info("load(): loading script code (context scope: " +
+                    "pooled; pool size: {})", poolSize);
+        }
+        final Script newScript;
+        try {
+            newScript = new Script(code, scope, poolSize);
+        } catch (ParseFailedException | EvalFailedException e) {
+            throw new ScriptException(e);
+        }
+        final Script oldScript = script;
+        script = newScript;
+        if (oldScript != null) {
+            oldScript.release();
+        }
+    }
+
     /**
-     * N.B. Clients should not modify the returned object nor any of its owned
-     * objects, as this could disrupt the invocation cache.
-     *
      * @param methodName Method to invoke, including all prefixes except the
      *                   top-level one in {@link #TOP_MODULE}.
      * @param args       Arguments to pass to the method.
      * @return           Return value of the method.
      */
     @Override
-    public Object invoke(String methodName, Object... args)
+    protected Object doInvoke(String methodName, Object... args)
             throws ScriptException {
-        final long stamp = stampedLock.readLock();
-        try {
-            final Stopwatch watch = new Stopwatch();
-
-            Object returnValue;
-            final Configuration config = Configuration.getInstance();
-            if (config.getBoolean(Key.DELEGATE_METHOD_INVOCATION_CACHE_ENABLED, false)) {
-                returnValue = retrieveFromCacheOrInvoke(methodName, args);
-            } else {
-                returnValue = doInvoke(methodName, args);
+        // The script may be replaced and released between being read and
+        // retained, in which case the new one is read.
+        Script script;
+        do {
+            script = this.script;
+            if (script == null) {
+                throw new ScriptException("No script loaded");
             }
-            LOGGER.debug("invoke({}::{}): exec time: {} msec",
-                    TOP_MODULE, methodName, watch.timeElapsed());
-            return returnValue;
-        } finally {
-            stampedLock.unlock(stamp);
-        }
-    }
-
-    @Override
-    public void load(String code) throws ScriptException {
-        final long stamp = stampedLock.writeLock();
+        } while (!script.retain());
         try {
-            LOGGER.info("load(): loading script code");
-            scriptEngine = new ScriptEngineManager().getEngineByName("jruby");
-            scriptEngine.eval(code);
-        } finally {
-            stampedLock.unlock(stamp);
-        }
-    }
-
-    private Object retrieveFromCacheOrInvoke(String methodName, Object... args)
-            throws ScriptException {
-        final Object cacheKey = getCacheKey(methodName, args);
-        Object returnValue = invocationCache.get(cacheKey);
-        if (returnValue != null) {
-            LOGGER.debug("invoke({}::{}): cache hit (skipping invocation)",
-                    TOP_MODULE, methodName);
-        } else {
-            LOGGER.debug("invoke({}::{}): cache miss", TOP_MODULE, methodName);
-            returnValue = doInvoke(methodName, args);
-            if (returnValue != null) {
-                invocationCache.put(cacheKey, returnValue);
+            final RubyRuntime runtime = script.acquireRuntime();
+            try {
+                ResolvedMethod method = runtime.methods.get(methodName);
+                if (method == null) {
+                    method = new ResolvedMethod(
+                            runtime.container.runScriptlet(
+                                    getModuleName(methodName)),
+                            getUnqualifiedMethodName(methodName));
+                    runtime.methods.put(methodName, method);
+                }
+                final Ruby ruby = runtime.container.getProvider().getRuntime();
+                final Object[] rubyArgs = new Object[args.length];
+                for (int i = 0; i < args.length; i++) {
+                    rubyArgs[i] = toRuby(ruby, args[i]);
+                }
+                return runtime.container.callMethod(method.module,
+                        method.name, rubyArgs, Object.class);
+            } finally {
+                script.releaseRuntime(runtime);
             }
-        }
-        return returnValue;
-    }
-
-    private Object doInvoke(String methodName, Object... args)
-            throws ScriptException {
-        try {
-            return ((Invocable) scriptEngine).invokeMethod(
-                    scriptEngine.eval(getModuleName(methodName)),
-                    getUnqualifiedMethodName(methodName), args);
-        } catch (NoSuchMethodException e) {
+        } catch (ParseFailedException | EvalFailedException |
+                InvokeFailedException e) {
             throw new ScriptException(e);
+        } finally {
+            script.release();
         }
     }
 
@@ -25,7 +25,10 @@ public final class ScriptEngineFactory {
     }
 
     /**
-     * @return Shared ScriptEngine instance, ready for use.
+     * @return Shared ScriptEngine instance, ready for use. If {@link
+     *         Key#DELEGATE_SCRIPT_ENGINE} is <code>remote</code>, it sends
+     *         invocations to a sidecar process, which manages its own code,
+     *         and the delegate script is not read.
      * @throws FileNotFoundException If the delegate script specified in the
      *                               application configuration was not found.
      * @throws DelegateScriptDisabledException If the delegate script is
@@ -40,8 +43,14 @@ public final class ScriptEngineFactory {
         if (scriptEngine == null) {
             final Configuration config = Configuration.getInstance();
             if (config.getBoolean(Key.DELEGATE_SCRIPT_ENABLED, false)) {
-                scriptEngine = new RubyScriptEngine();
-                scriptEngine.load(FileUtils.readFileToString(getScriptFile()));
+                if ("remote".equals(config.getString(
+                        Key.DELEGATE_SCRIPT_ENGINE, "ruby"))) {
+                    scriptEngine = new RemoteScriptEngine();
+                } else {
+                    final ScriptEngine engine = new RubyScriptEngine();
+                    engine.load(FileUtils.readFileToString(getScriptFile()));
+                    scriptEngine = engine;
+                }
             } else {
                 throw new DelegateScriptDisabledException();
             }
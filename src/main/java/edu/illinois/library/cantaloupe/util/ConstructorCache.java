@@ -0,0 +1,81 @@
+package edu.illinois.library.cantaloupe.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Instantiates classes by name via their no-argument constructors, looking
+ * up each class and constructor only once.</p>
+ *
+ * <p>This is used by factories that instantiate a configured class on every
+ * request, so that {@link Class#forName(String)} and the access checks of
+ * {@link Class#newInstance()} are not repeated each time.</p>
+ *
+ * @param <T> Type of the instances.
+ * @since 3.5
+ */
+public final class ConstructorCache<T> {
+
+    private static final MethodType CONSTRUCTOR_TYPE =
+            MethodType.methodType(void.class);
+
+    private final ConcurrentMap<String, MethodHandle> constructors =
+            new ConcurrentHashMap<>();
+    private final MethodHandles.Lookup lookup;
+    private final Class<T> type;
+
+    /**
+     * @param lookup Lookup of the calling class, which will be used to access
+     *               the constructors. This allows the constructors to be
+     *               package-private if the caller is in the same package.
+     * @param type   Type of the instances.
+     */
+    public ConstructorCache(MethodHandles.Lookup lookup, Class<T> type) {
+        this.lookup = lookup;
+        this.type = type;
+    }
+
+    /**
+     * @param className Fully qualified name of a class.
+     * @return          New instance of the given class.
+     * @throws ClassNotFoundException    If the class does not exist or is not
+     *                                   a subtype of the type of this
+     *                                   instance.
+     * @throws InvocationTargetException If the constructor threw a checked
+     *                                   exception.
+     * @throws ReflectiveOperationException If the class does not have an
+     *                                   accessible no-argument constructor.
+     */
+    public T newInstance(String className)
+            throws ReflectiveOperationException {
+        MethodHandle constructor = constructors.get(className);
+        if (constructor == null) {
+            constructor = findConstructor(className);
+            constructors.putIfAbsent(className, constructor);
+        }
+        try {
+            final Object instance = constructor.invokeExact();
+            return type.cast(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    private MethodHandle findConstructor(String className)
+            throws ReflectiveOperationException {
+        final Class<?> class_ = Class.forName(className);
+        if (!type.isAssignableFrom(class_)) {
+            throw new ClassNotFoundException(className + " is not a " +
+                    type.getSimpleName());
+        }
+        return lookup.findConstructor(class_, CONSTRUCTOR_TYPE).
+                asType(MethodType.methodType(Object.class));
+    }
+
+}
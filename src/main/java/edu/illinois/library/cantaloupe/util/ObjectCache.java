@@ -2,23 +2,122 @@ package edu.illinois.library.cantaloupe.util;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.ToIntFunction;
 
 /**
- * Size-bounded heap cache.
+ * <p>Size-bounded heap cache.</p>
+ *
+ * <p>Instances created with a metric name are bounded to a fraction of the
+ * max heap, and count the hits and misses of {@link #get} in {@link
+ * Metrics}.</p>
  */
 public final class ObjectCache<K, V> {
 
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(ObjectCache.class);
+
+    /**
+     * Instances created with a metric name will consume, at most, this much
+     * of max heap.
+     */
+    private static final float MAX_HEAP_PERCENT = 0.01f;
+
     private final long maxSize;
 
+    /** Null if lookups are not counted. */
+    private final String metricName, metricType;
+
     // This is thread-safe.
-    private Cache<K, V> store;
+    private final Cache<K, V> store;
+
+    private static long getMaxHeapSize() {
+        return Math.round(Runtime.getRuntime().maxMemory() * MAX_HEAP_PERCENT);
+    }
+
+    private static <K, V> Cache<K, V> newStore(long maxWeight,
+                                               ToIntFunction<V> weigher) {
+        return Caffeine.newBuilder().
+                maximumWeight(maxWeight).
+                <K, V>weigher((k, v) -> weigher.applyAsInt(v)).
+                build();
+    }
 
     /**
      * Creates an instance with the given max size.
      */
     public ObjectCache(long maxSize) {
+        this(maxSize, Caffeine.newBuilder().maximumSize(maxSize).build(),
+                null, null);
+    }
+
+    /**
+     * Creates an instance whose values have varying sizes, such as images.
+     *
+     * @param maxWeight Maximum total weight of all values.
+     * @param weigher   Function returning the weight of a value, e.g. its
+     *                  approximate size in bytes.
+     * @since 3.5
+     */
+    public ObjectCache(long maxWeight, ToIntFunction<V> weigher) {
+        this(maxWeight, newStore(maxWeight, weigher), null, null);
+    }
+
+    /**
+     * Creates an instance whose values have about the same size, which will
+     * count lookups in {@link Metrics}.
+     *
+     * @param metricName        Name of the cache in {@link Metrics}.
+     * @param metricType        Kind of value, as described in {@link
+     *                          Metrics#cacheHits}.
+     * @param expectedValueSize Rough estimate of the heap size of a value,
+     *                          including its key.
+     * @since 3.5
+     */
+    public ObjectCache(String metricName,
+                       String metricType,
+                       int expectedValueSize) {
+        this(getMaxHeapSize() / expectedValueSize, metricName, metricType);
+    }
+
+    private ObjectCache(long maxSize, String metricName, String metricType) {
+        this(maxSize, Caffeine.newBuilder().maximumSize(maxSize).build(),
+                metricName, metricType);
+        LOGGER.debug("Max {}/{} capacity: {}", metricName, metricType,
+                maxSize);
+    }
+
+    /**
+     * Creates an instance whose values have varying sizes, which will count
+     * lookups in {@link Metrics}.
+     *
+     * @param metricName Name of the cache in {@link Metrics}.
+     * @param metricType Kind of value, as described in {@link
+     *                   Metrics#cacheHits}.
+     * @param weigher    Function returning the approximate size of a value
+     *                   in bytes.
+     * @since 3.5
+     */
+    public ObjectCache(String metricName,
+                       String metricType,
+                       ToIntFunction<V> weigher) {
+        this(getMaxHeapSize(), newStore(getMaxHeapSize(), weigher),
+                metricName, metricType);
+        LOGGER.debug("Max {}/{} capacity: {} bytes", metricName, metricType,
+                maxSize);
+    }
+
+    private ObjectCache(long maxSize,
+                        Cache<K, V> store,
+                        String metricName,
+                        String metricType) {
         this.maxSize = maxSize;
-        store = Caffeine.newBuilder().maximumSize(maxSize).build();
+        this.store = store;
+        this.metricName = metricName;
+        this.metricType = metricType;
     }
 
     public void cleanUp() {
@@ -26,9 +125,17 @@ public final class ObjectCache<K, V> {
     }
 
     public V get(K key) {
-        return store.getIfPresent(key);
+        final V value = store.getIfPresent(key);
+        if (metricName != null) {
+            Metrics.cacheLookup(metricName, metricType, value != null);
+        }
+        return value;
     }
 
+    /**
+     * @return Maximum number of values, or maximum total weight of all
+     *         values if the instance was created with a weigher.
+     */
     public long maxSize() {
         return maxSize;
     }
@@ -34,6 +34,34 @@ public final class StringUtil {
         return str; // This should never hit.
     }
 
+    /**
+     * @param humanSize Byte size as a number optionally followed by a
+     *                  binary unit: <code>M</code>/<code>MB</code>,
+     *                  <code>G</code>/<code>GB</code>,
+     *                  <code>T</code>/<code>TB</code>, or
+     *                  <code>P</code>/<code>PB</code>.
+     * @return Number of bytes represented by the given string.
+     * @throws NumberFormatException If the string does not contain a number.
+     */
+    public static long parseByteSize(String humanSize) {
+        final String numberStr = humanSize.replaceAll("[^\\d.]", "");
+        final double number = Double.parseDouble(numberStr);
+        short exponent;
+
+        if (humanSize.endsWith("M") || humanSize.endsWith("MB")) {
+            exponent = 2;
+        } else if (humanSize.endsWith("G") || humanSize.endsWith("GB")) {
+            exponent = 3;
+        } else if (humanSize.endsWith("T") || humanSize.endsWith("TB")) {
+            exponent = 4;
+        } else if (humanSize.endsWith("P") || humanSize.endsWith("PB")) { // you never know
+            exponent = 5;
+        } else {
+            exponent = 0;
+        }
+        return Math.round(number * Math.pow(1024, exponent));
+    }
+
     /**
      * @param f
      * @return String representation of the given float with trailing zeroes
@@ -237,6 +237,7 @@ var StatusUpdater = function() {
         var memoryStatusSection = $('#cl-status-memory');
         var cacheStatusSection = $('#cl-status-internal-caches');
         var vmStatusSection = $('#cl-status-vm');
+        var threadPoolStatusSection = $('#cl-status-thread-pools');
 
         $.ajax({
             dataType: 'json',
@@ -278,11 +279,32 @@ var StatusUpdater = function() {
                     .text(data.delegateMethodInvocationCache.size);
                 cacheStatusSection.find('tr:nth-child(4) > td:last-child')
                     .text(data.delegateMethodInvocationCache.maxSize);
+                var hitRatios = [];
+                $.each(data.delegateMethodInvocationCache.hitRatios || {},
+                    function(method, ratio) {
+                        hitRatios.push(method + ': ' +
+                            (ratio * 100).toFixed(1) + '%');
+                    });
+                cacheStatusSection.find('tr:nth-child(5) > td:last-child')
+                    .text(hitRatios.join(', '));
 
                 // VM info section
                 vmStatusSection.find('tr:last-child > td:last-child')
                     .text(data.vm.uptime);
 
+                // Thread pools section
+                $.each(data.threadPools, function(name, pool) {
+                    var cells = threadPoolStatusSection
+                        .find('tr[data-pool=' + name + '] > td');
+                    cells.eq(1).text(pool.activeCount);
+                    cells.eq(2).text(pool.poolSize + ' / ' + pool.maxThreads);
+                    cells.eq(3).text(pool.queuedCount + ' / ' + pool.queueCapacity);
+                    cells.eq(4).text(pool.completedCount);
+                    cells.eq(5).text(pool.rejectedCount);
+                    cells.eq(6).text(pool.meanWaitTime.toFixed(1) + ' ms');
+                    cells.eq(7).text(pool.maxWaitTime.toFixed(1) + ' ms');
+                });
+
             },
             error: function(xhr, status, error) {
                 console.error(xhr);
@@ -0,0 +1,201 @@
+package edu.illinois.library.cantaloupe;
+
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class NonBlockingOutputStreamTest extends BaseTest {
+
+    /**
+     * Stands in for a container output stream whose readiness can be
+     * toggled.
+     */
+    private static class MockServletOutputStream extends ServletOutputStream {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        volatile boolean isReady = true;
+        volatile WriteListener listener;
+
+        @Override
+        public boolean isReady() {
+            return isReady;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            listener = writeListener;
+        }
+
+        @Override
+        public void write(int b) {
+            if (!isReady) {
+                throw new IllegalStateException("Not ready");
+            }
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (!isReady) {
+                throw new IllegalStateException("Not ready");
+            }
+            bytes.write(b, off, len);
+        }
+
+    }
+
+    private final AtomicInteger completionCount = new AtomicInteger();
+    private NonBlockingOutputStream instance;
+    private MockServletOutputStream target;
+
+    private static byte[] newData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        target = new MockServletOutputStream();
+        instance = new NonBlockingOutputStream(target, 65536, 100,
+                completionCount::incrementAndGet);
+    }
+
+    /* close() */
+
+    @Test
+    public void testCloseWithReadyTarget() throws Exception {
+        byte[] data = newData(20000);
+        instance.write(data);
+        instance.close();
+
+        assertArrayEquals(data, target.bytes.toByteArray());
+        assertEquals(1, completionCount.get());
+    }
+
+    @Test
+    public void testCloseWithUnreadyTarget() throws Exception {
+        target.isReady = false;
+        byte[] data = newData(20000);
+        instance.write(data);
+        instance.close();
+
+        assertEquals(0, target.bytes.size());
+        assertEquals(20000, instance.getBufferedBytes());
+        assertEquals(0, completionCount.get());
+
+        target.isReady = true;
+        target.listener.onWritePossible();
+
+        assertArrayEquals(data, target.bytes.toByteArray());
+        assertEquals(0, instance.getBufferedBytes());
+        assertEquals(1, completionCount.get());
+    }
+
+    @Test
+    public void testCloseWithoutWriting() throws Exception {
+        instance.close();
+        instance.close();
+        assertEquals(1, completionCount.get());
+    }
+
+    /* flush() */
+
+    @Test
+    public void testFlush() throws Exception {
+        instance.write(newData(10));
+        assertEquals(0, target.bytes.size());
+        instance.flush();
+        assertEquals(10, target.bytes.size());
+        assertEquals(0, completionCount.get());
+    }
+
+    /* abort() */
+
+    @Test
+    public void testAbortAfterClose() throws Exception {
+        target.isReady = false;
+        instance.write(newData(10000));
+        instance.close();
+        assertEquals(0, completionCount.get());
+
+        instance.abort(new IOException("Timed out"));
+        assertEquals(1, completionCount.get());
+
+        target.isReady = true;
+        target.listener.onWritePossible();
+        assertEquals(0, target.bytes.size());
+        assertEquals(1, completionCount.get());
+    }
+
+    /* onError() */
+
+    @Test
+    public void testOnError() throws Exception {
+        target.isReady = false;
+        instance.write(newData(10000));
+        target.listener.onError(new IOException("Client went away"));
+        // The writer hasn't closed the stream yet.
+        assertEquals(0, completionCount.get());
+
+        try {
+            instance.write(newData(10));
+            fail("Expected exception");
+        } catch (IOException e) {
+            // pass
+        }
+        instance.close();
+        assertEquals(1, completionCount.get());
+        instance.close();
+        assertEquals(1, completionCount.get());
+    }
+
+    /* write() */
+
+    @Test
+    public void testWriteWithFullBufferTimesOut() throws Exception {
+        target.isReady = false;
+        try {
+            instance.write(newData(65536 * 2));
+            fail("Expected exception");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Timed out"));
+        }
+    }
+
+    @Test
+    public void testWriteWithFullBufferResumesWhenDrained() throws Exception {
+        target.isReady = false;
+        instance = new NonBlockingOutputStream(target, 65536, 5000,
+                completionCount::incrementAndGet);
+        final byte[] data = newData(65536 * 2);
+        Thread drainer = new Thread(() -> {
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException ignore) {
+            }
+            target.isReady = true;
+            instance.onWritePossible();
+        });
+        drainer.start();
+
+        instance.write(data);
+        instance.close();
+        drainer.join();
+
+        assertArrayEquals(data, target.bytes.toByteArray());
+        assertEquals(1, completionCount.get());
+    }
+
+}
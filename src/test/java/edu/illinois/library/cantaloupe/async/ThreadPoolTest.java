@@ -1,11 +1,17 @@
 package edu.illinois.library.cantaloupe.async;
 
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.test.BaseTest;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -24,6 +30,75 @@ public class ThreadPoolTest extends BaseTest {
         instance = null;
     }
 
+    /**
+     * Replaces the instance with one whose pools each have one thread and a
+     * queue of one task.
+     */
+    private void useTinyPools() {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.THREAD_POOL_LOW_MAX_THREADS, 1);
+        config.setProperty(Key.THREAD_POOL_LOW_QUEUE_SIZE, 1);
+        config.setProperty(Key.THREAD_POOL_NORMAL_MAX_THREADS, 1);
+        config.setProperty(Key.THREAD_POOL_NORMAL_QUEUE_SIZE, 1);
+        config.setProperty(Key.THREAD_POOL_HIGH_MAX_THREADS, 1);
+        config.setProperty(Key.THREAD_POOL_HIGH_QUEUE_SIZE, 0);
+        ThreadPool.clearInstance();
+        instance = ThreadPool.getInstance();
+    }
+
+    /**
+     * Occupies the thread and fills the queue of the pool of the given
+     * priority until the returned latch is counted down.
+     */
+    private CountDownLatch saturate(ThreadPool.Priority priority)
+            throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        instance.submit(() -> {
+            started.countDown();
+            latch.await();
+            return null;
+        }, priority);
+        started.await(1, TimeUnit.SECONDS);
+        if (instance.getStatistics(priority).getQueueCapacity() > 0) {
+            instance.submit(() -> {
+                latch.await();
+                return null;
+            }, priority);
+        }
+        return latch;
+    }
+
+    /* getStatistics() */
+
+    @Test
+    public void testGetStatistics() throws Exception {
+        useTinyPools();
+        ThreadPool.Statistics stats =
+                instance.getStatistics(ThreadPool.Priority.LOW);
+        assertEquals(1, stats.getMaxThreads());
+        assertEquals(1, stats.getQueueCapacity());
+        assertEquals(0, stats.getActiveCount());
+
+        CountDownLatch latch = saturate(ThreadPool.Priority.LOW);
+        stats = instance.getStatistics(ThreadPool.Priority.LOW);
+        assertEquals(1, stats.getActiveCount());
+        assertEquals(1, stats.getQueuedCount());
+        assertEquals(0, stats.getRejectedCount());
+
+        latch.countDown();
+        for (int i = 0; i < 100 && stats.getCompletedCount() < 2; i++) {
+            Thread.sleep(10);
+            stats = instance.getStatistics(ThreadPool.Priority.LOW);
+        }
+        assertEquals(2, stats.getCompletedCount());
+        assertEquals(0, stats.getQueuedCount());
+        assertTrue(stats.getMaxWaitTime() > 0);
+        assertTrue(stats.getMeanWaitTime() > 0);
+    }
+
+    /* isShutdown() */
+
     @Test
     public void testIsShutdown() {
         assertFalse(instance.isShutdown());
@@ -31,6 +106,8 @@ public class ThreadPoolTest extends BaseTest {
         assertTrue(instance.isShutdown());
     }
 
+    /* shutdown() */
+
     @Test
     public void testShutdown() {
         assertFalse(instance.isShutdown());
@@ -38,6 +115,8 @@ public class ThreadPoolTest extends BaseTest {
         assertTrue(instance.isShutdown());
     }
 
+    /* submit() */
+
     @Test
     public void testSubmitCallable() throws Exception {
         final AtomicInteger atomicInt = new AtomicInteger(0);
@@ -76,4 +155,82 @@ public class ThreadPoolTest extends BaseTest {
         assertEquals(1, atomicInt.get());
     }
 
+    @Test
+    public void testSubmitToSaturatedLowPriorityPoolDiscardsTask()
+            throws Exception {
+        useTinyPools();
+        CountDownLatch latch = saturate(ThreadPool.Priority.LOW);
+        try {
+            final AtomicInteger atomicInt = new AtomicInteger(0);
+            Future<?> future = instance.submit(atomicInt::incrementAndGet,
+                    ThreadPool.Priority.LOW);
+            assertTrue(future.isCancelled());
+            assertEquals(1, instance.getStatistics(ThreadPool.Priority.LOW).
+                    getRejectedCount());
+            assertEquals(0, atomicInt.get());
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void testSubmitToSaturatedNormalPriorityPoolRunsTaskInCaller()
+            throws Exception {
+        useTinyPools();
+        CountDownLatch latch = saturate(ThreadPool.Priority.NORMAL);
+        try {
+            final AtomicReference<Thread> thread = new AtomicReference<>();
+            Future<?> future = instance.submit(
+                    () -> thread.set(Thread.currentThread()),
+                    ThreadPool.Priority.NORMAL);
+            assertTrue(future.isDone());
+            assertSame(Thread.currentThread(), thread.get());
+            assertEquals(1, instance.getStatistics(ThreadPool.Priority.NORMAL).
+                    getRejectedCount());
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void testSubmitToSaturatedHighPriorityPoolRunsTaskInOverflowPool()
+            throws Exception {
+        useTinyPools();
+        CountDownLatch latch = saturate(ThreadPool.Priority.HIGH);
+        try {
+            final AtomicReference<Thread> thread = new AtomicReference<>();
+            instance.submit(() -> thread.set(Thread.currentThread()),
+                    ThreadPool.Priority.HIGH).get(1, TimeUnit.SECONDS);
+            assertNotSame(Thread.currentThread(), thread.get());
+            assertTrue(thread.get().getName().startsWith("cl-of-"));
+            assertEquals(1, instance.getStatistics(ThreadPool.Priority.HIGH).
+                    getRejectedCount());
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    /* submitLongRunning() */
+
+    @Test
+    public void testSubmitLongRunningDoesNotUsePools() throws Exception {
+        useTinyPools();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Future<?> future = instance.submitLongRunning(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        try {
+            final AtomicInteger atomicInt = new AtomicInteger(0);
+            instance.submit(atomicInt::incrementAndGet,
+                    ThreadPool.Priority.LOW).get(1, TimeUnit.SECONDS);
+            assertEquals(1, atomicInt.get());
+            assertFalse(future.isDone());
+        } finally {
+            latch.countDown();
+        }
+    }
+
 }
@@ -0,0 +1,73 @@
+package edu.illinois.library.cantaloupe.cache;
+
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTest extends BaseTest {
+
+    private static final int CAPACITY = 10000;
+
+    private BloomFilter instance;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        instance = new BloomFilter(CAPACITY, 0.01);
+    }
+
+    /* BloomFilter() */
+
+    @Test
+    public void testConstructorSizesFilter() {
+        // ~9.6 bits and 7 hash functions per element at 1%
+        assertTrue(instance.bitSize() >= 95851);
+        assertTrue(instance.bitSize() < 96000);
+        assertEquals(7, instance.numHashFunctions());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithIllegalExpectedInsertions() {
+        new BloomFilter(0, 0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithIllegalFalsePositiveProbability() {
+        new BloomFilter(CAPACITY, 1);
+    }
+
+    /* mightContain() */
+
+    @Test
+    public void testMightContainWithAddedStrings() {
+        for (int i = 0; i < CAPACITY; i++) {
+            instance.put("image/cats" + i);
+        }
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(instance.mightContain("image/cats" + i));
+        }
+    }
+
+    @Test
+    public void testMightContainFalsePositiveRate() {
+        for (int i = 0; i < CAPACITY; i++) {
+            instance.put("image/cats" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < CAPACITY; i++) {
+            if (instance.mightContain("image/dogs" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < CAPACITY * 0.02);
+    }
+
+    @Test
+    public void testMightContainWithEmptyFilter() {
+        assertFalse(instance.mightContain("cats"));
+        assertFalse(instance.mightContain(""));
+    }
+
+}
@@ -0,0 +1,176 @@
+package edu.illinois.library.cantaloupe.cache;
+
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CacheKeyFilterTest extends BaseTest {
+
+    private static final CacheKeyFilter.ExistenceChecker NOT_EXISTS =
+            key -> false;
+
+    private CacheKeyFilter instance;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        Configuration.getInstance().setProperty(
+                Key.DERIVATIVE_CACHE_BLOOM_FILTER_CAPACITY, 1000);
+        instance = new CacheKeyFilter("test");
+    }
+
+    /* add() */
+
+    @Test
+    public void testAddBeforePopulation() throws Exception {
+        instance.add("cats");
+        assertFalse(instance.isPopulated());
+        assertFalse(instance.isDefinitelyAbsent("cats", NOT_EXISTS));
+        assertFalse(instance.isDefinitelyAbsent("dogs", NOT_EXISTS));
+    }
+
+    @Test
+    public void testAddAfterPopulation() throws Exception {
+        instance.populate(consumer -> {});
+        instance.add("cats");
+        assertFalse(instance.isDefinitelyAbsent("cats", NOT_EXISTS));
+        assertTrue(instance.isDefinitelyAbsent("dogs", NOT_EXISTS));
+    }
+
+    @Test
+    public void testAddDuringPopulation() throws Exception {
+        final CountDownLatch listing = new CountDownLatch(1);
+        final CountDownLatch added = new CountDownLatch(1);
+        Thread thread = new Thread(() -> instance.populate(consumer -> {
+            consumer.accept("cats");
+            listing.countDown();
+            added.await(5, TimeUnit.SECONDS);
+        }));
+        thread.start();
+        listing.await(5, TimeUnit.SECONDS);
+        instance.add("dogs");
+        added.countDown();
+        thread.join();
+
+        assertFalse(instance.isDefinitelyAbsent("cats", NOT_EXISTS));
+        assertFalse(instance.isDefinitelyAbsent("dogs", NOT_EXISTS));
+        assertTrue(instance.isDefinitelyAbsent("birds", NOT_EXISTS));
+    }
+
+    /* clear() */
+
+    @Test
+    public void testClear() throws Exception {
+        instance.populate(consumer -> consumer.accept("cats"));
+        instance.clear();
+        assertTrue(instance.isPopulated());
+        assertTrue(instance.isDefinitelyAbsent("cats", NOT_EXISTS));
+    }
+
+    /* isDefinitelyAbsent() */
+
+    @Test
+    public void testIsDefinitelyAbsentChecksKeysNotInFilter()
+            throws Exception {
+        instance.populate(consumer -> {});
+        final AtomicInteger checks = new AtomicInteger();
+        assertFalse(instance.isDefinitelyAbsent("cats", key -> {
+            checks.incrementAndGet();
+            return true;
+        }));
+        assertEquals(1, checks.get());
+
+        // The key should have been added.
+        assertFalse(instance.isDefinitelyAbsent("cats", NOT_EXISTS));
+    }
+
+    @Test
+    public void testIsDefinitelyAbsentDoesNotCheckKeysInFilter()
+            throws Exception {
+        instance.populate(consumer -> consumer.accept("cats"));
+        assertFalse(instance.isDefinitelyAbsent("cats", key -> {
+            fail();
+            return false;
+        }));
+    }
+
+    /* isEnabled() */
+
+    @Test
+    public void testIsEnabled() {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.DERIVATIVE_CACHE_BLOOM_FILTER_ENABLED, false);
+        assertFalse(CacheKeyFilter.isEnabled());
+        config.setProperty(Key.DERIVATIVE_CACHE_BLOOM_FILTER_ENABLED, true);
+        assertTrue(CacheKeyFilter.isEnabled());
+    }
+
+    /* isPopulationNecessary() */
+
+    @Test
+    public void testIsPopulationNecessary() {
+        Configuration.getInstance().setProperty(
+                Key.DERIVATIVE_CACHE_BLOOM_FILTER_CAPACITY, 2);
+        assertTrue(instance.isPopulationNecessary());
+
+        instance.populate(consumer -> consumer.accept("cats"));
+        assertFalse(instance.isPopulationNecessary());
+
+        instance.add("dogs");
+        assertFalse(instance.isPopulationNecessary());
+        instance.add("birds");
+        assertTrue(instance.isPopulationNecessary());
+    }
+
+    /* populate() */
+
+    @Test
+    public void testPopulate() throws Exception {
+        assertTrue(instance.populate(consumer -> {
+            consumer.accept("cats");
+            consumer.accept("dogs");
+        }));
+        assertTrue(instance.isPopulated());
+        assertFalse(instance.isDefinitelyAbsent("cats", NOT_EXISTS));
+        assertFalse(instance.isDefinitelyAbsent("dogs", NOT_EXISTS));
+        assertTrue(instance.isDefinitelyAbsent("birds", NOT_EXISTS));
+    }
+
+    @Test
+    public void testPopulateReplacesFilter() throws Exception {
+        instance.populate(consumer -> consumer.accept("cats"));
+        instance.populate(consumer -> consumer.accept("dogs"));
+        assertTrue(instance.isDefinitelyAbsent("cats", NOT_EXISTS));
+        assertFalse(instance.isDefinitelyAbsent("dogs", NOT_EXISTS));
+    }
+
+    @Test
+    public void testPopulateWithFailingListerRetainsFilter() throws Exception {
+        instance.populate(consumer -> consumer.accept("cats"));
+        assertFalse(instance.populate(consumer -> {
+            consumer.accept("dogs");
+            throw new IOException("failed");
+        }));
+        assertFalse(instance.isDefinitelyAbsent("cats", NOT_EXISTS));
+        assertTrue(instance.isDefinitelyAbsent("dogs", NOT_EXISTS));
+    }
+
+    @Test
+    public void testPopulateWithFailingListerBeforeFirstPopulation() throws Exception {
+        assertFalse(instance.populate(consumer -> {
+            throw new IOException("failed");
+        }));
+        assertFalse(instance.isPopulated());
+        assertFalse(instance.isDefinitelyAbsent("cats", NOT_EXISTS));
+    }
+
+}
@@ -0,0 +1,324 @@
+package edu.illinois.library.cantaloupe.cache;
+
+import edu.illinois.library.cantaloupe.async.ThreadPool;
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import edu.illinois.library.cantaloupe.util.DeletingFileVisitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FilesystemCacheIndexTest extends BaseTest {
+
+    private Path rootPath;
+    private FilesystemCacheIndex instance;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        rootPath = Files.createTempDirectory("test").resolve("cache");
+        Configuration.getInstance().setProperty(
+                Key.FILESYSTEMCACHE_PATHNAME, rootPath.toString());
+        instance = FilesystemCacheIndex.acquire(rootPath);
+        assertTrue(instance.awaitReady(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        instance.release();
+        Files.walkFileTree(rootPath, new DeletingFileVisitor());
+    }
+
+    private void createFile(Path path, int size) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, new byte[size]);
+    }
+
+    private void reacquire() throws IOException {
+        instance.release();
+        instance = FilesystemCacheIndex.acquire(rootPath);
+    }
+
+    /* acquire() */
+
+    @Test
+    public void testAcquireReturnsSharedInstance() throws Exception {
+        FilesystemCacheIndex other = FilesystemCacheIndex.acquire(rootPath);
+        try {
+            assertSame(instance, other);
+        } finally {
+            other.release();
+        }
+    }
+
+    @Test
+    public void testAcquireRestoresStateFromStore() throws Exception {
+        Path file1 = rootPath.resolve("image/cats1");
+        Path file2 = rootPath.resolve("image/cats2");
+        instance.add(file1, 100);
+        instance.add(file2, 200);
+        instance.remove(file1);
+
+        reacquire();
+
+        assertTrue(instance.isReady());
+        assertEquals(1, instance.size());
+        assertEquals(200, instance.getByteSize());
+        assertNull(instance.getLastAccessedTime(file1));
+        assertNotNull(instance.getLastAccessedTime(file2));
+    }
+
+    @Test
+    public void testAcquireRebuildsIndexFromTreeInBackground()
+            throws Exception {
+        instance.release();
+        Files.delete(rootPath.resolve(FilesystemCacheIndex.STORE_FILENAME));
+
+        Identifier identifier = new Identifier("cats");
+        OperationList opList = new OperationList(identifier, Format.JPG);
+        createFile(FilesystemCache.sourceImageFile(identifier), 10);
+        createFile(FilesystemCache.derivativeImageFile(opList), 20);
+        createFile(rootPath.resolve("image/abc_def.jpg_main.tmp"), 30);
+
+        instance = FilesystemCacheIndex.acquire(rootPath);
+        assertTrue(instance.awaitReady(5, TimeUnit.SECONDS));
+        assertEquals(2, instance.size());
+        assertEquals(30, instance.getByteSize());
+        assertEquals(1, instance.getOrphanedTempFiles().size());
+    }
+
+    @Test
+    public void testAcquireRecreatesUnreadableStore() throws Exception {
+        instance.release();
+        Files.write(rootPath.resolve(FilesystemCacheIndex.STORE_FILENAME),
+                new byte[] { 1, 2, 3 });
+        Path file = rootPath.resolve("image/cats1");
+        createFile(file, 10);
+
+        instance = FilesystemCacheIndex.acquire(rootPath);
+        assertTrue(instance.awaitReady(5, TimeUnit.SECONDS));
+        assertEquals(1, instance.size());
+    }
+
+    /* clear() */
+
+    @Test
+    public void testClear() {
+        instance.add(rootPath.resolve("image/cats1"), 100);
+        instance.add(rootPath.resolve("image/cats2"), 100);
+        instance.clear();
+        assertEquals(0, instance.size());
+        assertEquals(0, instance.getByteSize());
+    }
+
+    /* deleteFilesAccessedBefore() */
+
+    @Test
+    public void testDeleteFilesAccessedBefore() throws Exception {
+        Path oldFile = rootPath.resolve("image/cats1");
+        Path newFile = rootPath.resolve("image/cats2");
+        createFile(oldFile, 100);
+        createFile(newFile, 100);
+        instance.add(oldFile, 100);
+        instance.add(newFile, 100);
+        Thread.sleep(20);
+        final long time = System.currentTimeMillis();
+        Thread.sleep(20);
+        instance.touch(newFile);
+
+        assertEquals(1, instance.deleteFilesAccessedBefore(time));
+        assertFalse(Files.exists(oldFile));
+        assertTrue(Files.exists(newFile));
+        assertEquals(1, instance.size());
+        assertEquals(100, instance.getByteSize());
+    }
+
+    /* evict() */
+
+    @Test
+    public void testEvictDeletesLeastRecentlyAccessedFiles() throws Exception {
+        instance.setMaxByteSize(1000);
+        // Stay under the high watermark so that eviction won't be triggered
+        // in the background.
+        for (int i = 0; i < 9; i++) {
+            Path file = rootPath.resolve("image/cats" + i);
+            createFile(file, 100);
+            instance.add(file, 100);
+            Thread.sleep(5);
+        }
+        // Make the first file the most recently accessed.
+        instance.touch(rootPath.resolve("image/cats0"));
+
+        assertEquals(1, instance.evict());
+        assertEquals(800, instance.getByteSize());
+        assertTrue(Files.exists(rootPath.resolve("image/cats0")));
+        assertFalse(Files.exists(rootPath.resolve("image/cats1")));
+        assertNull(instance.getLastAccessedTime(rootPath.resolve("image/cats1")));
+    }
+
+    @Test
+    public void testEvictWithNoMaxByteSize() throws Exception {
+        Path file = rootPath.resolve("image/cats");
+        createFile(file, 100);
+        instance.add(file, 100);
+        assertEquals(0, instance.evict());
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    public void testAddTriggersEvictionAboveHighWatermark() throws Exception {
+        instance.setMaxByteSize(1000);
+        for (int i = 0; i < 20; i++) {
+            Path file = rootPath.resolve("image/cats" + i);
+            createFile(file, 100);
+            instance.add(file, 100);
+        }
+        for (int i = 0; i < 50 && instance.getByteSize() > 950; i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(instance.getByteSize() <= 950);
+    }
+
+    /* fileDeleted() */
+
+    @Test
+    public void testFileDeleted() {
+        Path file = rootPath.resolve("image/cats1");
+        Path tempFile = rootPath.resolve("image/cats2_main.tmp");
+        instance.add(file, 100);
+        instance.tempFileOpened(tempFile);
+
+        instance.fileDeleted(file);
+        instance.fileDeleted(tempFile);
+
+        assertEquals(0, instance.size());
+        assertTrue(instance.getOrphanedTempFiles().isEmpty());
+    }
+
+    /* getLastAccessedTime() */
+
+    @Test
+    public void testGetLastAccessedTime() throws Exception {
+        Path file = rootPath.resolve("image/cats1");
+        assertNull(instance.getLastAccessedTime(file));
+
+        instance.add(file, 100);
+        FileTime time1 = instance.getLastAccessedTime(file);
+        assertNotNull(time1);
+
+        Thread.sleep(10);
+        instance.touch(file);
+        assertTrue(instance.getLastAccessedTime(file).compareTo(time1) > 0);
+    }
+
+    /* setMaxByteSize() */
+
+    @Test
+    public void testSetMaxByteSizeEvictsAfterEvictionWasDiscarded()
+            throws Exception {
+        // Replace the thread pool with one whose low-priority pool has one
+        // thread and no queue, and occupy the thread.
+        final Configuration config = Configuration.getInstance();
+        config.setProperty(Key.THREAD_POOL_LOW_MAX_THREADS, 1);
+        config.setProperty(Key.THREAD_POOL_LOW_QUEUE_SIZE, 0);
+        ThreadPool.getInstance().shutdown();
+        final ThreadPool pool = ThreadPool.getInstance();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        try {
+            pool.submit(() -> {
+                started.countDown();
+                latch.await();
+                return null;
+            }, ThreadPool.Priority.LOW);
+            started.await(1, TimeUnit.SECONDS);
+
+            for (int i = 0; i < 10; i++) {
+                Path file = rootPath.resolve("image/cats" + i);
+                createFile(file, 100);
+                instance.add(file, 100);
+            }
+
+            // The eviction task will be discarded.
+            instance.setMaxByteSize(500);
+            assertEquals(1, pool.getStatistics(ThreadPool.Priority.LOW).
+                    getRejectedCount());
+            latch.countDown();
+            Thread.sleep(50);
+
+            // It should be submitted again.
+            instance.setMaxByteSize(500);
+            for (int i = 0; i < 100 && instance.getByteSize() > 500; i++) {
+                Thread.sleep(20);
+            }
+            assertTrue(instance.getByteSize() <= 500);
+        } finally {
+            latch.countDown();
+            pool.shutdown();
+        }
+    }
+
+    /* touch() */
+
+    @Test
+    public void testTouchAddsUnindexedFile() throws Exception {
+        Path file = rootPath.resolve("image/cats1");
+        createFile(file, 100);
+
+        instance.touch(file);
+
+        assertEquals(1, instance.size());
+        assertEquals(100, instance.getByteSize());
+        assertNotNull(instance.getLastAccessedTime(file));
+    }
+
+    @Test
+    public void testTouchedAccessTimesArePersisted() throws Exception {
+        Path file = rootPath.resolve("image/cats1");
+        instance.add(file, 100);
+        Thread.sleep(10);
+        instance.touch(file);
+        final FileTime time = instance.getLastAccessedTime(file);
+        instance.flushAccessTimes();
+        instance.commit();
+
+        reacquire();
+
+        assertEquals(time, instance.getLastAccessedTime(file));
+    }
+
+    /* tempFileOpened() */
+
+    @Test
+    public void testUnclosedTempFilesAreOrphanedUponReacquisition()
+            throws Exception {
+        Path tempFile1 = rootPath.resolve("image/cats1_main.tmp");
+        Path tempFile2 = rootPath.resolve("image/cats2_main.tmp");
+        instance.tempFileOpened(tempFile1);
+        instance.tempFileOpened(tempFile2);
+        instance.tempFileClosed(tempFile1);
+        assertTrue(instance.getOrphanedTempFiles().isEmpty());
+
+        reacquire();
+
+        assertEquals(1, instance.getOrphanedTempFiles().size());
+        assertTrue(instance.getOrphanedTempFiles().contains(tempFile2));
+
+        instance.tempFileClosed(tempFile2);
+        assertTrue(instance.getOrphanedTempFiles().isEmpty());
+    }
+
+}
@@ -27,6 +27,7 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 import static edu.illinois.library.cantaloupe.cache.FilesystemCache.*;
 import static edu.illinois.library.cantaloupe.test.Assert.PathAssert.assertRecursiveFileCount;
@@ -64,6 +65,18 @@ public class FilesystemCacheTest extends BaseTest {
         Files.walkFileTree(fixturePath, new DeletingFileVisitor());
     }
 
+    /**
+     * Waits for the index, which is built in the background, to be ready.
+     */
+    private void awaitIndex() throws Exception {
+        FilesystemCacheIndex index = FilesystemCacheIndex.acquire(fixturePath);
+        try {
+            assertTrue(index.awaitReady(5, TimeUnit.SECONDS));
+        } finally {
+            index.release();
+        }
+    }
+
     private void createEmptyFile(Path path) throws IOException {
         Files.createDirectories(path.getParent());
         Files.createFile(path);
@@ -333,6 +346,18 @@ public class FilesystemCacheTest extends BaseTest {
         assertEquals(3, instance.getDerivativeImageFiles(identifier).size());
     }
 
+    @Test
+    public void testGetMaxByteSize() {
+        Configuration config = Configuration.getInstance();
+        assertEquals(0, FilesystemCache.getMaxByteSize());
+
+        config.setProperty(Key.FILESYSTEMCACHE_MAX_SIZE, "2M");
+        assertEquals(2 * 1024 * 1024, FilesystemCache.getMaxByteSize());
+
+        config.setProperty(Key.FILESYSTEMCACHE_MAX_SIZE, "cats");
+        assertEquals(0, FilesystemCache.getMaxByteSize());
+    }
+
     @Test
     public void testGetImageInfoWithZeroTTL() throws Exception {
         Configuration.getInstance().setProperty(Key.CACHE_SERVER_TTL, 0);
@@ -650,6 +675,137 @@ public class FilesystemCacheTest extends BaseTest {
         assertRecursiveFileCount(infoPath, 0);
     }
 
+    @Test
+    public void testGetImageInfoWithIndexIndexesUnindexedFile()
+            throws Exception {
+        Configuration.getInstance().setProperty(
+                Key.FILESYSTEMCACHE_INDEX_ENABLED, true);
+        instance.initialize();
+        try {
+            awaitIndex();
+            Identifier identifier = new Identifier("cats");
+            Path infoFile = infoFile(identifier);
+            Files.createDirectories(infoFile.getParent());
+            try (OutputStream os = Files.newOutputStream(infoFile)) {
+                new Info(52, 42).writeAsJSON(os);
+            }
+
+            assertNotNull(instance.getImageInfo(identifier));
+
+            FilesystemCacheIndex index =
+                    FilesystemCacheIndex.acquire(fixturePath);
+            try {
+                assertNotNull(index.getLastAccessedTime(infoFile));
+            } finally {
+                index.release();
+            }
+        } finally {
+            instance.shutdown();
+        }
+    }
+
+    @Test
+    public void testPurgeExpiredWithIndex() throws Exception {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.CACHE_SERVER_TTL, 1);
+        config.setProperty(Key.FILESYSTEMCACHE_INDEX_ENABLED, true);
+        instance.initialize();
+        try {
+            awaitIndex();
+            // add a derivative image
+            OperationList ops = TestUtil.newOperationList();
+            try (OutputStream os = instance.newDerivativeImageOutputStream(ops)) {
+                os.write(new byte[] { 1, 2, 3 });
+            }
+            // add an info
+            instance.put(ops.getIdentifier(), new Info(52, 42));
+
+            // wait for them to expire
+            sleep(1500);
+
+            // add a changed derivative
+            ops.setIdentifier(new Identifier("dogs"));
+            try (OutputStream os = instance.newDerivativeImageOutputStream(ops)) {
+                os.write(new byte[] { 1, 2, 3 });
+            }
+
+            instance.purgeExpired();
+            assertRecursiveFileCount(derivativeImagePath, 1);
+            assertRecursiveFileCount(infoPath, 0);
+        } finally {
+            instance.shutdown();
+        }
+    }
+
+    @Test
+    public void testPurgeWithIdentifierWithIndex() throws Exception {
+        Configuration.getInstance().setProperty(
+                Key.FILESYSTEMCACHE_INDEX_ENABLED, true);
+        instance.initialize();
+        try {
+            awaitIndex();
+            OperationList ops = TestUtil.newOperationList();
+            Identifier identifier = ops.getIdentifier();
+            try (OutputStream os = instance.newDerivativeImageOutputStream(ops)) {
+                os.write(new byte[] { 1, 2, 3 });
+            }
+            instance.put(identifier, new Info(52, 42));
+            assertEquals(1, instance.getDerivativeImageFiles(identifier).size());
+
+            instance.purge(identifier);
+            assertRecursiveFileCount(derivativeImagePath, 0);
+            assertRecursiveFileCount(infoPath, 0);
+            assertTrue(instance.getDerivativeImageFiles(identifier).isEmpty());
+        } finally {
+            instance.shutdown();
+        }
+    }
+
+    @Test
+    public void testPurgeWithIdentifierWithIndexDeletesUnindexedFiles()
+            throws Exception {
+        Configuration.getInstance().setProperty(
+                Key.FILESYSTEMCACHE_INDEX_ENABLED, true);
+        instance.initialize();
+        try {
+            awaitIndex();
+            OperationList ops = TestUtil.newOperationList();
+            Identifier identifier = ops.getIdentifier();
+            // Files whose addition to the index was lost, e.g. in a crash.
+            createEmptyFile(derivativeImageFile(ops));
+            createEmptyFile(infoFile(identifier));
+
+            instance.purge(identifier);
+            assertRecursiveFileCount(derivativeImagePath, 0);
+            assertRecursiveFileCount(infoPath, 0);
+        } finally {
+            instance.shutdown();
+        }
+    }
+
+    @Test
+    public void testPurgeWithIndex() throws Exception {
+        Configuration.getInstance().setProperty(
+                Key.FILESYSTEMCACHE_INDEX_ENABLED, true);
+        instance.initialize();
+        try {
+            awaitIndex();
+            OperationList ops = TestUtil.newOperationList();
+            try (OutputStream os = instance.newDerivativeImageOutputStream(ops)) {
+                os.write(new byte[] { 1, 2, 3 });
+            }
+            createEmptyFile(infoFile(ops.getIdentifier()));
+
+            instance.purge();
+            // Only the index store remains.
+            assertRecursiveFileCount(fixturePath, 1);
+            assertTrue(Files.exists(
+                    fixturePath.resolve(FilesystemCacheIndex.STORE_FILENAME)));
+        } finally {
+            instance.shutdown();
+        }
+    }
+
     @Test
     public void testPut() throws Exception {
         Identifier identifier = new Identifier("cats");
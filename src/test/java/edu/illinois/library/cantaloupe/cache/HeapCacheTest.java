@@ -9,9 +9,11 @@ import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.image.Identifier;
 import edu.illinois.library.cantaloupe.operation.OperationList;
 import edu.illinois.library.cantaloupe.test.TestUtil;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -199,6 +201,46 @@ public class HeapCacheTest extends BaseTest {
         assertEquals(base * (long) Math.pow(1024, 5), instance.getTargetByteSize(), delta);
     }
 
+    /* initialize() */
+
+    @Test
+    public void testInitializeWithMappedStorage() throws Exception {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.HEAPCACHE_STORAGE, "mapped");
+
+        Path cacheFile = Files.createTempFile("cantaloupe", "tmp");
+        try {
+            Files.delete(cacheFile);
+            config.setProperty(Key.HEAPCACHE_MAPPED_PATHNAME,
+                    cacheFile.toString());
+            instance.initialize();
+
+            // Seed an image and an info
+            Identifier id1 = new Identifier("cats");
+            OperationList ops1 = new OperationList(id1, Format.JPG);
+            try (OutputStream os = instance.newDerivativeImageOutputStream(ops1)) {
+                Files.copy(TestUtil.getImage(IMAGE), os);
+            }
+            Info info = new Info(52, 52);
+            instance.put(id1, info);
+            assertEquals(5439 + info.toJSON().length(), instance.getByteSize());
+            instance.shutdown();
+
+            // The contents should be available to a new instance without
+            // any persistence step.
+            instance = new HeapCache();
+            instance.initialize();
+            assertEquals(2, instance.size());
+            assertEquals(info, instance.getImageInfo(id1));
+            try (InputStream is = instance.newDerivativeImageInputStream(ops1)) {
+                assertEquals(5439, IOUtils.toByteArray(is).length);
+            }
+            instance.shutdown();
+        } finally {
+            Files.deleteIfExists(cacheFile);
+        }
+    }
+
     /* loadFromPersistentStore() */
 
     @Test
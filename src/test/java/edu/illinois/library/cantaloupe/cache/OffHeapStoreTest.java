@@ -0,0 +1,254 @@
+package edu.illinois.library.cantaloupe.cache;
+
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class OffHeapStoreTest extends BaseTest {
+
+    private static final long CAPACITY = 1024 * 64;
+    private static final int SEGMENT_SIZE = 1024 * 16;
+
+    private Path storeFile;
+    private OffHeapStore instance;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        storeFile = Files.createTempFile("cantaloupe", "tmp");
+        Files.delete(storeFile);
+        instance = OffHeapStore.newMappedStore(storeFile, CAPACITY,
+                SEGMENT_SIZE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        instance.close();
+        Files.deleteIfExists(storeFile);
+    }
+
+    private static byte[] newData(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i + seed);
+        }
+        return data;
+    }
+
+    /* get() */
+
+    @Test
+    public void testGetWithPresentItem() {
+        HeapCache.Key key = new HeapCache.Key("cats");
+        byte[] data = newData(100, 1);
+        assertTrue(instance.put(key, data));
+        assertArrayEquals(data, instance.get(new HeapCache.Key("cats")));
+    }
+
+    @Test
+    public void testGetWithMissingItem() {
+        assertNull(instance.get(new HeapCache.Key("cats")));
+    }
+
+    /* getByteSize() */
+
+    @Test
+    public void testGetByteSize() {
+        assertEquals(0, instance.getByteSize());
+        instance.put(new HeapCache.Key("cats"), newData(100, 1));
+        instance.put(new HeapCache.Key("cats", "ops"), newData(200, 1));
+        assertEquals(300, instance.getByteSize());
+    }
+
+    /* newInputStream() */
+
+    @Test
+    public void testNewInputStream() throws Exception {
+        HeapCache.Key key = new HeapCache.Key("cats", "ops");
+        byte[] data = newData(3000, 5);
+        instance.put(key, data);
+        try (InputStream is = instance.newInputStream(key)) {
+            assertArrayEquals(data, IOUtils.toByteArray(is));
+        }
+    }
+
+    @Test
+    public void testNewInputStreamKeepsRemovedItemReadable() throws Exception {
+        HeapCache.Key key = new HeapCache.Key("cats", "ops");
+        byte[] data = newData(3000, 5);
+        instance.put(key, data);
+        try (InputStream is = instance.newInputStream(key)) {
+            instance.remove(key);
+            // Fill the store with other items, which must not overwrite the
+            // chunk being read.
+            for (int i = 0; i < 40; i++) {
+                instance.put(new HeapCache.Key("dogs", "" + i),
+                        newData(3000, 9));
+            }
+            assertArrayEquals(data, IOUtils.toByteArray(is));
+        }
+    }
+
+    /* newMappedStore() */
+
+    @Test
+    public void testNewMappedStoreRestoresContents() throws Exception {
+        HeapCache.Key key1 = new HeapCache.Key("cats");
+        HeapCache.Key key2 = new HeapCache.Key("cats", "ops");
+        byte[] data1 = newData(100, 1);
+        byte[] data2 = newData(5000, 2);
+        instance.put(key1, data1);
+        instance.put(key2, data2);
+        instance.put(new HeapCache.Key("dogs"), newData(100, 3));
+        instance.remove(new HeapCache.Key("dogs"));
+        instance.close();
+
+        instance = OffHeapStore.newMappedStore(storeFile, CAPACITY,
+                SEGMENT_SIZE);
+        assertEquals(2, instance.size());
+        assertArrayEquals(data1, instance.get(key1));
+        assertArrayEquals(data2, instance.get(key2));
+    }
+
+    @Test
+    public void testNewMappedStoreRecreatesIncompatibleFile()
+            throws Exception {
+        instance.put(new HeapCache.Key("cats"), newData(100, 1));
+        instance.close();
+
+        instance = OffHeapStore.newMappedStore(storeFile, CAPACITY * 2,
+                SEGMENT_SIZE);
+        assertEquals(0, instance.size());
+        assertEquals(CAPACITY * 2, Files.size(storeFile));
+    }
+
+    /* put() */
+
+    @Test
+    public void testPutReplacesExistingItem() {
+        HeapCache.Key key = new HeapCache.Key("cats");
+        instance.put(key, newData(100, 1));
+        byte[] data = newData(200, 2);
+        instance.put(key, data);
+        assertEquals(1, instance.size());
+        assertArrayEquals(data, instance.get(key));
+    }
+
+    @Test
+    public void testPutWithTooLargeItem() {
+        HeapCache.Key key = new HeapCache.Key("cats");
+        assertFalse(instance.put(key,
+                new byte[instance.getMaxItemSize() + 1]));
+        assertNull(instance.get(key));
+    }
+
+    @Test
+    public void testPutEvictsLeastRecentlyAccessedItems() throws Exception {
+        final int count = 100;
+        for (int i = 0; i < count; i++) {
+            HeapCache.Key key = new HeapCache.Key("cats", "" + i);
+            assertTrue(instance.put(key, newData(3000, i)));
+            Thread.sleep(1);
+        }
+        assertTrue(instance.size() < count);
+        // The most recent item is present and intact.
+        assertArrayEquals(newData(3000, count - 1),
+                instance.get(new HeapCache.Key("cats", "" + (count - 1))));
+        // The first item has been evicted.
+        assertNull(instance.get(new HeapCache.Key("cats", "0")));
+    }
+
+    @Test
+    public void testPutSplitsLargerFreeChunks() {
+        // Fill the store with large items, then remove them.
+        int i = 0;
+        while (instance.put(new HeapCache.Key("big", "" + i),
+                newData(instance.getMaxItemSize() - 100, i))) {
+            i++;
+            if (i > 10) {
+                break;
+            }
+        }
+        instance.removeAll();
+
+        // Small items should fit into the freed space.
+        for (int j = 0; j < 20; j++) {
+            assertTrue(instance.put(new HeapCache.Key("small", "" + j),
+                    newData(500, j)));
+        }
+        assertEquals(20, instance.size());
+    }
+
+    @Test
+    public void testPutMergesFreedChunks() {
+        // Fill the store with small items, then remove them.
+        for (int i = 0; i < 100; i++) {
+            instance.put(new HeapCache.Key("small", "" + i), newData(500, i));
+        }
+        instance.removeAll();
+
+        // Large items should fit into the merged space without evicting
+        // anything.
+        final int count = (int) (CAPACITY / SEGMENT_SIZE);
+        for (int i = 0; i < count; i++) {
+            assertTrue(instance.put(new HeapCache.Key("big", "" + i),
+                    newData(instance.getMaxItemSize() - 100, i)));
+        }
+        assertEquals(count, instance.size());
+    }
+
+    @Test
+    public void testPutEvictsSmallerItemsToMakeRoomForLargeItem()
+            throws Exception {
+        // Fill the store with small items.
+        for (int i = 0; i < 100; i++) {
+            assertTrue(instance.put(new HeapCache.Key("small", "" + i),
+                    newData(500, i)));
+            Thread.sleep(1);
+        }
+        final long smallCount = instance.size();
+
+        final HeapCache.Key key = new HeapCache.Key("big");
+        final byte[] data = newData(instance.getMaxItemSize() - 100, 1);
+        assertTrue(instance.put(key, data));
+        assertArrayEquals(data, instance.get(key));
+        // Only enough small items to make room were evicted, oldest first.
+        assertTrue(instance.size() > smallCount / 2);
+        assertNull(instance.get(new HeapCache.Key("small", "0")));
+        assertNotNull(instance.get(new HeapCache.Key("small", "99")));
+    }
+
+    /* removeIf() */
+
+    @Test
+    public void testRemoveIf() {
+        instance.put(new HeapCache.Key("cats"), newData(100, 1));
+        instance.put(new HeapCache.Key("cats", "cats_ops"), newData(100, 1));
+        instance.put(new HeapCache.Key("dogs", "dogs_ops"), newData(100, 1));
+
+        instance.removeIf(k -> k.getIdentifier().equals("cats"));
+
+        assertEquals(1, instance.size());
+        assertNotNull(instance.get(new HeapCache.Key("dogs", "dogs_ops")));
+    }
+
+    /* newDirectStore() */
+
+    @Test
+    public void testNewDirectStore() {
+        instance = OffHeapStore.newDirectStore(CAPACITY, SEGMENT_SIZE);
+        byte[] data = newData(100, 1);
+        instance.put(new HeapCache.Key("cats"), data);
+        assertArrayEquals(data, instance.get(new HeapCache.Key("cats")));
+    }
+
+}
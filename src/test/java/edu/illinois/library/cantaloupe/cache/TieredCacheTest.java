@@ -0,0 +1,345 @@
+package edu.illinois.library.cantaloupe.cache;
+
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.metrics.Counter;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import edu.illinois.library.cantaloupe.test.TestUtil;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class TieredCacheTest extends BaseTest {
+
+    private static final String IMAGE = "jpg-rgb-64x56x8-baseline.jpg";
+
+    private HeapCache localTier;
+    private HeapCache remoteTier;
+    private TieredCache instance;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.HEAPCACHE_TARGET_SIZE, Math.pow(1024, 2));
+
+        localTier = new HeapCache();
+        remoteTier = new HeapCache();
+        instance = new TieredCache(localTier, remoteTier);
+    }
+
+    private void writeImage(DerivativeCache cache, OperationList opList)
+            throws Exception {
+        try (OutputStream os = cache.newDerivativeImageOutputStream(opList)) {
+            Files.copy(TestUtil.getImage(IMAGE), os);
+        }
+    }
+
+    /**
+     * Waits for an asynchronous write to become visible.
+     */
+    private static void waitFor(DerivativeCache cache, OperationList opList)
+            throws Exception {
+        for (int i = 0; i < 50; i++) {
+            try (InputStream is = cache.newDerivativeImageInputStream(opList)) {
+                if (is != null) {
+                    return;
+                }
+            }
+            Thread.sleep(20);
+        }
+        fail("Timed out waiting for " + opList);
+    }
+
+    /* getImageInfo() */
+
+    @Test
+    public void testGetImageInfoWithLocalHit() throws Exception {
+        Identifier identifier = new Identifier("cats");
+        Info info = new Info(50, 40);
+        localTier.put(identifier, info);
+        assertEquals(info, instance.getImageInfo(identifier));
+    }
+
+    @Test
+    public void testGetImageInfoWithRemoteHitPromotesInfo() throws Exception {
+        Identifier identifier = new Identifier("cats");
+        Info info = new Info(50, 40);
+        remoteTier.put(identifier, info);
+        assertNull(localTier.getImageInfo(identifier));
+
+        assertEquals(info, instance.getImageInfo(identifier));
+        assertEquals(info, localTier.getImageInfo(identifier));
+    }
+
+    @Test
+    public void testGetImageInfoWithMiss() throws Exception {
+        assertNull(instance.getImageInfo(new Identifier("cats")));
+    }
+
+    /* initialize() */
+
+    @Test
+    public void testInitializeCreatesTiersFromConfiguration() {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.TIEREDCACHE_LOCAL, "HeapCache");
+        config.setProperty(Key.TIEREDCACHE_REMOTE, "MockCache");
+
+        instance = new TieredCache();
+        instance.initialize();
+        assertTrue(instance.getLocalTier() instanceof HeapCache);
+        assertTrue(instance.getRemoteTier() instanceof MockCache);
+        assertTrue(((MockCache) instance.getRemoteTier()).isInitializeCalled());
+    }
+
+    @Test
+    public void testInitializeWithInvalidTier() {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.TIEREDCACHE_LOCAL, "TieredCache");
+        config.setProperty(Key.TIEREDCACHE_REMOTE, "MockCache");
+
+        instance = new TieredCache();
+        instance.initialize();
+        try {
+            instance.getImageInfo(new Identifier("cats"));
+            fail("Expected exception");
+        } catch (java.io.IOException e) {
+            // pass
+        }
+    }
+
+    /* isDerivativeImageCached() */
+
+    @Test
+    public void testIsDerivativeImageCached() throws Exception {
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        assertFalse(instance.isDerivativeImageCached(opList));
+
+        writeImage(remoteTier, opList);
+        assertTrue(instance.isDerivativeImageCached(opList));
+    }
+
+    @Test
+    public void testIsDerivativeImageCachedDoesNotCountLookups()
+            throws Exception {
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        writeImage(remoteTier, opList);
+        final Counter localMisses = Metrics.cacheMisses(
+                HeapCache.class.getSimpleName(), "image");
+        final Counter localHits = Metrics.cacheHits(
+                HeapCache.class.getSimpleName(), "image");
+        final long missCount = localMisses.getCount();
+        final long hitCount = localHits.getCount();
+
+        instance.isDerivativeImageCached(opList);
+
+        assertEquals(missCount, localMisses.getCount());
+        assertEquals(hitCount, localHits.getCount());
+    }
+
+    /* newDerivativeImageInputStream() */
+
+    @Test
+    public void testNewDerivativeImageInputStreamWithRemoteHitPromotesImage()
+            throws Exception {
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        writeImage(remoteTier, opList);
+
+        try (InputStream is = instance.newDerivativeImageInputStream(opList)) {
+            assertEquals(5439, IOUtils.toByteArray(is).length);
+        }
+        waitFor(localTier, opList);
+        try (InputStream is = localTier.newDerivativeImageInputStream(opList)) {
+            assertEquals(5439, IOUtils.toByteArray(is).length);
+        }
+    }
+
+    @Test
+    public void testNewDerivativeImageInputStreamWithPartialReadDoesNotPromoteImage()
+            throws Exception {
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        writeImage(remoteTier, opList);
+
+        try (InputStream is = instance.newDerivativeImageInputStream(opList)) {
+            assertTrue(is.read(new byte[100]) > 0);
+        }
+        Thread.sleep(100);
+        assertNull(localTier.newDerivativeImageInputStream(opList));
+    }
+
+    @Test
+    public void testNewDerivativeImageInputStreamWithOversizedImageDoesNotPromoteImage()
+            throws Exception {
+        instance.setMaxPromotionSize(5000);
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        writeImage(remoteTier, opList);
+
+        try (InputStream is = instance.newDerivativeImageInputStream(opList)) {
+            assertEquals(5439, IOUtils.toByteArray(is).length);
+        }
+        Thread.sleep(100);
+        assertNull(localTier.newDerivativeImageInputStream(opList));
+    }
+
+    @Test
+    public void testNewDerivativeImageInputStreamWithMiss() throws Exception {
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        assertNull(instance.newDerivativeImageInputStream(opList));
+    }
+
+    /* newDerivativeImageOutputStream() */
+
+    @Test
+    public void testNewDerivativeImageOutputStreamWithWriteThrough()
+            throws Exception {
+        Configuration.getInstance().setProperty(
+                Key.TIEREDCACHE_WRITE_STRATEGY, "WriteThrough");
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        writeImage(instance, opList);
+
+        assertNotNull(localTier.newDerivativeImageInputStream(opList));
+        assertNotNull(remoteTier.newDerivativeImageInputStream(opList));
+    }
+
+    @Test
+    public void testNewDerivativeImageOutputStreamWithWriteBehind()
+            throws Exception {
+        Configuration.getInstance().setProperty(
+                Key.TIEREDCACHE_WRITE_STRATEGY, "WriteBehind");
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        writeImage(instance, opList);
+
+        assertNotNull(localTier.newDerivativeImageInputStream(opList));
+        waitFor(remoteTier, opList);
+    }
+
+    @Test
+    public void testNewDerivativeImageOutputStreamWithWriteBehindAndFailedWrite()
+            throws Exception {
+        Configuration.getInstance().setProperty(
+                Key.TIEREDCACHE_WRITE_STRATEGY, "WriteBehind");
+        localTier = new HeapCache() {
+            @Override
+            public OutputStream newDerivativeImageOutputStream(
+                    OperationList opList) {
+                return new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        throw new IOException("Write failed");
+                    }
+                };
+            }
+        };
+        instance = new TieredCache(localTier, remoteTier);
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        try (OutputStream os = instance.newDerivativeImageOutputStream(opList)) {
+            os.write(1);
+            fail("Expected exception");
+        } catch (IOException e) {
+            // pass
+        }
+        Thread.sleep(100);
+        assertNull(remoteTier.newDerivativeImageInputStream(opList));
+    }
+
+    @Test
+    public void testNewDerivativeImageOutputStreamWithWriteBehindAndPurge()
+            throws Exception {
+        Configuration.getInstance().setProperty(
+                Key.TIEREDCACHE_WRITE_STRATEGY, "WriteBehind");
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        // This is what ImageRepresentation does when writing the response
+        // fails partway through.
+        try (OutputStream os = instance.newDerivativeImageOutputStream(opList)) {
+            os.write(new byte[100]);
+        }
+        instance.purge(opList);
+
+        Thread.sleep(100);
+        assertNull(remoteTier.newDerivativeImageInputStream(opList));
+    }
+
+    /* purge() */
+
+    @Test
+    public void testPurge() throws Exception {
+        Identifier identifier = new Identifier("cats");
+        OperationList opList = new OperationList(identifier, Format.JPG);
+        writeImage(localTier, opList);
+        writeImage(remoteTier, opList);
+        remoteTier.put(identifier, new Info(50, 40));
+
+        instance.purge();
+
+        assertEquals(0, localTier.size());
+        assertEquals(0, remoteTier.size());
+    }
+
+    /* purge(Identifier) */
+
+    @Test
+    public void testPurgeWithIdentifier() throws Exception {
+        Identifier identifier = new Identifier("cats");
+        OperationList opList = new OperationList(identifier, Format.JPG);
+        writeImage(localTier, opList);
+        writeImage(remoteTier, opList);
+        localTier.put(identifier, new Info(50, 40));
+        remoteTier.put(identifier, new Info(50, 40));
+
+        instance.purge(identifier);
+
+        assertNull(instance.getImageInfo(identifier));
+        assertNull(instance.newDerivativeImageInputStream(opList));
+    }
+
+    /* purge(OperationList) */
+
+    @Test
+    public void testPurgeWithOperationList() throws Exception {
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        writeImage(localTier, opList);
+        writeImage(remoteTier, opList);
+
+        instance.purge(opList);
+
+        assertNull(localTier.newDerivativeImageInputStream(opList));
+        assertNull(remoteTier.newDerivativeImageInputStream(opList));
+    }
+
+    /* put() */
+
+    @Test
+    public void testPutWithWriteThrough() throws Exception {
+        Identifier identifier = new Identifier("cats");
+        Info info = new Info(50, 40);
+        instance.put(identifier, info);
+
+        assertEquals(info, localTier.getImageInfo(identifier));
+        assertEquals(info, remoteTier.getImageInfo(identifier));
+    }
+
+}
@@ -832,6 +832,71 @@ public abstract class AbstractConfigurationTest extends BaseTest {
         }).numThreads(NUM_CONCURRENT_THREADS).run();
     }
 
+    /* getSnapshot() */
+
+    @Test
+    public void testGetSnapshot() {
+        final Configuration instance = getInstance();
+        instance.setProperty(Key.MAX_PIXELS, 123);
+        instance.setProperty(Key.SLASH_SUBSTITUTE, "cats");
+        instance.setProperty("cats", "true");
+
+        final ConfigurationSnapshot snapshot = instance.getSnapshot();
+        assertEquals(123, snapshot.getInt(Key.MAX_PIXELS, 0));
+        assertEquals(123L, snapshot.getLong(Key.MAX_PIXELS, 0));
+        assertEquals(123.0, snapshot.getDouble(Key.MAX_PIXELS, 0), 0.00001);
+        assertEquals("123", snapshot.getString(Key.MAX_PIXELS));
+        assertEquals("cats", snapshot.getString(Key.SLASH_SUBSTITUTE));
+        assertTrue(snapshot.getBoolean("cats", false));
+        assertEquals("dogs", snapshot.getString(Key.ADMIN_SECRET, "dogs"));
+    }
+
+    @Test
+    public void testGetSnapshotWithUnconvertibleValue() {
+        final Configuration instance = getInstance();
+        instance.setProperty(Key.MAX_PIXELS, "cats");
+
+        final ConfigurationSnapshot snapshot = instance.getSnapshot();
+        assertEquals(5, snapshot.getInt(Key.MAX_PIXELS, 5));
+        assertTrue(snapshot.getBoolean(Key.MAX_PIXELS, true));
+        assertEquals("cats", snapshot.getString(Key.MAX_PIXELS));
+    }
+
+    @Test
+    public void testGetSnapshotReturnsSameInstanceUntilChanged() {
+        final Configuration instance = getInstance();
+        instance.setProperty(Key.MAX_PIXELS, 123);
+
+        final ConfigurationSnapshot snapshot = instance.getSnapshot();
+        assertSame(snapshot, instance.getSnapshot());
+
+        instance.setProperty(Key.MAX_PIXELS, 456);
+        assertNotSame(snapshot, instance.getSnapshot());
+        assertEquals(456, instance.getSnapshot().getInt(Key.MAX_PIXELS, 0));
+
+        instance.clearProperty(Key.MAX_PIXELS);
+        assertEquals(0, instance.getSnapshot().getInt(Key.MAX_PIXELS, 0));
+    }
+
+    @Test
+    public void testGetSnapshotConcurrently() throws Exception {
+        final Configuration instance = getInstance();
+        final AtomicInteger value = new AtomicInteger();
+
+        new ConcurrentReaderWriter(() -> {
+            instance.setProperty(Key.MAX_PIXELS, value.incrementAndGet());
+            return null;
+        }, () -> {
+            instance.getSnapshot().getInt(Key.MAX_PIXELS, 0);
+            return null;
+        }).numThreads(NUM_CONCURRENT_THREADS).run();
+
+        // The snapshot must not be stuck on a value from before the last
+        // write.
+        assertEquals(instance.getInt(Key.MAX_PIXELS),
+                instance.getSnapshot().getInt(Key.MAX_PIXELS, 0));
+    }
+
     /* getString(Key) */
 
     @Test
@@ -0,0 +1,95 @@
+package edu.illinois.library.cantaloupe.metrics;
+
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MetricRegistryTest extends BaseTest {
+
+    private MetricRegistry instance;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        instance = new MetricRegistry();
+    }
+
+    /* getCounter() */
+
+    @Test
+    public void testGetCounterReturnsSameInstanceForSameLabels() {
+        Counter c1 = instance.getCounter("test_total", "Help", "a", "1");
+        Counter c2 = instance.getCounter("test_total", "Help", "a", "1");
+        Counter c3 = instance.getCounter("test_total", "Help", "a", "2");
+        assertSame(c1, c2);
+        assertNotSame(c1, c3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetCounterWithOddNumberOfLabels() {
+        instance.getCounter("test_total", "Help", "a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetCounterWithNameOfTimer() {
+        instance.getTimer("test_seconds", "Help");
+        instance.getCounter("test_seconds", "Help");
+    }
+
+    /* getInstance() */
+
+    @Test
+    public void testGetInstance() {
+        assertSame(MetricRegistry.getInstance(), MetricRegistry.getInstance());
+    }
+
+    /* toPrometheusText() */
+
+    @Test
+    public void testToPrometheusTextWithCounter() {
+        instance.getCounter("test_total", "Test counter.",
+                "cache", "Heap\"Cache").increment(3);
+
+        String expected = "# HELP test_total Test counter.\n" +
+                "# TYPE test_total counter\n" +
+                "test_total{cache=\"Heap\\\"Cache\"} 3\n";
+        assertEquals(expected, instance.toPrometheusText());
+    }
+
+    @Test
+    public void testToPrometheusTextWithTimer() {
+        instance.getTimer("test_seconds", "Test timer.", "format", "jpg")
+                .record(TimeUnit.MILLISECONDS.toNanos(500));
+
+        String text = instance.toPrometheusText();
+        assertTrue(text.startsWith("# HELP test_seconds Test timer.\n" +
+                "# TYPE test_seconds histogram\n"));
+        assertTrue(text.contains(
+                "test_seconds_bucket{format=\"jpg\",le=\"0.25\"} 0\n"));
+        assertTrue(text.contains(
+                "test_seconds_bucket{format=\"jpg\",le=\"0.5\"} 1\n"));
+        assertTrue(text.contains(
+                "test_seconds_bucket{format=\"jpg\",le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("test_seconds_sum{format=\"jpg\"} 0.5\n"));
+        assertTrue(text.contains("test_seconds_count{format=\"jpg\"} 1\n"));
+    }
+
+    @Test
+    public void testToPrometheusTextIsSortedByName() {
+        instance.getCounter("b_total", "B");
+        instance.getCounter("a_total", "A");
+
+        String text = instance.toPrometheusText();
+        assertTrue(text.indexOf("a_total") < text.indexOf("b_total"));
+    }
+
+    @Test
+    public void testToPrometheusTextWithNoMetrics() {
+        assertEquals("", instance.toPrometheusText());
+    }
+
+}
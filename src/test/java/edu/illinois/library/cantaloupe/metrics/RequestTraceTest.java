@@ -0,0 +1,142 @@
+package edu.illinois.library.cantaloupe.metrics;
+
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RequestTraceTest extends BaseTest {
+
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        final RequestTrace trace = RequestTrace.current();
+        if (trace != null) {
+            trace.end();
+        }
+    }
+
+    /* begin() */
+
+    @Test
+    public void testBegin() {
+        RequestTrace trace = RequestTrace.begin();
+        assertSame(trace, RequestTrace.current());
+    }
+
+    @Test
+    public void testBeginIsThreadLocal() throws Exception {
+        RequestTrace.begin();
+        final RequestTrace[] otherTrace = new RequestTrace[1];
+        Thread thread = new Thread(() -> otherTrace[0] = RequestTrace.current());
+        thread.start();
+        thread.join();
+        assertNull(otherTrace[0]);
+    }
+
+    /* end() */
+
+    @Test
+    public void testEnd() {
+        RequestTrace.begin().end();
+        assertNull(RequestTrace.current());
+    }
+
+    /* record() */
+
+    @Test
+    public void testRecordSumsStagesWithTheSameName() {
+        RequestTrace trace = RequestTrace.begin();
+        RequestTrace.record("decode", 5);
+        RequestTrace.record("scale", 2);
+        RequestTrace.record("decode", 10);
+
+        Map<String, Long> durations = trace.getDurations();
+        assertEquals(2, durations.size());
+        assertEquals(15, (long) durations.get("decode"));
+        assertEquals(2, (long) durations.get("scale"));
+    }
+
+    @Test
+    public void testRecordWithoutCurrentTrace() {
+        RequestTrace.record("decode", 5);
+        assertNull(RequestTrace.current());
+    }
+
+    /* stage() */
+
+    @Test
+    public void testStage() {
+        RequestTrace trace = RequestTrace.begin();
+        try (RequestTrace.Stage ignored = RequestTrace.stage("encode")) {
+            assertTrue(trace.getDurations().isEmpty());
+        }
+        assertTrue(trace.getDurations().containsKey("encode"));
+    }
+
+    @Test
+    public void testStageWithoutCurrentTrace() {
+        RequestTrace.Stage stage1 = RequestTrace.stage("encode");
+        RequestTrace.Stage stage2 = RequestTrace.stage("decode");
+        // The shared no-op instance is returned.
+        assertSame(stage1, stage2);
+        stage1.close();
+    }
+
+    /* stage(RequestTrace, String) */
+
+    @Test
+    public void testStageWithTraceInAnotherThread() throws Exception {
+        final RequestTrace trace = RequestTrace.begin();
+        Thread thread = new Thread(() -> {
+            try (RequestTrace.Stage ignored =
+                         RequestTrace.stage(trace, "decode_bands")) {
+                assertNull(RequestTrace.current());
+            }
+        });
+        thread.start();
+        thread.join();
+        assertTrue(trace.getDurations().containsKey("decode_bands"));
+    }
+
+    @Test
+    public void testStageWithNullTrace() {
+        assertSame(RequestTrace.stage("encode"),
+                RequestTrace.stage(null, "decode"));
+    }
+
+    /* toLogFields() */
+
+    @Test
+    public void testToLogFields() {
+        RequestTrace trace = RequestTrace.begin();
+        RequestTrace.record("resolve", TimeUnit.MICROSECONDS.toNanos(12340));
+        RequestTrace.record("encode", TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertTrue(trace.toLogFields().matches(
+                "resolve=12\\.3 encode=5\\.0 total=\\d+\\.\\d"));
+    }
+
+    /* toServerTimingHeader() */
+
+    @Test
+    public void testToServerTimingHeader() {
+        RequestTrace trace = RequestTrace.begin();
+        RequestTrace.record("resolve", TimeUnit.MICROSECONDS.toNanos(12340));
+        RequestTrace.record("encode", TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertTrue(trace.toServerTimingHeader().matches(
+                "resolve;dur=12\\.3, encode;dur=5\\.0, total;dur=\\d+\\.\\d"));
+    }
+
+    @Test
+    public void testToServerTimingHeaderWithNoStages() {
+        RequestTrace trace = RequestTrace.begin();
+        assertTrue(trace.toServerTimingHeader().matches("total;dur=\\d+\\.\\d"));
+    }
+
+}
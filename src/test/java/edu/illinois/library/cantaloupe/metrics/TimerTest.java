@@ -0,0 +1,75 @@
+package edu.illinois.library.cantaloupe.metrics;
+
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TimerTest extends BaseTest {
+
+    private Timer instance;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        instance = new Timer();
+    }
+
+    /* getCumulativeBucketCounts() */
+
+    @Test
+    public void testGetCumulativeBucketCounts() {
+        instance.record(TimeUnit.MICROSECONDS.toNanos(500));  // le 0.001
+        instance.record(TimeUnit.MILLISECONDS.toNanos(1));    // le 0.001
+        instance.record(TimeUnit.MILLISECONDS.toNanos(200));  // le 0.25
+        instance.record(TimeUnit.SECONDS.toNanos(120));       // le +Inf
+
+        long[] counts = instance.getCumulativeBucketCounts();
+        assertEquals(Timer.BUCKET_BOUNDS.length + 1, counts.length);
+        assertEquals(2, counts[0]);
+        assertEquals(2, counts[6]);  // le 0.1
+        assertEquals(3, counts[7]);  // le 0.25
+        assertEquals(3, counts[counts.length - 2]);
+        assertEquals(4, counts[counts.length - 1]);
+    }
+
+    /* getSum() */
+
+    @Test
+    public void testGetSum() {
+        instance.record(TimeUnit.MILLISECONDS.toNanos(250));
+        instance.record(TimeUnit.MILLISECONDS.toNanos(750));
+        assertEquals(1.0, instance.getSum(), 0.000001);
+    }
+
+    /* record() */
+
+    @Test
+    public void testRecordWithNegativeDuration() {
+        instance.record(-5);
+        assertEquals(1, instance.getCount());
+        assertEquals(0, instance.getSum(), 0.000001);
+    }
+
+    /* time() */
+
+    @Test
+    public void testTimeRecordsOnlyOnce() {
+        Timer.Context context = instance.time();
+        context.stop();
+        context.close();
+        assertEquals(1, instance.getCount());
+    }
+
+    @Test
+    public void testTimeWithTryWithResources() {
+        try (Timer.Context ignored = instance.time()) {
+            assertEquals(0, instance.getCount());
+        }
+        assertEquals(1, instance.getCount());
+    }
+
+}
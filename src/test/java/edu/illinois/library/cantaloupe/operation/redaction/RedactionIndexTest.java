@@ -0,0 +1,210 @@
+package edu.illinois.library.cantaloupe.operation.redaction;
+
+import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.operation.Crop;
+import edu.illinois.library.cantaloupe.operation.Operation;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.operation.Rotate;
+import edu.illinois.library.cantaloupe.operation.Scale;
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class RedactionIndexTest extends BaseTest {
+
+    private RedactionIndex instance;
+    private Redaction small, adjacent, large;
+
+    @Before
+    public void setUp() {
+        small = new Redaction(new Rectangle(100, 100, 200, 100));
+        adjacent = new Redaction(new Rectangle(300, 100, 200, 100));
+        large = new Redaction(new Rectangle(0, 5000, 20000, 10000));
+        instance = new RedactionIndex(Arrays.asList(small, adjacent, large));
+    }
+
+    /* covers() */
+
+    @Test
+    public void testCoversWithSingleRedaction() {
+        assertTrue(instance.covers(new Rectangle(110, 110, 50, 50)));
+        assertTrue(instance.covers(new Rectangle(1000, 6000, 4096, 4096)));
+    }
+
+    @Test
+    public void testCoversWithMultipleRedactions() {
+        assertTrue(instance.covers(new Rectangle(250, 120, 100, 50)));
+    }
+
+    @Test
+    public void testCoversWithPartiallyRedactedRegion() {
+        assertFalse(instance.covers(new Rectangle(250, 150, 100, 100)));
+        assertFalse(instance.covers(new Rectangle(0, 0, 1024, 1024)));
+    }
+
+    @Test
+    public void testCoversWithEmptyRegion() {
+        assertFalse(instance.covers(new Rectangle(110, 110, 0, 0)));
+    }
+
+    /* forOperationList() */
+
+    @Test
+    public void testForOperationListReusesIndexOfSameRedactions() {
+        final RedactionIndex index = RedactionIndex.forOperationList(
+                new OperationList(new Identifier("cats"), Format.JPG,
+                        small, adjacent));
+        assertSame(index, RedactionIndex.forOperationList(
+                new OperationList(new Identifier("cats"), Format.PNG,
+                        new Crop(0, 0, 50, 50), small, adjacent)));
+    }
+
+    @Test
+    public void testForOperationListWithDifferentRedactions() {
+        final RedactionIndex index = RedactionIndex.forOperationList(
+                new OperationList(new Identifier("cats"), Format.JPG,
+                        small, adjacent));
+        // Equal but different instances
+        assertNotSame(index, RedactionIndex.forOperationList(
+                new OperationList(new Identifier("cats"), Format.JPG,
+                        new Redaction(new Rectangle(100, 100, 200, 100)),
+                        new Redaction(new Rectangle(300, 100, 200, 100)))));
+        // Subset of the same instances
+        assertNotSame(index, RedactionIndex.forOperationList(
+                new OperationList(new Identifier("cats"), Format.JPG,
+                        small)));
+    }
+
+    @Test
+    public void testForOperationListIgnoresRedactionsWithNoEffect() {
+        final RedactionIndex index = RedactionIndex.forOperationList(
+                new OperationList(new Identifier("cats"), Format.JPG,
+                        small, new Redaction(new Rectangle(0, 0, 0, 0))));
+        assertEquals(Arrays.asList(small),
+                index.getIntersecting(new Rectangle(0, 0, 1000, 1000)));
+    }
+
+    @Test
+    public void testForOperationListWithNoRedactions() {
+        assertNull(RedactionIndex.forOperationList(
+                new OperationList(new Identifier("cats"), Format.JPG,
+                        new Redaction(new Rectangle(0, 0, 0, 0)))));
+    }
+
+    /* getIntersecting() */
+
+    @Test
+    public void testGetIntersecting() {
+        assertEquals(Arrays.asList(small),
+                instance.getIntersecting(new Rectangle(0, 0, 200, 200)));
+        assertEquals(Arrays.asList(small, adjacent),
+                instance.getIntersecting(new Rectangle(250, 0, 100, 150)));
+        assertEquals(Arrays.asList(large),
+                instance.getIntersecting(new Rectangle(15000, 8000, 512, 512)));
+        assertTrue(instance.getIntersecting(
+                new Rectangle(600, 600, 512, 512)).isEmpty());
+    }
+
+    @Test
+    public void testGetIntersectingWithRegionLargerThanGrid() {
+        assertEquals(3, instance.getIntersecting(
+                new Rectangle(0, 0, 100000, 100000)).size());
+    }
+
+    /**
+     * Redactions used to be applied if {@link Redaction#hasEffect(Dimension,
+     * OperationList)} returned true and they intersected the crop, but that
+     * method compares their source image coordinates to the size of the
+     * result. Checks that, with scaled and rotated requests, the index finds
+     * every redaction that the old check did, and that the only others are
+     * ones in the crop that the old check missed because they lie outside
+     * the bounds of the (smaller) result.
+     */
+    @Test
+    public void testGetIntersectingMatchesHasEffectWithScaleAndRotate() {
+        final Dimension fullSize = new Dimension(4000, 3000);
+        final List<Redaction> redactions = new ArrayList<>();
+        for (int y = 0; y < fullSize.height; y += 700) {
+            for (int x = 0; x < fullSize.width; x += 700) {
+                redactions.add(new Redaction(new Rectangle(x, y, 300, 300)));
+            }
+        }
+        final Crop crop = new Crop(600, 500, 2800, 1800);
+        final Rectangle region = crop.getRectangle(fullSize);
+        final Operation[][] requests = {
+                { crop },
+                { crop, new Scale(0.25f) },
+                { crop, new Scale(512, null, Scale.Mode.ASPECT_FIT_WIDTH) },
+                { crop, new Scale(2f) },
+                { crop, new Rotate(90) },
+                { crop, new Scale(0.5f), new Rotate(45) } };
+
+        for (Operation[] ops : requests) {
+            final OperationList opList = new OperationList(
+                    new Identifier("cats"), Format.JPG, ops);
+            redactions.forEach(opList::add);
+            final Dimension resultingSize = opList.getResultingSize(fullSize);
+            final Rectangle resultingBounds = new Rectangle(resultingSize);
+
+            final Set<Redaction> oldRedactions = new HashSet<>();
+            for (Redaction redaction : redactions) {
+                if (redaction.hasEffect(fullSize, opList) &&
+                        redaction.getRegion().intersects(region)) {
+                    oldRedactions.add(redaction);
+                }
+            }
+            final Set<Redaction> newRedactions = new HashSet<>(
+                    RedactionIndex.forOperationList(opList).
+                            getIntersecting(region));
+
+            assertTrue(opList.toString(),
+                    newRedactions.containsAll(oldRedactions));
+            for (Redaction redaction : newRedactions) {
+                assertTrue(redaction.getRegion().intersects(region));
+                if (!oldRedactions.contains(redaction)) {
+                    assertFalse(opList.toString(), redaction.getRegion().
+                            intersects(resultingBounds));
+                }
+            }
+            if (resultingSize.width >= region.x + region.width &&
+                    resultingSize.height >= region.y + region.height) {
+                assertEquals(opList.toString(), oldRedactions, newRedactions);
+            }
+        }
+    }
+
+    @Test
+    public void testGetIntersectingWithManyRedactions() {
+        final List<Redaction> redactions = new ArrayList<>();
+        for (int y = 0; y < 10000; y += 100) {
+            for (int x = 0; x < 10000; x += 100) {
+                redactions.add(new Redaction(new Rectangle(x, y, 50, 50)));
+            }
+        }
+        instance = new RedactionIndex(redactions);
+        assertEquals(4, instance.getIntersecting(
+                new Rectangle(2025, 2025, 150, 150)).size());
+        assertTrue(instance.getIntersecting(
+                new Rectangle(2050, 2050, 50, 50)).isEmpty());
+    }
+
+    /* isEmpty() */
+
+    @Test
+    public void testIsEmpty() {
+        assertFalse(instance.isEmpty());
+        assertTrue(new RedactionIndex(new ArrayList<>()).isEmpty());
+    }
+
+}
@@ -50,6 +50,23 @@ public class RedactionServiceTest extends BaseTest {
         assertEquals(70, redactions.get(0).getRegion().height);
     }
 
+    @Test
+    public void testRedactionsForReusesInstancesForSameResult()
+            throws Exception {
+        Configuration.getInstance().setProperty(
+                Key.DELEGATE_METHOD_INVOCATION_CACHE_ENABLED, true);
+        final Identifier identifier = new Identifier("cats");
+        final Map<String,String> requestHeaders = new HashMap<>();
+        final Map<String,String> cookies = new HashMap<>();
+
+        // The second result comes from the invocation cache.
+        List<Redaction> redactions1 = instance.redactionsFor(
+                identifier, requestHeaders, "", cookies);
+        List<Redaction> redactions2 = instance.redactionsFor(
+                identifier, requestHeaders, "", cookies);
+        assertSame(redactions1, redactions2);
+    }
+
     @Test
     public void testIsEnabled() {
         Configuration config = Configuration.getInstance();
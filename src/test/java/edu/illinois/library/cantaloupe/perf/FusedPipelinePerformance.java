@@ -0,0 +1,73 @@
+package edu.illinois.library.cantaloupe.perf;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.illinois.library.cantaloupe.operation.ColorTransform;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.operation.ReductionFactor;
+import edu.illinois.library.cantaloupe.operation.Rotate;
+import edu.illinois.library.cantaloupe.operation.Scale;
+import edu.illinois.library.cantaloupe.operation.Transpose;
+import edu.illinois.library.cantaloupe.processor.FusedPipelineTest;
+
+/**
+ * Executes benchmark to compare the speed of applying post-crop operations
+ * in one fused pass vs. one at a time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = { "-server", "-Xms128M", "-Xmx128M", "-Dcantaloupe.config=memory" })
+public class FusedPipelinePerformance extends FusedPipelineTest {
+
+    private BufferedImage image;
+    private OperationList mirrorRotateOpList;
+    private OperationList scaleRotateGrayOpList;
+
+    @Setup
+    public void setUpBenchmark() {
+        image = newImage(2048, 1536, BufferedImage.TYPE_3BYTE_BGR);
+        mirrorRotateOpList = newOperationList(
+                Transpose.HORIZONTAL, new Rotate(90));
+        scaleRotateGrayOpList = newOperationList(
+                new Scale(0.5f), new Rotate(90), ColorTransform.GRAY);
+    }
+
+    @Benchmark
+    public BufferedImage testMirrorRotateFused() {
+        return applyFused(image, mirrorRotateOpList, new ReductionFactor());
+    }
+
+    @Benchmark
+    public BufferedImage testMirrorRotateOneAtATime() {
+        return applyOneAtATime(image, mirrorRotateOpList,
+                new ReductionFactor());
+    }
+
+    @Benchmark
+    public BufferedImage testScaleRotateGrayFused() {
+        return applyFused(image, scaleRotateGrayOpList,
+                new ReductionFactor());
+    }
+
+    @Benchmark
+    public BufferedImage testScaleRotateGrayOneAtATime() {
+        return applyOneAtATime(image, scaleRotateGrayOpList,
+                new ReductionFactor());
+    }
+
+}
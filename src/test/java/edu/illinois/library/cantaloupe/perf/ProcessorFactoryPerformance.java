@@ -0,0 +1,48 @@
+package edu.illinois.library.cantaloupe.perf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.illinois.library.cantaloupe.processor.ProcessorFactoryTest;
+
+/**
+ * Executes benchmark to compare the cost of obtaining a processor, which
+ * happens on every image and information request. Running it with the JMH
+ * <code>-prof gc</code> option reports the bytes allocated per invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = { "-server", "-Xms128M", "-Xmx128M", "-Dcantaloupe.config=memory" })
+public class ProcessorFactoryPerformance extends ProcessorFactoryTest {
+
+    @Setup
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    @Benchmark
+    public void testNewProcessorWithFormatSupportedByFallback()
+            throws Exception {
+        super.testNewProcessorWithFormatSupportedByFallback();
+    }
+
+    @Benchmark
+    public void testNewProcessorWithSupportedAssignedFormat()
+            throws Exception {
+        super.testNewProcessorWithSupportedAssignedFormat();
+    }
+
+}
@@ -0,0 +1,55 @@
+package edu.illinois.library.cantaloupe.perf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.illinois.library.cantaloupe.script.RubyScriptEngineTest;
+
+/**
+ * Executes benchmark to compare the throughput of invoking a delegate method
+ * with typical request arguments from one thread vs. many threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = { "-server", "-Xms128M", "-Xmx128M", "-Dcantaloupe.config=memory" })
+public class RubyScriptEnginePerformance extends RubyScriptEngineTest {
+
+    @Setup
+    public void setUp() throws Exception {
+        super.setUp();
+        loadAuthorizationScript();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object testInvokeAuthorizedWithOneThread() throws Exception {
+        return invokeAuthorized();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object testInvokeAuthorizedWithManyThreads() throws Exception {
+        return invokeAuthorized();
+    }
+
+}
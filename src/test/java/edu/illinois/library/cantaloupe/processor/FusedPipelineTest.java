@@ -0,0 +1,249 @@
+package edu.illinois.library.cantaloupe.processor;
+
+import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.operation.ColorTransform;
+import edu.illinois.library.cantaloupe.operation.Operation;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.operation.ReductionFactor;
+import edu.illinois.library.cantaloupe.operation.Rotate;
+import edu.illinois.library.cantaloupe.operation.Scale;
+import edu.illinois.library.cantaloupe.operation.Sharpen;
+import edu.illinois.library.cantaloupe.operation.Transpose;
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FusedPipelineTest extends BaseTest {
+
+    private static final Identifier IDENTIFIER = new Identifier("cats");
+
+    /**
+     * @return New image of the given type filled with random pixels.
+     */
+    protected static BufferedImage newImage(int width, int height,
+                                            int type) {
+        final BufferedImage image = new BufferedImage(width, height, type);
+        final WritableRaster raster = image.getRaster();
+        final Random random = new Random(width * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int b = 0; b < raster.getNumBands(); b++) {
+                    raster.setSample(x, y, b, random.nextInt(256));
+                }
+            }
+        }
+        return image;
+    }
+
+    protected static OperationList newOperationList(Operation... ops) {
+        return new OperationList(IDENTIFIER, Format.PNG, ops);
+    }
+
+    /**
+     * @return Result of the operations in the given list applied one at a
+     *         time, as {@link AbstractJava2DProcessor#processRegion} does
+     *         when they can't be fused.
+     */
+    protected static BufferedImage applyOneAtATime(BufferedImage image,
+                                                   OperationList opList,
+                                                   ReductionFactor rf) {
+        for (Operation op : opList) {
+            if (op instanceof Scale) {
+                image = Java2DUtil.scaleImage(image, (Scale) op, rf);
+            } else if (op instanceof Transpose) {
+                image = Java2DUtil.transposeImage(image, (Transpose) op);
+            } else if (op instanceof Rotate) {
+                image = Java2DUtil.rotateImage(image, (Rotate) op);
+            } else if (op instanceof ColorTransform) {
+                image = Java2DUtil.transformColor(image, (ColorTransform) op);
+            }
+        }
+        return image;
+    }
+
+    protected static BufferedImage applyFused(BufferedImage image,
+                                              OperationList opList,
+                                              ReductionFactor rf) {
+        final FusedPipeline pipeline = FusedPipeline.compile(image, opList,
+                new Dimension(image.getWidth(), image.getHeight()));
+        return pipeline.apply(image, rf);
+    }
+
+    /**
+     * @return Pixel as packed ARGB. Gray samples are copied into all three
+     *         color channels without conversion, as Java 2D does when
+     *         drawing a gray image into an RGB one.
+     */
+    private static int getPixel(BufferedImage image, int x, int y) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            final int sample = image.getRaster().getSample(x, y, 0);
+            return 0xff000000 | (sample << 16) | (sample << 8) | sample;
+        }
+        return image.getRGB(x, y);
+    }
+
+    private static void assertSameResult(BufferedImage image,
+                                         OperationList opList,
+                                         ReductionFactor rf) {
+        final BufferedImage expected = applyOneAtATime(image, opList, rf);
+        final BufferedImage actual = applyFused(image, opList, rf);
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(getPixel(expected, x, y),
+                        getPixel(actual, x, y));
+            }
+        }
+    }
+
+    private static void assertSameResult(BufferedImage image,
+                                         OperationList opList) {
+        assertSameResult(image, opList, new ReductionFactor());
+    }
+
+    /* apply() */
+
+    @Test
+    public void testApplyWithScaleAndRotate() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_INT_RGB);
+        for (int degrees = 90; degrees <= 360; degrees += 90) {
+            assertSameResult(image, newOperationList(
+                    new Scale(0.6f), new Rotate(degrees)));
+        }
+    }
+
+    @Test
+    public void testApplyWithScaleMirrorRotateAndGray() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_3BYTE_BGR);
+        final OperationList opList = newOperationList(
+                new Scale(40, null, Scale.Mode.ASPECT_FIT_WIDTH),
+                Transpose.HORIZONTAL, new Rotate(270), ColorTransform.GRAY);
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY,
+                applyFused(image, opList, new ReductionFactor()).getType());
+        assertSameResult(image, opList);
+    }
+
+    @Test
+    public void testApplyWithMirrorAndRotate() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_INT_RGB);
+        assertSameResult(image, newOperationList(
+                Transpose.HORIZONTAL, new Rotate(90)));
+        assertSameResult(image, newOperationList(
+                new Rotate(180), Transpose.HORIZONTAL));
+    }
+
+    @Test
+    public void testApplyWithAlphaSource() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_4BYTE_ABGR);
+        final OperationList opList = newOperationList(
+                new Scale(0.5f), Transpose.HORIZONTAL);
+        assertEquals(BufferedImage.TYPE_INT_ARGB,
+                applyFused(image, opList, new ReductionFactor()).getType());
+        assertSameResult(image, opList);
+    }
+
+    @Test
+    public void testApplyWithGraySource() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_BYTE_GRAY);
+        assertSameResult(image, newOperationList(
+                new Scale(0.5f), new Rotate(90), ColorTransform.GRAY));
+    }
+
+    @Test
+    public void testApplyWithUpscale() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_INT_RGB);
+        assertSameResult(image, newOperationList(
+                new Scale(1.5f), Transpose.HORIZONTAL));
+    }
+
+    @Test
+    public void testApplyWithReductionFactor() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_INT_RGB);
+        assertSameResult(image, newOperationList(
+                new Scale(0.25f), new Rotate(90)), new ReductionFactor(1));
+    }
+
+    @Test
+    public void testApplyWithLargeImage() {
+        final BufferedImage image =
+                newImage(1200, 900, BufferedImage.TYPE_INT_RGB);
+        assertSameResult(image, newOperationList(
+                new Scale(0.7f), new Rotate(90), ColorTransform.GRAY));
+    }
+
+    /* compile() */
+
+    @Test
+    public void testCompile() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_INT_RGB);
+        final OperationList opList = newOperationList(
+                new Scale(0.5f), new Rotate(90), ColorTransform.GRAY);
+        final FusedPipeline pipeline = FusedPipeline.compile(image, opList,
+                new Dimension(64, 56));
+        assertEquals(3, pipeline.getOperations().size());
+    }
+
+    @Test
+    public void testCompileWithIneligibleOperations() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_INT_RGB);
+        final Dimension size = new Dimension(64, 56);
+        assertNull(FusedPipeline.compile(image, newOperationList(
+                new Rotate(45), ColorTransform.GRAY), size));
+        assertNull(FusedPipeline.compile(image, newOperationList(
+                Transpose.VERTICAL, ColorTransform.GRAY), size));
+        assertNull(FusedPipeline.compile(image, newOperationList(
+                new Rotate(90), ColorTransform.BITONAL), size));
+        assertNull(FusedPipeline.compile(image, newOperationList(
+                new Rotate(90), new Sharpen(0.5f)), size));
+    }
+
+    @Test
+    public void testCompileWithScaleAfterRotate() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_INT_RGB);
+        assertNull(FusedPipeline.compile(image, newOperationList(
+                new Rotate(90), new Scale(0.5f)), new Dimension(64, 56)));
+    }
+
+    @Test
+    public void testCompileWithSingleScale() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_INT_RGB);
+        assertNull(FusedPipeline.compile(image, newOperationList(
+                new Scale(0.5f)), new Dimension(64, 56)));
+    }
+
+    @Test
+    public void testCompileWithGrayTransformOfAlphaImage() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_INT_ARGB);
+        assertNull(FusedPipeline.compile(image, newOperationList(
+                new Rotate(90), ColorTransform.GRAY), new Dimension(64, 56)));
+    }
+
+    @Test
+    public void testCompileWithUnsupportedImageType() {
+        final BufferedImage image =
+                newImage(64, 56, BufferedImage.TYPE_USHORT_GRAY);
+        assertNull(FusedPipeline.compile(image, newOperationList(
+                new Rotate(90)), new Dimension(64, 56)));
+    }
+
+}
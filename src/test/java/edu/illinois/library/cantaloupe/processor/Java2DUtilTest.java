@@ -169,6 +169,61 @@ public class Java2DUtilTest extends BaseTest {
         assertTrue(blue > 240);
     }
 
+    @Test
+    public void testApplyOverlayWithStringOverlayFromCache()
+            throws Exception {
+        RenderedOverlayCache.getInstance().purge();
+        final StringOverlay overlay = new StringOverlay(
+                "Cats\nCats Cats", Position.BOTTOM_RIGHT, 3,
+                new Font("SansSerif", Font.PLAIN, 14), 11,
+                Color.WHITE, Color.BLACK, Color.RED, 1f);
+
+        // Draw the background box directly, without any text.
+        final BufferedImage expected = new BufferedImage(100, 80,
+                BufferedImage.TYPE_INT_RGB);
+        final RenderedString rendered =
+                new RenderedString(overlay, overlay.getFont());
+        final Rectangle box = new Rectangle(100 - 3, 80 - 3, 0, 0);
+        box.add(box.x - rendered.getBoxSize().width,
+                box.y - rendered.getBoxSize().height);
+        final Graphics2D g2d = expected.createGraphics();
+        g2d.setPaint(java.awt.Color.BLACK);
+        g2d.fill(box);
+        g2d.dispose();
+
+        // Overlay it twice, the second time from the cache.
+        for (int i = 0; i < 2; i++) {
+            final BufferedImage actual = Java2DUtil.applyOverlay(
+                    new BufferedImage(100, 80, BufferedImage.TYPE_INT_RGB),
+                    overlay);
+            // The box is in the same place, and the text is inside it.
+            for (int y = 0; y < 80; y++) {
+                for (int x = 0; x < 100; x++) {
+                    if (!box.contains(x, y)) {
+                        assertEquals(expected.getRGB(x, y),
+                                actual.getRGB(x, y));
+                    }
+                }
+            }
+            assertEquals(expected.getRGB(box.x, box.y),
+                    actual.getRGB(box.x, box.y));
+        }
+    }
+
+    @Test
+    public void testApplyOverlayWithStringOverlayTooLargeToFit()
+            throws Exception {
+        final StringOverlay overlay = new StringOverlay(
+                "Cats cats cats cats cats", Position.TOP_LEFT, 0,
+                new Font("SansSerif", Font.PLAIN, 14), 11,
+                Color.WHITE, Color.BLACK, Color.WHITE, 0f);
+        final BufferedImage image = new BufferedImage(20, 20,
+                BufferedImage.TYPE_INT_RGB);
+        Java2DUtil.applyOverlay(image, overlay);
+        assertEquals(0xff000000, image.getRGB(0, 0));
+        assertEquals(0xff000000, image.getRGB(19, 19));
+    }
+
     /* cropImage() */
 
     @Test
@@ -248,6 +303,29 @@ public class Java2DUtilTest extends BaseTest {
         assertEquals(height / 4f, outImage.getHeight(), fudge);
     }
 
+    /* getContrastRange() */
+
+    @Test
+    public void testGetContrastRange() {
+        final BufferedImage image = new BufferedImage(100, 100,
+                BufferedImage.TYPE_3BYTE_BGR);
+        final Graphics2D g2d = image.createGraphics();
+        g2d.setColor(new java.awt.Color(60, 80, 100));
+        g2d.fill(new Rectangle(0, 0, 50, 100));
+        g2d.setColor(new java.awt.Color(120, 200, 140));
+        g2d.fill(new Rectangle(50, 0, 50, 100));
+        g2d.dispose();
+
+        ContrastRange range = Java2DUtil.getContrastRange(image);
+        assertEquals(60, range.getLow());
+        assertEquals(200, range.getHigh());
+
+        // subimage
+        range = Java2DUtil.getContrastRange(image.getSubimage(50, 10, 40, 40));
+        assertEquals(120, range.getLow());
+        assertEquals(200, range.getHigh());
+    }
+
     /* getOverlayImage() */
 
     @Test
@@ -257,6 +335,16 @@ public class Java2DUtilTest extends BaseTest {
         assertNotNull(Java2DUtil.getOverlayImage(overlay));
     }
 
+    @Test
+    public void testGetOverlayImageIsCached() throws Exception {
+        RenderedOverlayCache.getInstance().purge();
+        ImageOverlay overlay = new ImageOverlay(
+                TestUtil.getImage("png").toUri(), Position.BOTTOM_RIGHT, 0);
+        BufferedImage image = Java2DUtil.getOverlayImage(overlay);
+        assertEquals(BufferedImage.TYPE_INT_ARGB_PRE, image.getType());
+        assertSame(image, Java2DUtil.getOverlayImage(overlay));
+    }
+
     /* reduceTo8Bits() */
 
     @Test
@@ -459,6 +547,38 @@ public class Java2DUtilTest extends BaseTest {
         assertEquals(-1, image.getRGB(90, 90));
     }
 
+    @Test
+    public void testStretchContrastWithRange() {
+        BufferedImage image = new BufferedImage(100, 100,
+                BufferedImage.TYPE_4BYTE_ABGR);
+        final Graphics2D g2d = image.createGraphics();
+        g2d.setColor(new java.awt.Color(10, 100, 150));
+        g2d.fill(new Rectangle(0, 0, 100, 100));
+        g2d.dispose();
+
+        // Samples outside of the range are clamped to it.
+        image = Java2DUtil.stretchContrast(image, new ContrastRange(50, 150));
+
+        assertRGBA(image.getRGB(10, 10), 0, 128, 255, 255);
+    }
+
+    @Test
+    public void testStretchContrastOfSubimage() {
+        final BufferedImage image = new BufferedImage(100, 100,
+                BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g2d = image.createGraphics();
+        g2d.setColor(java.awt.Color.DARK_GRAY);
+        g2d.fill(new Rectangle(0, 0, 100, 100));
+        g2d.dispose();
+
+        Java2DUtil.stretchContrast(image.getSubimage(50, 0, 50, 100),
+                new ContrastRange(64, 192));
+
+        // The rest of the image is untouched.
+        assertEquals(java.awt.Color.DARK_GRAY.getRGB(), image.getRGB(10, 10));
+        assertRGBA(image.getRGB(90, 90), 0, 0, 0, 255);
+    }
+
     /* transformColor() */
 
     @Test
@@ -1,11 +1,21 @@
 package edu.illinois.library.cantaloupe.processor;
 
 import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.operation.Crop;
+import edu.illinois.library.cantaloupe.operation.Encode;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.operation.redaction.Redaction;
 import edu.illinois.library.cantaloupe.resource.iiif.ProcessorFeature;
 import edu.illinois.library.cantaloupe.test.TestUtil;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
@@ -61,4 +71,32 @@ public class Java2dProcessorTest extends ImageIOProcessorTest {
         assertEquals(expectedFeatures, instance.getSupportedFeatures());
     }
 
+    /* process() */
+
+    @Test
+    public void testProcessWithFullyRedactedRegion() throws Exception {
+        instance.setSourceFormat(Format.PNG);
+        instance.setSourceFile(TestUtil.getImage("png-rgb-64x56x8.png"));
+        final OperationList ops = new OperationList(
+                new Identifier("cats"),
+                Format.PNG,
+                new Crop(10, 10, 20, 20),
+                new Redaction(new Rectangle(5, 5, 20, 30)),
+                new Redaction(new Rectangle(25, 5, 20, 30)),
+                new Encode(Format.PNG));
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        instance.process(ops, instance.readImageInfo(), os);
+
+        final BufferedImage image = ImageIO.read(
+                new ByteArrayInputStream(os.toByteArray()));
+        assertEquals(20, image.getWidth());
+        assertEquals(20, image.getHeight());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(0xff000000, image.getRGB(x, y));
+            }
+        }
+    }
+
 }
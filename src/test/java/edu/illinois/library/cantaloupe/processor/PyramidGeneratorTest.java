@@ -0,0 +1,159 @@
+package edu.illinois.library.cantaloupe.processor;
+
+import edu.illinois.library.cantaloupe.cache.CacheFacade;
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.operation.Crop;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.operation.Scale;
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import edu.illinois.library.cantaloupe.test.TestUtil;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PyramidGeneratorTest extends BaseTest {
+
+    private static final Identifier IDENTIFIER = new Identifier("cats");
+
+    private CacheFacade cacheFacade;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.DERIVATIVE_CACHE_ENABLED, true);
+        config.setProperty(Key.DERIVATIVE_CACHE, "FilesystemCache");
+        config.setProperty(Key.FILESYSTEMCACHE_PATHNAME,
+                Files.createTempDirectory("test").toString());
+
+        cacheFacade = new CacheFacade();
+    }
+
+    private static OperationList newTileOpList(int x, int y, int width,
+                                               int height, int scaledWidth) {
+        return new OperationList(IDENTIFIER, Format.PNG,
+                new Crop(x, y, width, height),
+                new Scale(scaledWidth, null, Scale.Mode.ASPECT_FIT_WIDTH));
+    }
+
+    private static Java2dProcessor newProcessor() throws Exception {
+        Java2dProcessor processor = new Java2dProcessor();
+        processor.setSourceFile(TestUtil.getImage("png-rgb-64x56x8.png"));
+        processor.setSourceFormat(Format.PNG);
+        return processor;
+    }
+
+    private List<OperationList> newTileOpLists() {
+        return new ArrayList<>(Arrays.asList(
+                // scale factor 1
+                newTileOpList(0, 0, 32, 32, 32),
+                newTileOpList(32, 0, 32, 32, 32),
+                newTileOpList(0, 32, 32, 24, 32),
+                newTileOpList(32, 32, 32, 24, 32),
+                // scale factor 2
+                newTileOpList(0, 0, 64, 56, 32)));
+    }
+
+    /* generate() */
+
+    @Test
+    public void testGenerateWritesDerivativesIdenticalToProcessor()
+            throws Exception {
+        final Java2dProcessor processor = newProcessor();
+        final Info info = processor.readImageInfo();
+        final List<OperationList> opLists = newTileOpLists();
+
+        int numWritten = 0;
+        try (PyramidGenerator instance =
+                     new PyramidGenerator(processor, info, cacheFacade)) {
+            for (PyramidGenerator.Level level : instance.plan(opLists)) {
+                numWritten += instance.generate(level);
+            }
+        }
+        assertEquals(opLists.size(), numWritten);
+
+        for (OperationList opList : opLists) {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            Java2dProcessor otherProcessor = newProcessor();
+            otherProcessor.process(opList, info, expected);
+
+            try (InputStream is =
+                         cacheFacade.newDerivativeImageInputStream(opList)) {
+                assertNotNull(is);
+                assertArrayEquals(expected.toByteArray(),
+                        IOUtils.toByteArray(is));
+            }
+        }
+    }
+
+    @Test
+    public void testProcessorCanProcessMoreThanOnce() throws Exception {
+        final Java2dProcessor processor = newProcessor();
+        final Info info = processor.readImageInfo();
+        for (OperationList opList : newTileOpLists()) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            processor.process(opList, info, os);
+            assertTrue(os.size() > 0);
+        }
+    }
+
+    /* plan() */
+
+    @Test
+    public void testPlan() throws Exception {
+        final Info info = newProcessor().readImageInfo();
+        final List<OperationList> opLists = newTileOpLists();
+        final PyramidGenerator instance =
+                new PyramidGenerator(null, info, cacheFacade);
+
+        List<PyramidGenerator.Level> levels = instance.plan(opLists);
+        assertEquals(2, levels.size());
+
+        assertEquals(0, levels.get(0).getFactor());
+        assertEquals(opLists.subList(0, 4),
+                levels.get(0).getOperationLists());
+
+        assertEquals(1, levels.get(1).getFactor());
+        assertEquals(opLists.subList(4, 5),
+                levels.get(1).getOperationLists());
+        Scale scale = (Scale) levels.get(1).getDecodeOperationList()
+                .getFirst(Scale.class);
+        assertEquals(0.5f, scale.getPercent(), 0.000001f);
+    }
+
+    /* requiredFactor() */
+
+    @Test
+    public void testRequiredFactor() {
+        final Dimension fullSize = new Dimension(1000, 800);
+
+        assertEquals(0, PyramidGenerator.requiredFactor(
+                new OperationList(IDENTIFIER, Format.JPG), fullSize));
+        assertEquals(0, PyramidGenerator.requiredFactor(
+                newTileOpList(0, 0, 512, 512, 512), fullSize));
+        assertEquals(1, PyramidGenerator.requiredFactor(
+                newTileOpList(0, 0, 512, 512, 256), fullSize));
+        assertEquals(2, PyramidGenerator.requiredFactor(
+                newTileOpList(0, 0, 1000, 800, 250), fullSize));
+        // Rounding up the size of a 1-pixel edge tile requires more
+        // resolution than the rest of its level.
+        assertEquals(0, PyramidGenerator.requiredFactor(
+                newTileOpList(999, 0, 1, 800, 1), fullSize));
+    }
+
+}
@@ -0,0 +1,157 @@
+package edu.illinois.library.cantaloupe.processor;
+
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.operation.ColorTransform;
+import edu.illinois.library.cantaloupe.operation.Crop;
+import edu.illinois.library.cantaloupe.operation.Normalize;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.operation.ReductionFactor;
+import edu.illinois.library.cantaloupe.operation.Rotate;
+import edu.illinois.library.cantaloupe.operation.Scale;
+import edu.illinois.library.cantaloupe.processor.imageio.ImageReader;
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import edu.illinois.library.cantaloupe.test.TestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.*;
+
+public class StripPipelineTest extends BaseTest {
+
+    private static final Identifier IDENTIFIER = new Identifier("cats");
+
+    private static final String FIXTURE =
+            "tif-rgb-monores-64x56x8-striped-lzw.tif";
+
+    private Info info;
+    private ImageReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+
+        Configuration.getInstance().
+                setProperty(Key.PROCESSOR_STREAMING_MIN_PIXELS, 1);
+
+        reader = new ImageReader(TestUtil.getImage(FIXTURE), Format.TIF);
+        info = new Info(reader.getSize(), Format.TIF);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        reader.dispose();
+    }
+
+    private static void assertSameImage(BufferedImage expected,
+                                        BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    /* getImage() */
+
+    @Test
+    public void testGetImageWithCropAndScaleMatchesJava2DUtil()
+            throws Exception {
+        final Crop crop = new Crop(5, 10, 50, 40);
+        final Scale scale = new Scale(20, null, Scale.Mode.ASPECT_FIT_WIDTH);
+        final OperationList opList = new OperationList(IDENTIFIER,
+                Format.PNG, crop, scale);
+
+        BufferedImage expected = reader.read();
+        expected = Java2DUtil.cropImage(expected, crop);
+        expected = Java2DUtil.scaleImage(expected, scale,
+                new ReductionFactor());
+
+        BufferedImage actual =
+                new StripPipeline(reader, opList, info).getImage();
+        assertSameImage(expected, actual);
+    }
+
+    @Test
+    public void testGetImageWithUpscaleMatchesJava2DUtil() throws Exception {
+        final Scale scale = new Scale(1.5f);
+        final OperationList opList = new OperationList(IDENTIFIER,
+                Format.JPG, scale);
+
+        BufferedImage expected = Java2DUtil.scaleImage(reader.read(), scale,
+                new ReductionFactor());
+
+        BufferedImage actual =
+                new StripPipeline(reader, opList, info).getImage();
+        assertSameImage(expected, actual);
+    }
+
+    @Test
+    public void testGetImageWithGrayColorTransform() throws Exception {
+        final OperationList opList = new OperationList(IDENTIFIER,
+                Format.PNG, ColorTransform.GRAY);
+
+        BufferedImage expected = Java2DUtil.transformColor(reader.read(),
+                ColorTransform.GRAY);
+
+        BufferedImage actual =
+                new StripPipeline(reader, opList, info).getImage();
+        assertEquals(1, actual.getRaster().getNumBands());
+        assertSameImage(expected, actual);
+    }
+
+    /* isEligible() */
+
+    @Test
+    public void testIsEligible() {
+        assertTrue(StripPipeline.isEligible(new OperationList(IDENTIFIER,
+                Format.JPG, new Crop(0, 0, 20, 20), new Scale(0.5f),
+                ColorTransform.GRAY), info, Format.TIF));
+    }
+
+    @Test
+    public void testIsEligibleWithIneligibleOperations() {
+        assertFalse(StripPipeline.isEligible(new OperationList(IDENTIFIER,
+                Format.JPG, new Rotate(90)), info, Format.TIF));
+        assertFalse(StripPipeline.isEligible(new OperationList(IDENTIFIER,
+                Format.JPG, ColorTransform.BITONAL), info, Format.TIF));
+        assertFalse(StripPipeline.isEligible(new OperationList(IDENTIFIER,
+                Format.JPG, new Normalize()), info, Format.TIF));
+    }
+
+    @Test
+    public void testIsEligibleWithIneligibleFormats() {
+        final OperationList opList = new OperationList(IDENTIFIER,
+                Format.GIF, new Scale(0.5f));
+        assertFalse(StripPipeline.isEligible(opList, info, Format.TIF));
+
+        opList.setOutputFormat(Format.JPG);
+        assertFalse(StripPipeline.isEligible(opList, info, Format.PNG));
+    }
+
+    @Test
+    public void testIsEligibleRespectsMinPixels() {
+        final OperationList opList = new OperationList(IDENTIFIER,
+                Format.JPG, new Crop(0, 0, 20, 20));
+        final Configuration config = Configuration.getInstance();
+
+        config.setProperty(Key.PROCESSOR_STREAMING_MIN_PIXELS, 401);
+        assertFalse(StripPipeline.isEligible(opList, info, Format.TIF));
+
+        config.setProperty(Key.PROCESSOR_STREAMING_MIN_PIXELS, 400);
+        assertTrue(StripPipeline.isEligible(opList, info, Format.TIF));
+
+        config.setProperty(Key.PROCESSOR_STREAMING_MIN_PIXELS, 0);
+        assertFalse(StripPipeline.isEligible(opList, info, Format.TIF));
+    }
+
+}
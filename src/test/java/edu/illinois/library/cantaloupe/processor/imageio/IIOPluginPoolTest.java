@@ -0,0 +1,119 @@
+package edu.illinois.library.cantaloupe.processor.imageio;
+
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import edu.illinois.library.cantaloupe.test.TestUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+
+import static org.junit.Assert.*;
+
+public class IIOPluginPoolTest extends BaseTest {
+
+    private static final String[] NO_PREFERENCE = new String[] {};
+
+    private IIOPluginPool instance;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        instance = IIOPluginPool.getInstance();
+        instance.purge();
+    }
+
+    /* acquireReader() */
+
+    @Test
+    public void testAcquireReader() throws Exception {
+        final ImageReader reader =
+                instance.acquireReader("image/jpeg", NO_PREFERENCE);
+        try {
+            assertNotNull(reader);
+            assertTrue(reader.getOriginatingProvider().
+                    canDecodeInput(new FileImageInputStream(
+                            TestUtil.getImage("jpg").toFile())));
+        } finally {
+            instance.releaseReader(reader);
+        }
+    }
+
+    @Test
+    public void testAcquireReaderRespectsPreferences() throws Exception {
+        final TIFFImageReader tiffReader =
+                new TIFFImageReader(TestUtil.getImage("tif"));
+        final String[] preferences = tiffReader.preferredIIOImplementations();
+        tiffReader.dispose();
+        final ImageReader reader =
+                instance.acquireReader("image/tiff", preferences);
+        try {
+            assertEquals(preferences[0], reader.getClass().getName());
+        } finally {
+            instance.releaseReader(reader);
+        }
+    }
+
+    @Test
+    public void testAcquireReaderWithUnsupportedMediaType()
+            throws Exception {
+        assertNull(instance.acquireReader("image/bogus", NO_PREFERENCE));
+    }
+
+    @Test
+    public void testAcquireReaderReusesReleasedReaders() throws Exception {
+        final ImageReader reader =
+                instance.acquireReader("image/png", NO_PREFERENCE);
+        instance.releaseReader(reader);
+        final ImageReader reader2 =
+                instance.acquireReader("image/png", NO_PREFERENCE);
+        try {
+            assertSame(reader, reader2);
+            assertNotSame(reader2,
+                    instance.acquireReader("image/png", NO_PREFERENCE));
+        } finally {
+            instance.releaseReader(reader2);
+        }
+    }
+
+    /* acquireWriter() */
+
+    @Test
+    public void testAcquireWriterReusesReleasedWriters() throws Exception {
+        final ImageWriter writer =
+                instance.acquireWriter("image/jpeg", NO_PREFERENCE);
+        assertNotNull(writer);
+        instance.releaseWriter(writer);
+        final ImageWriter writer2 =
+                instance.acquireWriter("image/jpeg", NO_PREFERENCE);
+        try {
+            assertSame(writer, writer2);
+        } finally {
+            instance.releaseWriter(writer2);
+        }
+    }
+
+    @Test
+    public void testAcquireWriterWithUnsupportedMediaType()
+            throws Exception {
+        assertNull(instance.acquireWriter("image/bogus", NO_PREFERENCE));
+    }
+
+    /* releaseReader() */
+
+    @Test
+    public void testReleaseReaderResetsReader() throws Exception {
+        final ImageReader reader =
+                instance.acquireReader("image/jpeg", NO_PREFERENCE);
+        try (ImageInputStream is = new FileImageInputStream(
+                TestUtil.getImage("jpg").toFile())) {
+            reader.setInput(is);
+            assertTrue(reader.getWidth(0) > 0);
+        }
+        instance.releaseReader(reader);
+        assertNull(reader.getInput());
+    }
+
+}
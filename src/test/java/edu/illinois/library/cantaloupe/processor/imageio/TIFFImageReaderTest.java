@@ -8,6 +8,8 @@ import edu.illinois.library.cantaloupe.operation.OperationList;
 import edu.illinois.library.cantaloupe.operation.Scale;
 import edu.illinois.library.cantaloupe.operation.Orientation;
 import edu.illinois.library.cantaloupe.operation.ReductionFactor;
+import edu.illinois.library.cantaloupe.resolver.FileInputStreamStreamSource;
+import edu.illinois.library.cantaloupe.resolver.StreamSource;
 import edu.illinois.library.cantaloupe.test.BaseTest;
 import edu.illinois.library.cantaloupe.test.TestUtil;
 import edu.illinois.library.cantaloupe.util.SystemUtils;
@@ -15,9 +17,16 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.*;
@@ -39,6 +48,51 @@ public class TIFFImageReaderTest extends BaseTest {
         instance.dispose();
     }
 
+    @Test
+    public void testConstructorWithStructure() throws Exception {
+        final SourceStructure structure = instance.getStructure();
+        final TIFFImageReader subimageReader = new TIFFImageReader(
+                TestUtil.getImage("tif-rgb-multires-64x56x16-tiled-uncompressed.tif"),
+                structure, 1);
+        try {
+            assertEquals(1, subimageReader.getNumResolutions());
+            assertEquals(instance.getSize(1), subimageReader.getSize(0));
+            // The underlying reader sees the image at index 1 as image 0.
+            assertEquals(instance.getSize(1), new Dimension(
+                    subimageReader.getIIOReader().getWidth(0),
+                    subimageReader.getIIOReader().getHeight(0)));
+        } finally {
+            subimageReader.dispose();
+        }
+    }
+
+    @Test
+    public void testGetBands() {
+        List<Rectangle> bands = TIFFImageReader.getBands(
+                new Rectangle(10, 100, 1000, 1000), 256, 2, 1);
+        // Tile rows 0-4 are divided into rows 0-1 and 2-4.
+        assertEquals(2, bands.size());
+        assertEquals(new Rectangle(10, 100, 1000, 412), bands.get(0));
+        assertEquals(new Rectangle(10, 512, 1000, 588), bands.get(1));
+    }
+
+    @Test
+    public void testGetBandsWithSmallRegion() {
+        final Rectangle region = new Rectangle(0, 0, 1000, 1000);
+        List<Rectangle> bands = TIFFImageReader.getBands(
+                region, 256, 8, 1000 * 1000);
+        assertEquals(1, bands.size());
+        assertEquals(region, bands.get(0));
+    }
+
+    @Test
+    public void testGetBandsWithRegionWithinOneTileRow() {
+        final Rectangle region = new Rectangle(0, 300, 5000, 200);
+        List<Rectangle> bands = TIFFImageReader.getBands(region, 256, 8, 1);
+        assertEquals(1, bands.size());
+        assertEquals(region, bands.get(0));
+    }
+
     @Test
     public void testGetCompressionWithUncompressedImage() throws Exception {
         instance.dispose();
@@ -105,6 +159,65 @@ public class TIFFImageReaderTest extends BaseTest {
         assertEquals(new Dimension(64, 56), instance.getSize(0));
     }
 
+    @Test
+    public void testGetStructure() throws Exception {
+        final SourceStructure structure = instance.getStructure();
+        assertEquals(3, structure.getNumImages());
+        assertEquals(new Dimension(64, 56), structure.getSize(0));
+        assertEquals(22292, structure.getImageOffset(0));
+
+        // Another instance reading the same file gets it from the cache.
+        final TIFFImageReader otherInstance = new TIFFImageReader(
+                TestUtil.getImage("tif-rgb-multires-64x56x16-tiled-uncompressed.tif"));
+        try {
+            assertSame(structure, otherInstance.getStructure());
+        } finally {
+            otherInstance.dispose();
+        }
+    }
+
+    @Test
+    public void testGetStructureWithVersionedStreamSource() throws Exception {
+        final Path file = TestUtil.getImage(
+                "tif-rgb-multires-64x56x16-tiled-uncompressed.tif");
+        final TIFFImageReader reader1 = new TIFFImageReader(
+                newStreamSource(file, "testGetStructureWithVersionedStreamSource"));
+        final TIFFImageReader reader2 = new TIFFImageReader(
+                newStreamSource(file, "testGetStructureWithVersionedStreamSource"));
+        try {
+            final SourceStructure structure = reader1.getStructure();
+            assertEquals(3, structure.getNumImages());
+            assertSame(structure, reader2.getStructure());
+        } finally {
+            reader1.dispose();
+            reader2.dispose();
+        }
+    }
+
+    @Test
+    public void testGetStructureWithUnversionedStreamSource()
+            throws Exception {
+        final TIFFImageReader reader = new TIFFImageReader(newStreamSource(
+                TestUtil.getImage("tif-rgb-multires-64x56x16-tiled-uncompressed.tif"),
+                null));
+        try {
+            assertNull(reader.getStructure());
+            assertEquals(3, reader.getNumResolutions());
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static StreamSource newStreamSource(Path file,
+                                                String versionKey) {
+        return new FileInputStreamStreamSource(file) {
+            @Override
+            public String getVersionKey() {
+                return versionKey;
+            }
+        };
+    }
+
     @Test
     public void testGetTileSize() throws Exception {
         assertEquals(new Dimension(16, 16), instance.getTileSize(0));
@@ -122,6 +235,32 @@ public class TIFFImageReaderTest extends BaseTest {
         assertArrayEquals(expected, instance.preferredIIOImplementations());
     }
 
+    @Test
+    public void testReadIFDOffsets() throws Exception {
+        try (ImageInputStream is = ImageIO.createImageInputStream(
+                TestUtil.getImage("tif-rgb-multires-64x56x16-tiled-uncompressed.tif").toFile())) {
+            assertEquals(Arrays.asList(22292L, 32662L, 38288L),
+                    TIFFImageReader.readIFDOffsets(is));
+        }
+    }
+
+    @Test
+    public void testReadIFDOffsetsWithBigTIFF() throws Exception {
+        try (ImageInputStream is = ImageIO.createImageInputStream(
+                TestUtil.getImage("tif-rgb-monores-64x56x8-tiled-uncompressed-bigtiff.tif").toFile())) {
+            assertEquals(Collections.singletonList(12304L),
+                    TIFFImageReader.readIFDOffsets(is));
+        }
+    }
+
+    @Test
+    public void testReadIFDOffsetsWithNonTIFF() throws Exception {
+        try (ImageInputStream is = ImageIO.createImageInputStream(
+                TestUtil.getImage("png-rgb-64x56x8.png").toFile())) {
+            assertTrue(TIFFImageReader.readIFDOffsets(is).isEmpty());
+        }
+    }
+
     @Test
     public void testReadWithMonoResolutionImageAndNoScaleFactor() throws Exception {
         OperationList ops = new OperationList(new Identifier("cats"), Format.JPG);
@@ -150,4 +289,24 @@ public class TIFFImageReaderTest extends BaseTest {
         // TODO: write this
     }
 
+    @Test
+    public void testTileAwareReadWithSubimage() throws Exception {
+        final Rectangle region = new Rectangle(3, 5, 20, 16);
+        final ImageReadParam param =
+                instance.getIIOReader().getDefaultReadParam();
+        param.setSourceRegion(region);
+        final BufferedImage expected =
+                instance.getIIOReader().read(1, param);
+
+        final BufferedImage actual = instance.tileAwareRead(1, region,
+                new HashSet<>());
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
 }
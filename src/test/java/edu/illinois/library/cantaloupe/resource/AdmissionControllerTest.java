@@ -0,0 +1,212 @@
+package edu.illinois.library.cantaloupe.resource;
+
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.image.Info;
+import edu.illinois.library.cantaloupe.operation.Crop;
+import edu.illinois.library.cantaloupe.operation.OperationList;
+import edu.illinois.library.cantaloupe.operation.Scale;
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class AdmissionControllerTest extends BaseTest {
+
+    private AdmissionController instance;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.PROCESSOR_ADMISSION_ENABLED, true);
+        config.setProperty(Key.PROCESSOR_ADMISSION_MAX_PIXELS, 1000);
+        config.setProperty(Key.PROCESSOR_ADMISSION_MAX_MEMORY, "1M");
+        config.setProperty(Key.PROCESSOR_ADMISSION_QUEUE_SIZE, 1);
+        config.setProperty(Key.PROCESSOR_ADMISSION_QUEUE_TIMEOUT, 1);
+
+        instance = new AdmissionController();
+    }
+
+    private static AdmissionController.Cost cost(long pixels) {
+        return new AdmissionController.Cost(pixels, 0, pixels);
+    }
+
+    /* acquire() */
+
+    @Test
+    public void testAcquireWithAvailableBudget() {
+        AdmissionController.Permit permit = instance.acquire(cost(600));
+        assertEquals(1, instance.getInFlightCount());
+        assertEquals(600, instance.getInFlightPixels());
+        permit.close();
+        assertEquals(0, instance.getInFlightCount());
+        assertEquals(0, instance.getInFlightPixels());
+    }
+
+    @Test
+    public void testAcquireWaitsForRelease() throws Exception {
+        final AdmissionController.Permit permit1 = instance.acquire(cost(600));
+        final AtomicReference<AdmissionController.Permit> permit2 =
+                new AtomicReference<>();
+        Thread thread = new Thread(() -> permit2.set(instance.acquire(cost(600))));
+        thread.start();
+
+        for (int i = 0; i < 50 && instance.getQueueLength() < 1; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, instance.getQueueLength());
+        assertNull(permit2.get());
+
+        permit1.close();
+        thread.join();
+        assertNotNull(permit2.get());
+        assertEquals(0, instance.getQueueLength());
+        assertEquals(600, instance.getInFlightPixels());
+    }
+
+    @Test
+    public void testAcquireWithFullQueue() throws Exception {
+        instance.acquire(cost(600));
+        Thread thread = new Thread(() -> {
+            try {
+                instance.acquire(cost(600));
+            } catch (ServiceUnavailableException e) {
+                // expected after the timeout
+            }
+        });
+        thread.start();
+        for (int i = 0; i < 50 && instance.getQueueLength() < 1; i++) {
+            Thread.sleep(10);
+        }
+
+        try {
+            instance.acquire(cost(600));
+            fail("Expected exception");
+        } catch (ServiceUnavailableException e) {
+            assertTrue(e.getRetryAfter() >= 1);
+            assertEquals(1, instance.getRejectedCount());
+        } finally {
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testAcquireTimesOut() {
+        instance.acquire(cost(600));
+        try {
+            instance.acquire(cost(600));
+            fail("Expected exception");
+        } catch (ServiceUnavailableException e) {
+            assertEquals(0, instance.getQueueLength());
+        }
+    }
+
+    @Test
+    public void testAcquireWithCostExceedingBudget() {
+        AdmissionController.Permit permit = instance.acquire(cost(5000));
+        // The cost is clamped to the budget.
+        assertEquals(1000, instance.getInFlightPixels());
+        permit.close();
+    }
+
+    @Test
+    public void testAcquireWithMemoryBudget() {
+        Configuration.getInstance().setProperty(
+                Key.PROCESSOR_ADMISSION_MAX_MEMORY, "1K");
+        instance.acquire(new AdmissionController.Cost(10, 0, 600));
+        assertNull(instance.tryAcquire(
+                new AdmissionController.Cost(10, 0, 600)));
+    }
+
+    /* estimateCost() */
+
+    @Test
+    public void testEstimateCostWithUntiledImage() {
+        Info info = new Info(1000, 800);
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        opList.add(new Crop(0, 0, 500, 400));
+        opList.add(new Scale(250, 200, Scale.Mode.NON_ASPECT_FILL));
+
+        AdmissionController.Cost cost =
+                AdmissionController.estimateCost(info, opList);
+        // The whole image must be decoded.
+        assertEquals(800000, cost.getSourcePixels());
+        assertEquals(50000, cost.getOutputPixels());
+        assertEquals(850000 * 4, cost.getBytes());
+    }
+
+    @Test
+    public void testEstimateCostWithTiledImage() {
+        Info info = new Info(1000, 800, 100, 100);
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        opList.add(new Crop(0, 0, 500, 400));
+
+        AdmissionController.Cost cost =
+                AdmissionController.estimateCost(info, opList);
+        assertEquals(200000, cost.getSourcePixels());
+        assertEquals(200000, cost.getOutputPixels());
+    }
+
+    @Test
+    public void testEstimateCostWithPyramidalImage() {
+        Info info = new Info(1000, 800, 100, 100);
+        Info.Image level = new Info.Image(500, 400);
+        level.tileWidth = 100;
+        level.tileHeight = 100;
+        info.getImages().add(level);
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+        opList.add(new Crop(0, 0, 500, 400));
+        opList.add(new Scale(250, 200, Scale.Mode.NON_ASPECT_FILL));
+
+        AdmissionController.Cost cost =
+                AdmissionController.estimateCost(info, opList);
+        // The region can be read from the half-scale level.
+        assertEquals(50000, cost.getSourcePixels());
+        assertEquals(50000, cost.getOutputPixels());
+    }
+
+    @Test
+    public void testEstimateCostWithLimitTo8BitsDisabled() {
+        Configuration.getInstance().setProperty(
+                Key.PROCESSOR_LIMIT_TO_8_BITS, false);
+        Info info = new Info(100, 100);
+        OperationList opList = new OperationList(new Identifier("cats"),
+                Format.JPG);
+
+        AdmissionController.Cost cost =
+                AdmissionController.estimateCost(info, opList);
+        assertEquals(10000 * 8 + 10000 * 4, cost.getBytes());
+    }
+
+    /* tryAcquire() */
+
+    @Test
+    public void testTryAcquire() {
+        AdmissionController.Permit permit = instance.tryAcquire(cost(600));
+        assertNotNull(permit);
+        assertNull(instance.tryAcquire(cost(600)));
+        assertNotNull(instance.tryAcquire(cost(400)));
+        permit.close();
+        assertNotNull(instance.tryAcquire(cost(600)));
+    }
+
+    @Test
+    public void testPermitCloseIsIdempotent() {
+        AdmissionController.Permit permit = instance.tryAcquire(cost(600));
+        permit.close();
+        permit.close();
+        assertEquals(0, instance.getInFlightCount());
+        assertEquals(0, instance.getInFlightPixels());
+    }
+
+}
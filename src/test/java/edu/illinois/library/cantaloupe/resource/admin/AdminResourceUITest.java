@@ -102,7 +102,18 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
 
         // Delegate Script
         inputNamed(Key.DELEGATE_SCRIPT_ENABLED).click();
+        selectNamed(Key.DELEGATE_SCRIPT_ENGINE).selectByValue("remote");
         inputNamed(Key.DELEGATE_SCRIPT_PATHNAME).sendKeys("file");
+        selectNamed(Key.DELEGATE_SCRIPT_CONTEXT_SCOPE).
+                selectByValue("pooled");
+        inputNamed(Key.DELEGATE_SCRIPT_RUNTIME_POOL_SIZE).sendKeys("3");
+        inputNamed(Key.DELEGATE_SCRIPT_REMOTE_HOST).sendKeys("sidecar");
+        inputNamed(Key.DELEGATE_SCRIPT_REMOTE_PORT).sendKeys("8200");
+        inputNamed(Key.DELEGATE_SCRIPT_REMOTE_TIMEOUT).sendKeys("500");
+        inputNamed(Key.DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_FAILURES).
+                sendKeys("3");
+        inputNamed(Key.DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_RESET).
+                sendKeys("5000");
         inputNamed(Key.DELEGATE_METHOD_INVOCATION_CACHE_ENABLED).click();
 
         // Application log
@@ -148,6 +159,7 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         inputNamed(Key.ACCESS_LOG_SYSLOGAPPENDER_HOST).sendKeys("host2");
         inputNamed(Key.ACCESS_LOG_SYSLOGAPPENDER_PORT).sendKeys("251");
         inputNamed(Key.ACCESS_LOG_SYSLOGAPPENDER_FACILITY).sendKeys("foxes");
+        inputNamed(Key.ACCESS_LOG_TIMING_ENABLED).click();
 
         // Submit the form
         css("#cl-application input[type=\"submit\"]").click();
@@ -162,7 +174,19 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
 
         // Delegate Script
         assertTrue(config.getBoolean(Key.DELEGATE_SCRIPT_ENABLED));
+        assertEquals("remote", config.getString(Key.DELEGATE_SCRIPT_ENGINE));
         assertEquals("file", config.getString(Key.DELEGATE_SCRIPT_PATHNAME));
+        assertEquals("pooled",
+                config.getString(Key.DELEGATE_SCRIPT_CONTEXT_SCOPE));
+        assertEquals(3, config.getInt(Key.DELEGATE_SCRIPT_RUNTIME_POOL_SIZE));
+        assertEquals("sidecar",
+                config.getString(Key.DELEGATE_SCRIPT_REMOTE_HOST));
+        assertEquals(8200, config.getInt(Key.DELEGATE_SCRIPT_REMOTE_PORT));
+        assertEquals(500, config.getInt(Key.DELEGATE_SCRIPT_REMOTE_TIMEOUT));
+        assertEquals(3, config.getInt(
+                Key.DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_FAILURES));
+        assertEquals(5000, config.getInt(
+                Key.DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_RESET));
         assertTrue(config.getBoolean(Key.DELEGATE_METHOD_INVOCATION_CACHE_ENABLED));
 
         // Application log
@@ -224,6 +248,7 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
                 config.getString(Key.ACCESS_LOG_SYSLOGAPPENDER_PORT));
         assertEquals("foxes",
                 config.getString(Key.ACCESS_LOG_SYSLOGAPPENDER_FACILITY));
+        assertTrue(config.getBoolean(Key.ACCESS_LOG_TIMING_ENABLED));
     }
 
     @Test
@@ -246,6 +271,12 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         inputNamed(Key.BASE_URI).sendKeys("http://bla/bla/");
         inputNamed(Key.SLASH_SUBSTITUTE).sendKeys("^");
         inputNamed(Key.PRINT_STACK_TRACE_ON_ERROR_PAGES).click();
+        inputNamed(Key.THREAD_POOL_LOW_MAX_THREADS).sendKeys("4");
+        inputNamed(Key.THREAD_POOL_LOW_QUEUE_SIZE).sendKeys("100");
+        inputNamed(Key.THREAD_POOL_NORMAL_MAX_THREADS).sendKeys("16");
+        inputNamed(Key.THREAD_POOL_NORMAL_QUEUE_SIZE).sendKeys("200");
+        inputNamed(Key.THREAD_POOL_HIGH_MAX_THREADS).sendKeys("64");
+        inputNamed(Key.THREAD_POOL_HIGH_QUEUE_SIZE).sendKeys("0");
 
         // Submit the form
         css("#cl-http input[type=\"submit\"]").click();
@@ -269,6 +300,12 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         assertEquals("http://bla/bla/", config.getString(Key.BASE_URI));
         assertEquals("^", config.getString(Key.SLASH_SUBSTITUTE));
         assertTrue(config.getBoolean(Key.PRINT_STACK_TRACE_ON_ERROR_PAGES));
+        assertEquals(4, config.getInt(Key.THREAD_POOL_LOW_MAX_THREADS));
+        assertEquals(100, config.getInt(Key.THREAD_POOL_LOW_QUEUE_SIZE));
+        assertEquals(16, config.getInt(Key.THREAD_POOL_NORMAL_MAX_THREADS));
+        assertEquals(200, config.getInt(Key.THREAD_POOL_NORMAL_QUEUE_SIZE));
+        assertEquals(64, config.getInt(Key.THREAD_POOL_HIGH_MAX_THREADS));
+        assertEquals(0, config.getInt(Key.THREAD_POOL_HIGH_QUEUE_SIZE));
     }
 
     @Test
@@ -283,6 +320,11 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         selectNamed(Key.IIIF_CONTENT_DISPOSITION).selectByValue("attachment");
         inputNamed(Key.IIIF_MIN_SIZE).sendKeys("75");
         inputNamed(Key.IIIF_MIN_TILE_SIZE).sendKeys("250");
+        inputNamed(Key.IIIF_ASYNC_ENABLED).click();
+        inputNamed(Key.IIIF_ASYNC_MAX_THREADS).sendKeys("40");
+        inputNamed(Key.IIIF_ASYNC_OUTPUT_BUFFER_SIZE).sendKeys("2M");
+        inputNamed(Key.IIIF_ASYNC_TIMEOUT).sendKeys("30");
+        inputNamed(Key.SERVER_TIMING_ENABLED).click();
         inputNamed(Key.IIIF_1_ENDPOINT_ENABLED).click();
         inputNamed(Key.IIIF_2_ENDPOINT_ENABLED).click();
         inputNamed(Key.IIIF_2_RESTRICT_TO_SIZES).click();
@@ -305,6 +347,12 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
                 config.getString(Key.IIIF_CONTENT_DISPOSITION));
         assertEquals(75, config.getInt(Key.IIIF_MIN_SIZE));
         assertEquals(250, config.getInt(Key.IIIF_MIN_TILE_SIZE));
+        assertTrue(config.getBoolean(Key.IIIF_ASYNC_ENABLED));
+        assertEquals(40, config.getInt(Key.IIIF_ASYNC_MAX_THREADS));
+        assertEquals("2M",
+                config.getString(Key.IIIF_ASYNC_OUTPUT_BUFFER_SIZE));
+        assertEquals(30, config.getInt(Key.IIIF_ASYNC_TIMEOUT));
+        assertTrue(config.getBoolean(Key.SERVER_TIMING_ENABLED));
         assertTrue(config.getBoolean(Key.IIIF_1_ENDPOINT_ENABLED));
         assertTrue(config.getBoolean(Key.IIIF_2_ENDPOINT_ENABLED));
         assertTrue(config.getBoolean(Key.IIIF_2_RESTRICT_TO_SIZES));
@@ -446,6 +494,12 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         inputNamed(Key.PROCESSOR_JPG_PROGRESSIVE).click();
         inputNamed(Key.PROCESSOR_JPG_QUALITY).sendKeys("55");
         selectNamed(Key.PROCESSOR_TIF_COMPRESSION).selectByVisibleText("LZW");
+        inputNamed(Key.PROCESSOR_STREAMING_MIN_PIXELS).sendKeys("1000000");
+        inputNamed(Key.PROCESSOR_ADMISSION_ENABLED).click();
+        inputNamed(Key.PROCESSOR_ADMISSION_MAX_PIXELS).sendKeys("5000000");
+        inputNamed(Key.PROCESSOR_ADMISSION_MAX_MEMORY).sendKeys("2G");
+        inputNamed(Key.PROCESSOR_ADMISSION_QUEUE_SIZE).sendKeys("40");
+        inputNamed(Key.PROCESSOR_ADMISSION_QUEUE_TIMEOUT).sendKeys("15");
         selectNamed(Key.STREAMPROCESSOR_RETRIEVAL_STRATEGY).
                 selectByValue("StreamStrategy");
         // FfmpegProcessor
@@ -490,6 +544,12 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         assertEquals("true", config.getString(Key.PROCESSOR_JPG_PROGRESSIVE));
         assertEquals("55", config.getString(Key.PROCESSOR_JPG_QUALITY));
         assertEquals("LZW", config.getString(Key.PROCESSOR_TIF_COMPRESSION));
+        assertEquals(1000000, config.getLong(Key.PROCESSOR_STREAMING_MIN_PIXELS));
+        assertTrue(config.getBoolean(Key.PROCESSOR_ADMISSION_ENABLED));
+        assertEquals(5000000, config.getLong(Key.PROCESSOR_ADMISSION_MAX_PIXELS));
+        assertEquals("2G", config.getString(Key.PROCESSOR_ADMISSION_MAX_MEMORY));
+        assertEquals(40, config.getInt(Key.PROCESSOR_ADMISSION_QUEUE_SIZE));
+        assertEquals(15, config.getInt(Key.PROCESSOR_ADMISSION_QUEUE_TIMEOUT));
         assertEquals("StreamStrategy",
                 config.getString(Key.STREAMPROCESSOR_RETRIEVAL_STRATEGY));
         // FfmpegProcessor
@@ -530,6 +590,8 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         inputNamed(Key.SOURCE_CACHE_ENABLED).click();
         selectNamed(Key.DERIVATIVE_CACHE).selectByVisibleText("FilesystemCache");
         inputNamed(Key.DERIVATIVE_CACHE_ENABLED).click();
+        inputNamed(Key.DERIVATIVE_CACHE_BLOOM_FILTER_ENABLED).click();
+        inputNamed(Key.DERIVATIVE_CACHE_BLOOM_FILTER_CAPACITY).sendKeys("5000");
         inputNamed(Key.INFO_CACHE_ENABLED).click();
         inputNamed(Key.CACHE_SERVER_PURGE_MISSING).click();
         inputNamed(Key.CACHE_SERVER_RESOLVE_FIRST).click();
@@ -555,6 +617,8 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         inputNamed(Key.FILESYSTEMCACHE_PATHNAME).sendKeys("/path");
         inputNamed(Key.FILESYSTEMCACHE_DIRECTORY_DEPTH).sendKeys("8");
         inputNamed(Key.FILESYSTEMCACHE_DIRECTORY_NAME_LENGTH).sendKeys("4");
+        inputNamed(Key.FILESYSTEMCACHE_INDEX_ENABLED).click();
+        inputNamed(Key.FILESYSTEMCACHE_MAX_SIZE).sendKeys("50G");
         // JdbcCache
         css("#cl-caches li > a[href=\"#JdbcCache\"]").click();
         inputNamed(Key.JDBCCACHE_JDBC_URL).sendKeys("jdbc://dogs");
@@ -568,6 +632,8 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         inputNamed(Key.HEAPCACHE_TARGET_SIZE).sendKeys("1234");
         inputNamed(Key.HEAPCACHE_PERSIST).click();
         inputNamed(Key.HEAPCACHE_PATHNAME).sendKeys("/tmp/cats");
+        selectNamed(Key.HEAPCACHE_STORAGE).selectByValue("mapped");
+        inputNamed(Key.HEAPCACHE_MAPPED_PATHNAME).sendKeys("/tmp/dogs");
         // RedisCache
         css("#cl-caches li > a[href=\"#RedisCache\"]").click();
         inputNamed(Key.REDISCACHE_HOST).sendKeys("localhost");
@@ -575,6 +641,11 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         inputNamed(Key.REDISCACHE_PASSWORD).sendKeys("redispass");
         inputNamed(Key.REDISCACHE_SSL).click();
         inputNamed(Key.REDISCACHE_DATABASE).sendKeys("5");
+        // TieredCache
+        css("#cl-caches li > a[href=\"#TieredCache\"]").click();
+        selectNamed(Key.TIEREDCACHE_LOCAL).selectByVisibleText("HeapCache");
+        selectNamed(Key.TIEREDCACHE_REMOTE).selectByVisibleText("JdbcCache");
+        selectNamed(Key.TIEREDCACHE_WRITE_STRATEGY).selectByValue("WriteBehind");
 
         // Submit the form
         css("#cl-caches input[type=\"submit\"]").click();
@@ -597,6 +668,8 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         assertTrue(config.getBoolean(Key.SOURCE_CACHE_ENABLED));
         assertEquals("FilesystemCache", config.getString(Key.DERIVATIVE_CACHE));
         assertTrue(config.getBoolean(Key.DERIVATIVE_CACHE_ENABLED));
+        assertTrue(config.getBoolean(Key.DERIVATIVE_CACHE_BLOOM_FILTER_ENABLED));
+        assertEquals(5000, config.getInt(Key.DERIVATIVE_CACHE_BLOOM_FILTER_CAPACITY));
         assertTrue(config.getBoolean(Key.INFO_CACHE_ENABLED));
         assertTrue(config.getBoolean(Key.CACHE_SERVER_PURGE_MISSING));
         assertTrue(config.getBoolean(Key.CACHE_SERVER_RESOLVE_FIRST));
@@ -619,6 +692,8 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         assertEquals("/path", config.getString(Key.FILESYSTEMCACHE_PATHNAME));
         assertEquals("8", config.getString(Key.FILESYSTEMCACHE_DIRECTORY_DEPTH));
         assertEquals("4", config.getString(Key.FILESYSTEMCACHE_DIRECTORY_NAME_LENGTH));
+        assertTrue(config.getBoolean(Key.FILESYSTEMCACHE_INDEX_ENABLED));
+        assertEquals("50G", config.getString(Key.FILESYSTEMCACHE_MAX_SIZE));
         // JdbcCache
         assertEquals("jdbc://dogs", config.getString(Key.JDBCCACHE_JDBC_URL));
         assertEquals("person", config.getString(Key.JDBCCACHE_USER));
@@ -630,12 +705,18 @@ public class AdminResourceUITest extends AbstractAdminResourceTest {
         assertEquals("1234", config.getString(Key.HEAPCACHE_TARGET_SIZE));
         assertTrue(config.getBoolean(Key.HEAPCACHE_PERSIST));
         assertEquals("/tmp/cats", config.getString(Key.HEAPCACHE_PATHNAME));
+        assertEquals("mapped", config.getString(Key.HEAPCACHE_STORAGE));
+        assertEquals("/tmp/dogs", config.getString(Key.HEAPCACHE_MAPPED_PATHNAME));
         // RedisCache
         assertEquals("localhost", config.getString(Key.REDISCACHE_HOST));
         assertEquals("12398", config.getString(Key.REDISCACHE_PORT));
         assertEquals("redispass", config.getString(Key.REDISCACHE_PASSWORD));
         assertTrue(config.getBoolean(Key.REDISCACHE_SSL));
         assertEquals("5", config.getString(Key.REDISCACHE_DATABASE));
+        // TieredCache
+        assertEquals("HeapCache", config.getString(Key.TIEREDCACHE_LOCAL));
+        assertEquals("JdbcCache", config.getString(Key.TIEREDCACHE_REMOTE));
+        assertEquals("WriteBehind", config.getString(Key.TIEREDCACHE_WRITE_STRATEGY));
     }
 
     @Test
@@ -0,0 +1,59 @@
+package edu.illinois.library.cantaloupe.resource.admin;
+
+import edu.illinois.library.cantaloupe.RestletApplication;
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.http.ResourceException;
+import edu.illinois.library.cantaloupe.http.Response;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MetricsResourceTest extends AbstractAdminResourceTest {
+
+    @Override
+    protected String getEndpointPath() {
+        return RestletApplication.ADMIN_METRICS_PATH;
+    }
+
+    @Test
+    public void testGETWhenEnabled() throws Exception {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.ADMIN_ENABLED, true);
+
+        Response response = client.send();
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void testGETWhenDisabled() throws Exception {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.ADMIN_ENABLED, false);
+        try {
+            client.send();
+            fail("Expected exception");
+        } catch (ResourceException e) {
+            assertEquals(403, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void testGETResponseBody() throws Exception {
+        Metrics.processorInvocations("MockProcessor").increment();
+
+        Response response = client.send();
+        assertTrue(response.getBodyAsString().contains(
+                "# TYPE cantaloupe_processor_invocations_total counter"));
+        assertTrue(response.getBodyAsString().contains(
+                "cantaloupe_processor_invocations_total{processor=\"MockProcessor\"}"));
+    }
+
+    @Test
+    public void testGETResponseContentType() throws Exception {
+        Response response = client.send();
+        assertTrue(response.getHeaders().getFirstValue("Content-Type").
+                startsWith("text/plain"));
+    }
+
+}
@@ -46,6 +46,7 @@ public class StatusResourceTest extends AbstractAdminResourceTest {
     public void testGETResponseBody() throws Exception {
         Response response = client.send();
         assertTrue(response.getBodyAsString().contains("\"infoCache\":"));
+        assertTrue(response.getBodyAsString().contains("\"threadPools\":"));
     }
 
     @Test
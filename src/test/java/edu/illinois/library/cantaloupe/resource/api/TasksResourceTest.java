@@ -148,6 +148,29 @@ public class TasksResourceTest extends AbstractAPIResourceTest {
         assertNotNull(response.getHeaders().getFirstValue("Location"));
     }
 
+    @Test
+    public void testPOSTWithSeedCacheVerb() throws Exception {
+        client.setEntity("{ \"verb\": \"SeedCache\", \"identifiers\": [\"cats\"], " +
+                "\"concurrency\": 2, \"priority\": \"low\" }");
+        client.setContentType(MediaType.APPLICATION_JSON);
+        Response response = client.send();
+
+        assertEquals(202, response.getStatus());
+        assertNotNull(response.getHeaders().getFirstValue("Location"));
+    }
+
+    @Test
+    public void testPOSTWithSeedCacheVerbAndInvalidPriority()
+            throws Exception {
+        try {
+            client.setEntity("{ \"verb\": \"SeedCache\", \"priority\": \"urgent\" }");
+            client.setContentType(MediaType.APPLICATION_JSON);
+            client.send();
+        } catch (ResourceException e) {
+            assertEquals(400, e.getStatusCode());
+        }
+    }
+
     @Test
     public void testPOSTResponseHeaders() throws Exception {
         client.setEntity("{ \"verb\": \"PurgeDelegateMethodInvocationCache\" }");
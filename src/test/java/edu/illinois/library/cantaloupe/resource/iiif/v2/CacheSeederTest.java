@@ -0,0 +1,100 @@
+package edu.illinois.library.cantaloupe.resource.iiif.v2;
+
+import edu.illinois.library.cantaloupe.image.Format;
+import edu.illinois.library.cantaloupe.image.Identifier;
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CacheSeederTest extends BaseTest {
+
+    private Identifier identifier;
+    private ImageInfo<String,Object> imageInfo;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+
+        identifier = new Identifier("cats");
+
+        imageInfo = new ImageInfo<>();
+        imageInfo.put("width", 1000);
+        imageInfo.put("height", 600);
+
+        final List<ImageInfo.Size> sizes = new ArrayList<>();
+        sizes.add(new ImageInfo.Size(250, 150));
+        sizes.add(new ImageInfo.Size(500, 300));
+        sizes.add(new ImageInfo.Size(1000, 600));
+        imageInfo.put("sizes", sizes);
+
+        final ImageInfo.Tile tile = new ImageInfo.Tile();
+        tile.width = 512;
+        tile.height = 512;
+        tile.scaleFactors.addAll(Arrays.asList(1, 2));
+        final List<ImageInfo.Tile> tiles = new ArrayList<>();
+        tiles.add(tile);
+        imageInfo.put("tiles", tiles);
+    }
+
+    private static List<String> toStrings(List<Parameters> paramsList) {
+        final List<String> strings = new ArrayList<>();
+        for (Parameters params : paramsList) {
+            strings.add(params.toString());
+        }
+        return strings;
+    }
+
+    /* newParametersList() */
+
+    @Test
+    public void testNewParametersList() throws Exception {
+        List<String> actual = toStrings(CacheSeeder.newParametersList(
+                identifier, imageInfo, Format.JPG));
+        List<String> expected = Arrays.asList(
+                // scale factor 1
+                "cats/0,0,512,512/512,/0/default.jpg",
+                "cats/512,0,488,512/488,/0/default.jpg",
+                "cats/0,512,512,88/512,/0/default.jpg",
+                "cats/512,512,488,88/488,/0/default.jpg",
+                // scale factor 2, whose one tile covers the whole image
+                "cats/full/500,/0/default.jpg",
+                // sizes, minus the one that duplicates the tile above
+                "cats/full/250,/0/default.jpg",
+                "cats/full/1000,/0/default.jpg");
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testNewParametersListScalesPartialTilesUp() throws Exception {
+        imageInfo.put("width", 1025);
+        @SuppressWarnings("unchecked")
+        List<ImageInfo.Tile> tiles =
+                (List<ImageInfo.Tile>) imageInfo.get("tiles");
+        tiles.get(0).scaleFactors.clear();
+        tiles.get(0).scaleFactors.add(2);
+        ((List<?>) imageInfo.get("sizes")).clear();
+
+        List<String> actual = toStrings(CacheSeeder.newParametersList(
+                identifier, imageInfo, Format.JPG));
+        // The 1-pixel-wide remainder of the 1025-pixel width would round
+        // down to 0 pixels at scale factor 2, so it must be rounded up.
+        assertEquals(Arrays.asList(
+                "cats/0,0,1024,600/512,/0/default.jpg",
+                "cats/1024,0,1,600/1,/0/default.jpg"), actual);
+    }
+
+    @Test
+    public void testNewParametersListWithFormat() throws Exception {
+        for (Parameters params : CacheSeeder.newParametersList(
+                identifier, imageInfo, Format.PNG)) {
+            assertEquals(Format.PNG, params.getOutputFormat());
+        }
+    }
+
+}
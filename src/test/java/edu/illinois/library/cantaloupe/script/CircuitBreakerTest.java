@@ -0,0 +1,64 @@
+package edu.illinois.library.cantaloupe.script;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        final CircuitBreaker instance = new CircuitBreaker(2, 60000);
+        instance.recordFailure();
+        assertTrue(instance.allowRequest());
+        instance.recordFailure();
+        assertFalse(instance.allowRequest());
+    }
+
+    @Test
+    public void testSuccessResetsFailureCount() {
+        final CircuitBreaker instance = new CircuitBreaker(2, 60000);
+        instance.recordFailure();
+        instance.recordSuccess();
+        instance.recordFailure();
+        assertTrue(instance.allowRequest());
+        assertFalse(instance.isOpen());
+    }
+
+    @Test
+    public void testAllowsRequestsAfterResetPeriod() throws Exception {
+        final CircuitBreaker instance = new CircuitBreaker(1, 50);
+        instance.recordFailure();
+        assertFalse(instance.allowRequest());
+        Thread.sleep(60);
+        assertTrue(instance.allowRequest());
+        instance.recordSuccess();
+        assertFalse(instance.isOpen());
+    }
+
+    @Test
+    public void testAllowsOnlyOneProbeWhenHalfOpen() throws Exception {
+        final CircuitBreaker instance = new CircuitBreaker(1, 50);
+        instance.recordFailure();
+        Thread.sleep(60);
+        assertTrue(instance.allowRequest());
+        assertFalse(instance.allowRequest());
+        assertFalse(instance.allowRequest());
+    }
+
+    @Test
+    public void testFailedProbeReopens() throws Exception {
+        final CircuitBreaker instance = new CircuitBreaker(3, 50);
+        for (int i = 0; i < 3; i++) {
+            instance.recordFailure();
+        }
+        Thread.sleep(60);
+        assertTrue(instance.allowRequest());
+        instance.recordFailure();
+        assertTrue(instance.isOpen());
+        assertFalse(instance.allowRequest());
+        Thread.sleep(60);
+        assertTrue(instance.allowRequest());
+    }
+
+}
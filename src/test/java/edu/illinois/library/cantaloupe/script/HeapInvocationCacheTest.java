@@ -3,6 +3,9 @@ package edu.illinois.library.cantaloupe.script;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Map;
+
 import static org.junit.Assert.*;
 
 public class HeapInvocationCacheTest {
@@ -14,6 +17,20 @@ public class HeapInvocationCacheTest {
         instance = new HeapInvocationCache();
     }
 
+    /* estimateWeight() */
+
+    @Test
+    public void testEstimateWeight() {
+        assertEquals(0, HeapInvocationCache.estimateWeight(null));
+        assertTrue(HeapInvocationCache.estimateWeight("a very long string") >
+                HeapInvocationCache.estimateWeight("short"));
+        assertTrue(HeapInvocationCache.estimateWeight(
+                Arrays.asList("cats", "dogs")) >
+                HeapInvocationCache.estimateWeight("cats") * 2);
+    }
+
+    /* get() */
+
     @Test
     public void testGet() {
         assertNull(instance.get("bogus"));
@@ -23,6 +40,32 @@ public class HeapInvocationCacheTest {
         assertSame(value, instance.get(key));
     }
 
+    @Test
+    public void testGetWithExpiredEntry() throws Exception {
+        instance.put("key", "value", 1);
+        assertEquals("value", instance.get("key"));
+        Thread.sleep(1100);
+        assertNull(instance.get("key"));
+    }
+
+    /* hitRatios() */
+
+    @Test
+    public void testHitRatios() {
+        final InvocationKey key =
+                new InvocationKey("hitRatiosTest", Arrays.asList("cats"));
+        instance.get(key);
+        instance.put(key, "value");
+        instance.get(key);
+        instance.get(key);
+        instance.get(key);
+
+        final Map<String, Double> ratios = instance.hitRatios();
+        assertEquals(0.75, ratios.get("hitRatiosTest"), 0.00001);
+    }
+
+    /* maxSize() */
+
     @Test
     public void testMaxSize() {
         assertTrue(instance.maxSize() > 100);
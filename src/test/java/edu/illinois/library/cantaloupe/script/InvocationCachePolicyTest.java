@@ -0,0 +1,84 @@
+package edu.illinois.library.cantaloupe.script;
+
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class InvocationCachePolicyTest extends BaseTest {
+
+    /* forMethod() */
+
+    @Test
+    public void testForMethodWithDefaults() {
+        InvocationCachePolicy policy =
+                InvocationCachePolicy.forMethod("authorized?");
+        assertEquals(0, policy.getTtlSeconds());
+        assertEquals(Arrays.asList("cats", "127.0.0.1"),
+                policy.getCacheKey("authorized?", "cats", "127.0.0.1").
+                        getArguments());
+    }
+
+    @Test
+    public void testForMethodWithConfiguredPolicy() {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.DELEGATE_METHOD_INVOCATION_CACHE_TTL, 30);
+        config.setProperty("delegate_script.cache.authorized?.arguments",
+                "0, 2");
+        config.setProperty("delegate_script.cache.authorized?.ttl_seconds",
+                60);
+
+        InvocationCachePolicy policy =
+                InvocationCachePolicy.forMethod("authorized?");
+        assertEquals(60, policy.getTtlSeconds());
+        assertEquals(Arrays.asList("cats", "dogs"),
+                policy.getCacheKey("authorized?", "cats", "headers", "dogs").
+                        getArguments());
+
+        policy = InvocationCachePolicy.forMethod("get_resolver");
+        assertEquals(30, policy.getTtlSeconds());
+    }
+
+    @Test
+    public void testForMethodWithInvalidArgumentPositions() {
+        Configuration.getInstance().setProperty(
+                "delegate_script.cache.authorized?.arguments", "cats");
+        InvocationCachePolicy policy =
+                InvocationCachePolicy.forMethod("authorized?");
+        assertEquals(Arrays.asList("cats", "dogs"),
+                policy.getCacheKey("authorized?", "cats", "dogs").
+                        getArguments());
+    }
+
+    @Test
+    public void testForMethodResolvesPolicyOncePerConfigurationChange() {
+        Configuration config = Configuration.getInstance();
+        config.setProperty("delegate_script.cache.authorized?.ttl_seconds",
+                60);
+        InvocationCachePolicy policy =
+                InvocationCachePolicy.forMethod("authorized?");
+        assertSame(policy, InvocationCachePolicy.forMethod("authorized?"));
+
+        config.setProperty("delegate_script.cache.authorized?.ttl_seconds",
+                90);
+        policy = InvocationCachePolicy.forMethod("authorized?");
+        assertEquals(90, policy.getTtlSeconds());
+        assertSame(policy, InvocationCachePolicy.forMethod("authorized?"));
+    }
+
+    /* getCacheKey() */
+
+    @Test
+    public void testGetCacheKeyIgnoresPositionsOutOfRange() {
+        InvocationCachePolicy policy =
+                new InvocationCachePolicy(new int[] { 1, 5 }, 0);
+        assertEquals(new InvocationKey("func", Collections.singletonList("b")),
+                policy.getCacheKey("func", "a", "b"));
+    }
+
+}
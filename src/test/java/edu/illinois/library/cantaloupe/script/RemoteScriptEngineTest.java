@@ -0,0 +1,215 @@
+package edu.illinois.library.cantaloupe.script;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.illinois.library.cantaloupe.config.Configuration;
+import edu.illinois.library.cantaloupe.config.Key;
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.script.ScriptException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RemoteScriptEngineTest extends BaseTest {
+
+    /**
+     * Sidecar that echoes the first argument of <code>echo</code>, returns
+     * an error from <code>fail</code>, and never returns from
+     * <code>hang</code>.
+     */
+    private static class MockSidecar implements Runnable {
+
+        private final ObjectMapper mapper = new ObjectMapper();
+        private final ServerSocket serverSocket;
+        private final AtomicInteger numCalls = new AtomicInteger();
+        private final AtomicInteger numFrames = new AtomicInteger();
+
+        MockSidecar() throws IOException {
+            serverSocket = new ServerSocket(0);
+            final Thread thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        @Override
+        public void run() {
+            try (Socket socket = serverSocket.accept()) {
+                final DataInputStream is =
+                        new DataInputStream(socket.getInputStream());
+                final DataOutputStream os =
+                        new DataOutputStream(socket.getOutputStream());
+                while (true) {
+                    final byte[] payload = new byte[is.readInt()];
+                    is.readFully(payload);
+                    numFrames.incrementAndGet();
+
+                    final ArrayNode results = mapper.createArrayNode();
+                    for (JsonNode call : mapper.readTree(payload)) {
+                        numCalls.incrementAndGet();
+                        final String method = call.path("method").asText();
+                        if ("hang".equals(method)) {
+                            continue;
+                        }
+                        final ObjectNode result = results.addObject();
+                        result.set("id", call.get("id"));
+                        if ("fail".equals(method)) {
+                            result.put("error", "failed");
+                        } else if ("echo".equals(method)) {
+                            result.set("result", call.get("args").get(0));
+                        } else {
+                            result.putNull("result");
+                        }
+                    }
+                    final byte[] response = mapper.writeValueAsBytes(results);
+                    os.writeInt(response.length);
+                    os.write(response);
+                    os.flush();
+                }
+            } catch (IOException e) {
+                // The connection has been closed.
+            }
+        }
+
+        void stop() throws IOException {
+            serverSocket.close();
+        }
+
+    }
+
+    private RemoteScriptEngine instance;
+    private MockSidecar sidecar;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        sidecar = new MockSidecar();
+
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.DELEGATE_SCRIPT_REMOTE_HOST, "localhost");
+        config.setProperty(Key.DELEGATE_SCRIPT_REMOTE_PORT, sidecar.getPort());
+        config.setProperty(Key.DELEGATE_SCRIPT_REMOTE_TIMEOUT, 500);
+        config.setProperty(
+                Key.DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_FAILURES, 2);
+        config.setProperty(
+                Key.DELEGATE_SCRIPT_REMOTE_CIRCUIT_BREAKER_RESET, 60000);
+
+        instance = new RemoteScriptEngine();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        sidecar.stop();
+    }
+
+    /* invoke() */
+
+    @Test
+    public void testInvoke() throws Exception {
+        final Map<String, Object> arg = new HashMap<>();
+        arg.put("width", 500);
+        arg.put("cats", Arrays.asList("a", "b"));
+
+        final Map<?, ?> result = (Map<?, ?>) instance.invoke("echo", arg);
+        assertEquals(500L, result.get("width"));
+        assertEquals(Arrays.asList("a", "b"), result.get("cats"));
+        assertNull(instance.invoke("bogus"));
+    }
+
+    @Test
+    public void testInvokeWithConcurrentCalls() throws Exception {
+        final int numCalls = 200;
+        final ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            final List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < numCalls; i++) {
+                final String arg = "call" + i;
+                futures.add(executor.submit(() -> instance.invoke("echo", arg)));
+            }
+            for (int i = 0; i < numCalls; i++) {
+                assertEquals("call" + i, futures.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(numCalls, sidecar.numCalls.get());
+        assertTrue(sidecar.numFrames.get() <= numCalls);
+    }
+
+    @Test
+    public void testInvokeWithErrorResult() throws Exception {
+        try {
+            instance.invoke("fail");
+            fail("Expected exception");
+        } catch (ScriptException e) {
+            assertTrue(e.getMessage().contains("failed"));
+        }
+        // Errors returned by the sidecar don't open the circuit breaker.
+        instance.invoke("fail2");
+        instance.invoke("fail2");
+        assertEquals("cats", instance.invoke("echo", "cats"));
+    }
+
+    @Test(expected = ScriptException.class)
+    public void testInvokeWithTimeout() throws Exception {
+        instance.invoke("hang");
+    }
+
+    @Test
+    public void testInvokeOpensCircuitBreaker() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                instance.invoke("hang");
+                fail("Expected exception");
+            } catch (ScriptException e) {
+                assertTrue(e.getMessage().contains("Timed out"));
+            }
+        }
+        try {
+            instance.invoke("echo", "cats");
+            fail("Expected exception");
+        } catch (ScriptException e) {
+            assertTrue(e.getMessage().contains("circuit breaker"));
+        }
+    }
+
+    @Test(expected = ScriptException.class)
+    public void testInvokeWithSidecarNotRunning() throws Exception {
+        sidecar.stop();
+        Configuration.getInstance().setProperty(
+                Key.DELEGATE_SCRIPT_REMOTE_PORT, 1);
+        instance.invoke("echo", "cats");
+    }
+
+    /* load() */
+
+    @Test
+    public void testLoad() throws Exception {
+        instance.load("module Cantaloupe\nend");
+        assertEquals(1, sidecar.numCalls.get());
+    }
+
+}
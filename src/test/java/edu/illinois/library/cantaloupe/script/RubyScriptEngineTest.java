@@ -4,14 +4,38 @@ import edu.illinois.library.cantaloupe.config.Configuration;
 import edu.illinois.library.cantaloupe.config.Key;
 import edu.illinois.library.cantaloupe.test.BaseTest;
 import org.junit.Before;
+import org.jruby.embed.LocalContextScope;
 import org.junit.Test;
 
+import javax.script.ScriptException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
 public class RubyScriptEngineTest extends BaseTest {
 
+    /**
+     * Script resembling a typical authorization delegate method, which is
+     * invoked with arguments like those of a typical request.
+     */
+    private static final String AUTHORIZATION_SCRIPT =
+            "module Cantaloupe\n" +
+            "def self.authorized?(identifier, full_size, operations, " +
+                    "resulting_size, output_format, request_uri, " +
+                    "request_headers, client_ip, cookies)\n" +
+            "return false if request_headers['X-Forbidden'] == 'true'\n" +
+            "!identifier.start_with?('forbidden') && " +
+                    "client_ip.start_with?('127.')\n" +
+            "end\n" +
+            "end";
+
     private RubyScriptEngine instance;
 
     @Before
@@ -20,6 +44,67 @@ public class RubyScriptEngineTest extends BaseTest {
         instance = new RubyScriptEngine();
     }
 
+    /**
+     * Invokes the <code>authorized?</code> method of {@link
+     * #AUTHORIZATION_SCRIPT}, which must already be loaded.
+     */
+    protected Object invokeAuthorized() throws ScriptException {
+        final Map<String, Integer> fullSize = new HashMap<>();
+        fullSize.put("width", 2000);
+        fullSize.put("height", 1500);
+        final Map<String, Integer> resultingSize = new HashMap<>();
+        resultingSize.put("width", 512);
+        resultingSize.put("height", 512);
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Accept", "image/jpeg");
+        headers.put("User-Agent", "Mozilla/5.0");
+        final Map<String, String> cookies = new HashMap<>();
+        cookies.put("session", "abc123");
+
+        return instance.invoke("authorized?", "cats.jpg", fullSize,
+                new ArrayList<>(), resultingSize, "image/jpeg",
+                "http://example.org/iiif/2/cats.jpg/0,0,512,512/512,/0/default.jpg",
+                headers, "127.0.0.1", cookies);
+    }
+
+    /**
+     * Loads {@link #AUTHORIZATION_SCRIPT}.
+     */
+    protected void loadAuthorizationScript() throws ScriptException {
+        instance.load(AUTHORIZATION_SCRIPT);
+    }
+
+    /* getContextScope() */
+
+    @Test
+    public void testGetContextScope() {
+        Configuration config = Configuration.getInstance();
+        assertEquals(LocalContextScope.CONCURRENT,
+                RubyScriptEngine.getContextScope());
+
+        config.setProperty(Key.DELEGATE_SCRIPT_CONTEXT_SCOPE, "pooled");
+        assertEquals(LocalContextScope.SINGLETHREAD,
+                RubyScriptEngine.getContextScope());
+
+        config.setProperty(Key.DELEGATE_SCRIPT_CONTEXT_SCOPE, "bogus");
+        assertEquals(LocalContextScope.CONCURRENT,
+                RubyScriptEngine.getContextScope());
+    }
+
+    /* getRuntimePoolSize() */
+
+    @Test
+    public void testGetRuntimePoolSize() {
+        assertEquals(Runtime.getRuntime().availableProcessors(),
+                RubyScriptEngine.getRuntimePoolSize());
+
+        Configuration.getInstance().setProperty(
+                Key.DELEGATE_SCRIPT_RUNTIME_POOL_SIZE, 3);
+        assertEquals(3, RubyScriptEngine.getRuntimePoolSize());
+    }
+
+    /* getModuleName() */
+
     @Test
     public void testGetModuleName() {
         assertEquals(RubyScriptEngine.TOP_MODULE,
@@ -30,12 +115,16 @@ public class RubyScriptEngineTest extends BaseTest {
                 instance.getModuleName("cats::dogs::fleas"));
     }
 
+    /* getUnqualifiedMethodName() */
+
     @Test
     public void testGetUnqualifiedMethodName() {
         assertEquals("cats", instance.getUnqualifiedMethodName("cats"));
         assertEquals("dogs", instance.getUnqualifiedMethodName("cats::dogs"));
     }
 
+    /* invoke() */
+
     @Test
     public void testInvokeWithNoArgs() throws Exception {
         final String code = "module Cantaloupe\n" +
@@ -104,4 +193,147 @@ public class RubyScriptEngineTest extends BaseTest {
         assertEquals(3, instance.getInvocationCache().size());
     }
 
+    @Test
+    public void testInvokeWithCacheEnabledAndArgumentPositions()
+            throws Exception {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.DELEGATE_METHOD_INVOCATION_CACHE_ENABLED, true);
+        config.setProperty("delegate_script.cache.func8.arguments", "0");
+
+        final String code = "module Cantaloupe\n" +
+                "def self.func8(identifier, client_ip)\n" +
+                "identifier + client_ip\n" +
+                "end\n" +
+                "end";
+        instance.load(code);
+
+        assertEquals("cats1", instance.invoke("func8", "cats", "1"));
+        // The client IP is not part of the key, so this is a hit.
+        assertEquals("cats1", instance.invoke("func8", "cats", "2"));
+        assertEquals("dogs3", instance.invoke("func8", "dogs", "3"));
+        assertEquals(2, instance.getInvocationCache().size());
+    }
+
+    @Test
+    public void testInvokeWithMethodInNestedModule() throws Exception {
+        final String code = "module Cantaloupe\n" +
+                "module Cats\n" +
+                "def self.func4\n" +
+                "'meow'\n" +
+                "end\n" +
+                "end\n" +
+                "end";
+        instance.load(code);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("meow", instance.invoke("Cats::func4"));
+        }
+    }
+
+    @Test(expected = ScriptException.class)
+    public void testInvokeWithMissingMethod() throws Exception {
+        instance.load("module Cantaloupe\nend");
+        instance.invoke("bogus");
+    }
+
+    @Test(expected = ScriptException.class)
+    public void testInvokeWithNoScriptLoaded() throws Exception {
+        instance.invoke("func1");
+    }
+
+    @Test
+    public void testInvokeWithMapAndListArgs() throws Exception {
+        final String code = "module Cantaloupe\n" +
+                "def self.func9(map, list)\n" +
+                "[map.class, map['size'].class, list.class, list[0].class]." +
+                        "map(&:name).join(',') + ':' + " +
+                        "map['size']['width'].to_s + list[0]['name']\n" +
+                "end\n" +
+                "end";
+        instance.load(code);
+
+        final Map<String, Integer> size = new HashMap<>();
+        size.put("width", 512);
+        final Map<String, Object> map = new HashMap<>();
+        map.put("size", size);
+        final Map<String, String> element = new HashMap<>();
+        element.put("name", "crop");
+        final List<Object> list = new ArrayList<>();
+        list.add(element);
+
+        assertEquals("Hash,Hash,Array,Hash:512crop",
+                instance.invoke("func9", map, list));
+    }
+
+    @Test
+    public void testInvokeWithRequestArgs() throws Exception {
+        loadAuthorizationScript();
+        assertEquals(true, invokeAuthorized());
+    }
+
+    @Test
+    public void testInvokeWithPooledContextScope() throws Exception {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.DELEGATE_SCRIPT_CONTEXT_SCOPE, "pooled");
+        config.setProperty(Key.DELEGATE_SCRIPT_RUNTIME_POOL_SIZE, 2);
+
+        final String code = "module Cantaloupe\n" +
+                "def self.func5\n" +
+                "@count = (@count || 0) + 1\n" +
+                "end\n" +
+                "end";
+        instance.load(code);
+
+        final int numThreads = 4;
+        final int numInvocations = 50;
+        final ExecutorService executor =
+                Executors.newFixedThreadPool(numThreads);
+        try {
+            final List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                final Callable<Long> task = () -> {
+                    long max = 0;
+                    for (int j = 0; j < numInvocations; j++) {
+                        max = Math.max(max, (Long) instance.invoke("func5"));
+                    }
+                    return max;
+                };
+                futures.add(executor.submit(task));
+            }
+            // Each runtime has its own count, and the counts of the (at
+            // most) two runtimes add up to the number of invocations.
+            long maxCount = 0;
+            for (Future<Long> future : futures) {
+                maxCount = Math.max(maxCount, future.get());
+            }
+            assertTrue(maxCount >= numThreads * numInvocations / 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /* load() */
+
+    @Test
+    public void testLoadReplacesPreviousScript() throws Exception {
+        instance.load("module Cantaloupe\n" +
+                "def self.func6\n" +
+                "'cats'\n" +
+                "end\n" +
+                "end");
+        assertEquals("cats", instance.invoke("func6"));
+
+        instance.load("module Cantaloupe\n" +
+                "def self.func6\n" +
+                "'dogs'\n" +
+                "end\n" +
+                "end");
+        assertEquals("dogs", instance.invoke("func6"));
+    }
+
+    @Test(expected = ScriptException.class)
+    public void testLoadWithInvalidScript() throws Exception {
+        instance.load("module Cantaloupe\ndef self.func7\n");
+    }
+
 }
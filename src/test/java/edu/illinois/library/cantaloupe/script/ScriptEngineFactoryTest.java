@@ -40,6 +40,16 @@ public class ScriptEngineFactoryTest extends BaseTest {
         assertNotNull(engine);
     }
 
+    @Test
+    public void testGetScriptEngineWithRemoteEngine() throws Exception {
+        Configuration config = Configuration.getInstance();
+        config.setProperty(Key.DELEGATE_SCRIPT_ENGINE, "remote");
+        config.setProperty(Key.DELEGATE_SCRIPT_PATHNAME, "");
+
+        ScriptEngine engine = ScriptEngineFactory.getScriptEngine();
+        assertTrue(engine instanceof RemoteScriptEngine);
+    }
+
     @Test(expected = ScriptException.class)
     public void testGetScriptEngineWithPresentInvalidScript() throws Exception {
         Configuration config = Configuration.getInstance();
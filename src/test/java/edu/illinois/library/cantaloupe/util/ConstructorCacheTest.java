@@ -0,0 +1,84 @@
+package edu.illinois.library.cantaloupe.util;
+
+import edu.illinois.library.cantaloupe.test.BaseTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConstructorCacheTest extends BaseTest {
+
+    static class PackagePrivateList extends AbstractList<String> {
+        PackagePrivateList() {}
+
+        @Override
+        public String get(int index) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+
+    public static class ThrowingList extends ArrayList<String> {
+        public ThrowingList() throws Exception {
+            throw new Exception("cats");
+        }
+    }
+
+    private ConstructorCache<List> instance;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        instance = new ConstructorCache<>(MethodHandles.lookup(), List.class);
+    }
+
+    /* newInstance() */
+
+    @Test
+    public void testNewInstance() throws Exception {
+        final List list = instance.newInstance(ArrayList.class.getName());
+        assertTrue(list instanceof ArrayList);
+        assertNotSame(list, instance.newInstance(ArrayList.class.getName()));
+        assertTrue(instance.newInstance(LinkedList.class.getName())
+                instanceof LinkedList);
+    }
+
+    @Test
+    public void testNewInstanceWithPackagePrivateConstructor()
+            throws Exception {
+        assertTrue(instance.newInstance(PackagePrivateList.class.getName())
+                instanceof PackagePrivateList);
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void testNewInstanceWithMissingClass() throws Exception {
+        instance.newInstance("edu.illinois.library.cantaloupe.Bogus");
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void testNewInstanceWithClassOfWrongType() throws Exception {
+        instance.newInstance(String.class.getName());
+    }
+
+    @Test
+    public void testNewInstanceWithThrowingConstructor() throws Exception {
+        try {
+            instance.newInstance(ThrowingList.class.getName());
+            fail("Expected exception");
+        } catch (InvocationTargetException e) {
+            assertEquals("cats", e.getCause().getMessage());
+        }
+    }
+
+}
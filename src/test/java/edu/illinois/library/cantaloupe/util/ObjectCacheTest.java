@@ -1,5 +1,7 @@
 package edu.illinois.library.cantaloupe.util;
 
+import edu.illinois.library.cantaloupe.metrics.Counter;
+import edu.illinois.library.cantaloupe.metrics.Metrics;
 import edu.illinois.library.cantaloupe.test.BaseTest;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,6 +37,32 @@ public class ObjectCacheTest extends BaseTest {
         assertSame(value, instance.get(key));
     }
 
+    @Test
+    public void testGetWithMetricNameCountsLookups() {
+        instance = new ObjectCache<>("ObjectCacheTest", "string", 100);
+        final Counter hits = Metrics.cacheHits("ObjectCacheTest", "string");
+        final Counter misses =
+                Metrics.cacheMisses("ObjectCacheTest", "string");
+        final long hitCount = hits.getCount();
+        final long missCount = misses.getCount();
+
+        instance.put("cats", "yes");
+        instance.get("cats");
+        instance.get("dogs");
+
+        assertEquals(hitCount + 1, hits.getCount());
+        assertEquals(missCount + 1, misses.getCount());
+    }
+
+    @Test
+    public void testGetWithoutMetricNameDoesNotCountLookups() {
+        final Counter misses =
+                Metrics.cacheMisses("ObjectCacheTest", "string");
+        final long missCount = misses.getCount();
+        instance.get("dogs");
+        assertEquals(missCount, misses.getCount());
+    }
+
     @Test
     public void testMaxSize() {
         assertEquals(MAX_SIZE, instance.maxSize());
@@ -15,6 +15,22 @@ public class StringUtilTest extends BaseTest {
                 StringUtil.filesystemSafe("cats"));
     }
 
+    @Test
+    public void testParseByteSize() {
+        assertEquals(500, StringUtil.parseByteSize("500"));
+        assertEquals(1024 * 1024 * 5, StringUtil.parseByteSize("5M"));
+        assertEquals(1024 * 1024 * 5, StringUtil.parseByteSize("5MB"));
+        assertEquals((long) (Math.pow(1024, 3) * 1.5),
+                StringUtil.parseByteSize("1.5G"));
+        assertEquals((long) Math.pow(1024, 4) * 2,
+                StringUtil.parseByteSize("2TB"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseByteSizeWithInvalidArgument() {
+        StringUtil.parseByteSize("cats");
+    }
+
     @Test
     public void testRemoveTrailingZeroes() {
         assertEquals("0", StringUtil.removeTrailingZeroes(0.0f));